@@ -327,7 +327,245 @@ public final class ByteBufUtil {
         return -1;
     }
 
+    /**
+     * Encodes the specified {@link CharSequence} with the specified {@link Charset} and writes the
+     * encoded bytes into the specified buffer, starting at its current {@code writerIndex}.
+     * US-ASCII, ISO-8859-1 and UTF-8 are encoded without a {@link CharsetEncoder}, straight into
+     * the backing array of the buffer when it has one.  Characters which can not be encoded are
+     * replaced with {@code '?'}, as {@link ByteBuf#toString(Charset)} does.
+     *
+     * @return the number of bytes written
+     */
+    public static int writeString(ByteBuf buf, CharSequence seq, Charset charset) {
+        if (buf == null) {
+            throw new NullPointerException("buf");
+        }
+        if (seq == null) {
+            throw new NullPointerException("seq");
+        }
+        if (charset == null) {
+            throw new NullPointerException("charset");
+        }
+
+        final int maxLength = maxEncodedLength(seq.length(), charset);
+        if (maxLength < 0) {
+            ByteBuffer dst = encodeString(CharBuffer.wrap(seq), charset);
+            int written = dst.remaining();
+            buf.writeBytes(dst);
+            return written;
+        }
+
+        int written;
+        buf.ensureWritableBytes(maxLength);
+        if (buf.hasArray()) {
+            int offset = buf.arrayOffset() + buf.writerIndex();
+            written = encodeString(seq, charset, buf.array(), offset) - offset;
+            buf.writerIndex(buf.writerIndex() + written);
+        } else {
+            byte[] dst = new byte[maxLength];
+            written = encodeString(seq, charset, dst, 0);
+            buf.writeBytes(dst, 0, written);
+        }
+        return written;
+    }
+
+    /**
+     * Returns the maximum number of bytes {@code length} characters are encoded into by
+     * {@link #encodeString(CharSequence, Charset, byte[], int)}, or {@code -1} if the specified
+     * {@link Charset} has no fast path.
+     */
+    private static int maxEncodedLength(int length, Charset charset) {
+        if (CharsetUtil.UTF_8.equals(charset)) {
+            // A surrogate pair is encoded into 4 bytes, every other character into at most 3.
+            return length * 3;
+        }
+        if (CharsetUtil.US_ASCII.equals(charset) || CharsetUtil.ISO_8859_1.equals(charset)) {
+            return length;
+        }
+        return -1;
+    }
+
+    /**
+     * Encodes the specified {@link CharSequence} into the specified array, which must have room for
+     * {@link #maxEncodedLength(int, Charset)} bytes, and returns the index after the last written byte.
+     */
+    private static int encodeString(CharSequence src, Charset charset, byte[] dst, int dstIndex) {
+        if (CharsetUtil.UTF_8.equals(charset)) {
+            return encodeUtf8(src, dst, dstIndex);
+        }
+        return encodeSingleByte(src, dst, dstIndex, CharsetUtil.US_ASCII.equals(charset)? 0x7F : 0xFF);
+    }
+
+    private static int encodeSingleByte(CharSequence src, byte[] dst, int dstIndex, int maxChar) {
+        final int length = src.length();
+        for (int i = 0; i < length; i ++) {
+            char c = src.charAt(i);
+            if (c <= maxChar) {
+                dst[dstIndex ++] = (byte) c;
+            } else {
+                // A surrogate pair is a single unmappable character.
+                if (Character.isHighSurrogate(c) && i + 1 < length &&
+                        Character.isLowSurrogate(src.charAt(i + 1))) {
+                    i ++;
+                }
+                dst[dstIndex ++] = '?';
+            }
+        }
+        return dstIndex;
+    }
+
+    private static int encodeUtf8(CharSequence src, byte[] dst, int dstIndex) {
+        final int length = src.length();
+        for (int i = 0; i < length; i ++) {
+            char c = src.charAt(i);
+            if (c < 0x80) {
+                dst[dstIndex ++] = (byte) c;
+            } else if (c < 0x800) {
+                dst[dstIndex ++] = (byte) (0xC0 | c >> 6);
+                dst[dstIndex ++] = (byte) (0x80 | c & 0x3F);
+            } else if (c < Character.MIN_SURROGATE || c > Character.MAX_SURROGATE) {
+                dst[dstIndex ++] = (byte) (0xE0 | c >> 12);
+                dst[dstIndex ++] = (byte) (0x80 | c >> 6 & 0x3F);
+                dst[dstIndex ++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length &&
+                    Character.isLowSurrogate(src.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, src.charAt(++ i));
+                dst[dstIndex ++] = (byte) (0xF0 | codePoint >> 18);
+                dst[dstIndex ++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                dst[dstIndex ++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                dst[dstIndex ++] = (byte) (0x80 | codePoint & 0x3F);
+            } else {
+                // Unpaired surrogate
+                dst[dstIndex ++] = '?';
+            }
+        }
+        return dstIndex;
+    }
+
+    /**
+     * Decodes {@code length} bytes of the specified buffer, starting at {@code index}, with the
+     * specified {@link Charset}.  US-ASCII, ISO-8859-1 and well-formed UTF-8 are decoded without a
+     * {@link CharsetDecoder}, straight from the backing array of the buffer when it has one.
+     */
+    static String decodeString(ByteBuf src, int index, int length, Charset charset) {
+        if (length == 0) {
+            return "";
+        }
+
+        final boolean fastPath = CharsetUtil.UTF_8.equals(charset) ||
+                CharsetUtil.US_ASCII.equals(charset) || CharsetUtil.ISO_8859_1.equals(charset);
+        if (!fastPath) {
+            ByteBuffer nioBuffer;
+            if (src.hasNioBuffer()) {
+                nioBuffer = src.nioBuffer(index, length);
+            } else {
+                nioBuffer = ByteBuffer.allocate(length);
+                src.getBytes(index, nioBuffer);
+                nioBuffer.flip();
+            }
+            return decodeString(nioBuffer, charset);
+        }
+
+        byte[] array;
+        int offset;
+        if (src.hasArray()) {
+            array = src.array();
+            offset = src.arrayOffset() + index;
+        } else {
+            array = new byte[length];
+            src.getBytes(index, array);
+            offset = 0;
+        }
+
+        if (CharsetUtil.UTF_8.equals(charset)) {
+            String decoded = decodeUtf8(array, offset, length);
+            if (decoded != null) {
+                return decoded;
+            }
+            // Let the CharsetDecoder replace the malformed input.
+            return decodeString(ByteBuffer.wrap(array, offset, length), charset);
+        }
+
+        final boolean ascii = CharsetUtil.US_ASCII.equals(charset);
+        final char[] dst = new char[length];
+        for (int i = 0; i < length; i ++) {
+            byte b = array[offset + i];
+            if (b >= 0) {
+                dst[i] = (char) b;
+            } else {
+                dst[i] = ascii? '\uFFFD' : (char) (b & 0xFF);
+            }
+        }
+        return new String(dst);
+    }
+
+    /**
+     * Decodes the specified well-formed UTF-8 byte sequence, or returns {@code null} if it is malformed.
+     */
+    private static String decodeUtf8(byte[] src, int offset, int length) {
+        // Every character is decoded from at least one byte, and a surrogate pair from four.
+        final char[] dst = new char[length];
+        final int end = offset + length;
+        int i = offset;
+        int n = 0;
+        while (i < end) {
+            int b = src[i];
+            if (b >= 0) {
+                dst[n ++] = (char) b;
+                i ++;
+            } else if ((b & 0xE0) == 0xC0) {
+                if (end - i < 2 || !isContinuation(src[i + 1])) {
+                    return null;
+                }
+                int c = (b & 0x1F) << 6 | src[i + 1] & 0x3F;
+                if (c < 0x80) {
+                    // Overlong
+                    return null;
+                }
+                dst[n ++] = (char) c;
+                i += 2;
+            } else if ((b & 0xF0) == 0xE0) {
+                if (end - i < 3 || !isContinuation(src[i + 1]) || !isContinuation(src[i + 2])) {
+                    return null;
+                }
+                int c = (b & 0x0F) << 12 | (src[i + 1] & 0x3F) << 6 | src[i + 2] & 0x3F;
+                if (c < 0x800 || c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                    // Overlong or encoded surrogate
+                    return null;
+                }
+                dst[n ++] = (char) c;
+                i += 3;
+            } else if ((b & 0xF8) == 0xF0) {
+                if (end - i < 4 || !isContinuation(src[i + 1]) ||
+                        !isContinuation(src[i + 2]) || !isContinuation(src[i + 3])) {
+                    return null;
+                }
+                int c = (b & 0x07) << 18 | (src[i + 1] & 0x3F) << 12 |
+                        (src[i + 2] & 0x3F) << 6 | src[i + 3] & 0x3F;
+                if (c < Character.MIN_SUPPLEMENTARY_CODE_POINT || c > Character.MAX_CODE_POINT) {
+                    // Overlong or out of range
+                    return null;
+                }
+                n += Character.toChars(c, dst, n);
+                i += 4;
+            } else {
+                return null;
+            }
+        }
+        return new String(dst, 0, n);
+    }
+
+    private static boolean isContinuation(byte b) {
+        return (b & 0xC0) == 0x80;
+    }
+
     static ByteBuffer encodeString(CharBuffer src, Charset charset) {
+        final int maxLength = maxEncodedLength(src.remaining(), charset);
+        if (maxLength >= 0) {
+            byte[] dst = new byte[maxLength];
+            return ByteBuffer.wrap(dst, 0, encodeString(src, charset, dst, 0));
+        }
+
         final CharsetEncoder encoder = CharsetUtil.getEncoder(charset);
         final ByteBuffer dst = ByteBuffer.allocate(
                 (int) ((double) src.remaining() * encoder.maxBytesPerChar()));
@@ -1161,10 +1161,10 @@ public class DefaultCompositeByteBuf extends AbstractByteBuf implements Composit
         components.subList(0, firstComponentId).clear();
 
         // Update indexes and markers.
-        Component first = components.get(0);
+        int offset = components.get(0).offset;
         updateComponentOffsets(0);
-        setIndex(readerIndex - first.offset, writerIndex - first.offset);
-        adjustMarkers(first.offset);
+        setIndex(readerIndex - offset, writerIndex - offset);
+        adjustMarkers(offset);
         return this;
     }
 
@@ -277,7 +277,7 @@ public class SlicedByteBuf extends AbstractWrappedByteBuf {
     @Override
     public ByteBuffer[] nioBuffers(int index, int length) {
         checkIndex(index, length);
-        return buffer.nioBuffers(index, length);
+        return buffer.nioBuffers(index + adjustment, length);
     }
 
     private void checkIndex(int index) {
@@ -22,6 +22,7 @@ import io.netty.util.CharsetUtil;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Random;
@@ -1512,6 +1513,28 @@ public abstract class AbstractChannelBufferTest {
         assertEquals("Hello, World!", buffer.toString(CharsetUtil.ISO_8859_1));
     }
 
+    @Test
+    public void testToStringCharsets() throws Exception {
+        byte[][] inputs = {
+                "Hello, World!".getBytes("US-ASCII"),
+                "caf\u00e9 \u20ac \ud83d\ude00".getBytes("UTF-8"),
+                { (byte) 0xC3 },                                     // truncated
+                { 'a', (byte) 0xC0, (byte) 0x80, 'b' },              // overlong
+                { (byte) 0xED, (byte) 0xA0, (byte) 0x80 },           // encoded surrogate
+                { (byte) 0xF4, (byte) 0x90, (byte) 0x80, (byte) 0x80 }, // out of range
+                { (byte) 0x80, (byte) 0xFF, 'z' },
+        };
+        Charset[] charsets = { CharsetUtil.US_ASCII, CharsetUtil.ISO_8859_1, CharsetUtil.UTF_8 };
+        for (byte[] input: inputs) {
+            buffer.clear();
+            buffer.writeByte('x');
+            buffer.writeBytes(input);
+            for (Charset charset: charsets) {
+                assertEquals(new String(input, charset.name()), buffer.toString(1, input.length, charset));
+            }
+        }
+    }
+
     @Test
     public void testIndexOf() {
         buffer.clear();
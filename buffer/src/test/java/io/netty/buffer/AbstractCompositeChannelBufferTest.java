@@ -155,6 +155,19 @@ public abstract class AbstractCompositeChannelBufferTest extends
         assertTrue(ByteBufUtil.equals(a, b));
     }
 
+    @Test
+    public void testDiscardReadComponents() {
+        CompositeByteBuf buf = (CompositeByteBuf) wrappedBuffer(
+                new byte[] { 1, 2, 3 }, new byte[] { 4, 5, 6 }, new byte[] { 7, 8, 9 });
+        buf.skipBytes(4);
+        buf.discardReadComponents();
+
+        assertEquals(2, buf.numComponents());
+        assertEquals(1, buf.readerIndex());
+        assertEquals(6, buf.writerIndex());
+        assertEquals(5, buf.readByte());
+    }
+
     @Test
     public void testAutoConsolidation() {
         CompositeByteBuf buf = compositeBuffer(2);
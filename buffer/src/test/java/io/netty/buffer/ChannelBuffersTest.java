@@ -18,9 +18,12 @@ package io.netty.buffer;
 import static io.netty.buffer.Unpooled.*;
 import static org.junit.Assert.*;
 
+import io.netty.util.CharsetUtil;
+
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.ScatteringByteChannel;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -533,6 +536,29 @@ public class ChannelBuffersTest {
         assertEquals(0, Unpooled.copyDouble(new double[0]).capacity());
     }
 
+    @Test
+    public void testCopiedBufferCharsets() throws Exception {
+        String[] inputs = {
+                "Hello, World!",
+                "caf\u00e9 \u20ac \ud83d\ude00",
+                "\ud83d",          // unpaired high surrogate at the end
+                "a\ude00b\ud83dc", // unpaired surrogates
+        };
+        Charset[] charsets = { CharsetUtil.US_ASCII, CharsetUtil.ISO_8859_1, CharsetUtil.UTF_8 };
+        for (String input: inputs) {
+            for (Charset charset: charsets) {
+                byte[] expected = input.getBytes(charset.name());
+                assertEquals(wrappedBuffer(expected), copiedBuffer(input, charset));
+
+                for (ByteBuf buffer: new ByteBuf[] { buffer(1), directBuffer(1) }) {
+                    buffer.writeByte('x');
+                    assertEquals(expected.length, ByteBufUtil.writeString(buffer, input, charset));
+                    assertEquals(wrappedBuffer(expected), buffer.skipBytes(1));
+                }
+            }
+        }
+    }
+
     @Test
     public void testWrapBoolean() {
         ByteBuf buffer = copyBoolean(true, false);
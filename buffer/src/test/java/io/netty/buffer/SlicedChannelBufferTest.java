@@ -17,6 +17,7 @@ package io.netty.buffer;
 
 import static org.junit.Assert.*;
 
+import java.nio.ByteBuffer;
 import java.util.Random;
 
 import org.junit.Test;
@@ -46,4 +47,22 @@ public class SlicedChannelBufferTest extends AbstractChannelBufferTest {
     public void shouldNotAllowNullInConstructor() {
         new SlicedByteBuf(null, 0, 0);
     }
+
+    @Test
+    public void testNioBuffersOfCompositeSlice() {
+        ByteBuf composite = Unpooled.wrappedBuffer(
+                Unpooled.wrappedBuffer(new byte[] { 1, 2, 3 }),
+                Unpooled.wrappedBuffer(new byte[] { 4, 5, 6 }));
+        ByteBuf slice = composite.slice(2, 3);
+        assertTrue(slice.hasNioBuffers());
+
+        ByteBuffer[] nioBuffers = slice.nioBuffers(1, 2);
+        int expected = 4;
+        for (ByteBuffer nioBuffer: nioBuffers) {
+            while (nioBuffer.hasRemaining()) {
+                assertEquals(expected ++, nioBuffer.get());
+            }
+        }
+        assertEquals(6, expected);
+    }
 }
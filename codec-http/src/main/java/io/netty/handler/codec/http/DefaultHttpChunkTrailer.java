@@ -96,6 +96,13 @@ public class DefaultHttpChunkTrailer extends DefaultHttpObject implements HttpCh
         return headers.getHeaderNames();
     }
 
+    /**
+     * Writes all trailing headers into the specified buffer.
+     */
+    void encodeHeaders(ByteBuf buf) {
+        headers.encode(buf);
+    }
+
     @Override
     public ByteBuf getContent() {
         return Unpooled.EMPTY_BUFFER;
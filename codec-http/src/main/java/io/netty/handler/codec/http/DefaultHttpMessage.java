@@ -133,6 +133,13 @@ public class DefaultHttpMessage extends DefaultHttpObject implements HttpMessage
         return headers.getHeaderNames();
     }
 
+    /**
+     * Writes all headers of this message into the specified buffer.
+     */
+    void encodeHeaders(ByteBuf buf) {
+        headers.encode(buf);
+    }
+
     @Override
     public HttpVersion getProtocolVersion() {
         return version;
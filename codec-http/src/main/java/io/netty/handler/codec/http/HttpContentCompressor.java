@@ -15,23 +15,67 @@
  */
 package io.netty.handler.codec.http;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.MessageBuf;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureAggregator;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.EventExecutorGroup;
 import io.netty.channel.embedded.EmbeddedByteChannel;
+import io.netty.handler.codec.compression.CompressionException;
+import io.netty.handler.codec.compression.JZlibEncoder;
+import io.netty.handler.codec.compression.ParallelDeflater;
 import io.netty.handler.codec.compression.ZlibCodecFactory;
 import io.netty.handler.codec.compression.ZlibWrapper;
+import io.netty.util.internal.DetectionUtil;
 import io.netty.util.internal.StringUtil;
 
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.zip.Deflater;
+
 /**
  * Compresses an {@link HttpMessage} and an {@link HttpChunk} in {@code gzip} or
  * {@code deflate} encoding while respecting the {@code "Accept-Encoding"} header.
  * If there is no matching encoding, no compression is done.  For more
  * information on how this handler modifies the message, please refer to
  * {@link HttpContentEncoder}.
+ * <p>
+ * The content of a message is compressed only when {@link #isCompressible(HttpMessage)}
+ * returns {@code true}, which by default means that the content is at least as large as
+ * the content size threshold and its {@code "Content-Type"} is one of the compressible
+ * content types, if specified.  With the default window size and memory level, the
+ * compression state is reused for all messages sent over the same connection.
+ * <p>
+ * If an {@link EventExecutorGroup} is specified, the content of an HTTP/1.1 message
+ * which is not chunked and is as large as the specified threshold or larger is
+ * compressed in blocks in parallel by the {@link EventExecutorGroup} using a
+ * {@link ParallelDeflater}, so that compressing a large response does not stall the
+ * event loop.  Such a message is sent with {@code "Transfer-Encoding: chunked"} and
+ * every compressed block is sent as a chunk as soon as it is ready.  The messages
+ * written after it are held back until its last chunk has been sent.
  */
 public class HttpContentCompressor extends HttpContentEncoder {
 
-    private final int compressionLevel;
+    private final int gzipCompressionLevel;
+    private final int deflateCompressionLevel;
     private final int windowBits;
     private final int memLevel;
+    private final int contentSizeThreshold;
+    private final Set<String> compressibleContentTypes;
+    private final EventExecutorGroup parallelExecutor;
+    private final int parallelThreshold;
+    private final Queue<Object> deferredMessages = new ArrayDeque<Object>();
+    private final List<ChannelFuture> deferredFlushes = new ArrayList<ChannelFuture>();
+    private ParallelDeflater deflater;
+    private Deflater gzipDeflater;
+    private Deflater zlibDeflater;
 
     /**
      * Creates a new handler with the default compression level (<tt>6</tt>),
@@ -74,9 +118,109 @@ public class HttpContentCompressor extends HttpContentEncoder {
      *        at the expense of memory usage.  The default value is {@code 8}
      */
     public HttpContentCompressor(int compressionLevel, int windowBits, int memLevel) {
-        if (compressionLevel < 0 || compressionLevel > 9) {
+        this(compressionLevel, windowBits, memLevel, null, 0);
+    }
+
+    /**
+     * Creates a new handler with the specified compression level, default
+     * window size (<tt>15</tt>) and default memory level (<tt>8</tt>), which
+     * compresses only the content which pays off.
+     *
+     * @param compressionLevel
+     *        {@code 1} yields the fastest compression and {@code 9} yields the
+     *        best compression.  {@code 0} means no compression.  The default
+     *        compression level is {@code 6}.
+     * @param contentSizeThreshold
+     *        the minimum length of the content to compress.  The content of a
+     *        chunked message is compressed unless its {@code "Content-Length"}
+     *        is known to be smaller.
+     * @param compressibleContentTypes
+     *        the media types, such as {@code "text/html"} or {@code "text/*"},
+     *        of the content to compress.  All content is compressed if empty.
+     */
+    public HttpContentCompressor(
+            int compressionLevel, int contentSizeThreshold, String... compressibleContentTypes) {
+        this(compressionLevel, compressionLevel, 15, 8,
+             contentSizeThreshold, compressibleContentTypes, null, 0);
+    }
+
+    /**
+     * Creates a new handler with the specified compression level, window size,
+     * and memory level, which compresses large content in parallel.
+     *
+     * @param compressionLevel
+     *        {@code 1} yields the fastest compression and {@code 9} yields the
+     *        best compression.  {@code 0} means no compression.  The default
+     *        compression level is {@code 6}.
+     * @param windowBits
+     *        The base two logarithm of the size of the history buffer.  The
+     *        value should be in the range {@code 9} to {@code 15} inclusive.
+     *        Larger values result in better compression at the expense of
+     *        memory usage.  The default value is {@code 15}.  The content
+     *        compressed in parallel always uses {@code 15}.
+     * @param memLevel
+     *        How much memory should be allocated for the internal compression
+     *        state.  {@code 1} uses minimum memory and {@code 9} uses maximum
+     *        memory.  Larger values result in better and faster compression
+     *        at the expense of memory usage.  The default value is {@code 8}.
+     *        The content compressed in parallel always uses {@code 8}.
+     * @param parallelExecutor
+     *        the {@link EventExecutorGroup} which compresses large content,
+     *        or {@code null} to compress all content in the event loop.
+     *        Ignored on Java 6, whose {@link Deflater} does not support sync flush.
+     * @param parallelThreshold
+     *        the minimum length of the content which is compressed by
+     *        {@code parallelExecutor}
+     */
+    public HttpContentCompressor(
+            int compressionLevel, int windowBits, int memLevel,
+            EventExecutorGroup parallelExecutor, int parallelThreshold) {
+        this(compressionLevel, compressionLevel, windowBits, memLevel,
+             0, null, parallelExecutor, parallelThreshold);
+    }
+
+    /**
+     * Creates a new handler with all options.
+     *
+     * @param gzipCompressionLevel
+     *        the compression level of the {@code gzip} encoding.
+     *        {@code 1} yields the fastest compression and {@code 9} yields the
+     *        best compression.  {@code 0} means no compression.
+     * @param deflateCompressionLevel
+     *        the compression level of the {@code deflate} encoding
+     * @param windowBits
+     *        The base two logarithm of the size of the history buffer.  The
+     *        value should be in the range {@code 9} to {@code 15} inclusive.
+     *        The default value is {@code 15}.
+     * @param memLevel
+     *        How much memory should be allocated for the internal compression
+     *        state.  {@code 1} uses minimum memory and {@code 9} uses maximum
+     *        memory.  The default value is {@code 8}.
+     * @param contentSizeThreshold
+     *        the minimum length of the content to compress
+     * @param compressibleContentTypes
+     *        the media types of the content to compress, or {@code null} or an
+     *        empty array to compress all content
+     * @param parallelExecutor
+     *        the {@link EventExecutorGroup} which compresses large content,
+     *        or {@code null} to compress all content in the event loop.
+     *        Ignored on Java 6, whose {@link Deflater} does not support sync flush.
+     * @param parallelThreshold
+     *        the minimum length of the content which is compressed by
+     *        {@code parallelExecutor}
+     */
+    public HttpContentCompressor(
+            int gzipCompressionLevel, int deflateCompressionLevel, int windowBits, int memLevel,
+            int contentSizeThreshold, String[] compressibleContentTypes,
+            EventExecutorGroup parallelExecutor, int parallelThreshold) {
+        if (gzipCompressionLevel < 0 || gzipCompressionLevel > 9) {
             throw new IllegalArgumentException(
-                    "compressionLevel: " + compressionLevel +
+                    "gzipCompressionLevel: " + gzipCompressionLevel +
+                    " (expected: 0-9)");
+        }
+        if (deflateCompressionLevel < 0 || deflateCompressionLevel > 9) {
+            throw new IllegalArgumentException(
+                    "deflateCompressionLevel: " + deflateCompressionLevel +
                     " (expected: 0-9)");
         }
         if (windowBits < 9 || windowBits > 15) {
@@ -87,40 +231,284 @@ public class HttpContentCompressor extends HttpContentEncoder {
             throw new IllegalArgumentException(
                     "memLevel: " + memLevel + " (expected: 1-9)");
         }
-        this.compressionLevel = compressionLevel;
+        if (contentSizeThreshold < 0) {
+            throw new IllegalArgumentException(
+                    "contentSizeThreshold: " + contentSizeThreshold + " (expected: >= 0)");
+        }
+        if (parallelExecutor != null && parallelThreshold <= 0) {
+            throw new IllegalArgumentException(
+                    "parallelThreshold: " + parallelThreshold + " (expected: > 0)");
+        }
+        this.gzipCompressionLevel = gzipCompressionLevel;
+        this.deflateCompressionLevel = deflateCompressionLevel;
         this.windowBits = windowBits;
         this.memLevel = memLevel;
+        this.contentSizeThreshold = contentSizeThreshold;
+        if (compressibleContentTypes == null || compressibleContentTypes.length == 0) {
+            this.compressibleContentTypes = null;
+        } else {
+            this.compressibleContentTypes = new HashSet<String>();
+            for (String t: compressibleContentTypes) {
+                if (t == null) {
+                    throw new NullPointerException("compressibleContentTypes");
+                }
+                this.compressibleContentTypes.add(t.trim().toLowerCase());
+            }
+        }
+        this.parallelExecutor = parallelExecutor;
+        this.parallelThreshold = parallelThreshold;
     }
 
     @Override
     protected Result beginEncode(HttpMessage msg, String acceptEncoding) throws Exception {
+        ZlibWrapper wrapper = targetWrapper(msg, acceptEncoding);
+        if (wrapper == null) {
+            return null;
+        }
+
+        ChannelHandler encoder;
+        if (DetectionUtil.javaVersion() < 7) {
+            // Deflater does not support sync flush.
+            encoder = ZlibCodecFactory.newZlibEncoder(
+                    wrapper, compressionLevel(wrapper), windowBits, memLevel);
+        } else if (windowBits != 15 || memLevel != 8) {
+            // Deflater always allocates the default window and hash table,
+            // so only JZlib can honor smaller windowBits and memLevel.
+            encoder = new JZlibEncoder(wrapper, compressionLevel(wrapper), windowBits, memLevel);
+        } else {
+            encoder = new ReusableZlibEncoder(deflater(wrapper), wrapper == ZlibWrapper.GZIP);
+        }
+
+        return new Result(targetContentEncoding(wrapper), new EmbeddedByteChannel(encoder));
+    }
+
+    /**
+     * Returns {@code true} if and only if the content of the specified message should be
+     * compressed.  The default implementation compares the length of the content with the
+     * content size threshold and the {@code "Content-Type"} with the compressible content
+     * types.  Override this method to apply a different policy.
+     */
+    protected boolean isCompressible(HttpMessage msg) {
+        long contentLength;
+        if (msg.getTransferEncoding().isSingle()) {
+            contentLength = msg.getContent().readableBytes();
+        } else {
+            contentLength = HttpHeaders.getContentLength(msg, Long.MAX_VALUE);
+        }
+        if (contentLength < contentSizeThreshold) {
+            return false;
+        }
+
+        if (compressibleContentTypes == null) {
+            return true;
+        }
+
+        String contentType = msg.getHeader(HttpHeaders.Names.CONTENT_TYPE);
+        if (contentType == null) {
+            return false;
+        }
+        int end = contentType.indexOf(';');
+        String mediaType = (end < 0? contentType : contentType.substring(0, end)).trim().toLowerCase();
+        if (compressibleContentTypes.contains(mediaType)) {
+            return true;
+        }
+        int slash = mediaType.indexOf('/');
+        return slash > 0 && compressibleContentTypes.contains(mediaType.substring(0, slash + 1) + '*');
+    }
+
+    private int compressionLevel(ZlibWrapper wrapper) {
+        return wrapper == ZlibWrapper.GZIP? gzipCompressionLevel : deflateCompressionLevel;
+    }
+
+    private Deflater deflater(ZlibWrapper wrapper) {
+        if (wrapper == ZlibWrapper.GZIP) {
+            if (gzipDeflater == null) {
+                gzipDeflater = new Deflater(gzipCompressionLevel, true);
+            }
+            return gzipDeflater;
+        } else {
+            if (zlibDeflater == null) {
+                zlibDeflater = new Deflater(deflateCompressionLevel);
+            }
+            return zlibDeflater;
+        }
+    }
+
+    @Override
+    boolean beginEncodeLater(
+            final ChannelHandlerContext ctx, HttpMessage msg, String acceptEncoding) throws Exception {
+        if (parallelExecutor == null ||
+            // Deflater does not support sync flush.
+            DetectionUtil.javaVersion() < 7 ||
+            msg.getContent().readableBytes() < parallelThreshold ||
+            !HttpVersion.HTTP_1_1.equals(msg.getProtocolVersion())) {
+            return false;
+        }
+
+        ZlibWrapper wrapper = targetWrapper(msg, acceptEncoding);
+        if (wrapper == null) {
+            return false;
+        }
+
+        ByteBuf content = msg.getContent();
+        msg.setHeader(HttpHeaders.Names.CONTENT_ENCODING, targetContentEncoding(wrapper));
+        msg.setTransferEncoding(HttpTransferEncoding.CHUNKED);
+
+        deflater = new ParallelDeflater(
+                wrapper, compressionLevel(wrapper), ParallelDeflater.DEFAULT_BLOCK_SIZE,
+                parallelExecutor, ctx.executor(), new ParallelDeflater.Listener() {
+            @Override
+            public void deflated(ByteBuf out, boolean last) {
+                MessageBuf<Object> next = ctx.nextOutboundMessageBuffer();
+                next.add(new DefaultHttpChunk(out));
+                if (last) {
+                    next.add(HttpChunk.LAST_CHUNK);
+                    deflater = null;
+                }
+                ctx.flush();
+                if (last) {
+                    resumeDeferred(ctx);
+                }
+            }
+
+            @Override
+            public void deflateFailed(Throwable cause) {
+                deflater = null;
+
+                // The head of the response has been sent already and its content can not be
+                // completed anymore, so nothing else can be sent on this connection.
+                CompressionException e = new CompressionException("failed to compress a block", cause);
+                deferredMessages.clear();
+                for (ChannelFuture f: deferredFlushes) {
+                    f.setFailure(e);
+                }
+                deferredFlushes.clear();
+                ctx.fireExceptionCaught(e);
+                ctx.close();
+            }
+        });
+        deflater.deflate(content, true);
+        return true;
+    }
+
+    @Override
+    public Object encode(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (deflater != null) {
+            // Keep the order of the messages until the content being compressed is sent.
+            deferredMessages.add(msg);
+            return null;
+        }
+        return super.encode(ctx, msg);
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx, ChannelFuture future) throws Exception {
+        if (parallelExecutor == null) {
+            super.flush(ctx, future);
+            return;
+        }
+
+        ChannelFuture f = ctx.newFuture();
+        super.flush(ctx, f);
+        if (deflater != null) {
+            // Notify the future once the compressed content has been flushed.
+            deferredFlushes.add(future);
+        } else {
+            new ChannelFutureAggregator(future).addFuture(f);
+        }
+    }
+
+    private void resumeDeferred(ChannelHandlerContext ctx) {
+        if (deferredFlushes.isEmpty()) {
+            return;
+        }
+
+        // The deferred messages were written before the ones still in the outbound buffer.
+        MessageBuf<Object> in = ctx.outboundMessageBuffer();
+        for (;;) {
+            Object msg = in.poll();
+            if (msg == null) {
+                break;
+            }
+            deferredMessages.add(msg);
+        }
+        in.addAll(deferredMessages);
+        deferredMessages.clear();
+
+        ChannelFuture[] futures = deferredFlushes.toArray(new ChannelFuture[deferredFlushes.size()]);
+        deferredFlushes.clear();
+        for (ChannelFuture f: futures) {
+            try {
+                flush(ctx, f);
+            } catch (Throwable t) {
+                f.setFailure(t);
+            }
+        }
+    }
+
+    @Override
+    public void afterRemove(ChannelHandlerContext ctx) throws Exception {
+        try {
+            // Let HttpContentEncoder finish the current content before ending the deflaters.
+            super.afterRemove(ctx);
+        } finally {
+            destroy();
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        try {
+            super.channelInactive(ctx);
+        } finally {
+            destroy();
+        }
+    }
+
+    private void destroy() {
+        if (deflater != null) {
+            deflater.abort();
+            deflater = null;
+        }
+        deferredMessages.clear();
+        for (ChannelFuture f: deferredFlushes) {
+            f.setFailure(new ClosedChannelException());
+        }
+        deferredFlushes.clear();
+
+        if (gzipDeflater != null) {
+            gzipDeflater.end();
+            gzipDeflater = null;
+        }
+        if (zlibDeflater != null) {
+            zlibDeflater.end();
+            zlibDeflater = null;
+        }
+    }
+
+    private ZlibWrapper targetWrapper(HttpMessage msg, String acceptEncoding) {
         String contentEncoding = msg.getHeader(HttpHeaders.Names.CONTENT_ENCODING);
         if (contentEncoding != null &&
             !HttpHeaders.Values.IDENTITY.equalsIgnoreCase(contentEncoding)) {
             return null;
         }
 
-        ZlibWrapper wrapper = determineWrapper(acceptEncoding);
-        if (wrapper == null) {
+        if (!isCompressible(msg)) {
             return null;
         }
 
-        String targetContentEncoding;
+        return determineWrapper(acceptEncoding);
+    }
+
+    private static String targetContentEncoding(ZlibWrapper wrapper) {
         switch (wrapper) {
         case GZIP:
-            targetContentEncoding = "gzip";
-            break;
+            return "gzip";
         case ZLIB:
-            targetContentEncoding = "deflate";
-            break;
+            return "deflate";
         default:
             throw new Error();
         }
-
-        return new Result(
-                targetContentEncoding,
-                new EmbeddedByteChannel(ZlibCodecFactory.newZlibEncoder(
-                        wrapper, compressionLevel, windowBits, memLevel)));
     }
 
     protected ZlibWrapper determineWrapper(String acceptEncoding) {
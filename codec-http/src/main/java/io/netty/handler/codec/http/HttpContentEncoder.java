@@ -94,6 +94,10 @@ public abstract class HttpContentEncoder extends MessageToMessageCodec<HttpMessa
                 return m;
             }
 
+            if (m.getTransferEncoding().isSingle() && beginEncodeLater(ctx, m, acceptEncoding)) {
+                return m;
+            }
+
             Result result = beginEncode(m, acceptEncoding);
             if (result == null) {
                 return m;
@@ -169,6 +173,18 @@ public abstract class HttpContentEncoder extends MessageToMessageCodec<HttpMessa
      */
     protected abstract Result beginEncode(HttpMessage msg, String acceptEncoding) throws Exception;
 
+    /**
+     * Starts to encode the content of the specified message, which has a single content,
+     * without blocking the event loop.  The implementation replaces the content of the
+     * message with the chunks it writes later, and the message is forwarded as it is
+     * when this method returns {@code true}.  The default implementation returns
+     * {@code false} so that the content is encoded by {@link #beginEncode(HttpMessage, String)}.
+     */
+    boolean beginEncodeLater(
+            ChannelHandlerContext ctx, HttpMessage msg, String acceptEncoding) throws Exception {
+        return false;
+    }
+
 
     @Override
     public void afterRemove(ChannelHandlerContext ctx) throws Exception {
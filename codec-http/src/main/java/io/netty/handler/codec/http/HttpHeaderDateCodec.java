@@ -0,0 +1,331 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import java.text.ParseException;
+import java.util.Date;
+
+/**
+ * Formats and parses the date values of HTTP headers without {@link java.text.SimpleDateFormat}.
+ * <p>
+ * Dates are always formatted as defined in RFC 1123 (e.g. {@code "Sun, 06 Nov 1994 08:49:37 GMT"}).
+ * All three formats allowed by RFC 2616 are parsed:
+ * <ul>
+ * <li>Sun, 06 Nov 1994 08:49:37 GMT (RFC 1123)</li>
+ * <li>Sunday, 06-Nov-94 08:49:37 GMT (RFC 850)</li>
+ * <li>Sun Nov  6 08:49:37 1994 (ANSI C's asctime())</li>
+ * </ul>
+ * A value which is not in one of these formats is handed over to {@link HttpHeaderDateFormat}
+ * as a last resort.
+ */
+final class HttpHeaderDateCodec {
+
+    private static final String[] DAYS_OF_WEEK = { "Sun", "Mon", "Tue", "Wed", "Thu", "Fri", "Sat" };
+    private static final String[] MONTHS = {
+        "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec" };
+    private static final long MILLIS_PER_DAY = 86400000L;
+
+    private static final ThreadLocal<CachedDate> CURRENT_DATE = new ThreadLocal<CachedDate>() {
+        @Override
+        protected CachedDate initialValue() {
+            return new CachedDate();
+        }
+    };
+
+    /**
+     * Returns the current time formatted as an HTTP date.  The formatted value is cached
+     * per thread, and thus per event loop, and is refreshed at most once per second.
+     */
+    static CharSequence currentDate() {
+        return CURRENT_DATE.get().get(System.currentTimeMillis());
+    }
+
+    /**
+     * Formats the specified time as defined in RFC 1123.
+     */
+    static String format(long timeMillis) {
+        StringBuilder buf = new StringBuilder(29);
+        format(timeMillis, buf);
+        return buf.toString();
+    }
+
+    /**
+     * Appends the specified time formatted as defined in RFC 1123 to the specified buffer.
+     */
+    static void format(long timeMillis, StringBuilder buf) {
+        long days = timeMillis / MILLIS_PER_DAY;
+        int millisOfDay = (int) (timeMillis % MILLIS_PER_DAY);
+        if (millisOfDay < 0) {
+            days --;
+            millisOfDay += MILLIS_PER_DAY;
+        }
+        int secondsOfDay = millisOfDay / 1000;
+
+        // 1970-01-01 was Thursday.
+        int dayOfWeek = (int) ((days + 4) % 7);
+        if (dayOfWeek < 0) {
+            dayOfWeek += 7;
+        }
+
+        // Convert the days since the epoch into a civil date.
+        // See http://howardhinnant.github.io/date_algorithms.html#civil_from_days
+        long z = days + 719468;
+        long era = (z >= 0? z : z - 146096) / 146097;
+        int dayOfEra = (int) (z - era * 146097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10? mp + 3 : mp - 9;
+        long year = yearOfEra + era * 400 + (month <= 2? 1 : 0);
+
+        buf.append(DAYS_OF_WEEK[dayOfWeek]);
+        buf.append(", ");
+        appendTwoDigits(buf, day);
+        buf.append(' ');
+        buf.append(MONTHS[month - 1]);
+        buf.append(' ');
+        buf.append(year);
+        buf.append(' ');
+        appendTwoDigits(buf, secondsOfDay / 3600);
+        buf.append(':');
+        appendTwoDigits(buf, secondsOfDay / 60 % 60);
+        buf.append(':');
+        appendTwoDigits(buf, secondsOfDay % 60);
+        buf.append(" GMT");
+    }
+
+    private static void appendTwoDigits(StringBuilder buf, int value) {
+        buf.append((char) ('0' + value / 10));
+        buf.append((char) ('0' + value % 10));
+    }
+
+    /**
+     * Parses the specified HTTP date.
+     *
+     * @throws ParseException if the specified value is not a date
+     */
+    static Date parse(String text) throws ParseException {
+        long timeMillis = parse0(text);
+        if (timeMillis != Long.MIN_VALUE) {
+            return new Date(timeMillis);
+        }
+
+        // Unusual format - let SimpleDateFormat try it.
+        return new HttpHeaderDateFormat().parse(text);
+    }
+
+    /**
+     * Parses one of the three date formats allowed by RFC 2616.
+     *
+     * @return the parsed time, or {@link Long#MIN_VALUE} if the specified text is not in
+     *         one of the known formats
+     */
+    private static long parse0(String text) {
+        final int length = text.length();
+
+        // Skip the day of week, which is redundant.
+        int i = 0;
+        while (i < length && isLetter(text.charAt(i))) {
+            i ++;
+        }
+        if (i == 0 || i == length) {
+            return Long.MIN_VALUE;
+        }
+        if (text.charAt(i) == ',') {
+            i ++;
+        }
+        i = skipSpaces(text, i);
+        if (i == length) {
+            return Long.MIN_VALUE;
+        }
+
+        int day;
+        int month;
+        int year;
+        int time;
+        if (isDigit(text.charAt(i))) {
+            // RFC 1123 (06 Nov 1994 08:49:37 GMT) or RFC 850 (06-Nov-94 08:49:37 GMT)
+            int dayEnd = skipDigits(text, i);
+            day = parseInt(text, i, dayEnd);
+            if (dayEnd == length) {
+                return Long.MIN_VALUE;
+            }
+            char separator = text.charAt(dayEnd);
+            if (separator != ' ' && separator != '-') {
+                return Long.MIN_VALUE;
+            }
+            i = dayEnd + 1;
+
+            month = parseMonth(text, i);
+            i += 3;
+            if (i >= length || text.charAt(i) != separator) {
+                return Long.MIN_VALUE;
+            }
+            i ++;
+
+            int yearEnd = skipDigits(text, i);
+            year = parseInt(text, i, yearEnd);
+            if (yearEnd - i == 2) {
+                year += year < 70? 2000 : 1900;
+            } else if (yearEnd - i != 4) {
+                return Long.MIN_VALUE;
+            }
+            i = skipSpaces(text, yearEnd);
+
+            time = parseTime(text, i);
+            i = skipSpaces(text, i + 8);
+            if (!text.regionMatches(i, "GMT", 0, 3) || skipSpaces(text, i + 3) != length) {
+                return Long.MIN_VALUE;
+            }
+        } else {
+            // asctime() (Nov  6 08:49:37 1994)
+            month = parseMonth(text, i);
+            i = skipSpaces(text, i + 3);
+
+            int dayEnd = skipDigits(text, i);
+            day = parseInt(text, i, dayEnd);
+            i = skipSpaces(text, dayEnd);
+
+            time = parseTime(text, i);
+            i = skipSpaces(text, i + 8);
+
+            int yearEnd = skipDigits(text, i);
+            if (yearEnd - i != 4 || skipSpaces(text, yearEnd) != length) {
+                return Long.MIN_VALUE;
+            }
+            year = parseInt(text, i, yearEnd);
+        }
+
+        if (month < 0 || day < 1 || day > 31 || time < 0) {
+            return Long.MIN_VALUE;
+        }
+
+        return daysSinceEpoch(year, month, day) * MILLIS_PER_DAY + time * 1000L;
+    }
+
+    /**
+     * Converts a civil date into the number of days since the epoch.
+     * See http://howardhinnant.github.io/date_algorithms.html#days_from_civil
+     */
+    private static long daysSinceEpoch(int year, int month, int day) {
+        if (month <= 2) {
+            year --;
+        }
+        int era = (year >= 0? year : year - 399) / 400;
+        int yearOfEra = year - era * 400;
+        int dayOfYear = (153 * (month > 2? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    /**
+     * Parses {@code HH:mm:ss} at the specified index.
+     *
+     * @return the seconds of the day, or {@code -1} if failed to parse
+     */
+    private static int parseTime(String text, int i) {
+        if (i + 8 > text.length() || text.charAt(i + 2) != ':' || text.charAt(i + 5) != ':') {
+            return -1;
+        }
+        int hours = parseInt(text, i, i + 2);
+        int minutes = parseInt(text, i + 3, i + 5);
+        int seconds = parseInt(text, i + 6, i + 8);
+        if (hours < 0 || hours > 23 || minutes < 0 || minutes > 59 || seconds < 0 || seconds > 59) {
+            return -1;
+        }
+        return hours * 3600 + minutes * 60 + seconds;
+    }
+
+    /**
+     * Parses a three-letter month name at the specified index.
+     *
+     * @return the month (1 - 12), or {@code -1} if failed to parse
+     */
+    private static int parseMonth(String text, int i) {
+        if (i + 3 > text.length()) {
+            return -1;
+        }
+        for (int m = 0; m < MONTHS.length; m ++) {
+            if (text.regionMatches(true, i, MONTHS[m], 0, 3)) {
+                return m + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parses the decimal digits in the specified range.
+     *
+     * @return the parsed value, or {@code -1} if the range is empty or contains a non-digit
+     */
+    private static int parseInt(String text, int start, int end) {
+        if (start >= end || end - start > 4) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < end; i ++) {
+            char c = text.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + c - '0';
+        }
+        return value;
+    }
+
+    private static int skipDigits(String text, int i) {
+        final int length = text.length();
+        while (i < length && isDigit(text.charAt(i))) {
+            i ++;
+        }
+        return i;
+    }
+
+    private static int skipSpaces(String text, int i) {
+        final int length = text.length();
+        while (i < length && text.charAt(i) == ' ') {
+            i ++;
+        }
+        return i;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLetter(char c) {
+        return c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z';
+    }
+
+    private static final class CachedDate {
+        private long second = Long.MIN_VALUE;
+        private CharSequence value;
+
+        CharSequence get(long timeMillis) {
+            long second = timeMillis / 1000;
+            if (second != this.second) {
+                this.second = second;
+                value = new HttpHeaderEntity(format(second * 1000));
+            }
+            return value;
+        }
+    }
+
+    private HttpHeaderDateCodec() {
+        // Unused
+    }
+}
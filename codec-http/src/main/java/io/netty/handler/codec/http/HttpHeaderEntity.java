@@ -0,0 +1,71 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.CharsetUtil;
+
+/**
+ * An immutable HTTP header name or value whose case-insensitive hash code and
+ * US-ASCII encoded form are computed only once, so that it can be looked up in
+ * {@link HttpHeaders} and written to the wire without any transcoding.
+ */
+final class HttpHeaderEntity implements CharSequence {
+
+    private final String name;
+    private final int hash;
+    private final byte[] bytes;
+
+    HttpHeaderEntity(String name) {
+        this.name = name;
+        hash = HttpHeaders.hash(name);
+        bytes = name.getBytes(CharsetUtil.US_ASCII);
+    }
+
+    /**
+     * Returns the case-insensitive hash code used by {@link HttpHeaders}.
+     */
+    int hash() {
+        return hash;
+    }
+
+    /**
+     * Writes the US-ASCII encoded form of this entity into the specified buffer.
+     */
+    void encode(ByteBuf buf) {
+        buf.writeBytes(bytes);
+    }
+
+    @Override
+    public int length() {
+        return name.length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return name.charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return name.subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
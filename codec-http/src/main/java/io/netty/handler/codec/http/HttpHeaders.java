@@ -15,9 +15,16 @@
  */
 package io.netty.handler.codec.http;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.util.CharsetUtil;
+
+import java.lang.reflect.Field;
 import java.text.ParseException;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -273,6 +280,10 @@ public class HttpHeaders {
          * {@code "Sec-WebSocket-Accept"}
          */
         public static final String SEC_WEBSOCKET_ACCEPT = "Sec-WebSocket-Accept";
+        /**
+         * {@code "Sec-WebSocket-Extensions"}
+         */
+        public static final String SEC_WEBSOCKET_EXTENSIONS = "Sec-WebSocket-Extensions";
         /**
          * {@code "Server"}
          */
@@ -689,7 +700,7 @@ public class HttpHeaders {
         if (value == null) {
             throw new ParseException("header not found: " + name, 0);
         }
-        return new HttpHeaderDateFormat().parse(value);
+        return HttpHeaderDateCodec.parse(value);
     }
 
     /**
@@ -707,7 +718,7 @@ public class HttpHeaders {
         }
 
         try {
-            return new HttpHeaderDateFormat().parse(value);
+            return HttpHeaderDateCodec.parse(value);
         } catch (ParseException e) {
             return defaultValue;
         }
@@ -721,7 +732,7 @@ public class HttpHeaders {
      */
     public static void setDateHeader(HttpMessage message, String name, Date value) {
         if (value != null) {
-            message.setHeader(name, new HttpHeaderDateFormat().format(value));
+            message.setHeader(name, HttpHeaderDateCodec.format(value.getTime()));
         } else {
             message.setHeader(name, null);
         }
@@ -887,12 +898,21 @@ public class HttpHeaders {
      */
     public static void setDate(HttpMessage message, Date value) {
         if (value != null) {
-            message.setHeader(Names.DATE, new HttpHeaderDateFormat().format(value));
+            message.setHeader(Names.DATE, HttpHeaderDateCodec.format(value.getTime()));
         } else {
             message.setHeader(Names.DATE, null);
         }
     }
 
+    /**
+     * Sets the {@code "Date"} header to the current time.  The formatted date
+     * is cached per thread and updated at most once per second, so calling this
+     * method for every response written by an event loop is cheap.
+     */
+    public static void setDate(HttpMessage message) {
+        message.setHeader(Names.DATE, HttpHeaderDateCodec.currentDate());
+    }
+
     /**
      * Returns {@code true} if and only if the specified message contains the
      * {@code "Expect: 100-continue"} header.
@@ -952,7 +972,80 @@ public class HttpHeaders {
 
     private static final int BUCKET_SIZE = 17;
 
-    private static int hash(String name) {
+    /**
+     * The pre-encoded entities of the constants in {@link Names} and {@link Values}, keyed by
+     * the identity of the constants.
+     */
+    private static final Map<String, HttpHeaderEntity> KNOWN_ENTITIES =
+            new IdentityHashMap<String, HttpHeaderEntity>();
+
+    /**
+     * The pre-encoded entities of the constants in {@link Names}, bucketed by their
+     * case-insensitive hash codes so that a decoded header name can be replaced with
+     * its flyweight.
+     */
+    private static final HttpHeaderEntity[][] KNOWN_NAMES;
+
+    static {
+        KNOWN_NAMES = new HttpHeaderEntity[64][];
+        for (Field f: Names.class.getFields()) {
+            HttpHeaderEntity e = registerKnownEntity(f);
+            int i = e.hash() & KNOWN_NAMES.length - 1;
+            HttpHeaderEntity[] bucket = KNOWN_NAMES[i];
+            if (bucket == null) {
+                bucket = new HttpHeaderEntity[] { e };
+            } else {
+                bucket = Arrays.copyOf(bucket, bucket.length + 1);
+                bucket[bucket.length - 1] = e;
+            }
+            KNOWN_NAMES[i] = bucket;
+        }
+
+        for (Field f: Values.class.getFields()) {
+            registerKnownEntity(f);
+        }
+    }
+
+    private static HttpHeaderEntity registerKnownEntity(Field f) {
+        String value;
+        try {
+            value = (String) f.get(null);
+        } catch (IllegalAccessException e) {
+            throw new Error(e);
+        }
+
+        HttpHeaderEntity e = KNOWN_ENTITIES.get(value);
+        if (e == null) {
+            e = new HttpHeaderEntity(value);
+            KNOWN_ENTITIES.put(value, e);
+        }
+        return e;
+    }
+
+    /**
+     * Creates a new {@link CharSequence} which is optimized for reuse as an HTTP header value.
+     * Its case-insensitive hash code is cached and its US-ASCII encoded form is computed in
+     * advance, so that the encoder copies the pre-encoded bytes instead of encoding the value
+     * again.  It is a good idea to create a constant for a frequently used header value:
+     * <pre>
+     * static final CharSequence JSON = HttpHeaders.newEntity("application/json");
+     * ...
+     * response.setHeader(HttpHeaders.Names.CONTENT_TYPE, JSON);
+     * </pre>
+     */
+    public static CharSequence newEntity(String name) {
+        if (name == null) {
+            throw new NullPointerException("name");
+        }
+        HttpCodecUtil.validateHeaderValue(name);
+        return new HttpHeaderEntity(name);
+    }
+
+    static int hash(CharSequence name) {
+        if (name instanceof HttpHeaderEntity) {
+            return ((HttpHeaderEntity) name).hash();
+        }
+
         int h = 0;
         for (int i = name.length() - 1; i >= 0; i --) {
             char c = name.charAt(i);
@@ -971,7 +1064,11 @@ public class HttpHeaders {
         }
     }
 
-    private static boolean eq(String name1, String name2) {
+    private static boolean eq(CharSequence name1, CharSequence name2) {
+        if (name1 == name2) {
+            return true;
+        }
+
         int nameLen = name1.length();
         if (nameLen != name2.length()) {
             return false;
@@ -999,6 +1096,53 @@ public class HttpHeaders {
         return hash % BUCKET_SIZE;
     }
 
+    /**
+     * Returns the pre-encoded flyweight of the specified header name if it is one of
+     * {@link Names} (case-sensitively), or the specified name itself otherwise.
+     */
+    private static CharSequence toName(String name) {
+        HttpHeaderEntity e = KNOWN_ENTITIES.get(name);
+        if (e != null) {
+            return e;
+        }
+
+        int h = hash(name);
+        HttpHeaderEntity[] bucket = KNOWN_NAMES[h & KNOWN_NAMES.length - 1];
+        if (bucket != null) {
+            for (HttpHeaderEntity known: bucket) {
+                if (known.hash() == h && known.toString().equals(name)) {
+                    return known;
+                }
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Writes the specified header name or value into the specified buffer in US-ASCII.
+     */
+    static void encodeAscii(CharSequence s, ByteBuf buf) {
+        if (s instanceof HttpHeaderEntity) {
+            ((HttpHeaderEntity) s).encode(buf);
+            return;
+        }
+
+        if (buf.hasArray()) {
+            ByteBufUtil.writeString(buf, s, CharsetUtil.US_ASCII);
+            return;
+        }
+
+        // Encode straight into the buffer rather than into a temporary array.
+        final int length = s.length();
+        buf.ensureWritableBytes(length);
+        int writerIndex = buf.writerIndex();
+        for (int i = 0; i < length; i ++) {
+            char c = s.charAt(i);
+            buf.setByte(writerIndex ++, c < 0x80? c : '?');
+        }
+        buf.writerIndex(writerIndex);
+    }
+
     private final Entry[] entries = new Entry[BUCKET_SIZE];
     private final Entry head = new Entry(-1, null, null);
 
@@ -1007,19 +1151,21 @@ public class HttpHeaders {
     }
 
     void validateHeaderName(String name) {
-        HttpCodecUtil.validateHeaderName(name);
+        if (!KNOWN_ENTITIES.containsKey(name)) {
+            HttpCodecUtil.validateHeaderName(name);
+        }
     }
 
     void addHeader(final String name, final Object value) {
         validateHeaderName(name);
-        String strVal = toString(value);
-        HttpCodecUtil.validateHeaderValue(strVal);
-        int h = hash(name);
+        CharSequence key = toName(name);
+        CharSequence val = toValue(value);
+        int h = hash(key);
         int i = index(h);
-        addHeader0(h, i, name, strVal);
+        addHeader0(h, i, key, val);
     }
 
-    private void addHeader0(int h, int i, final String name, final String value) {
+    private void addHeader0(int h, int i, final CharSequence name, final CharSequence value) {
         // Update the hash table.
         Entry e = entries[i];
         Entry newEntry;
@@ -1034,12 +1180,13 @@ public class HttpHeaders {
         if (name == null) {
             throw new NullPointerException("name");
         }
-        int h = hash(name);
+        CharSequence key = toName(name);
+        int h = hash(key);
         int i = index(h);
-        removeHeader0(h, i, name);
+        removeHeader0(h, i, key);
     }
 
-    private void removeHeader0(int h, int i, String name) {
+    private void removeHeader0(int h, int i, CharSequence name) {
         Entry e = entries[i];
         if (e == null) {
             return;
@@ -1077,12 +1224,12 @@ public class HttpHeaders {
 
     void setHeader(final String name, final Object value) {
         validateHeaderName(name);
-        String strVal = toString(value);
-        HttpCodecUtil.validateHeaderValue(strVal);
-        int h = hash(name);
+        CharSequence key = toName(name);
+        CharSequence val = toValue(value);
+        int h = hash(key);
         int i = index(h);
-        removeHeader0(h, i, name);
-        addHeader0(h, i, name, strVal);
+        removeHeader0(h, i, key);
+        addHeader0(h, i, key, val);
     }
 
     void setHeader(final String name, final Iterable<?> values) {
@@ -1092,17 +1239,16 @@ public class HttpHeaders {
 
         validateHeaderName(name);
 
-        int h = hash(name);
+        CharSequence key = toName(name);
+        int h = hash(key);
         int i = index(h);
 
-        removeHeader0(h, i, name);
+        removeHeader0(h, i, key);
         for (Object v: values) {
             if (v == null) {
                 break;
             }
-            String strVal = toString(v);
-            HttpCodecUtil.validateHeaderValue(strVal);
-            addHeader0(h, i, name, strVal);
+            addHeader0(h, i, key, toValue(v));
         }
     }
 
@@ -1118,12 +1264,13 @@ public class HttpHeaders {
             throw new NullPointerException("name");
         }
 
-        int h = hash(name);
+        CharSequence key = toName(name);
+        int h = hash(key);
         int i = index(h);
         Entry e = entries[i];
         while (e != null) {
-            if (e.hash == h && eq(name, e.key)) {
-                return e.value;
+            if (e.hash == h && eq(key, e.key)) {
+                return e.getValue();
             }
 
             e = e.next;
@@ -1138,12 +1285,13 @@ public class HttpHeaders {
 
         LinkedList<String> values = new LinkedList<String>();
 
-        int h = hash(name);
+        CharSequence key = toName(name);
+        int h = hash(key);
         int i = index(h);
         Entry e = entries[i];
         while (e != null) {
-            if (e.hash == h && eq(name, e.key)) {
-                values.addFirst(e.value);
+            if (e.hash == h && eq(key, e.key)) {
+                values.addFirst(e.getValue());
             }
             e = e.next;
         }
@@ -1172,12 +1320,44 @@ public class HttpHeaders {
 
         Entry e = head.after;
         while (e != head) {
-            names.add(e.key);
+            names.add(e.getKey());
             e = e.after;
         }
         return names;
     }
 
+    /**
+     * Writes all headers into the specified buffer, copying the pre-encoded bytes of the
+     * well-known names and values.
+     */
+    void encode(ByteBuf buf) {
+        Entry e = head.after;
+        while (e != head) {
+            encodeAscii(e.key, buf);
+            buf.writeByte(HttpConstants.COLON);
+            buf.writeByte(HttpConstants.SP);
+            encodeAscii(e.value, buf);
+            buf.writeByte(HttpConstants.CR);
+            buf.writeByte(HttpConstants.LF);
+            e = e.after;
+        }
+    }
+
+    private static CharSequence toValue(Object value) {
+        if (value instanceof HttpHeaderEntity) {
+            return (HttpHeaderEntity) value;
+        }
+
+        String strVal = toString(value);
+        HttpHeaderEntity e = KNOWN_ENTITIES.get(strVal);
+        if (e != null) {
+            return e;
+        }
+
+        HttpCodecUtil.validateHeaderValue(strVal);
+        return strVal;
+    }
+
     private static String toString(Object value) {
         if (value == null) {
             return null;
@@ -1189,22 +1369,22 @@ public class HttpHeaders {
             return value.toString();
         }
         if (value instanceof Date) {
-            return new HttpHeaderDateFormat().format((Date) value);
+            return HttpHeaderDateCodec.format(((Date) value).getTime());
         }
         if (value instanceof Calendar) {
-            return new HttpHeaderDateFormat().format(((Calendar) value).getTime());
+            return HttpHeaderDateCodec.format(((Calendar) value).getTimeInMillis());
         }
         return value.toString();
     }
 
     private static final class Entry implements Map.Entry<String, String> {
         final int hash;
-        final String key;
-        String value;
+        final CharSequence key;
+        CharSequence value;
         Entry next;
         Entry before, after;
 
-        Entry(int hash, String key, String value) {
+        Entry(int hash, CharSequence key, CharSequence value) {
             this.hash = hash;
             this.key = key;
             this.value = value;
@@ -1224,12 +1404,12 @@ public class HttpHeaders {
 
         @Override
         public String getKey() {
-            return key;
+            return key.toString();
         }
 
         @Override
         public String getValue() {
-            return value;
+            return value.toString();
         }
 
         @Override
@@ -1238,14 +1418,14 @@ public class HttpHeaders {
                 throw new NullPointerException("value");
             }
             HttpCodecUtil.validateHeaderValue(value);
-            String oldValue = this.value;
+            String oldValue = this.value.toString();
             this.value = value;
             return oldValue;
         }
 
         @Override
         public String toString() {
-            return key + '=' + value;
+            return key + "=" + value;
         }
     }
 }
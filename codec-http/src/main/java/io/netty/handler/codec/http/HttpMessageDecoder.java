@@ -179,7 +179,7 @@ public abstract class HttpMessageDecoder extends ReplayingDecoder<Object, HttpMe
             }
         }
         case READ_INITIAL: try {
-            String[] initialLine = splitInitialLine(readLine(buffer, maxInitialLineLength));
+            String[] initialLine = HttpCodecUtil.splitInitialLine(readLine(buffer, maxInitialLineLength));
             if (initialLine.length < 3) {
                 // Invalid initial line - ignore.
                 checkpoint(State.SKIP_CONTROL_CHARS);
@@ -316,7 +316,7 @@ public abstract class HttpMessageDecoder extends ReplayingDecoder<Object, HttpMe
          */
         case READ_CHUNK_SIZE: try {
             String line = readLine(buffer, maxInitialLineLength);
-            int chunkSize = getChunkSize(line);
+            int chunkSize = HttpCodecUtil.getChunkSize(line);
             this.chunkSize = chunkSize;
             if (chunkSize == 0) {
                 checkpoint(State.READ_CHUNK_FOOTER);
@@ -547,7 +547,7 @@ public abstract class HttpMessageDecoder extends ReplayingDecoder<Object, HttpMe
                     if (name != null) {
                         message.addHeader(name, value);
                     }
-                    String[] header = splitHeader(line);
+                    String[] header = HttpCodecUtil.splitHeader(line);
                     name = header[0];
                     value = header[1];
                 }
@@ -595,7 +595,7 @@ public abstract class HttpMessageDecoder extends ReplayingDecoder<Object, HttpMe
                         // Content-Length, Transfer-Encoding, or Trailer
                     }
                 } else {
-                    String[] header = splitHeader(line);
+                    String[] header = HttpCodecUtil.splitHeader(line);
                     String name = header[0];
                     if (!name.equalsIgnoreCase(HttpHeaders.Names.CONTENT_LENGTH) &&
                         !name.equalsIgnoreCase(HttpHeaders.Names.TRANSFER_ENCODING) &&
@@ -659,19 +659,6 @@ public abstract class HttpMessageDecoder extends ReplayingDecoder<Object, HttpMe
     protected abstract HttpMessage createInvalidMessage();
 
 
-    private static int getChunkSize(String hex) {
-        hex = hex.trim();
-        for (int i = 0; i < hex.length(); i ++) {
-            char c = hex.charAt(i);
-            if (c == ';' || Character.isWhitespace(c) || Character.isISOControl(c)) {
-                hex = hex.substring(0, i);
-                break;
-            }
-        }
-
-        return Integer.parseInt(hex, 16);
-    }
-
     private static String readLine(ByteBuf buffer, int maxLineLength) {
         StringBuilder sb = new StringBuilder(64);
         int lineLength = 0;
@@ -699,95 +686,4 @@ public abstract class HttpMessageDecoder extends ReplayingDecoder<Object, HttpMe
             }
         }
     }
-
-    private static String[] splitInitialLine(String sb) {
-        int aStart;
-        int aEnd;
-        int bStart;
-        int bEnd;
-        int cStart;
-        int cEnd;
-
-        aStart = findNonWhitespace(sb, 0);
-        aEnd = findWhitespace(sb, aStart);
-
-        bStart = findNonWhitespace(sb, aEnd);
-        bEnd = findWhitespace(sb, bStart);
-
-        cStart = findNonWhitespace(sb, bEnd);
-        cEnd = findEndOfString(sb);
-
-        return new String[] {
-                sb.substring(aStart, aEnd),
-                sb.substring(bStart, bEnd),
-                cStart < cEnd? sb.substring(cStart, cEnd) : "" };
-    }
-
-    private static String[] splitHeader(String sb) {
-        final int length = sb.length();
-        int nameStart;
-        int nameEnd;
-        int colonEnd;
-        int valueStart;
-        int valueEnd;
-
-        nameStart = findNonWhitespace(sb, 0);
-        for (nameEnd = nameStart; nameEnd < length; nameEnd ++) {
-            char ch = sb.charAt(nameEnd);
-            if (ch == ':' || Character.isWhitespace(ch)) {
-                break;
-            }
-        }
-
-        for (colonEnd = nameEnd; colonEnd < length; colonEnd ++) {
-            if (sb.charAt(colonEnd) == ':') {
-                colonEnd ++;
-                break;
-            }
-        }
-
-        valueStart = findNonWhitespace(sb, colonEnd);
-        if (valueStart == length) {
-            return new String[] {
-                    sb.substring(nameStart, nameEnd),
-                    ""
-            };
-        }
-
-        valueEnd = findEndOfString(sb);
-        return new String[] {
-                sb.substring(nameStart, nameEnd),
-                sb.substring(valueStart, valueEnd)
-        };
-    }
-
-    private static int findNonWhitespace(String sb, int offset) {
-        int result;
-        for (result = offset; result < sb.length(); result ++) {
-            if (!Character.isWhitespace(sb.charAt(result))) {
-                break;
-            }
-        }
-        return result;
-    }
-
-    private static int findWhitespace(String sb, int offset) {
-        int result;
-        for (result = offset; result < sb.length(); result ++) {
-            if (Character.isWhitespace(sb.charAt(result))) {
-                break;
-            }
-        }
-        return result;
-    }
-
-    private static int findEndOfString(String sb) {
-        int result;
-        for (result = sb.length(); result > 0; result --) {
-            if (!Character.isWhitespace(sb.charAt(result - 1))) {
-                break;
-            }
-        }
-        return result;
-    }
 }
@@ -104,7 +104,7 @@ public abstract class HttpMessageEncoder extends MessageToByteEncoder<Object> {
                 } else {
                     ByteBuf content = chunk.getContent();
                     int contentLength = content.readableBytes();
-                    out.writeBytes(copiedBuffer(Integer.toHexString(contentLength), CharsetUtil.US_ASCII));
+                    HttpHeaders.encodeAscii(Integer.toHexString(contentLength), out);
                     out.writeByte(CR);
                     out.writeByte(LF);
                     out.writeBytes(content, content.readerIndex(), contentLength);
@@ -118,22 +118,34 @@ public abstract class HttpMessageEncoder extends MessageToByteEncoder<Object> {
     }
 
     private static void encodeHeaders(ByteBuf buf, HttpMessage message) {
+        if (message instanceof DefaultHttpMessage) {
+            // Copy the pre-encoded names and values directly.
+            ((DefaultHttpMessage) message).encodeHeaders(buf);
+            return;
+        }
+
         for (Map.Entry<String, String> h: message.getHeaders()) {
             encodeHeader(buf, h.getKey(), h.getValue());
         }
     }
 
     private static void encodeTrailingHeaders(ByteBuf buf, HttpChunkTrailer trailer) {
+        if (trailer instanceof DefaultHttpChunkTrailer) {
+            // Copy the pre-encoded names and values directly.
+            ((DefaultHttpChunkTrailer) trailer).encodeHeaders(buf);
+            return;
+        }
+
         for (Map.Entry<String, String> h: trailer.getHeaders()) {
             encodeHeader(buf, h.getKey(), h.getValue());
         }
     }
 
     private static void encodeHeader(ByteBuf buf, String header, String value) {
-        buf.writeBytes(header.getBytes(CharsetUtil.US_ASCII));
+        HttpHeaders.encodeAscii(header, buf);
         buf.writeByte(COLON);
         buf.writeByte(SP);
-        buf.writeBytes(value.getBytes(CharsetUtil.US_ASCII));
+        HttpHeaders.encodeAscii(value, buf);
         buf.writeByte(CR);
         buf.writeByte(LF);
     }
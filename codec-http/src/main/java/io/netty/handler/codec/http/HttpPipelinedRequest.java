@@ -0,0 +1,73 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+/**
+ * An {@link HttpRequest} tagged with its position in the sequence of the
+ * requests received from a connection by {@link HttpPipeliningHandler}.
+ * The response to this request must be written as {@link HttpPipelinedResponse}s
+ * created by {@link #newResponse(HttpObject)} so that {@link HttpPipeliningHandler}
+ * can send the responses in the order of the requests.
+ */
+public class HttpPipelinedRequest {
+
+    private final int sequence;
+    private final HttpRequest request;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param sequence the sequence number of the request, starting from {@code 0}
+     * @param request  the received request
+     */
+    public HttpPipelinedRequest(int sequence, HttpRequest request) {
+        if (sequence < 0) {
+            throw new IllegalArgumentException("sequence: " + sequence + " (expected: >= 0)");
+        }
+        if (request == null) {
+            throw new NullPointerException("request");
+        }
+        this.sequence = sequence;
+        this.request = request;
+    }
+
+    /**
+     * Returns the sequence number of the request.
+     */
+    public int getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns the received request.
+     */
+    public HttpRequest getRequest() {
+        return request;
+    }
+
+    /**
+     * Creates a new {@link HttpPipelinedResponse} which carries the specified
+     * {@link HttpResponse} or {@link HttpChunk} as a part of the response to this request.
+     */
+    public HttpPipelinedResponse newResponse(HttpObject message) {
+        return new HttpPipelinedResponse(sequence, message);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(sequence: " + sequence + ", request: " + request + ')';
+    }
+}
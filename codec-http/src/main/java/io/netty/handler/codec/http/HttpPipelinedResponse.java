@@ -0,0 +1,64 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+/**
+ * An {@link HttpResponse} or {@link HttpChunk} tagged with the sequence number
+ * of the {@link HttpPipelinedRequest} it responds to.  A response which consists
+ * of an {@link HttpResponse} followed by {@link HttpChunk}s is written as multiple
+ * {@link HttpPipelinedResponse}s with the same sequence number.
+ */
+public class HttpPipelinedResponse {
+
+    private final int sequence;
+    private final HttpObject message;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param sequence the sequence number of the request this message responds to
+     * @param message  an {@link HttpResponse} or an {@link HttpChunk}
+     */
+    public HttpPipelinedResponse(int sequence, HttpObject message) {
+        if (sequence < 0) {
+            throw new IllegalArgumentException("sequence: " + sequence + " (expected: >= 0)");
+        }
+        if (message == null) {
+            throw new NullPointerException("message");
+        }
+        this.sequence = sequence;
+        this.message = message;
+    }
+
+    /**
+     * Returns the sequence number of the request this message responds to.
+     */
+    public int getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns the {@link HttpResponse} or {@link HttpChunk} to write.
+     */
+    public HttpObject getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(sequence: " + sequence + ", message: " + message + ')';
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelHandlerUtil;
+import io.netty.handler.codec.MessageToMessageCodec;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Enables HTTP/1.1 pipelining for the handlers which complete their responses
+ * asynchronously.
+ * <p>
+ * Every decoded {@link HttpRequest} is replaced with an {@link HttpPipelinedRequest}
+ * which is tagged with a sequence number.  Other inbound messages, such as the
+ * {@link HttpChunk}s of a request, are forwarded as they are.  A handler responds
+ * to the request by writing the {@link HttpPipelinedResponse}s created by
+ * {@link HttpPipelinedRequest#newResponse(HttpObject)}, in any order and from any
+ * thread.  This handler buffers the responses which arrived earlier than the
+ * responses to the preceding requests and writes them in the order of the requests.
+ * A response is complete when an {@link HttpResponse} whose content is not chunked
+ * or the last {@link HttpChunk} is written.  A {@code "100 Continue"} response does
+ * not complete the response.
+ * <p>
+ * The number of the buffered messages is limited to avoid running out of memory
+ * when a handler never completes a response.  If the limit is exceeded, the
+ * connection is closed.
+ * <p>
+ * This handler must be placed after {@link HttpServerCodec} and, if used,
+ * {@link HttpChunkAggregator} in the pipeline:
+ * <pre>
+ * {@link io.netty.channel.ChannelPipeline} p = ...;
+ * p.addLast("codec", new {@link HttpServerCodec}());
+ * p.addLast("aggregator", new {@link HttpChunkAggregator}(1048576));
+ * p.addLast("pipelining", new {@link HttpPipeliningHandler}());
+ * p.addLast("handler", new MyHttpRequestHandler());
+ * </pre>
+ */
+public class HttpPipeliningHandler
+        extends MessageToMessageCodec<HttpRequest, HttpPipelinedRequest, HttpPipelinedResponse, Object> {
+
+    public static final int DEFAULT_MAX_PENDING_RESPONSES = 1024;
+
+    private final int maxPendingResponses;
+    private final Map<Integer, Queue<HttpObject>> pendingResponses = new HashMap<Integer, Queue<HttpObject>>();
+    private int pendingResponseCount;
+    private int nextRequestSequence;
+    private int nextResponseSequence;
+
+    /**
+     * Creates a new instance with the default maximum number of the buffered messages
+     * ({@value #DEFAULT_MAX_PENDING_RESPONSES}).
+     */
+    public HttpPipeliningHandler() {
+        this(DEFAULT_MAX_PENDING_RESPONSES);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxPendingResponses
+     *        the maximum number of the {@link HttpResponse}s and {@link HttpChunk}s
+     *        which were written out of order and thus are buffered by this handler.
+     *        If exceeded, the connection is closed.
+     */
+    public HttpPipeliningHandler(int maxPendingResponses) {
+        super(
+                new Class<?>[] { HttpRequest.class },
+                new Class<?>[] { HttpPipelinedResponse.class });
+        if (maxPendingResponses <= 0) {
+            throw new IllegalArgumentException(
+                    "maxPendingResponses: " + maxPendingResponses + " (expected: > 0)");
+        }
+        this.maxPendingResponses = maxPendingResponses;
+    }
+
+    /**
+     * Returns the maximum number of the buffered messages.
+     */
+    public int getMaxPendingResponses() {
+        return maxPendingResponses;
+    }
+
+    @Override
+    public HttpPipelinedRequest decode(ChannelHandlerContext ctx, HttpRequest msg) throws Exception {
+        return new HttpPipelinedRequest(nextRequestSequence ++, msg);
+    }
+
+    @Override
+    public Object encode(ChannelHandlerContext ctx, HttpPipelinedResponse msg) throws Exception {
+        int sequence = msg.getSequence();
+        if (sequence < nextResponseSequence || sequence >= nextRequestSequence) {
+            throw new IllegalStateException(
+                    "unexpected response sequence: " + sequence +
+                    " (expected: " + nextResponseSequence + " <= sequence < " + nextRequestSequence + ')');
+        }
+
+        if (sequence == nextResponseSequence) {
+            write(ctx, msg.getMessage());
+            return null;
+        }
+
+        // Arrived too early - buffer until the responses to the preceding requests are written.
+        if (pendingResponseCount >= maxPendingResponses) {
+            pendingResponses.clear();
+            pendingResponseCount = 0;
+            ctx.close();
+            throw new IllegalStateException(
+                    "too many pending responses (expected: <= " + maxPendingResponses + ')');
+        }
+
+        Queue<HttpObject> queue = pendingResponses.get(sequence);
+        if (queue == null) {
+            queue = new ArrayDeque<HttpObject>();
+            pendingResponses.put(sequence, queue);
+        }
+        queue.add(msg.getMessage());
+        pendingResponseCount ++;
+        return null;
+    }
+
+    private void write(ChannelHandlerContext ctx, HttpObject msg) {
+        ChannelHandlerUtil.addToNextOutboundBuffer(ctx, msg);
+        if (!isLastResponse(msg)) {
+            return;
+        }
+
+        // Write the buffered responses which became writable.
+        for (;;) {
+            nextResponseSequence ++;
+            Queue<HttpObject> queue = pendingResponses.remove(nextResponseSequence);
+            if (queue == null) {
+                return;
+            }
+
+            pendingResponseCount -= queue.size();
+            boolean complete = false;
+            for (HttpObject m: queue) {
+                ChannelHandlerUtil.addToNextOutboundBuffer(ctx, m);
+                if (isLastResponse(m)) {
+                    complete = true;
+                }
+            }
+
+            if (!complete) {
+                return;
+            }
+        }
+    }
+
+    private static boolean isLastResponse(HttpObject msg) {
+        if (msg instanceof HttpChunk) {
+            return ((HttpChunk) msg).isLast();
+        }
+        if (msg instanceof HttpResponse) {
+            HttpResponse res = (HttpResponse) msg;
+            if (res.getStatus().getCode() == 100) {
+                // 100-continue response is followed by the final response.
+                return false;
+            }
+            return res.getTransferEncoding().isSingle();
+        }
+        return false;
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        pendingResponses.clear();
+        pendingResponseCount = 0;
+        super.channelInactive(ctx);
+    }
+}
@@ -19,20 +19,77 @@ import static io.netty.handler.codec.http.HttpConstants.*;
 import io.netty.buffer.ByteBuf;
 import io.netty.util.CharsetUtil;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
 /**
  * Encodes an {@link HttpResponse} or an {@link HttpChunk} into
  * a {@link ByteBuf}.
  */
 public class HttpResponseEncoder extends HttpMessageEncoder {
 
+    /**
+     * The pre-encoded initial lines of the responses whose version is {@link HttpVersion#HTTP_1_1}
+     * and whose status is one of the constants in {@link HttpResponseStatus}, keyed by the
+     * identity of the status.  An identity lookup is used because {@link HttpResponseStatus}
+     * compares only the status code, and a status with a custom reason phrase must not match.
+     */
+    private static final Map<HttpResponseStatus, byte[]> HTTP_1_1_INITIAL_LINES =
+            new IdentityHashMap<HttpResponseStatus, byte[]>();
+
+    /**
+     * Same with {@link #HTTP_1_1_INITIAL_LINES} but for {@link HttpVersion#HTTP_1_0}.
+     */
+    private static final Map<HttpResponseStatus, byte[]> HTTP_1_0_INITIAL_LINES =
+            new IdentityHashMap<HttpResponseStatus, byte[]>();
+
+    static {
+        for (Field f: HttpResponseStatus.class.getFields()) {
+            if (!Modifier.isStatic(f.getModifiers()) || f.getType() != HttpResponseStatus.class) {
+                continue;
+            }
+
+            HttpResponseStatus status;
+            try {
+                status = (HttpResponseStatus) f.get(null);
+            } catch (IllegalAccessException e) {
+                throw new Error(e);
+            }
+
+            HTTP_1_1_INITIAL_LINES.put(status, initialLine(HttpVersion.HTTP_1_1, status));
+            HTTP_1_0_INITIAL_LINES.put(status, initialLine(HttpVersion.HTTP_1_0, status));
+        }
+    }
+
+    private static byte[] initialLine(HttpVersion version, HttpResponseStatus status) {
+        return (version.toString() + ' ' + status.getCode() + ' ' + status.getReasonPhrase() + "\r\n")
+                .getBytes(CharsetUtil.US_ASCII);
+    }
+
     @Override
     protected void encodeInitialLine(ByteBuf buf, HttpMessage message) throws Exception {
         HttpResponse response = (HttpResponse) message;
-        buf.writeBytes(response.getProtocolVersion().toString().getBytes(CharsetUtil.US_ASCII));
+        HttpVersion version = response.getProtocolVersion();
+        HttpResponseStatus status = response.getStatus();
+
+        byte[] initialLine = null;
+        if (version == HttpVersion.HTTP_1_1) {
+            initialLine = HTTP_1_1_INITIAL_LINES.get(status);
+        } else if (version == HttpVersion.HTTP_1_0) {
+            initialLine = HTTP_1_0_INITIAL_LINES.get(status);
+        }
+        if (initialLine != null) {
+            buf.writeBytes(initialLine);
+            return;
+        }
+
+        HttpHeaders.encodeAscii(version.toString(), buf);
         buf.writeByte(SP);
-        buf.writeBytes(String.valueOf(response.getStatus().getCode()).getBytes(CharsetUtil.US_ASCII));
+        HttpHeaders.encodeAscii(String.valueOf(status.getCode()), buf);
         buf.writeByte(SP);
-        buf.writeBytes(String.valueOf(response.getStatus().getReasonPhrase()).getBytes(CharsetUtil.US_ASCII));
+        HttpHeaders.encodeAscii(String.valueOf(status.getReasonPhrase()), buf);
         buf.writeByte(CR);
         buf.writeByte(LF);
     }
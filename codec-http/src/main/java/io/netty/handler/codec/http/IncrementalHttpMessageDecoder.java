@@ -0,0 +1,642 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.DecoderResult;
+import io.netty.handler.codec.ReplayingDecoder;
+import io.netty.handler.codec.TooLongFrameException;
+
+import java.util.List;
+
+/**
+ * Decodes {@link ByteBuf}s into {@link HttpMessage}s and {@link HttpChunk}s just like
+ * {@link HttpMessageDecoder} does, but without relying on {@link ReplayingDecoder}.
+ * <p>
+ * {@link HttpMessageDecoder} restarts decoding from the last checkpoint whenever the
+ * received bytes are not enough, which means an initial line or a header block that arrives
+ * in many TCP segments is parsed again and again.  This decoder keeps the partially read
+ * line, the partially read headers and the remaining chunk length between reads instead,
+ * so that every received byte is examined only once.
+ * <p>
+ * It produces the same messages and accepts the same parameters as
+ * {@link HttpMessageDecoder}, so {@link IncrementalHttpRequestDecoder} and
+ * {@link IncrementalHttpResponseDecoder} can replace {@link HttpRequestDecoder} and
+ * {@link HttpResponseDecoder} in a pipeline.
+ */
+public abstract class IncrementalHttpMessageDecoder extends ByteToMessageDecoder<Object> {
+
+    private final int maxInitialLineLength;
+    private final int maxHeaderSize;
+    private final int maxChunkSize;
+    private final StringBuilder line = new StringBuilder(64);
+    private int lineSize;
+    private int headerSize;
+    private String headerName;
+    private String headerValue;
+    private HttpMessage message;
+    private HttpChunkTrailer trailer;
+    private ByteBuf content;
+    private long chunkSize;
+    private State state = State.SKIP_CONTROL_CHARS;
+
+    /**
+     * The internal state of {@link IncrementalHttpMessageDecoder}.
+     * <em>Internal use only</em>.
+     * @apiviz.exclude
+     */
+    protected enum State {
+        SKIP_CONTROL_CHARS,
+        READ_INITIAL,
+        READ_HEADER,
+        READ_VARIABLE_LENGTH_CONTENT,
+        READ_VARIABLE_LENGTH_CONTENT_AS_CHUNKS,
+        READ_FIXED_LENGTH_CONTENT,
+        READ_FIXED_LENGTH_CONTENT_AS_CHUNKS,
+        READ_CHUNK_SIZE,
+        READ_CHUNKED_CONTENT,
+        READ_CHUNKED_CONTENT_AS_CHUNKS,
+        READ_CHUNK_DELIMITER,
+        READ_CHUNK_FOOTER,
+        BAD_MESSAGE
+    }
+
+    /**
+     * Creates a new instance with the default
+     * {@code maxInitialLineLength (4096}}, {@code maxHeaderSize (8192)}, and
+     * {@code maxChunkSize (8192)}.
+     */
+    protected IncrementalHttpMessageDecoder() {
+        this(4096, 8192, 8192);
+    }
+
+    /**
+     * Creates a new instance with the specified parameters.
+     */
+    protected IncrementalHttpMessageDecoder(
+            int maxInitialLineLength, int maxHeaderSize, int maxChunkSize) {
+
+        if (maxInitialLineLength <= 0) {
+            throw new IllegalArgumentException(
+                    "maxInitialLineLength must be a positive integer: " +
+                    maxInitialLineLength);
+        }
+        if (maxHeaderSize <= 0) {
+            throw new IllegalArgumentException(
+                    "maxHeaderSize must be a positive integer: " +
+                    maxHeaderSize);
+        }
+        if (maxChunkSize < 0) {
+            throw new IllegalArgumentException(
+                    "maxChunkSize must be a positive integer: " +
+                    maxChunkSize);
+        }
+        this.maxInitialLineLength = maxInitialLineLength;
+        this.maxHeaderSize = maxHeaderSize;
+        this.maxChunkSize = maxChunkSize;
+    }
+
+    /**
+     * Returns the current state of this decoder.
+     */
+    protected State state() {
+        return state;
+    }
+
+    @Override
+    public Object decode(ChannelHandlerContext ctx, ByteBuf buffer) throws Exception {
+        for (;;) {
+            switch (state) {
+            case SKIP_CONTROL_CHARS: {
+                if (!skipControlCharacters(buffer)) {
+                    return null;
+                }
+                state = State.READ_INITIAL;
+                break;
+            }
+            case READ_INITIAL: try {
+                if (!readLine(buffer, maxInitialLineLength)) {
+                    return null;
+                }
+
+                String[] initialLine = HttpCodecUtil.splitInitialLine(takeLine());
+                if (initialLine.length < 3) {
+                    // Invalid initial line - ignore.
+                    state = State.SKIP_CONTROL_CHARS;
+                    break;
+                }
+
+                message = createMessage(initialLine);
+                headerSize = 0;
+                state = State.READ_HEADER;
+                break;
+            } catch (Exception e) {
+                return invalidMessage(buffer, e);
+            }
+            case READ_HEADER: try {
+                if (!readHeaders(buffer)) {
+                    return null;
+                }
+
+                State nextState = nextState(message);
+                state = nextState;
+                if (nextState == State.READ_CHUNK_SIZE) {
+                    // Chunked encoding - generate HttpMessage first.  HttpChunks will follow.
+                    return message;
+                }
+                if (nextState == State.SKIP_CONTROL_CHARS) {
+                    // No content is expected.
+                    return reset();
+                }
+
+                long contentLength = HttpHeaders.getContentLength(message, -1);
+                if (contentLength == 0 || contentLength == -1 && isDecodingRequest()) {
+                    content = Unpooled.EMPTY_BUFFER;
+                    return reset();
+                }
+
+                switch (nextState) {
+                case READ_FIXED_LENGTH_CONTENT:
+                    if (contentLength > maxChunkSize || HttpHeaders.is100ContinueExpected(message)) {
+                        // Generate HttpMessage first.  HttpChunks will follow.
+                        state = State.READ_FIXED_LENGTH_CONTENT_AS_CHUNKS;
+                        message.setTransferEncoding(HttpTransferEncoding.STREAMED);
+                        // chunkSize will be decreased as the READ_FIXED_LENGTH_CONTENT_AS_CHUNKS
+                        // state reads data chunk by chunk.
+                        chunkSize = contentLength;
+                        return message;
+                    }
+                    chunkSize = contentLength;
+                    break;
+                case READ_VARIABLE_LENGTH_CONTENT:
+                    if (buffer.readableBytes() > maxChunkSize || HttpHeaders.is100ContinueExpected(message)) {
+                        // Generate HttpMessage first.  HttpChunks will follow.
+                        state = State.READ_VARIABLE_LENGTH_CONTENT_AS_CHUNKS;
+                        message.setTransferEncoding(HttpTransferEncoding.STREAMED);
+                        return message;
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected state: " + nextState);
+                }
+                break;
+            } catch (Exception e) {
+                return invalidMessage(buffer, e);
+            }
+            case READ_VARIABLE_LENGTH_CONTENT: {
+                int toRead = Math.min(buffer.readableBytes(), maxChunkSize);
+                if (toRead == 0) {
+                    return null;
+                }
+
+                HttpChunk chunk = new DefaultHttpChunk(buffer.readBytes(toRead));
+                if (message.getTransferEncoding() != HttpTransferEncoding.STREAMED) {
+                    message.setTransferEncoding(HttpTransferEncoding.STREAMED);
+                    return new Object[] { message, chunk };
+                }
+                return chunk;
+            }
+            case READ_VARIABLE_LENGTH_CONTENT_AS_CHUNKS: {
+                // Keep reading data as a chunk until the end of connection is reached.
+                int toRead = Math.min(buffer.readableBytes(), maxChunkSize);
+                if (toRead == 0) {
+                    return null;
+                }
+                return new DefaultHttpChunk(buffer.readBytes(toRead));
+            }
+            case READ_FIXED_LENGTH_CONTENT: {
+                // The whole content is not larger than maxChunkSize, so we wait for all of it.
+                assert chunkSize <= Integer.MAX_VALUE;
+                int length = (int) chunkSize;
+                if (buffer.readableBytes() < length) {
+                    return null;
+                }
+                content = buffer.readBytes(length);
+                return reset();
+            }
+            case READ_FIXED_LENGTH_CONTENT_AS_CHUNKS: {
+                HttpChunk chunk = readChunk(buffer);
+                if (chunk == null) {
+                    return null;
+                }
+
+                if (chunkSize == 0) {
+                    // Read all content.
+                    reset();
+                    // Append the last chunk.
+                    return new Object[] { chunk, HttpChunk.LAST_CHUNK };
+                }
+                return chunk;
+            }
+            /**
+             * everything else after this point takes care of reading chunked content. basically, read chunk size,
+             * read chunk, read and ignore the CRLF and repeat until 0
+             */
+            case READ_CHUNK_SIZE: try {
+                if (!readLine(buffer, maxInitialLineLength)) {
+                    return null;
+                }
+
+                int chunkSize = HttpCodecUtil.getChunkSize(takeLine());
+                this.chunkSize = chunkSize;
+                if (chunkSize == 0) {
+                    headerSize = 0;
+                    state = State.READ_CHUNK_FOOTER;
+                } else if (chunkSize > maxChunkSize) {
+                    // A chunk is too large. Split them into multiple chunks again.
+                    state = State.READ_CHUNKED_CONTENT_AS_CHUNKS;
+                } else {
+                    state = State.READ_CHUNKED_CONTENT;
+                }
+                break;
+            } catch (Exception e) {
+                return invalidChunk(buffer, e);
+            }
+            case READ_CHUNKED_CONTENT: {
+                assert chunkSize <= Integer.MAX_VALUE;
+                int chunkSize = (int) this.chunkSize;
+                if (buffer.readableBytes() < chunkSize) {
+                    return null;
+                }
+                state = State.READ_CHUNK_DELIMITER;
+                return new DefaultHttpChunk(buffer.readBytes(chunkSize));
+            }
+            case READ_CHUNKED_CONTENT_AS_CHUNKS: {
+                HttpChunk chunk = readChunk(buffer);
+                if (chunk == null) {
+                    return null;
+                }
+
+                if (chunkSize == 0) {
+                    // Read all content.
+                    state = State.READ_CHUNK_DELIMITER;
+                }
+                return chunk;
+            }
+            case READ_CHUNK_DELIMITER: {
+                int lfIndex = buffer.indexOf(buffer.readerIndex(), buffer.writerIndex(), HttpConstants.LF);
+                if (lfIndex < 0) {
+                    buffer.skipBytes(buffer.readableBytes());
+                    return null;
+                }
+                buffer.readerIndex(lfIndex + 1);
+                state = State.READ_CHUNK_SIZE;
+                break;
+            }
+            case READ_CHUNK_FOOTER: try {
+                if (!readTrailingHeaders(buffer)) {
+                    return null;
+                }
+
+                HttpChunkTrailer trailer = this.trailer;
+                this.trailer = null;
+                if (maxChunkSize == 0) {
+                    // Chunked encoding disabled.
+                    return reset();
+                } else {
+                    reset();
+                    // The last chunk, which is empty
+                    return trailer != null? trailer : HttpChunk.LAST_CHUNK;
+                }
+            } catch (Exception e) {
+                return invalidChunk(buffer, e);
+            }
+            case BAD_MESSAGE: {
+                // Keep discarding until disconnection.
+                buffer.skipBytes(buffer.readableBytes());
+                return null;
+            }
+            default: {
+                throw new Error("Shouldn't reach here.");
+            }
+            }
+        }
+    }
+
+    @Override
+    public Object decodeLast(ChannelHandlerContext ctx, ByteBuf in) throws Exception {
+        Object msg = decode(ctx, in);
+        if (msg != null) {
+            return msg;
+        }
+
+        switch (state) {
+        case READ_VARIABLE_LENGTH_CONTENT:
+        case READ_VARIABLE_LENGTH_CONTENT_AS_CHUNKS: {
+            // Reached to the end of the connection.
+            HttpMessage message = this.message;
+            reset();
+            if (message.getTransferEncoding() != HttpTransferEncoding.STREAMED) {
+                message.setTransferEncoding(HttpTransferEncoding.STREAMED);
+                return new Object[] { message, HttpChunk.LAST_CHUNK };
+            }
+            return HttpChunk.LAST_CHUNK;
+        }
+        default:
+            return null;
+        }
+    }
+
+    protected boolean isContentAlwaysEmpty(HttpMessage msg) {
+        if (msg instanceof HttpResponse) {
+            HttpResponse res = (HttpResponse) msg;
+            int code = res.getStatus().getCode();
+
+            // Correctly handle return codes of 1xx.
+            //
+            // See:
+            //     - http://www.w3.org/Protocols/rfc2616/rfc2616-sec4.html Section 4.4
+            //     - https://github.com/netty/netty/issues/222
+            if (code >= 100 && code < 200) {
+                if (code == 101 && !res.containsHeader(HttpHeaders.Names.SEC_WEBSOCKET_ACCEPT)) {
+                    // It's Hixie 76 websocket handshake response
+                    return false;
+                }
+                return true;
+            }
+
+            switch (code) {
+            case 204: case 205: case 304:
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Object reset() {
+        HttpMessage message = this.message;
+        ByteBuf content = this.content;
+
+        if (content != null) {
+            message.setContent(content);
+            this.content = null;
+        }
+        this.message = null;
+
+        state = State.SKIP_CONTROL_CHARS;
+        return message;
+    }
+
+    private HttpMessage invalidMessage(ByteBuf buffer, Exception cause) {
+        state = State.BAD_MESSAGE;
+        discardPartialLine(buffer);
+        if (message != null) {
+            message.setDecoderResult(DecoderResult.partialFailure(cause));
+        } else {
+            message = createInvalidMessage();
+            message.setDecoderResult(DecoderResult.failure(cause));
+        }
+        return message;
+    }
+
+    private HttpChunk invalidChunk(ByteBuf buffer, Exception cause) {
+        state = State.BAD_MESSAGE;
+        discardPartialLine(buffer);
+        HttpChunk chunk = new DefaultHttpChunk(Unpooled.EMPTY_BUFFER);
+        chunk.setDecoderResult(DecoderResult.failure(cause));
+        return chunk;
+    }
+
+    private void discardPartialLine(ByteBuf buffer) {
+        line.setLength(0);
+        lineSize = 0;
+        headerName = null;
+        headerValue = null;
+        trailer = null;
+        // The decoded message must be accompanied by consumed bytes.
+        buffer.skipBytes(buffer.readableBytes());
+    }
+
+    private static boolean skipControlCharacters(ByteBuf buffer) {
+        final int writerIndex = buffer.writerIndex();
+        for (int i = buffer.readerIndex(); i < writerIndex; i ++) {
+            char c = (char) buffer.getUnsignedByte(i);
+            if (!Character.isISOControl(c) &&
+                !Character.isWhitespace(c)) {
+                buffer.readerIndex(i);
+                return true;
+            }
+        }
+        buffer.readerIndex(writerIndex);
+        return false;
+    }
+
+    /**
+     * Reads at most {@code maxChunkSize} bytes of the remaining {@link #chunkSize} bytes
+     * as a new {@link HttpChunk}.
+     *
+     * @return {@code null} if there is nothing to read yet
+     */
+    private HttpChunk readChunk(ByteBuf buffer) {
+        assert chunkSize <= Integer.MAX_VALUE;
+        int chunkSize = (int) this.chunkSize;
+        int readLimit = buffer.readableBytes();
+
+        // Check if the buffer is readable first as we use the readable byte count
+        // to create the HttpChunk. This is needed as otherwise we may end up with
+        // create a HttpChunk instance that contains an empty buffer and so is
+        // handled like it is the last HttpChunk.
+        //
+        // See https://github.com/netty/netty/issues/433
+        if (readLimit == 0) {
+            return null;
+        }
+
+        int toRead = chunkSize;
+        if (toRead > maxChunkSize) {
+            toRead = maxChunkSize;
+        }
+        if (toRead > readLimit) {
+            toRead = readLimit;
+        }
+        HttpChunk chunk = new DefaultHttpChunk(buffer.readBytes(toRead));
+        this.chunkSize = chunkSize - toRead;
+        return chunk;
+    }
+
+    private State nextState(HttpMessage message) {
+        if (isContentAlwaysEmpty(message)) {
+            message.setTransferEncoding(HttpTransferEncoding.SINGLE);
+            return State.SKIP_CONTROL_CHARS;
+        }
+        if (HttpCodecUtil.isTransferEncodingChunked(message)) {
+            message.setTransferEncoding(HttpTransferEncoding.CHUNKED);
+            return State.READ_CHUNK_SIZE;
+        }
+        if (HttpHeaders.getContentLength(message, -1) >= 0) {
+            return State.READ_FIXED_LENGTH_CONTENT;
+        }
+        return State.READ_VARIABLE_LENGTH_CONTENT;
+    }
+
+    /**
+     * Reads as many header lines as available into the current {@link HttpMessage}.
+     *
+     * @return {@code true} if the empty line which ends the headers has been read
+     */
+    private boolean readHeaders(ByteBuf buffer) {
+        final HttpMessage message = this.message;
+        for (;;) {
+            if (!readHeaderLine(buffer)) {
+                return false;
+            }
+
+            String line = takeLine();
+            if (line.isEmpty()) {
+                // Add the last header.
+                if (headerName != null) {
+                    message.addHeader(headerName, headerValue);
+                    headerName = null;
+                    headerValue = null;
+                }
+                return true;
+            }
+
+            char firstChar = line.charAt(0);
+            if (headerName != null && (firstChar == ' ' || firstChar == '\t')) {
+                headerValue = headerValue + ' ' + line.trim();
+            } else {
+                if (headerName != null) {
+                    message.addHeader(headerName, headerValue);
+                }
+                String[] header = HttpCodecUtil.splitHeader(line);
+                headerName = header[0];
+                headerValue = header[1];
+            }
+        }
+    }
+
+    /**
+     * Reads as many trailing header lines as available into {@link #trailer}.
+     *
+     * @return {@code true} if the empty line which ends the trailing headers has been read
+     */
+    private boolean readTrailingHeaders(ByteBuf buffer) {
+        for (;;) {
+            if (!readHeaderLine(buffer)) {
+                return false;
+            }
+
+            String line = takeLine();
+            if (line.isEmpty()) {
+                headerName = null;
+                return true;
+            }
+
+            if (trailer == null) {
+                trailer = new DefaultHttpChunkTrailer();
+            }
+
+            char firstChar = line.charAt(0);
+            if (headerName != null && (firstChar == ' ' || firstChar == '\t')) {
+                List<String> current = trailer.getHeaders(headerName);
+                if (!current.isEmpty()) {
+                    int lastPos = current.size() - 1;
+                    String newString = current.get(lastPos) + line.trim();
+                    current.set(lastPos, newString);
+                } else {
+                    // Content-Length, Transfer-Encoding, or Trailer
+                }
+            } else {
+                String[] header = HttpCodecUtil.splitHeader(line);
+                String name = header[0];
+                if (!name.equalsIgnoreCase(HttpHeaders.Names.CONTENT_LENGTH) &&
+                    !name.equalsIgnoreCase(HttpHeaders.Names.TRANSFER_ENCODING) &&
+                    !name.equalsIgnoreCase(HttpHeaders.Names.TRAILER)) {
+                    trailer.addHeader(name, header[1]);
+                }
+                headerName = name;
+            }
+        }
+    }
+
+    /**
+     * Reads a header line while keeping the total size of the headers within
+     * {@code maxHeaderSize}.
+     */
+    private boolean readHeaderLine(ByteBuf buffer) {
+        final int oldReaderIndex = buffer.readerIndex();
+        final int oldLineSize = lineSize;
+        final boolean complete;
+        try {
+            complete = readLine(buffer, maxHeaderSize - headerSize);
+        } catch (TooLongFrameException e) {
+            // TODO: Respond with Bad Request and discard the traffic
+            //    or close the connection.
+            //       No need to notify the upstream handlers - just log.
+            //       If decoding a response, just throw an exception.
+            throw new TooLongFrameException(
+                    "HTTP header is larger than " +
+                    maxHeaderSize + " bytes.");
+        }
+        if (complete) {
+            // Count the line only once it is complete, including the part of it
+            // which was read by the previous calls.
+            headerSize += oldLineSize + buffer.readerIndex() - oldReaderIndex;
+        }
+        return complete;
+    }
+
+    /**
+     * Appends the bytes of the current line to {@link #line}, consuming them from the
+     * specified buffer.  A line ends with {@code LF}, and any {@code CR} is ignored.
+     *
+     * @return {@code true} if the whole line has been read, or {@code false} if more bytes
+     *         have to be received to complete the line
+     */
+    private boolean readLine(ByteBuf buffer, int maxLineLength) {
+        final StringBuilder line = this.line;
+        final int writerIndex = buffer.writerIndex();
+        int lineSize = this.lineSize;
+        for (int i = buffer.readerIndex(); i < writerIndex; i ++) {
+            byte nextByte = buffer.getByte(i);
+            if (nextByte == HttpConstants.LF) {
+                buffer.readerIndex(i + 1);
+                this.lineSize = 0;
+                return true;
+            }
+
+            if (lineSize >= maxLineLength) {
+                buffer.readerIndex(i);
+                throw new TooLongFrameException(
+                        "An HTTP line is larger than " + maxLineLength +
+                        " bytes.");
+            }
+            lineSize ++;
+
+            if (nextByte != HttpConstants.CR) {
+                line.append((char) nextByte);
+            }
+        }
+
+        buffer.readerIndex(writerIndex);
+        this.lineSize = lineSize;
+        return false;
+    }
+
+    private String takeLine() {
+        String line = this.line.toString();
+        this.line.setLength(0);
+        return line;
+    }
+
+    protected abstract boolean isDecodingRequest();
+    protected abstract HttpMessage createMessage(String[] initialLine) throws Exception;
+    protected abstract HttpMessage createInvalidMessage();
+}
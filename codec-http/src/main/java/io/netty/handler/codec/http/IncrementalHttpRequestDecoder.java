@@ -0,0 +1,59 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Decodes {@link ByteBuf}s into {@link HttpRequest}s and {@link HttpChunk}s without
+ * re-parsing the bytes of a partially received request.  This is a drop-in replacement
+ * of {@link HttpRequestDecoder}.  Please refer to {@link IncrementalHttpMessageDecoder}
+ * and {@link HttpRequestDecoder} for more information.
+ */
+public class IncrementalHttpRequestDecoder extends IncrementalHttpMessageDecoder {
+
+    /**
+     * Creates a new instance with the default
+     * {@code maxInitialLineLength (4096}}, {@code maxHeaderSize (8192)}, and
+     * {@code maxChunkSize (8192)}.
+     */
+    public IncrementalHttpRequestDecoder() {
+    }
+
+    /**
+     * Creates a new instance with the specified parameters.
+     */
+    public IncrementalHttpRequestDecoder(
+            int maxInitialLineLength, int maxHeaderSize, int maxChunkSize) {
+        super(maxInitialLineLength, maxHeaderSize, maxChunkSize);
+    }
+
+    @Override
+    protected HttpMessage createMessage(String[] initialLine) throws Exception {
+        return new DefaultHttpRequest(
+                HttpVersion.valueOf(initialLine[2]), HttpMethod.valueOf(initialLine[0]), initialLine[1]);
+    }
+
+    @Override
+    protected HttpMessage createInvalidMessage() {
+        return new DefaultHttpRequest(HttpVersion.HTTP_1_0, HttpMethod.GET, "/bad-request");
+    }
+
+    @Override
+    protected boolean isDecodingRequest() {
+        return true;
+    }
+}
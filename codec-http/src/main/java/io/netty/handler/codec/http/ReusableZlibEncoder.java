@@ -0,0 +1,141 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToByteEncoder;
+
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses the content of a single HTTP message using a {@link Deflater} which is
+ * owned by {@link HttpContentCompressor} and reused for the following messages of the
+ * same connection.  The {@link Deflater} is reset rather than ended when the content
+ * is finished.
+ */
+final class ReusableZlibEncoder extends ByteToByteEncoder {
+
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+    private final Deflater deflater;
+    private final CRC32 crc;
+    private boolean writeHeader = true;
+    private boolean finished;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param deflater  a {@link Deflater} which produces a raw deflate stream if {@code gzip}
+     *                  is {@code true}, or a zlib stream otherwise
+     */
+    ReusableZlibEncoder(Deflater deflater, boolean gzip) {
+        this.deflater = deflater;
+        crc = gzip? new CRC32() : null;
+    }
+
+    @Override
+    public void encode(ChannelHandlerContext ctx, ByteBuf in, ByteBuf out) throws Exception {
+        if (finished) {
+            out.writeBytes(in);
+            return;
+        }
+
+        int length = in.readableBytes();
+        byte[] inAry;
+        int inOffset;
+        if (in.hasArray()) {
+            inAry = in.array();
+            inOffset = in.arrayOffset() + in.readerIndex();
+        } else {
+            inAry = new byte[length];
+            in.getBytes(in.readerIndex(), inAry);
+            inOffset = 0;
+        }
+
+        if (crc != null) {
+            if (writeHeader) {
+                out.writeBytes(GZIP_HEADER);
+                writeHeader = false;
+            }
+            crc.update(inAry, inOffset, length);
+        }
+
+        deflater.setInput(inAry, inOffset, length);
+        deflate(out, Deflater.SYNC_FLUSH);
+        in.skipBytes(length);
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelFuture future) throws Exception {
+        if (!finished) {
+            finished = true;
+            ByteBuf out = ctx.nextOutboundByteBuffer();
+            try {
+                if (crc != null && writeHeader) {
+                    out.writeBytes(GZIP_HEADER);
+                }
+                deflater.finish();
+                deflate(out, Deflater.NO_FLUSH);
+                if (crc != null) {
+                    int crcValue = (int) crc.getValue();
+                    int uncBytes = deflater.getTotalIn();
+                    out.writeByte(crcValue);
+                    out.writeByte(crcValue >>> 8);
+                    out.writeByte(crcValue >>> 16);
+                    out.writeByte(crcValue >>> 24);
+                    out.writeByte(uncBytes);
+                    out.writeByte(uncBytes >>> 8);
+                    out.writeByte(uncBytes >>> 16);
+                    out.writeByte(uncBytes >>> 24);
+                }
+            } finally {
+                // Make the deflater ready for the next message.
+                deflater.reset();
+            }
+            ctx.flush();
+        }
+        ctx.close(future);
+    }
+
+    private void deflate(ByteBuf out, int flush) {
+        for (;;) {
+            out.ensureWritableBytes(64);
+            int writerIndex = out.writerIndex();
+            int writableBytes = out.writableBytes();
+            int numBytes;
+            if (out.hasArray()) {
+                numBytes = deflater.deflate(
+                        out.array(), out.arrayOffset() + writerIndex, writableBytes, flush);
+            } else {
+                byte[] outAry = new byte[writableBytes];
+                numBytes = deflater.deflate(outAry, 0, outAry.length, flush);
+                out.setBytes(writerIndex, outAry, 0, numBytes);
+            }
+            out.writerIndex(writerIndex + numBytes);
+
+            if (deflater.finished()) {
+                break;
+            }
+            // The flush is complete once the output buffer is not filled up.
+            if (flush == Deflater.SYNC_FLUSH && numBytes < writableBytes) {
+                break;
+            }
+        }
+    }
+}
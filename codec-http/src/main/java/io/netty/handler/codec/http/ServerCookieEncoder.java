@@ -19,7 +19,6 @@ import static io.netty.handler.codec.http.CookieEncoderUtil.*;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Date;
 import java.util.List;
 
 /**
@@ -57,9 +56,8 @@ public final class ServerCookieEncoder {
         if (cookie.getMaxAge() != Long.MIN_VALUE) {
             if (cookie.getVersion() == 0) {
                 addUnquoted(buf, CookieHeaderNames.EXPIRES,
-                        new HttpHeaderDateFormat().format(
-                                new Date(System.currentTimeMillis() +
-                                         cookie.getMaxAge() * 1000L)));
+                        HttpHeaderDateCodec.format(
+                                System.currentTimeMillis() + cookie.getMaxAge() * 1000L));
             } else {
                 add(buf, CookieHeaderNames.MAX_AGE, cookie.getMaxAge());
             }
@@ -37,6 +37,8 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
     protected File file;
     private boolean isRenamed;
     private FileChannel fileChannel;
+    private FileChannel chunkChannel;
+    private long chunkPosition;
 
     protected AbstractDiskHttpData(String name, Charset charset, long size) {
         super(name, charset, size);
@@ -114,15 +116,14 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
         }
         FileOutputStream outputStream = new FileOutputStream(file);
         FileChannel localfileChannel = outputStream.getChannel();
-        ByteBuffer byteBuffer = buffer.nioBuffer();
-        int written = 0;
-        while (written < size) {
-            written += localfileChannel.write(byteBuffer);
+        try {
+            write(localfileChannel, buffer);
+            buffer.skipBytes(buffer.readableBytes());
+            localfileChannel.force(false);
+        } finally {
+            localfileChannel.close();
+            outputStream.close();
         }
-        buffer.readerIndex(buffer.readerIndex() + written);
-        localfileChannel.force(false);
-        localfileChannel.close();
-        outputStream.close();
         completed = true;
     }
 
@@ -135,8 +136,6 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
                 throw new IOException("Out of size: " + (size + localsize) +
                         " > " + definedSize);
             }
-            ByteBuffer byteBuffer = buffer.hasNioBuffer() ? buffer.nioBuffer() : buffer.copy().nioBuffer();
-            int written = 0;
             if (file == null) {
                 file = tempFile();
             }
@@ -144,11 +143,9 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
                 FileOutputStream outputStream = new FileOutputStream(file);
                 fileChannel = outputStream.getChannel();
             }
-            while (written < localsize) {
-                written += fileChannel.write(byteBuffer);
-            }
+            write(fileChannel, buffer);
+            buffer.skipBytes(localsize);
             size += localsize;
-            buffer.readerIndex(buffer.readerIndex() + written);
         }
         if (last) {
             if (file == null) {
@@ -212,8 +209,25 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
         completed = true;
     }
 
+    /**
+     * Closes the channel of the file if it is still open, for instance because
+     * the content was not completed.
+     */
+    private void closeFileChannel() {
+        if (fileChannel != null) {
+            try {
+                fileChannel.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+            fileChannel = null;
+        }
+    }
+
     @Override
     public void delete() {
+        closeFileChannel();
+        closeChunkChannel();
         if (! isRenamed) {
             if (file != null) {
                 file.delete();
@@ -243,30 +257,40 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
         if (file == null || length == 0) {
             return EMPTY_BUFFER;
         }
-        if (fileChannel == null) {
-            FileInputStream  inputStream = new FileInputStream(file);
-            fileChannel = inputStream.getChannel();
+        long sizeLeft = file.length() - chunkPosition;
+        if (sizeLeft <= 0) {
+            closeChunkChannel();
+            return EMPTY_BUFFER;
         }
-        int read = 0;
-        ByteBuffer byteBuffer = ByteBuffer.allocate(length);
-        while (read < length) {
-            int readnow = fileChannel.read(byteBuffer);
-            if (readnow == -1) {
-                fileChannel.close();
-                fileChannel = null;
+        if (chunkChannel == null) {
+            chunkChannel = new FileInputStream(file).getChannel();
+        }
+        // Positional reads, so that the file is neither mapped nor opened for writing.
+        int chunkSize = (int) Math.min(sizeLeft, length);
+        ByteBuffer byteBuffer = ByteBuffer.allocate(chunkSize);
+        while (byteBuffer.hasRemaining()) {
+            if (chunkChannel.read(byteBuffer, chunkPosition + byteBuffer.position()) < 0) {
                 break;
-            } else {
-                read += readnow;
             }
         }
-        if (read == 0) {
-            return EMPTY_BUFFER;
-        }
         byteBuffer.flip();
-        ByteBuf buffer = wrappedBuffer(byteBuffer);
-        buffer.readerIndex(0);
-        buffer.writerIndex(read);
-        return buffer;
+        chunkPosition += byteBuffer.remaining();
+        return wrappedBuffer(byteBuffer);
+    }
+
+    /**
+     * Closes the channel used by {@link #getChunk(int)} and rewinds to the beginning of the file.
+     */
+    private void closeChunkChannel() {
+        if (chunkChannel != null) {
+            try {
+                chunkChannel.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+            chunkChannel = null;
+        }
+        chunkPosition = 0;
     }
 
     @Override
@@ -297,22 +321,28 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
         if (dest == null) {
             throw new NullPointerException("dest");
         }
+        closeFileChannel();
+        closeChunkChannel();
         if (!file.renameTo(dest)) {
-            // must copy
-            FileInputStream inputStream = new FileInputStream(file);
-            FileOutputStream outputStream = new FileOutputStream(dest);
-            FileChannel in = inputStream.getChannel();
-            FileChannel out = outputStream.getChannel();
-            int chunkSize = 8196;
+            // Another file system - let the kernel copy the file.
+            FileChannel in = new FileInputStream(file).getChannel();
+            FileChannel out = null;
             long position = 0;
-            while (position < size) {
-                if (chunkSize < size - position) {
-                    chunkSize = (int) (size - position);
+            try {
+                out = new FileOutputStream(dest).getChannel();
+                while (position < size) {
+                    long transferred = in.transferTo(position, size - position, out);
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    position += transferred;
+                }
+            } finally {
+                in.close();
+                if (out != null) {
+                    out.close();
                 }
-                position += in.transferTo(position, chunkSize , out);
             }
-            in.close();
-            out.close();
             if (position == size) {
                 file.delete();
                 file = dest;
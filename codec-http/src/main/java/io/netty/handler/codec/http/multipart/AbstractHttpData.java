@@ -15,8 +15,12 @@
  */
 package io.netty.handler.codec.http.multipart;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.handler.codec.http.HttpConstants;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 
 /**
@@ -96,4 +100,29 @@ public abstract class AbstractHttpData implements HttpData {
     public long length() {
         return size;
     }
+
+    /**
+     * Writes all readable bytes of the specified buffer to the specified channel
+     * with a gathering write, without copying them into an intermediate array
+     * unless the buffer can not be exposed as NIO buffers.  The reader index of
+     * the buffer is left unchanged.
+     *
+     * @return the number of bytes written
+     */
+    static long write(FileChannel channel, ByteBuf buffer) throws IOException {
+        int length = buffer.readableBytes();
+        ByteBuffer[] byteBuffers;
+        if (buffer.hasNioBuffers()) {
+            byteBuffers = buffer.nioBuffers();
+        } else if (buffer.hasNioBuffer()) {
+            byteBuffers = new ByteBuffer[] { buffer.nioBuffer() };
+        } else {
+            byteBuffers = new ByteBuffer[] { buffer.copy().nioBuffer() };
+        }
+        long written = 0;
+        while (written < length) {
+            written += channel.write(byteBuffers);
+        }
+        return written;
+    }
 }
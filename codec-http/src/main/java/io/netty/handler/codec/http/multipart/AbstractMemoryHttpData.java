@@ -211,14 +211,15 @@ public abstract class AbstractMemoryHttpData extends AbstractHttpData {
         int length = byteBuf.readableBytes();
         FileOutputStream outputStream = new FileOutputStream(dest);
         FileChannel fileChannel = outputStream.getChannel();
-        ByteBuffer byteBuffer = byteBuf.nioBuffer();
-        int written = 0;
-        while (written < length) {
-            written += fileChannel.write(byteBuffer);
+        long written;
+        try {
+            // The content is usually a composite of the received chunks - write them all at once.
+            written = write(fileChannel, byteBuf);
+            fileChannel.force(false);
+        } finally {
+            fileChannel.close();
+            outputStream.close();
         }
-        fileChannel.force(false);
-        fileChannel.close();
-        outputStream.close();
         isRenamed = true;
         return written == length;
     }
@@ -16,6 +16,7 @@
 package io.netty.handler.codec.http.multipart;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.HttpConstants;
 import io.netty.util.CharsetUtil;
 
 import java.nio.charset.Charset;
@@ -183,6 +184,145 @@ final class HttpPostBodyUtil {
         }
     }
 
+    /**
+     * Finds a multipart delimiter at the beginning of a line using the
+     * Boyer-Moore-Horspool algorithm, so that only a fraction of the bytes of
+     * the content preceding the delimiter are examined.
+     */
+    static final class DelimiterFinder {
+        final String delimiter;
+        // LF followed by the delimiter
+        private final byte[] pattern;
+        private final int[] shifts = new int[256];
+
+        DelimiterFinder(String delimiter) {
+            this.delimiter = delimiter;
+            int length = delimiter.length() + 1;
+            pattern = new byte[length];
+            pattern[0] = HttpConstants.LF;
+            for (int i = 1; i < length; i ++) {
+                pattern[i] = (byte) delimiter.charAt(i - 1);
+            }
+
+            for (int i = 0; i < shifts.length; i ++) {
+                shifts[i] = length;
+            }
+            for (int i = 0; i < length - 1; i ++) {
+                shifts[pattern[i] & 0xFF] = length - 1 - i;
+            }
+        }
+
+        /**
+         * Searches the readable bytes of the specified buffer for the delimiter which
+         * follows a CRLF or a LF, or which is at the beginning of the readable bytes if
+         * they are at the beginning of a line.
+         *
+         * @param startOfLine  {@code true} if the reader index of the buffer is at the
+         *                     beginning of a line, such as right after the part headers
+         * @return the index of the line break which precedes the delimiter, or the
+         *         reader index if the delimiter is at the beginning of the readable
+         *         bytes.  If the delimiter is not found, {@code -(index + 1)} where
+         *         {@code index} is the end of the bytes which can not be a part of
+         *         the delimiter or its preceding line break even if more bytes follow.
+         *         The bytes from {@code index} on are either the beginning of the line
+         *         or start with a CR or a LF.
+         */
+        int find(ByteBuf buffer, boolean startOfLine) {
+            final int readerIndex = buffer.readerIndex();
+            final int writerIndex = buffer.writerIndex();
+
+            if (startOfLine && writerIndex - readerIndex >= pattern.length - 1 &&
+                    startsWithDelimiter(buffer, readerIndex, writerIndex)) {
+                return readerIndex;
+            }
+
+            int index;
+            if (buffer.hasArray()) {
+                int offset = buffer.arrayOffset();
+                index = indexOf(buffer.array(), offset + readerIndex, offset + writerIndex);
+                if (index >= 0) {
+                    index -= offset;
+                }
+            } else {
+                index = indexOf(buffer, readerIndex, writerIndex);
+            }
+
+            if (index >= 0) {
+                if (index > readerIndex && buffer.getByte(index - 1) == HttpConstants.CR) {
+                    index --;
+                }
+                return index;
+            }
+
+            // The line might be the beginning of the delimiter.
+            if (startOfLine && writerIndex - readerIndex < pattern.length - 1 &&
+                    startsWithDelimiter(buffer, readerIndex, writerIndex)) {
+                return -(readerIndex + 1);
+            }
+
+            // The last bytes might be a line break followed by the beginning of the delimiter.
+            int end = writerIndex;
+            for (int i = Math.max(readerIndex, writerIndex - pattern.length + 1); i < writerIndex; i ++) {
+                if (buffer.getByte(i) == HttpConstants.LF) {
+                    end = i;
+                    break;
+                }
+            }
+            if (end > readerIndex && buffer.getByte(end - 1) == HttpConstants.CR) {
+                end --;
+            }
+            return -(end + 1);
+        }
+
+        /**
+         * Returns {@code true} if the readable bytes start with the delimiter, or are the
+         * beginning of the delimiter if they are shorter than it.
+         */
+        private boolean startsWithDelimiter(ByteBuf buffer, int readerIndex, int writerIndex) {
+            int length = Math.min(writerIndex - readerIndex, pattern.length - 1);
+            for (int i = 0; i < length; i ++) {
+                if (buffer.getByte(readerIndex + i) != pattern[i + 1]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int indexOf(byte[] array, int start, int end) {
+            final byte[] pattern = this.pattern;
+            final int last = pattern.length - 1;
+            int i = start;
+            while (i <= end - pattern.length) {
+                int j = last;
+                while (array[i + j] == pattern[j]) {
+                    if (j == 0) {
+                        return i;
+                    }
+                    j --;
+                }
+                i += shifts[array[i + last] & 0xFF];
+            }
+            return -1;
+        }
+
+        private int indexOf(ByteBuf buffer, int start, int end) {
+            final byte[] pattern = this.pattern;
+            final int last = pattern.length - 1;
+            int i = start;
+            while (i <= end - pattern.length) {
+                int j = last;
+                while (buffer.getByte(i + j) == pattern[j]) {
+                    if (j == 0) {
+                        return i;
+                    }
+                    j --;
+                }
+                i += shifts[buffer.getByte(i + last) & 0xFF];
+            }
+            return -1;
+        }
+    }
+
     /**
      * Find the first non whitespace
      * @param sb
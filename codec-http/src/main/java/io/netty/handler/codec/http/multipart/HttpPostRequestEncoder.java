@@ -665,8 +665,16 @@ public class HttpPostRequestEncoder implements ChunkedMessageInput<HttpChunk> {
                     }
                 }
             }
-            request.setTransferEncoding(HttpTransferEncoding.CHUNKED);
-            request.setContent(EMPTY_BUFFER);
+            if (isMultipart) {
+                // The length of every part is known without reading the files and the multipart
+                // headers are pure ASCII, so the body is streamed as-is after the Content-Length.
+                request.setTransferEncoding(HttpTransferEncoding.STREAMED);
+            } else {
+                // The url-encoded body is only sized in characters, so it is chunk-encoded.
+                request.removeHeader(HttpHeaders.Names.CONTENT_LENGTH);
+                request.setTransferEncoding(HttpTransferEncoding.CHUNKED);
+                request.setContent(EMPTY_BUFFER);
+            }
         } else {
             // get the only one body and set it to the request
             HttpChunk chunk = nextChunk();
@@ -676,7 +684,7 @@ public class HttpPostRequestEncoder implements ChunkedMessageInput<HttpChunk> {
     }
 
     /**
-     * @return True if the request is by Chunk
+     * @return True if the request is by Chunk, i.e. its body is streamed as {@link HttpChunk}s after the request
      */
     public boolean isChunked() {
         return isChunked;
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http.websocketx;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedByteChannel;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.MessageToMessageDecoder;
+import io.netty.handler.codec.compression.JZlibDecoder;
+import io.netty.handler.codec.compression.ZlibWrapper;
+
+/**
+ * Decompresses the inbound messages compressed as defined in the
+ * <a href="http://tools.ietf.org/html/draft-ietf-hybi-permessage-compression">permessage-deflate</a>
+ * web socket extension.  A message is decompressed if its first frame is marked with
+ * {@link WebSocketServerExtension#RSV1}, and the mark is cleared.  The decompressed payload of a text
+ * message is validated as UTF-8 because {@link WebSocket08FrameDecoder} cannot validate it while it
+ * is compressed.
+ * <p>
+ * This handler must be placed after the web socket frame decoder in the pipeline.  It is usually
+ * inserted by {@link WebSocketServerHandshaker13} once {@link PerMessageDeflateServerExtensionHandshaker}
+ * accepted the extension.
+ */
+public class PerMessageDeflateDecoder extends MessageToMessageDecoder<WebSocketFrame, WebSocketFrame> {
+
+    /**
+     * The empty stored block which the sender removed from the end of every message.
+     */
+    static final byte[] TAIL = { 0x00, 0x00, (byte) 0xFF, (byte) 0xFF };
+
+    private final boolean noContextTakeover;
+    private final UTF8Validator utf8Validator = new UTF8Validator();
+
+    private EmbeddedByteChannel decoder;
+    private boolean decompressing;
+    private boolean text;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param noContextTakeover
+     *        {@code true} if the remote peer compresses every message independently, which
+     *        allows this decoder to release its decompression state between messages
+     */
+    public PerMessageDeflateDecoder(boolean noContextTakeover) {
+        super(WebSocketFrame.class);
+        this.noContextTakeover = noContextTakeover;
+    }
+
+    @Override
+    public boolean isDecodable(Object msg) throws Exception {
+        if (msg instanceof ContinuationWebSocketFrame) {
+            return decompressing;
+        }
+        return (msg instanceof TextWebSocketFrame || msg instanceof BinaryWebSocketFrame) &&
+               (((WebSocketFrame) msg).getRsv() & WebSocketServerExtension.RSV1) != 0;
+    }
+
+    @Override
+    public WebSocketFrame decode(ChannelHandlerContext ctx, WebSocketFrame msg) throws Exception {
+        if (!(msg instanceof ContinuationWebSocketFrame)) {
+            // The first frame of a message.
+            decompressing = true;
+            text = msg instanceof TextWebSocketFrame;
+            msg.setRsv(msg.getRsv() & ~WebSocketServerExtension.RSV1);
+        }
+
+        if (decoder == null) {
+            decoder = new EmbeddedByteChannel(new JZlibDecoder(ZlibWrapper.NONE));
+        }
+
+        ByteBuf data = msg.getBinaryData();
+        if (data != null && data.readable()) {
+            decoder.writeInbound(data);
+        }
+        if (msg.isFinalFragment()) {
+            decoder.writeInbound(Unpooled.wrappedBuffer(TAIL));
+        }
+
+        ByteBuf decompressed = Unpooled.buffer();
+        for (;;) {
+            ByteBuf buf = (ByteBuf) decoder.readInbound();
+            if (buf == null) {
+                break;
+            }
+            decompressed.writeBytes(buf);
+        }
+
+        try {
+            if (text) {
+                utf8Validator.check(decompressed, decompressed.readerIndex(), decompressed.readableBytes());
+                if (msg.isFinalFragment()) {
+                    utf8Validator.finish();
+                }
+            }
+        } catch (UTF8Exception e) {
+            utf8Validator.reset();
+            throw new CorruptedFrameException("invalid UTF-8 bytes");
+        }
+
+        if (msg.isFinalFragment()) {
+            decompressing = false;
+            if (noContextTakeover) {
+                decoder = null;
+            }
+        }
+
+        msg.setBinaryData(decompressed);
+        return msg;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http.websocketx;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedByteChannel;
+import io.netty.handler.codec.MessageToMessageEncoder;
+import io.netty.handler.codec.compression.JZlibEncoder;
+import io.netty.handler.codec.compression.ZlibWrapper;
+
+/**
+ * Compresses the outbound text and binary messages as defined in the
+ * <a href="http://tools.ietf.org/html/draft-ietf-hybi-permessage-compression">permessage-deflate</a>
+ * web socket extension.  The payload of every frame of a message is deflated and the first frame
+ * of the message is marked with {@link WebSocketServerExtension#RSV1}.  Control frames are forwarded
+ * as they are.
+ * <p>
+ * This handler must be placed after the web socket frame encoder in the pipeline.  It is usually
+ * inserted by {@link WebSocketServerHandshaker13} once {@link PerMessageDeflateServerExtensionHandshaker}
+ * accepted the extension.
+ */
+public class PerMessageDeflateEncoder extends MessageToMessageEncoder<WebSocketFrame, WebSocketFrame> {
+
+    private final int compressionLevel;
+    private final int windowBits;
+    private final boolean noContextTakeover;
+
+    private EmbeddedByteChannel encoder;
+    private boolean compressing;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param compressionLevel
+     *        {@code 1} yields the fastest compression and {@code 9} yields the
+     *        best compression.  {@code 0} means no compression.
+     * @param windowBits
+     *        The base two logarithm of the size of the history buffer, in the
+     *        range {@code 9} to {@code 15} inclusive.
+     * @param noContextTakeover
+     *        {@code true} to compress every message independently from the previous
+     *        messages.  {@code false} to let a message refer to the previous messages,
+     *        which yields better compression at the expense of memory usage.
+     */
+    public PerMessageDeflateEncoder(int compressionLevel, int windowBits, boolean noContextTakeover) {
+        super(WebSocketFrame.class);
+        if (compressionLevel < 0 || compressionLevel > 9) {
+            throw new IllegalArgumentException(
+                    "compressionLevel: " + compressionLevel + " (expected: 0-9)");
+        }
+        if (windowBits < 9 || windowBits > 15) {
+            throw new IllegalArgumentException(
+                    "windowBits: " + windowBits + " (expected: 9-15)");
+        }
+        this.compressionLevel = compressionLevel;
+        this.windowBits = windowBits;
+        this.noContextTakeover = noContextTakeover;
+    }
+
+    @Override
+    public boolean isEncodable(Object msg) throws Exception {
+        if (msg instanceof ContinuationWebSocketFrame) {
+            return compressing;
+        }
+        return msg instanceof TextWebSocketFrame || msg instanceof BinaryWebSocketFrame;
+    }
+
+    @Override
+    public WebSocketFrame encode(ChannelHandlerContext ctx, WebSocketFrame msg) throws Exception {
+        if (!(msg instanceof ContinuationWebSocketFrame)) {
+            // The first frame of a message.
+            compressing = true;
+            msg.setRsv(msg.getRsv() | WebSocketServerExtension.RSV1);
+        }
+
+        if (encoder == null) {
+            encoder = new EmbeddedByteChannel(
+                    new JZlibEncoder(ZlibWrapper.NONE, compressionLevel, windowBits, 8));
+        }
+
+        ByteBuf data = msg.getBinaryData();
+        ByteBuf compressed = Unpooled.buffer();
+        if (data != null && data.readable()) {
+            encoder.writeOutbound(data);
+            for (;;) {
+                ByteBuf buf = encoder.readOutbound();
+                if (buf == null) {
+                    break;
+                }
+                compressed.writeBytes(buf);
+            }
+        }
+
+        if (msg.isFinalFragment()) {
+            compressing = false;
+            if (noContextTakeover) {
+                encoder = null;
+            }
+
+            if (endsWithTail(compressed)) {
+                // Remove the empty stored block which terminates every flushed message.
+                compressed.writerIndex(compressed.writerIndex() - PerMessageDeflateDecoder.TAIL.length);
+            } else if (!compressed.readable()) {
+                // An empty message is represented by a single empty stored block.
+                compressed.writeByte(0);
+            }
+        }
+
+        msg.setBinaryData(compressed);
+        return msg;
+    }
+
+    private static boolean endsWithTail(ByteBuf buf) {
+        byte[] tail = PerMessageDeflateDecoder.TAIL;
+        int start = buf.writerIndex() - tail.length;
+        if (start < buf.readerIndex()) {
+            return false;
+        }
+        for (int i = 0; i < tail.length; i ++) {
+            if (buf.getByte(start + i) != tail[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
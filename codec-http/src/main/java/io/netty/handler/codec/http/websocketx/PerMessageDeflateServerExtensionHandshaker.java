@@ -0,0 +1,204 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http.websocketx;
+
+import io.netty.channel.ChannelHandler;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Negotiates the
+ * <a href="http://tools.ietf.org/html/draft-ietf-hybi-permessage-compression">permessage-deflate</a>
+ * web socket extension, which compresses the text and binary messages with deflate.  Pass an instance
+ * to {@link WebSocketServerHandshaker13} or {@link WebSocketServerHandshakerFactory} to enable it:
+ * <pre>
+ * new {@link WebSocketServerHandshakerFactory}(
+ *         "ws://example.com/chat", null, false, 65536,
+ *         new {@link PerMessageDeflateServerExtensionHandshaker}());
+ * </pre>
+ * The following extension parameters offered by the client are understood:
+ * <ul>
+ * <li>{@code server_no_context_takeover} - the server compresses every message independently.</li>
+ * <li>{@code server_max_window_bits} - the server uses a history buffer which is not larger than requested.</li>
+ * <li>{@code client_no_context_takeover} - acknowledged so that the server can release its
+ *     decompression state between messages.</li>
+ * <li>{@code client_max_window_bits} - ignored because the server decompresses any window size.</li>
+ * </ul>
+ * An offer with any other parameter is declined.
+ */
+public class PerMessageDeflateServerExtensionHandshaker implements WebSocketServerExtensionHandshaker {
+
+    public static final String PERMESSAGE_DEFLATE_EXTENSION = "permessage-deflate";
+
+    static final String SERVER_NO_CONTEXT_TAKEOVER = "server_no_context_takeover";
+    static final String CLIENT_NO_CONTEXT_TAKEOVER = "client_no_context_takeover";
+    static final String SERVER_MAX_WINDOW_BITS = "server_max_window_bits";
+    static final String CLIENT_MAX_WINDOW_BITS = "client_max_window_bits";
+
+    private static final int MIN_WINDOW_BITS = 9;
+    private static final int MAX_WINDOW_BITS = 15;
+
+    private final int compressionLevel;
+    private final int maxWindowBits;
+    private final boolean noContextTakeover;
+
+    /**
+     * Creates a new instance with the default compression level ({@code 6}), the default
+     * window size ({@code 15}) and context takeover.
+     */
+    public PerMessageDeflateServerExtensionHandshaker() {
+        this(6, MAX_WINDOW_BITS, false);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param compressionLevel
+     *        {@code 1} yields the fastest compression and {@code 9} yields the
+     *        best compression.  {@code 0} means no compression.
+     * @param maxWindowBits
+     *        The base two logarithm of the largest history buffer the server uses to compress,
+     *        in the range {@code 9} to {@code 15} inclusive.  A smaller window saves memory
+     *        per connection at the expense of compression ratio.
+     * @param noContextTakeover
+     *        {@code true} to compress every message independently even if the client did not
+     *        request so, which saves the memory kept between messages
+     */
+    public PerMessageDeflateServerExtensionHandshaker(
+            int compressionLevel, int maxWindowBits, boolean noContextTakeover) {
+        if (compressionLevel < 0 || compressionLevel > 9) {
+            throw new IllegalArgumentException(
+                    "compressionLevel: " + compressionLevel + " (expected: 0-9)");
+        }
+        if (maxWindowBits < MIN_WINDOW_BITS || maxWindowBits > MAX_WINDOW_BITS) {
+            throw new IllegalArgumentException(
+                    "maxWindowBits: " + maxWindowBits +
+                    " (expected: " + MIN_WINDOW_BITS + '-' + MAX_WINDOW_BITS + ')');
+        }
+        this.compressionLevel = compressionLevel;
+        this.maxWindowBits = maxWindowBits;
+        this.noContextTakeover = noContextTakeover;
+    }
+
+    @Override
+    public WebSocketServerExtension handshakeExtension(WebSocketExtensionData extensionData) {
+        if (!PERMESSAGE_DEFLATE_EXTENSION.equals(extensionData.getName())) {
+            return null;
+        }
+
+        boolean serverNoContextTakeover = noContextTakeover;
+        boolean clientNoContextTakeover = false;
+        int serverWindowBits = maxWindowBits;
+        boolean serverWindowBitsRequested = false;
+
+        for (Map.Entry<String, String> e: extensionData.getParameters().entrySet()) {
+            String name = e.getKey();
+            if (SERVER_NO_CONTEXT_TAKEOVER.equals(name)) {
+                serverNoContextTakeover = true;
+            } else if (CLIENT_NO_CONTEXT_TAKEOVER.equals(name)) {
+                clientNoContextTakeover = true;
+            } else if (SERVER_MAX_WINDOW_BITS.equals(name)) {
+                int windowBits = parseWindowBits(e.getValue());
+                if (windowBits < 0) {
+                    return null;
+                }
+                serverWindowBits = Math.min(serverWindowBits, windowBits);
+                serverWindowBitsRequested = true;
+            } else if (!CLIENT_MAX_WINDOW_BITS.equals(name)) {
+                // Unknown parameter
+                return null;
+            }
+        }
+
+        if (serverWindowBits < MIN_WINDOW_BITS) {
+            // zlib does not support the smallest window size.
+            return null;
+        }
+
+        Map<String, String> parameters = new LinkedHashMap<String, String>();
+        if (serverNoContextTakeover) {
+            parameters.put(SERVER_NO_CONTEXT_TAKEOVER, null);
+        }
+        if (clientNoContextTakeover) {
+            parameters.put(CLIENT_NO_CONTEXT_TAKEOVER, null);
+        }
+        if (serverWindowBitsRequested) {
+            parameters.put(SERVER_MAX_WINDOW_BITS, String.valueOf(serverWindowBits));
+        }
+
+        return new PerMessageDeflateServerExtension(
+                new WebSocketExtensionData(PERMESSAGE_DEFLATE_EXTENSION, parameters),
+                compressionLevel, serverWindowBits, serverNoContextTakeover, clientNoContextTakeover);
+    }
+
+    /**
+     * @return the window bits, or {@code -1} if the specified value is not valid
+     */
+    private static int parseWindowBits(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            int windowBits = Integer.parseInt(value);
+            if (windowBits < 8 || windowBits > MAX_WINDOW_BITS) {
+                return -1;
+            }
+            return windowBits;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static final class PerMessageDeflateServerExtension implements WebSocketServerExtension {
+
+        private final WebSocketExtensionData responseData;
+        private final int compressionLevel;
+        private final int windowBits;
+        private final boolean serverNoContextTakeover;
+        private final boolean clientNoContextTakeover;
+
+        PerMessageDeflateServerExtension(
+                WebSocketExtensionData responseData, int compressionLevel, int windowBits,
+                boolean serverNoContextTakeover, boolean clientNoContextTakeover) {
+            this.responseData = responseData;
+            this.compressionLevel = compressionLevel;
+            this.windowBits = windowBits;
+            this.serverNoContextTakeover = serverNoContextTakeover;
+            this.clientNoContextTakeover = clientNoContextTakeover;
+        }
+
+        @Override
+        public int getRsv() {
+            return RSV1;
+        }
+
+        @Override
+        public WebSocketExtensionData getResponseData() {
+            return responseData;
+        }
+
+        @Override
+        public ChannelHandler newExtensionEncoder() {
+            return new PerMessageDeflateEncoder(compressionLevel, windowBits, serverNoContextTakeover);
+        }
+
+        @Override
+        public ChannelHandler newExtensionDecoder() {
+            return new PerMessageDeflateDecoder(clientNoContextTakeover);
+        }
+    }
+}
@@ -35,10 +35,14 @@
  */
 package io.netty.handler.codec.http.websocketx;
 
+import io.netty.buffer.ByteBuf;
+
 /**
- * Checks UTF8 bytes for validity before converting it into a string
+ * Validates UTF-8 bytes incrementally.  The validation state is retained between
+ * {@link #check(ByteBuf, int, int)} calls, so a text message split into multiple
+ * fragments can be validated fragment by fragment without copying or decoding it.
  */
-final class UTF8Output {
+final class UTF8Validator {
     private static final int UTF8_ACCEPT = 0;
     private static final int UTF8_REJECT = 12;
 
@@ -61,40 +65,87 @@ final class UTF8Output {
             12, 12, 12, 12, 12, 12 };
 
     private int state = UTF8_ACCEPT;
-    private int codep;
-
-    private final StringBuilder stringBuilder;
 
-    UTF8Output(byte[] bytes) {
-        stringBuilder = new StringBuilder(bytes.length);
-        write(bytes);
-    }
-
-    public void write(byte[] bytes) {
-        for (byte b : bytes) {
-            write(b);
+    /**
+     * Returns {@code true} if and only if the specified region of the specified buffer
+     * is a complete and valid UTF-8 sequence.
+     */
+    static boolean isValid(ByteBuf buffer, int index, int length) {
+        UTF8Validator validator = new UTF8Validator();
+        try {
+            validator.check(buffer, index, length);
+            validator.finish();
+            return true;
+        } catch (UTF8Exception e) {
+            return false;
         }
     }
 
-    public void write(int b) {
-        byte type = TYPES[b & 0xFF];
+    /**
+     * Returns {@code true} if and only if the bytes validated so far end in the middle
+     * of a multi-byte character.
+     */
+    boolean isIncomplete() {
+        return state != UTF8_ACCEPT;
+    }
 
-        codep = state != UTF8_ACCEPT ? b & 0x3f | codep << 6 : 0xff >> type & b;
+    /**
+     * Validates the specified region of the specified buffer as the continuation of the
+     * bytes validated so far.
+     *
+     * @throws UTF8Exception if the bytes are not UTF-8
+     */
+    void check(ByteBuf buffer, int index, int length) {
+        int state = this.state;
+        if (state == UTF8_REJECT) {
+            throw new UTF8Exception("bytes are not UTF-8");
+        }
 
-        state = STATES[state + type];
+        final int end = index + length;
+        if (buffer.hasArray()) {
+            final byte[] array = buffer.array();
+            final int offset = buffer.arrayOffset();
+            for (int i = index + offset; i < end + offset; i ++) {
+                state = STATES[state + TYPES[array[i] & 0xFF]];
+            }
+        } else {
+            int i = index;
+            while (i < end) {
+                // Skip US-ASCII characters 8 bytes at a time.
+                if (state == UTF8_ACCEPT && end - i >= 8 && (buffer.getLong(i) & 0x8080808080808080L) == 0) {
+                    i += 8;
+                    continue;
+                }
+                state = STATES[state + TYPES[buffer.getByte(i) & 0xFF]];
+                i ++;
+            }
+        }
 
-        if (state == UTF8_ACCEPT) {
-            stringBuilder.append((char) codep);
-        } else if (state == UTF8_REJECT) {
+        // Once rejected, the state never changes.
+        this.state = state;
+        if (state == UTF8_REJECT) {
             throw new UTF8Exception("bytes are not UTF-8");
         }
     }
 
-    @Override
-    public String toString() {
-        if (state != UTF8_ACCEPT) {
+    /**
+     * Ensures that the bytes validated so far do not end in the middle of a character,
+     * and resets this validator.
+     *
+     * @throws UTF8Exception if the bytes end in the middle of a character
+     */
+    void finish() {
+        boolean incomplete = isIncomplete();
+        reset();
+        if (incomplete) {
             throw new UTF8Exception("bytes are not UTF-8");
         }
-        return stringBuilder.toString();
+    }
+
+    /**
+     * Resets this validator so that it can validate a new sequence of bytes.
+     */
+    void reset() {
+        state = UTF8_ACCEPT;
     }
 }
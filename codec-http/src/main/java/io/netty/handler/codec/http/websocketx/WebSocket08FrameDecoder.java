@@ -62,6 +62,10 @@ import io.netty.handler.codec.ReplayingDecoder;
 import io.netty.handler.codec.TooLongFrameException;
 import io.netty.logging.InternalLogger;
 import io.netty.logging.InternalLoggerFactory;
+import io.netty.util.CharsetUtil;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Decodes a web socket frame from wire protocol version 8 format. This code was forked from <a
@@ -78,8 +82,9 @@ public class WebSocket08FrameDecoder extends ReplayingDecoder<WebSocketFrame, We
     private static final byte OPCODE_PING = 0x9;
     private static final byte OPCODE_PONG = 0xA;
 
-    private UTF8Output fragmentedFramesText;
+    private List<ByteBuf> fragmentedFramesText;
     private int fragmentedFramesCount;
+    private int messageRsv;
 
     private final long maxFramePayloadLength;
     private boolean frameFinalFlag;
@@ -88,10 +93,12 @@ public class WebSocket08FrameDecoder extends ReplayingDecoder<WebSocketFrame, We
     private long framePayloadLength;
     private ByteBuf framePayload;
     private int framePayloadBytesRead;
-    private ByteBuf maskingKey;
+    private int maskingKey;
 
     private final boolean allowExtensions;
     private final boolean maskedPayload;
+    private final boolean validateUtf8;
+    private final UTF8Validator utf8Validator = new UTF8Validator();
     private boolean receivedClosingHandshake;
 
     public enum State {
@@ -111,10 +118,31 @@ public class WebSocket08FrameDecoder extends ReplayingDecoder<WebSocketFrame, We
      *            helps check for denial of services attacks.
      */
     public WebSocket08FrameDecoder(boolean maskedPayload, boolean allowExtensions, int maxFramePayloadLength) {
+        this(maskedPayload, allowExtensions, maxFramePayloadLength, true);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param maskedPayload
+     *            Web socket servers must set this to true processed incoming masked payload. Client implementations
+     *            must set this to false.
+     * @param allowExtensions
+     *            Flag to allow reserved extension bits to be used or not
+     * @param maxFramePayloadLength
+     *            Maximum length of a frame's payload. Setting this to an appropriate value for you application
+     *            helps check for denial of services attacks.
+     * @param validateUtf8
+     *            Flag to validate the UTF-8 payload of the text frames. Setting this to false skips the
+     *            validation, which is only safe when the remote peer is trusted.
+     */
+    public WebSocket08FrameDecoder(
+            boolean maskedPayload, boolean allowExtensions, int maxFramePayloadLength, boolean validateUtf8) {
         super(State.FRAME_START);
         this.maskedPayload = maskedPayload;
         this.allowExtensions = allowExtensions;
         this.maxFramePayloadLength = maxFramePayloadLength;
+        this.validateUtf8 = validateUtf8;
     }
 
     @Override
@@ -236,56 +264,35 @@ public class WebSocket08FrameDecoder extends ReplayingDecoder<WebSocketFrame, We
             checkpoint(State.MASKING_KEY);
         case MASKING_KEY:
             if (maskedPayload) {
-                maskingKey = in.readBytes(4);
+                maskingKey = in.readInt();
             }
             checkpoint(State.PAYLOAD);
         case PAYLOAD:
             // Sometimes, the payload may not be delivered in 1 nice packet
             // We need to accumulate the data until we have it all
             int rbytes = actualReadableBytes();
-            ByteBuf payloadBuffer = null;
-
-            long willHaveReadByteCount = framePayloadBytesRead + rbytes;
-            // logger.debug("Frame rbytes=" + rbytes + " willHaveReadByteCount="
-            // + willHaveReadByteCount + " framePayloadLength=" +
-            // framePayloadLength);
-            if (willHaveReadByteCount == framePayloadLength) {
-                // We have all our content so proceed to process
-                payloadBuffer = in.readBytes(rbytes);
-            } else if (willHaveReadByteCount < framePayloadLength) {
+            long remainingBytes = framePayloadLength - framePayloadBytesRead;
+            if (framePayload == null) {
+                framePayload = Unpooled.buffer(toFrameLength(framePayloadLength));
+            }
+
+            if (rbytes < remainingBytes) {
                 // We don't have all our content so accumulate payload.
                 // Returning null means we will get called back
-                payloadBuffer = in.readBytes(rbytes);
-                if (framePayload == null) {
-                    framePayload = Unpooled.buffer(toFrameLength(framePayloadLength));
-                }
-                framePayload.writeBytes(payloadBuffer);
-                framePayloadBytesRead += rbytes;
+                readPayload(in, rbytes);
 
                 // Return null to wait for more bytes to arrive
                 return null;
-            } else if (willHaveReadByteCount > framePayloadLength) {
-                // We have more than what we need so read up to the end of frame
-                // Leave the remainder in the buffer for next frame
-                payloadBuffer = in.readBytes(toFrameLength(framePayloadLength - framePayloadBytesRead));
             }
 
+            // We have all our content (and maybe more) so read up to the end of frame.
+            // Leave the remainder in the buffer for next frame
+            readPayload(in, toFrameLength(remainingBytes));
+
             // Now we have all the data, the next checkpoint must be the next
             // frame
             checkpoint(State.FRAME_START);
 
-            // Take the data that we have in this packet
-            if (framePayload == null) {
-                framePayload = payloadBuffer;
-            } else {
-                framePayload.writeBytes(payloadBuffer);
-            }
-
-            // Unmask data if needed
-            if (maskedPayload) {
-                unmask(framePayload);
-            }
-
             // Processing ping/pong/close frames because they cannot be
             // fragmented
             if (frameOpcode == OPCODE_PING) {
@@ -301,6 +308,11 @@ public class WebSocket08FrameDecoder extends ReplayingDecoder<WebSocketFrame, We
             // Processing for possible fragmented messages for text and binary
             // frames
             String aggregatedText = null;
+            if (frameOpcode == OPCODE_TEXT || frameOpcode == OPCODE_BINARY) {
+                // The payload of a message whose first frame has a reserved bit set is transformed
+                // by an extension, which is responsible for validating it.
+                messageRsv = frameRsv;
+            }
             if (frameFinalFlag) {
                 // Final frame of the sequence. Apparently ping frames are
                 // allowed in the middle of a fragmented message
@@ -309,14 +321,18 @@ public class WebSocket08FrameDecoder extends ReplayingDecoder<WebSocketFrame, We
 
                     // Check text for UTF8 correctness
                     if (frameOpcode == OPCODE_TEXT || fragmentedFramesText != null) {
-                        // Check UTF-8 correctness for this payload
-                        checkUTF8String(ctx, framePayload.array());
-
-                        // This does a second check to make sure UTF-8
-                        // correctness for entire text message
-                        aggregatedText = fragmentedFramesText.toString();
-
-                        fragmentedFramesText = null;
+                        // Check UTF-8 correctness for this payload, and make sure
+                        // the entire text message does not end in the middle of a character
+                        checkUTF8String(ctx, framePayload);
+                        finishUTF8String(ctx);
+
+                        if (fragmentedFramesText != null) {
+                            fragmentedFramesText.add(framePayload.duplicate());
+                            aggregatedText = Unpooled.wrappedBuffer(
+                                    fragmentedFramesText.toArray(new ByteBuf[fragmentedFramesText.size()]))
+                                    .toString(CharsetUtil.UTF_8);
+                            fragmentedFramesText = null;
+                        }
                     }
                 }
             } else {
@@ -325,13 +341,17 @@ public class WebSocket08FrameDecoder extends ReplayingDecoder<WebSocketFrame, We
                 if (fragmentedFramesCount == 0) {
                     // First text or binary frame for a fragmented set
                     fragmentedFramesText = null;
-                    if (frameOpcode == OPCODE_TEXT) {
-                        checkUTF8String(ctx, framePayload.array());
+                    utf8Validator.reset();
+                    if (frameOpcode == OPCODE_TEXT && messageRsv == 0) {
+                        checkUTF8String(ctx, framePayload);
+                        fragmentedFramesText = new ArrayList<ByteBuf>();
+                        fragmentedFramesText.add(framePayload.duplicate());
                     }
                 } else {
                     // Subsequent frames - only check if init frame is text
                     if (fragmentedFramesText != null) {
-                        checkUTF8String(ctx, framePayload.array());
+                        checkUTF8String(ctx, framePayload);
+                        fragmentedFramesText.add(framePayload.duplicate());
                     }
                 }
 
@@ -359,11 +379,20 @@ public class WebSocket08FrameDecoder extends ReplayingDecoder<WebSocketFrame, We
         }
     }
 
-    private void unmask(ByteBuf frame) {
-        byte[] bytes = frame.array();
-        for (int i = 0; i < bytes.length; i++) {
-            frame.setByte(i, frame.getByte(i) ^ maskingKey.getByte(i % 4));
+    /**
+     * Transfers the specified number of payload bytes from {@code in} to {@link #framePayload},
+     * unmasking them if necessary.
+     */
+    private void readPayload(ByteBuf in, int length) {
+        if (maskedPayload) {
+            // Rotate the masking key so that it starts from the byte which masks the first byte to read.
+            int key = Integer.rotateLeft(maskingKey, (framePayloadBytesRead & 3) << 3);
+            WebSocketUtil.mask(in, in.readerIndex(), length, key, framePayload);
+        } else {
+            framePayload.writeBytes(in, in.readerIndex(), length);
         }
+        in.skipBytes(length);
+        framePayloadBytesRead += length;
     }
 
     private void protocolViolation(ChannelHandlerContext ctx, String reason) {
@@ -382,13 +411,24 @@ public class WebSocket08FrameDecoder extends ReplayingDecoder<WebSocketFrame, We
         }
     }
 
-    private void checkUTF8String(ChannelHandlerContext ctx, byte[] bytes) {
+    private void checkUTF8String(ChannelHandlerContext ctx, ByteBuf buffer) {
+        if (!validateUtf8 || messageRsv != 0) {
+            return;
+        }
+        try {
+            utf8Validator.check(buffer, buffer.readerIndex(), buffer.readableBytes());
+        } catch (UTF8Exception ex) {
+            utf8Validator.reset();
+            protocolViolation(ctx, "invalid UTF-8 bytes");
+        }
+    }
+
+    private void finishUTF8String(ChannelHandlerContext ctx) {
+        if (!validateUtf8 || messageRsv != 0) {
+            return;
+        }
         try {
-            if (fragmentedFramesText == null) {
-                fragmentedFramesText = new UTF8Output(bytes);
-            } else {
-                fragmentedFramesText.write(bytes);
-            }
+            utf8Validator.finish();
         } catch (UTF8Exception ex) {
             protocolViolation(ctx, "invalid UTF-8 bytes");
         }
@@ -417,11 +457,7 @@ public class WebSocket08FrameDecoder extends ReplayingDecoder<WebSocketFrame, We
 
         // May have UTF-8 message
         if (buffer.readableBytes() > 0) {
-            byte[] b = new byte[buffer.readableBytes()];
-            buffer.readBytes(b);
-            try {
-                new UTF8Output(b);
-            } catch (UTF8Exception ex) {
+            if (!UTF8Validator.isValid(buffer, buffer.readerIndex(), buffer.readableBytes())) {
                 protocolViolation(ctx, "Invalid close frame reason text. Invalid UTF-8 bytes");
             }
         }
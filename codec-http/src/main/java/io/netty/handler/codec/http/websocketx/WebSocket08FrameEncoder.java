@@ -61,13 +61,25 @@ import io.netty.handler.codec.TooLongFrameException;
 import io.netty.logging.InternalLogger;
 import io.netty.logging.InternalLoggerFactory;
 
-import java.nio.ByteBuffer;
 
 /**
  * <p>
  * Encodes a web socket frame into wire protocol version 8 format. This code was forked from <a
  * href="https://github.com/joewalnes/webbit">webbit</a> and modified.
  * </p>
+ * <p>
+ * A {@link ByteBuf} is not a frame and is passed on as it is, so a frame which has been encoded already by
+ * {@link #encodeFrame(WebSocketFrame)} can be written in place of the frame.  This is useful when the same frame
+ * is broadcast to many server side connections, for example via
+ * {@link io.netty.channel.group.ChannelGroup#write(Object)}:
+ * </p>
+ * <pre>
+ * ByteBuf encoded = WebSocket08FrameEncoder.encodeFrame(new TextWebSocketFrame("Hello, subscribers!"));
+ * subscribers.write(encoded);
+ * </pre>
+ * <p>
+ * The frame header is then built only once and the payload is never masked or re-encoded per connection.
+ * </p>
  */
 public class WebSocket08FrameEncoder extends MessageToByteEncoder<WebSocketFrame> {
 
@@ -94,12 +106,25 @@ public class WebSocket08FrameEncoder extends MessageToByteEncoder<WebSocketFrame
         this.maskPayload = maskPayload;
     }
 
+    /**
+     * Encodes the specified frame into a new read-only buffer which can be written to any number of server side
+     * connections whose pipeline contains a {@link WebSocket08FrameEncoder} or a {@link WebSocket13FrameEncoder}.
+     * The payload is not masked, and thus the returned buffer must not be written by a client.
+     */
+    public static ByteBuf encodeFrame(WebSocketFrame frame) {
+        ByteBuf data = frame.getBinaryData();
+        ByteBuf out = Unpooled.buffer(10 + (data == null? 0 : data.readableBytes()));
+        encode(frame, false, out);
+        return Unpooled.unmodifiableBuffer(out);
+    }
+
     @Override
     public void encode(
             ChannelHandlerContext ctx, WebSocketFrame msg, ByteBuf out) throws Exception {
+        encode(msg, maskPayload, out);
+    }
 
-        byte[] mask;
-
+    private static void encode(WebSocketFrame msg, boolean maskPayload, ByteBuf out) {
         ByteBuf data = msg.getBinaryData();
         if (data == null) {
             data = Unpooled.EMPTY_BUFFER;
@@ -161,15 +186,9 @@ public class WebSocket08FrameEncoder extends MessageToByteEncoder<WebSocketFrame
 
         // Write payload
         if (maskPayload) {
-            int random = (int) (Math.random() * Integer.MAX_VALUE);
-            mask = ByteBuffer.allocate(4).putInt(random).array();
-            out.writeBytes(mask);
-
-            int counter = 0;
-            for (int i = data.readerIndex(); i < data.writerIndex(); i ++) {
-                byte byteData = data.getByte(i);
-                out.writeByte(byteData ^ mask[+counter++ % 4]);
-            }
+            int mask = (int) (Math.random() * Integer.MAX_VALUE);
+            out.writeInt(mask);
+            WebSocketUtil.mask(data, data.readerIndex(), length, mask, out);
         } else {
             out.writeBytes(data, data.readerIndex(), data.readableBytes());
         }
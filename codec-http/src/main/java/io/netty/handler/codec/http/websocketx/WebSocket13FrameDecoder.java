@@ -71,6 +71,26 @@ public class WebSocket13FrameDecoder extends WebSocket08FrameDecoder {
      *            helps check for denial of services attacks.
      */
     public WebSocket13FrameDecoder(boolean maskedPayload, boolean allowExtensions, int maxFramePayloadLength) {
-        super(maskedPayload, allowExtensions, maxFramePayloadLength);
+        this(maskedPayload, allowExtensions, maxFramePayloadLength, true);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param maskedPayload
+     *            Web socket servers must set this to true processed incoming masked payload. Client implementations
+     *            must set this to false.
+     * @param allowExtensions
+     *            Flag to allow reserved extension bits to be used or not
+     * @param maxFramePayloadLength
+     *            Maximum length of a frame's payload. Setting this to an appropriate value for you application
+     *            helps check for denial of services attacks.
+     * @param validateUtf8
+     *            Flag to validate the UTF-8 payload of the text frames. Setting this to false skips the
+     *            validation, which is only safe when the remote peer is trusted.
+     */
+    public WebSocket13FrameDecoder(
+            boolean maskedPayload, boolean allowExtensions, int maxFramePayloadLength, boolean validateUtf8) {
+        super(maskedPayload, allowExtensions, maxFramePayloadLength, validateUtf8);
     }
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http.websocketx;
+
+import io.netty.util.internal.StringUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An extension and its parameters as they appear in the {@code "Sec-WebSocket-Extensions"}
+ * header, e.g. {@code "permessage-deflate; client_max_window_bits"}.
+ */
+public class WebSocketExtensionData {
+
+    private final String name;
+    private final Map<String, String> parameters;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param name
+     *            the name of the extension
+     * @param parameters
+     *            the parameters of the extension.  The value of a parameter without a value is {@code null}.
+     */
+    public WebSocketExtensionData(String name, Map<String, String> parameters) {
+        if (name == null) {
+            throw new NullPointerException("name");
+        }
+        if (parameters == null) {
+            throw new NullPointerException("parameters");
+        }
+        this.name = name;
+        this.parameters = Collections.unmodifiableMap(new LinkedHashMap<String, String>(parameters));
+    }
+
+    /**
+     * Returns the name of the extension
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the parameters of the extension.  The value of a parameter without a value is {@code null}.
+     */
+    public Map<String, String> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Decodes the value of a {@code "Sec-WebSocket-Extensions"} header.
+     *
+     * @param header
+     *            the header value, e.g. {@code "permessage-deflate; server_max_window_bits=10, x-foo"}
+     * @return the extensions in the order they appear in the header
+     */
+    public static List<WebSocketExtensionData> decode(String header) {
+        List<WebSocketExtensionData> extensions = new ArrayList<WebSocketExtensionData>();
+        if (header == null) {
+            return extensions;
+        }
+
+        for (String extension: StringUtil.split(header, ',')) {
+            String[] parts = StringUtil.split(extension, ';');
+            String name = parts[0].trim();
+            if (name.length() == 0) {
+                continue;
+            }
+
+            Map<String, String> parameters = new LinkedHashMap<String, String>();
+            for (int i = 1; i < parts.length; i ++) {
+                String part = parts[i];
+                int eq = part.indexOf('=');
+                if (eq < 0) {
+                    parameters.put(part.trim(), null);
+                } else {
+                    String value = part.substring(eq + 1).trim();
+                    if (value.length() >= 2 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"') {
+                        value = value.substring(1, value.length() - 1);
+                    }
+                    parameters.put(part.substring(0, eq).trim(), value);
+                }
+            }
+            extensions.add(new WebSocketExtensionData(name, parameters));
+        }
+        return extensions;
+    }
+
+    /**
+     * Encodes the specified extensions into the value of a {@code "Sec-WebSocket-Extensions"} header.
+     */
+    public static String encode(List<WebSocketExtensionData> extensions) {
+        StringBuilder buf = new StringBuilder();
+        for (Iterator<WebSocketExtensionData> i = extensions.iterator(); i.hasNext();) {
+            i.next().encode(buf);
+            if (i.hasNext()) {
+                buf.append(", ");
+            }
+        }
+        return buf.toString();
+    }
+
+    private void encode(StringBuilder buf) {
+        buf.append(name);
+        for (Map.Entry<String, String> e: parameters.entrySet()) {
+            buf.append("; ");
+            buf.append(e.getKey());
+            if (e.getValue() != null) {
+                buf.append('=');
+                buf.append(e.getValue());
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buf = new StringBuilder();
+        encode(buf);
+        return buf.toString();
+    }
+}
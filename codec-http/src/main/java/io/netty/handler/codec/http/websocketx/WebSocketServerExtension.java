@@ -0,0 +1,64 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http.websocketx;
+
+import io.netty.channel.ChannelHandler;
+
+/**
+ * A web socket extension accepted by a {@link WebSocketServerExtensionHandshaker}.  Once the opening
+ * handshake is complete, the handlers created by {@link #newExtensionDecoder()} and
+ * {@link #newExtensionEncoder()} are inserted into the pipeline right after the web socket frame
+ * decoder and encoder, so that they transform the {@link WebSocketFrame}s exchanged with the
+ * application.
+ */
+public interface WebSocketServerExtension {
+
+    /**
+     * The {@code RSV1} bit of {@link WebSocketFrame#getRsv()}
+     */
+    int RSV1 = 0x04;
+
+    /**
+     * The {@code RSV2} bit of {@link WebSocketFrame#getRsv()}
+     */
+    int RSV2 = 0x02;
+
+    /**
+     * The {@code RSV3} bit of {@link WebSocketFrame#getRsv()}
+     */
+    int RSV3 = 0x01;
+
+    /**
+     * Returns the reserved bits used by this extension.  Two extensions which use the same
+     * reserved bit are never accepted together.
+     */
+    int getRsv();
+
+    /**
+     * Returns the extension and its parameters to send back to the client.
+     */
+    WebSocketExtensionData getResponseData();
+
+    /**
+     * Creates a new handler which transforms the outbound {@link WebSocketFrame}s.
+     */
+    ChannelHandler newExtensionEncoder();
+
+    /**
+     * Creates a new handler which transforms the inbound {@link WebSocketFrame}s.
+     */
+    ChannelHandler newExtensionDecoder();
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http.websocketx;
+
+/**
+ * Negotiates a web socket extension on the server side.  A handshaker which supports extensions,
+ * such as {@link WebSocketServerHandshaker13}, passes every extension offered by the client to its
+ * {@link WebSocketServerExtensionHandshaker}s until one of them accepts it.
+ */
+public interface WebSocketServerExtensionHandshaker {
+
+    /**
+     * Tries to accept the specified extension offered by the client.
+     *
+     * @param extensionData
+     *            the extension and the parameters offered by the client
+     * @return the accepted extension, or {@code null} if the extension is unknown to this
+     *         handshaker or the parameters are not acceptable
+     */
+    WebSocketServerExtension handshakeExtension(WebSocketExtensionData extensionData);
+}
@@ -33,6 +33,10 @@ import io.netty.logging.InternalLogger;
 import io.netty.logging.InternalLoggerFactory;
 import io.netty.util.CharsetUtil;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * <p>
  * Performs server side opening and closing handshakes for <a href="http://tools.ietf.org/html/rfc6455">RFC 6455</a>
@@ -46,6 +50,7 @@ public class WebSocketServerHandshaker13 extends WebSocketServerHandshaker {
     public static final String WEBSOCKET_13_ACCEPT_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
 
     private final boolean allowExtensions;
+    private final WebSocketServerExtensionHandshaker[] extensionHandshakers;
 
     /**
      * Constructor specifying the destination web socket location
@@ -63,8 +68,37 @@ public class WebSocketServerHandshaker13 extends WebSocketServerHandshaker {
      */
     public WebSocketServerHandshaker13(
             String webSocketURL, String subprotocols, boolean allowExtensions, int maxFramePayloadLength) {
+        this(webSocketURL, subprotocols, allowExtensions, maxFramePayloadLength,
+             new WebSocketServerExtensionHandshaker[0]);
+    }
+
+    /**
+     * Constructor specifying the destination web socket location and the supported extensions
+     *
+     * @param webSocketURL
+     *        URL for web socket communications. e.g "ws://myhost.com/mypath". Subsequent web
+     *        socket frames will be sent to this URL.
+     * @param subprotocols
+     *        CSV of supported protocols
+     * @param allowExtensions
+     *        Allow extensions to be used in the reserved bits of the web socket frame
+     * @param maxFramePayloadLength
+     *        Maximum allowable frame payload length. Setting this value to your application's
+     *        requirement may reduce denial of service attacks using long data frames.
+     * @param extensionHandshakers
+     *        Negotiate the extensions offered in the {@code "Sec-WebSocket-Extensions"} header
+     *        of the request.  The reserved bits are allowed for the accepted extensions even if
+     *        {@code allowExtensions} is {@code false}.
+     */
+    public WebSocketServerHandshaker13(
+            String webSocketURL, String subprotocols, boolean allowExtensions, int maxFramePayloadLength,
+            WebSocketServerExtensionHandshaker... extensionHandshakers) {
         super(WebSocketVersion.V13, webSocketURL, subprotocols, maxFramePayloadLength);
+        if (extensionHandshakers == null) {
+            throw new NullPointerException("extensionHandshakers");
+        }
         this.allowExtensions = allowExtensions;
+        this.extensionHandshakers = extensionHandshakers.clone();
     }
 
     /**
@@ -143,6 +177,15 @@ public class WebSocketServerHandshaker13 extends WebSocketServerHandshaker {
             }
         }
 
+        final List<WebSocketServerExtension> extensions =
+                handshakeExtensions(req.getHeader(Names.SEC_WEBSOCKET_EXTENSIONS));
+        if (!extensions.isEmpty()) {
+            List<WebSocketExtensionData> responseData = new ArrayList<WebSocketExtensionData>(extensions.size());
+            for (WebSocketServerExtension e: extensions) {
+                responseData.add(e.getResponseData());
+            }
+            res.addHeader(Names.SEC_WEBSOCKET_EXTENSIONS, WebSocketExtensionData.encode(responseData));
+        }
 
         ChannelFuture future = channel.write(res);
 
@@ -156,14 +199,50 @@ public class WebSocketServerHandshaker13 extends WebSocketServerHandshaker {
                 }
 
                 p.replace(HttpRequestDecoder.class, "wsdecoder",
-                        new WebSocket13FrameDecoder(true, allowExtensions, getMaxFramePayloadLength()));
+                        new WebSocket13FrameDecoder(
+                                true, allowExtensions || !extensions.isEmpty(), getMaxFramePayloadLength()));
                 p.replace(HttpResponseEncoder.class, "wsencoder", new WebSocket13FrameEncoder(false));
+
+                String last = "wsencoder";
+                for (int i = 0; i < extensions.size(); i ++) {
+                    WebSocketServerExtension e = extensions.get(i);
+                    p.addAfter(last, "wsextdecoder" + i, e.newExtensionDecoder());
+                    p.addAfter("wsextdecoder" + i, "wsextencoder" + i, e.newExtensionEncoder());
+                    last = "wsextencoder" + i;
+                }
             }
         });
 
         return future;
     }
 
+    /**
+     * Accepts the offered extensions which are supported by {@link #extensionHandshakers}, in the order
+     * of the offer.  An extension is not accepted if it uses the reserved bits of another accepted extension.
+     */
+    private List<WebSocketServerExtension> handshakeExtensions(String offer) {
+        if (offer == null || extensionHandshakers.length == 0) {
+            return Collections.emptyList();
+        }
+
+        List<WebSocketServerExtension> extensions = new ArrayList<WebSocketServerExtension>(1);
+        int rsv = 0;
+        for (WebSocketExtensionData data: WebSocketExtensionData.decode(offer)) {
+            for (WebSocketServerExtensionHandshaker h: extensionHandshakers) {
+                WebSocketServerExtension e = h.handshakeExtension(data);
+                if (e == null) {
+                    continue;
+                }
+                if ((e.getRsv() & rsv) == 0) {
+                    rsv |= e.getRsv();
+                    extensions.add(e);
+                }
+                break;
+            }
+        }
+        return extensions;
+    }
+
     /**
      * Echo back the closing frame and close the connection
      *
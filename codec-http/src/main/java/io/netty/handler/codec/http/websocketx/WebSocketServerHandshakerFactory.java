@@ -36,6 +36,8 @@ public class WebSocketServerHandshakerFactory {
 
     private final int maxFramePayloadLength;
 
+    private final WebSocketServerExtensionHandshaker[] extensionHandshakers;
+
     /**
      * Constructor specifying the destination web socket location
      *
@@ -69,10 +71,38 @@ public class WebSocketServerHandshakerFactory {
     public WebSocketServerHandshakerFactory(
             String webSocketURL, String subprotocols, boolean allowExtensions,
             int maxFramePayloadLength) {
+        this(webSocketURL, subprotocols, allowExtensions, maxFramePayloadLength,
+             new WebSocketServerExtensionHandshaker[0]);
+    }
+
+    /**
+     * Constructor specifying the destination web socket location and the supported extensions
+     *
+     * @param webSocketURL
+     *            URL for web socket communications. e.g "ws://myhost.com/mypath".
+     *            Subsequent web socket frames will be sent to this URL.
+     * @param subprotocols
+     *            CSV of supported protocols. Null if sub protocols not supported.
+     * @param allowExtensions
+     *            Allow extensions to be used in the reserved bits of the web socket frame
+     * @param maxFramePayloadLength
+     *            Maximum allowable frame payload length. Setting this value to your application's
+     *            requirement may reduce denial of service attacks using long data frames.
+     * @param extensionHandshakers
+     *            Negotiate the extensions offered by the clients.  Only version 13 of the wire
+     *            protocol supports extension negotiation.
+     */
+    public WebSocketServerHandshakerFactory(
+            String webSocketURL, String subprotocols, boolean allowExtensions,
+            int maxFramePayloadLength, WebSocketServerExtensionHandshaker... extensionHandshakers) {
+        if (extensionHandshakers == null) {
+            throw new NullPointerException("extensionHandshakers");
+        }
         this.webSocketURL = webSocketURL;
         this.subprotocols = subprotocols;
         this.allowExtensions = allowExtensions;
         this.maxFramePayloadLength = maxFramePayloadLength;
+        this.extensionHandshakers = extensionHandshakers.clone();
     }
 
     /**
@@ -88,7 +118,7 @@ public class WebSocketServerHandshakerFactory {
             if (version.equals(WebSocketVersion.V13.toHttpHeaderValue())) {
                 // Version 13 of the wire protocol - RFC 6455 (version 17 of the draft hybi specification).
                 return new WebSocketServerHandshaker13(
-                        webSocketURL, subprotocols, allowExtensions, maxFramePayloadLength);
+                        webSocketURL, subprotocols, allowExtensions, maxFramePayloadLength, extensionHandshakers);
             } else if (version.equals(WebSocketVersion.V08.toHttpHeaderValue())) {
                 // Version 8 of the wire protocol - version 10 of the draft hybi specification.
                 return new WebSocketServerHandshaker08(
@@ -19,6 +19,8 @@ import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.base64.Base64;
 import io.netty.util.CharsetUtil;
+
+import java.nio.ByteOrder;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
@@ -27,6 +29,40 @@ import java.security.NoSuchAlgorithmException;
  */
 final class WebSocketUtil {
 
+    /**
+     * Masks (or unmasks) the specified region of {@code src} with the specified masking key
+     * and writes the result to {@code dst}.  The masked data is XOR'ed 8 bytes at a time when
+     * both buffers have the same byte order.
+     *
+     * @param src The buffer which contains the data to mask
+     * @param srcIndex The index of the first byte to mask
+     * @param length The number of bytes to mask
+     * @param mask The masking key whose most significant byte masks the first byte
+     * @param dst The buffer the masked data is written to
+     */
+    static void mask(ByteBuf src, int srcIndex, int length, int mask, ByteBuf dst) {
+        dst.ensureWritableBytes(length);
+
+        int i = srcIndex;
+        final int end = srcIndex + length;
+        if (src.order() == dst.order()) {
+            int intMask = src.order() == ByteOrder.BIG_ENDIAN? mask : Integer.reverseBytes(mask);
+            long longMask = (long) intMask << 32 | intMask & 0xFFFFFFFFL;
+            for (int longEnd = i + (length & ~7); i < longEnd; i += 8) {
+                dst.writeLong(src.getLong(i) ^ longMask);
+            }
+            if (end - i >= 4) {
+                dst.writeInt(src.getInt(i) ^ intMask);
+                i += 4;
+            }
+        }
+
+        // Mask the remainder byte by byte.
+        for (; i < end; i ++) {
+            dst.writeByte(src.getByte(i) ^ mask >>> (3 - (i - srcIndex & 3) << 3));
+        }
+    }
+
     /**
      * Performs a MD5 hash on the specified data
      *
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.spdy;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from {@code int} keys to objects which uses open addressing with
+ * linear probing, so that neither the keys nor the entries need to be boxed.
+ * <p>
+ * This map is not thread-safe.  A {@code null} value cannot be stored.
+ */
+final class IntObjectHashMap<V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] keys;
+    private V[] values;
+    private int size;
+
+    IntObjectHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    IntObjectHashMap(int initialCapacity) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity < initialCapacity * 2) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = (V[]) new Object[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the length of the internal table, which is the exclusive upper bound
+     * of the indexes accepted by {@link #keyAt(int)} and {@link #valueAt(int)}.
+     */
+    int capacity() {
+        return values.length;
+    }
+
+    /**
+     * Returns the key at the specified index of the internal table.  The return value
+     * is meaningless if {@link #valueAt(int)} returns {@code null} for the same index.
+     */
+    int keyAt(int index) {
+        return keys[index];
+    }
+
+    /**
+     * Returns the value at the specified index of the internal table, or
+     * {@code null} if there is no entry at the index.
+     */
+    V valueAt(int index) {
+        return values[index];
+    }
+
+    V get(int key) {
+        int index = indexOf(key);
+        return index < 0 ? null : values[index];
+    }
+
+    boolean containsKey(int key) {
+        return indexOf(key) >= 0;
+    }
+
+    V put(int key, V value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+
+        int mask = values.length - 1;
+        for (int i = hash(key) & mask;; i = i + 1 & mask) {
+            V oldValue = values[i];
+            if (oldValue == null) {
+                keys[i] = key;
+                values[i] = value;
+                if (++ size > values.length >>> 1) {
+                    rehash(values.length << 1);
+                }
+                return null;
+            }
+            if (keys[i] == key) {
+                values[i] = value;
+                return oldValue;
+            }
+        }
+    }
+
+    V remove(int key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+
+        V oldValue = values[index];
+        values[index] = null;
+        size --;
+
+        // Shift back the entries which follow the removed one in the same probe sequence
+        // so that no lookup stops at the slot which has been emptied.
+        int mask = values.length - 1;
+        int i = index;
+        for (int j = i + 1 & mask; values[j] != null; j = j + 1 & mask) {
+            int k = hash(keys[j]) & mask;
+            if (i <= j ? i < k && k <= j : i < k || k <= j) {
+                continue;
+            }
+            keys[i] = keys[j];
+            values[i] = values[j];
+            values[j] = null;
+            i = j;
+        }
+        return oldValue;
+    }
+
+    void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private int indexOf(int key) {
+        int mask = values.length - 1;
+        for (int i = hash(key) & mask;; i = i + 1 & mask) {
+            if (values[i] == null) {
+                return -1;
+            }
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        int[] oldKeys = keys;
+        V[] oldValues = values;
+        allocate(newCapacity);
+        int mask = newCapacity - 1;
+        for (int i = 0; i < oldValues.length; i ++) {
+            V value = oldValues[i];
+            if (value != null) {
+                int j = hash(oldKeys[i]) & mask;
+                while (values[j] != null) {
+                    j = j + 1 & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = value;
+            }
+        }
+    }
+
+    private static int hash(int key) {
+        // Stream IDs are sequential and either all odd or all even; spread them over the table.
+        int h = key * 0x9E3779B9;
+        return h ^ h >>> 16;
+    }
+}
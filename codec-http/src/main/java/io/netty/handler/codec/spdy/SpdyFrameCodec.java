@@ -15,17 +15,25 @@
  */
 package io.netty.handler.codec.spdy;
 
+import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.CombinedChannelHandler;
-
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
 
 /**
  * A combination of {@link SpdyFrameDecoder} and {@link SpdyFrameEncoder}.
+ * <p>
+ * When an {@link IdleStateEvent} is triggered, for example by an {@link IdleStateHandler}
+ * in front of this codec, the state of the header block compressor is released until the
+ * next header block is sent, so that idle sessions hold much less memory.
  *
  * @apiviz.has io.netty.handler.codec.spdy.SpdyFrameDecoder
  * @apiviz.has io.netty.handler.codec.spdy.SpdyFrameEncoder
  */
 public class SpdyFrameCodec extends CombinedChannelHandler {
 
+    private final SpdyFrameEncoder encoder;
+
     /**
      * Creates a new instance with the specified {@code version} and
      * the default decoder and encoder options
@@ -43,8 +51,15 @@ public class SpdyFrameCodec extends CombinedChannelHandler {
     public SpdyFrameCodec(
             int version, int maxChunkSize, int maxHeaderSize,
             int compressionLevel, int windowBits, int memLevel) {
-        super(
-                new SpdyFrameDecoder(version, maxChunkSize, maxHeaderSize),
-                new SpdyFrameEncoder(version, compressionLevel, windowBits, memLevel));
+        encoder = new SpdyFrameEncoder(version, compressionLevel, windowBits, memLevel);
+        init(new SpdyFrameDecoder(version, maxChunkSize, maxHeaderSize), encoder);
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt instanceof IdleStateEvent) {
+            encoder.releaseHeaderBlockCompressor();
+        }
+        super.userEventTriggered(ctx, evt);
     }
 }
@@ -17,13 +17,19 @@ package io.netty.handler.codec.spdy;
 
 import static io.netty.handler.codec.spdy.SpdyCodecUtil.*;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.TooLongFrameException;
 
+import java.util.List;
+
 /**
  * Decodes {@link ByteBuf}s into SPDY Data and Control Frames.
+ * <p>
+ * The received bytes are cumulated with {@link #COMPOSITE_CUMULATOR}, so that the data of
+ * a Data Frame is a slice of the received bytes rather than a copy of them.
  */
 public class SpdyFrameDecoder extends ByteToMessageDecoder<Object> {
 
@@ -96,6 +102,7 @@ public class SpdyFrameDecoder extends ByteToMessageDecoder<Object> {
         spdyVersion = version;
         this.maxChunkSize = maxChunkSize;
         this.maxHeaderSize = maxHeaderSize;
+        setCumulator(COMPOSITE_CUMULATOR);
         headerBlockDecompressor = SpdyHeaderBlockDecompressor.newInstance(version);
         state = State.READ_COMMON_HEADER;
     }
@@ -290,7 +297,7 @@ public class SpdyFrameDecoder extends ByteToMessageDecoder<Object> {
             }
 
             SpdyDataFrame spdyDataFrame = new DefaultSpdyDataFrame(streamID);
-            spdyDataFrame.setData(buffer.readBytes(dataLength));
+            spdyDataFrame.setData(readData(buffer, dataLength));
             length -= dataLength;
 
             if (length == 0) {
@@ -531,6 +538,27 @@ public class SpdyFrameDecoder extends ByteToMessageDecoder<Object> {
         }
     }
 
+    /**
+     * Reads the data of a Data Frame as slices of the components of the cumulation.
+     * A slice acquires its component, so it stays valid after the cumulation has
+     * discarded and released the component.
+     */
+    private static ByteBuf readData(ByteBuf buffer, int dataLength) {
+        if (!(buffer instanceof CompositeByteBuf)) {
+            return buffer.readBytes(dataLength);
+        }
+        if (dataLength == 0) {
+            return Unpooled.EMPTY_BUFFER;
+        }
+
+        List<ByteBuf> slices = ((CompositeByteBuf) buffer).decompose(buffer.readerIndex(), dataLength);
+        buffer.skipBytes(dataLength);
+        if (slices.size() == 1) {
+            return slices.get(0);
+        }
+        return Unpooled.wrappedBuffer(slices.size(), slices.toArray(new ByteBuf[slices.size()]));
+    }
+
     private boolean ensureBytes(int bytes) throws Exception {
         if (decompressed.readableBytes() >= bytes) {
             return true;
@@ -48,6 +48,10 @@ public class SpdyFrameEncoder extends MessageToByteEncoder<Object> {
 
     /**
      * Creates a new instance with the specified parameters.
+     * <p>
+     * The header block compressor is created when the first header block is encoded.
+     * A {@code windowBits} or {@code memLevel} lower than the default reduces the memory
+     * held by the compressor of each session at the cost of compression ratio.
      */
     public SpdyFrameEncoder(int version, int compressionLevel, int windowBits, int memLevel) {
         super(SpdyDataFrame.class, SpdyControlFrame.class);
@@ -324,6 +328,18 @@ public class SpdyFrameEncoder extends MessageToByteEncoder<Object> {
         return headerBlock;
     }
 
+    /**
+     * Releases the state of the header block compressor until the next header block
+     * is encoded.  This is useful for sessions which stay idle for a long time.
+     */
+    void releaseHeaderBlockCompressor() {
+        synchronized (headerBlockCompressor) {
+            if (!finished) {
+                headerBlockCompressor.release();
+            }
+        }
+    }
+
     private synchronized ByteBuf compressHeaderBlock(
             ByteBuf uncompressed) throws Exception {
         if (uncompressed.readableBytes() == 0) {
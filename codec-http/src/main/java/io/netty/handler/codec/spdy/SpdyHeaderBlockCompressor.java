@@ -20,10 +20,16 @@ import io.netty.util.internal.DetectionUtil;
 
 abstract class SpdyHeaderBlockCompressor {
 
+    static final int DEFAULT_WINDOW_BITS = 15;
+    static final int DEFAULT_MEM_LEVEL = 8;
+
     static SpdyHeaderBlockCompressor newInstance(
             int version, int compressionLevel, int windowBits, int memLevel) {
 
-        if (DetectionUtil.javaVersion() >= 7) {
+        // java.util.zip.Deflater always allocates the default window and hash table,
+        // so only JZlib can honor smaller windowBits and memLevel.
+        if (DetectionUtil.javaVersion() >= 7 &&
+            windowBits == DEFAULT_WINDOW_BITS && memLevel == DEFAULT_MEM_LEVEL) {
             return new SpdyHeaderBlockZlibCompressor(
                     version, compressionLevel);
         } else {
@@ -34,5 +40,17 @@ abstract class SpdyHeaderBlockCompressor {
 
     abstract void setInput(ByteBuf decompressed);
     abstract void encode(ByteBuf compressed);
+
+    /**
+     * Releases the compression state until the next header block is compressed.
+     * <p>
+     * The remote endpoint keeps decompressing a single zlib stream, so the state
+     * which is created again afterwards continues that stream with raw deflate
+     * blocks.  Those blocks cannot refer to the data compressed so far nor to the
+     * SPDY dictionary, which costs some compression ratio for the first header
+     * blocks after the release.
+     */
+    abstract void release();
+
     abstract void end();
 }
@@ -23,7 +23,12 @@ import io.netty.util.internal.jzlib.ZStream;
 
 class SpdyHeaderBlockJZlibCompressor extends SpdyHeaderBlockCompressor {
 
-    private final ZStream z = new ZStream();
+    private final int version;
+    private final int compressionLevel;
+    private final int windowBits;
+    private final int memLevel;
+    private ZStream z;
+    private boolean started;
 
     public SpdyHeaderBlockJZlibCompressor(
             int version, int compressionLevel, int windowBits, int memLevel) {
@@ -43,29 +48,54 @@ class SpdyHeaderBlockJZlibCompressor extends SpdyHeaderBlockCompressor {
             throw new IllegalArgumentException(
                     "memLevel: " + memLevel + " (expected: 1-9)");
         }
+        this.version = version;
+        this.compressionLevel = compressionLevel;
+        this.windowBits = windowBits;
+        this.memLevel = memLevel;
+    }
 
-        int resultCode = z.deflateInit(
-                compressionLevel, windowBits, memLevel, JZlib.W_ZLIB);
-        if (resultCode != JZlib.Z_OK) {
-            throw new CompressionException(
-                    "failed to initialize an SPDY header block deflater: " + resultCode);
-        } else {
-            if (version < 3) {
-                resultCode = z.deflateSetDictionary(SPDY2_DICT, SPDY2_DICT.length);
-            } else {
-                resultCode = z.deflateSetDictionary(SPDY_DICT, SPDY_DICT.length);
+    private ZStream z() {
+        if (z != null) {
+            return z;
+        }
+
+        ZStream z = new ZStream();
+        if (started) {
+            // Continue the stream of the released compressor.
+            int resultCode = z.deflateInit(
+                    compressionLevel, windowBits, memLevel, JZlib.W_NONE);
+            if (resultCode != JZlib.Z_OK) {
+                throw new CompressionException(
+                        "failed to initialize an SPDY header block deflater: " + resultCode);
             }
+        } else {
+            int resultCode = z.deflateInit(
+                    compressionLevel, windowBits, memLevel, JZlib.W_ZLIB);
             if (resultCode != JZlib.Z_OK) {
                 throw new CompressionException(
-                        "failed to set the SPDY dictionary: " + resultCode);
+                        "failed to initialize an SPDY header block deflater: " + resultCode);
+            } else {
+                if (version < 3) {
+                    resultCode = z.deflateSetDictionary(SPDY2_DICT, SPDY2_DICT.length);
+                } else {
+                    resultCode = z.deflateSetDictionary(SPDY_DICT, SPDY_DICT.length);
+                }
+                if (resultCode != JZlib.Z_OK) {
+                    throw new CompressionException(
+                            "failed to set the SPDY dictionary: " + resultCode);
+                }
             }
+            started = true;
         }
+        this.z = z;
+        return z;
     }
 
     @Override
     public void setInput(ByteBuf decompressed) {
         byte[] in = new byte[decompressed.readableBytes()];
         decompressed.readBytes(in);
+        ZStream z = z();
         z.next_in = in;
         z.next_in_index = 0;
         z.avail_in = in.length;
@@ -73,6 +103,7 @@ class SpdyHeaderBlockJZlibCompressor extends SpdyHeaderBlockCompressor {
 
     @Override
     public void encode(ByteBuf compressed) {
+        ZStream z = z();
         try {
             byte[] out = new byte[(int) Math.ceil(z.next_in.length * 1.001) + 12];
             z.next_out = out;
@@ -97,10 +128,18 @@ class SpdyHeaderBlockJZlibCompressor extends SpdyHeaderBlockCompressor {
         }
     }
 
+    @Override
+    public void release() {
+        if (z != null) {
+            z.deflateEnd();
+            z.next_in = null;
+            z.next_out = null;
+            z = null;
+        }
+    }
+
     @Override
     public void end() {
-        z.deflateEnd();
-        z.next_in = null;
-        z.next_out = null;
+        release();
     }
 }
@@ -22,8 +22,10 @@ import java.util.zip.Deflater;
 
 class SpdyHeaderBlockZlibCompressor extends SpdyHeaderBlockCompressor {
 
-    private final byte[] out = new byte[8192];
-    private final Deflater compressor;
+    private final int version;
+    private final int compressionLevel;
+    private Deflater compressor;
+    private boolean started;
 
     public SpdyHeaderBlockZlibCompressor(int version, int compressionLevel) {
         if (version < SpdyConstants.SPDY_MIN_VERSION || version > SpdyConstants.SPDY_MAX_VERSION) {
@@ -34,31 +36,71 @@ class SpdyHeaderBlockZlibCompressor extends SpdyHeaderBlockCompressor {
             throw new IllegalArgumentException(
                     "compressionLevel: " + compressionLevel + " (expected: 0-9)");
         }
-        compressor = new Deflater(compressionLevel);
-        if (version < 3) {
-            compressor.setDictionary(SPDY2_DICT);
-        } else {
-            compressor.setDictionary(SPDY_DICT);
+        this.version = version;
+        this.compressionLevel = compressionLevel;
+    }
+
+    private Deflater compressor() {
+        if (compressor == null) {
+            if (started) {
+                // Continue the stream of the released compressor.
+                compressor = new Deflater(compressionLevel, true);
+            } else {
+                started = true;
+                compressor = new Deflater(compressionLevel);
+                if (version < 3) {
+                    compressor.setDictionary(SPDY2_DICT);
+                } else {
+                    compressor.setDictionary(SPDY_DICT);
+                }
+            }
         }
+        return compressor;
     }
 
     @Override
     public void setInput(ByteBuf decompressed) {
         byte[] in = new byte[decompressed.readableBytes()];
         decompressed.readBytes(in);
-        compressor.setInput(in);
+        compressor().setInput(in);
     }
 
     @Override
     public void encode(ByteBuf compressed) {
-        while (!compressor.needsInput()) {
-            int numBytes = compressor.deflate(out, 0, out.length, Deflater.SYNC_FLUSH);
-            compressed.writeBytes(out, 0, numBytes);
+        Deflater compressor = compressor();
+        for (;;) {
+            compressed.ensureWritableBytes(64);
+            int writerIndex = compressed.writerIndex();
+            int writableBytes = compressed.writableBytes();
+            int numBytes;
+            if (compressed.hasArray()) {
+                numBytes = compressor.deflate(
+                        compressed.array(), compressed.arrayOffset() + writerIndex, writableBytes,
+                        Deflater.SYNC_FLUSH);
+            } else {
+                byte[] out = new byte[writableBytes];
+                numBytes = compressor.deflate(out, 0, out.length, Deflater.SYNC_FLUSH);
+                compressed.setBytes(writerIndex, out, 0, numBytes);
+            }
+            compressed.writerIndex(writerIndex + numBytes);
+
+            // The flush is complete once the output buffer is not filled up.
+            if (numBytes < writableBytes) {
+                break;
+            }
+        }
+    }
+
+    @Override
+    public void release() {
+        if (compressor != null) {
+            compressor.end();
+            compressor = null;
         }
     }
 
     @Override
     public void end() {
-        compressor.end();
+        release();
     }
 }
@@ -23,9 +23,10 @@ import java.util.zip.Inflater;
 
 class SpdyHeaderBlockZlibDecompressor extends SpdyHeaderBlockDecompressor {
 
+    private static final int MAX_DECOMPRESSED_BYTES = 8192;
+
     private final int version;
-    private final byte[] out = new byte[8192];
-    private final Inflater decompressor = new Inflater();
+    private Inflater decompressor;
 
     public SpdyHeaderBlockZlibDecompressor(int version) {
         if (version < SpdyConstants.SPDY_MIN_VERSION || version > SpdyConstants.SPDY_MAX_VERSION) {
@@ -39,30 +40,59 @@ class SpdyHeaderBlockZlibDecompressor extends SpdyHeaderBlockDecompressor {
     public void setInput(ByteBuf compressed) {
         byte[] in = new byte[compressed.readableBytes()];
         compressed.readBytes(in);
+        if (decompressor == null) {
+            // The inflater is created on the first header block, so that a session which
+            // has not received any header block yet does not hold the inflater state.
+            // Unlike the compressor, it cannot be released afterwards because the remote
+            // endpoint may refer to any data it has compressed so far.
+            decompressor = new Inflater();
+        }
         decompressor.setInput(in);
     }
 
     @Override
     public void decode(ByteBuf decompressed) throws Exception {
+        if (decompressor == null) {
+            return;
+        }
         try {
-            int numBytes = decompressor.inflate(out);
+            int numBytes = inflate(decompressed);
             if (numBytes == 0 && decompressor.needsDictionary()) {
                 if (version < 3) {
                     decompressor.setDictionary(SPDY2_DICT);
                 } else {
                     decompressor.setDictionary(SPDY_DICT);
                 }
-                numBytes = decompressor.inflate(out);
+                inflate(decompressed);
             }
-            decompressed.writeBytes(out, 0, numBytes);
         } catch (DataFormatException e) {
             throw new SpdyProtocolException(
                     "Received invalid header block", e);
         }
     }
 
+    // Inflates directly into the backing array of the buffer when possible.
+    private int inflate(ByteBuf decompressed) throws DataFormatException {
+        decompressed.ensureWritableBytes(MAX_DECOMPRESSED_BYTES);
+        int writerIndex = decompressed.writerIndex();
+        int numBytes;
+        if (decompressed.hasArray()) {
+            numBytes = decompressor.inflate(
+                    decompressed.array(), decompressed.arrayOffset() + writerIndex, MAX_DECOMPRESSED_BYTES);
+        } else {
+            byte[] out = new byte[MAX_DECOMPRESSED_BYTES];
+            numBytes = decompressor.inflate(out);
+            decompressed.setBytes(writerIndex, out, 0, numBytes);
+        }
+        decompressed.writerIndex(writerIndex + numBytes);
+        return numBytes;
+    }
+
     @Override
     public void end() {
-        decompressor.end();
+        if (decompressor != null) {
+            decompressor.end();
+            decompressor = null;
+        }
     }
 }
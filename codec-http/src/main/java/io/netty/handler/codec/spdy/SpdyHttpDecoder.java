@@ -16,6 +16,7 @@
 package io.netty.handler.codec.spdy;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageDecoder;
@@ -205,14 +206,25 @@ public class SpdyHttpDecoder extends MessageToMessageDecoder<Object, HttpMessage
                         "HTTP content length exceeded " + maxContentLength + " bytes.");
             }
 
+            // Compose the content of the data frames instead of copying it.
             ByteBuf spdyDataFrameData = spdyDataFrame.getData();
             int spdyDataFrameDataLen = spdyDataFrameData.readableBytes();
             if (content == Unpooled.EMPTY_BUFFER) {
-                content = Unpooled.buffer(spdyDataFrameDataLen);
-                content.writeBytes(spdyDataFrameData, spdyDataFrameData.readerIndex(), spdyDataFrameDataLen);
+                content = spdyDataFrameData;
                 httpMessage.setContent(content);
-            } else {
-                content.writeBytes(spdyDataFrameData, spdyDataFrameData.readerIndex(), spdyDataFrameDataLen);
+            } else if (spdyDataFrameDataLen != 0) {
+                // A composite buffer with a limited number of components would consolidate them.
+                if (!(content instanceof CompositeByteBuf) ||
+                    ((CompositeByteBuf) content).maxNumComponents() != Integer.MAX_VALUE) {
+                    CompositeByteBuf composite = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+                    composite.addComponent(content);
+                    composite.writerIndex(content.readableBytes());
+                    content = composite;
+                    httpMessage.setContent(content);
+                }
+                CompositeByteBuf composite = (CompositeByteBuf) content;
+                composite.addComponent(spdyDataFrameData);
+                composite.writerIndex(composite.writerIndex() + spdyDataFrameDataLen);
             }
 
             if (spdyDataFrame.isLast()) {
@@ -15,19 +15,22 @@
  */
 package io.netty.handler.codec.spdy;
 
-import java.util.Comparator;
-import java.util.Map;
+import io.netty.buffer.ByteBuf;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Queue;
-import java.util.Set;
-import java.util.TreeSet;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * The state of the streams of a SPDY session.
+ * <p>
+ * A session is confined to the event loop of its channel, and thus none of its
+ * operations is synchronized.
+ */
 final class SpdySession {
 
-    private final Map<Integer, StreamState> activeStreams =
-        new ConcurrentHashMap<Integer, StreamState>();
+    private final IntObjectHashMap<StreamState> activeStreams = new IntObjectHashMap<StreamState>();
+    private long pendingWriteBytes;
 
     int numActiveStreams() {
         return activeStreams.size();
@@ -38,14 +41,27 @@ final class SpdySession {
     }
 
     boolean isActiveStream(int streamID) {
-        return activeStreams.containsKey(new Integer(streamID));
+        return activeStreams.containsKey(streamID);
     }
 
     // Stream-IDs should be iterated in priority order
-    Set<Integer> getActiveStreams() {
-        TreeSet<Integer> StreamIDs = new TreeSet<Integer>(new PriorityComparator());
-        StreamIDs.addAll(activeStreams.keySet());
-        return StreamIDs;
+    int[] getActiveStreams() {
+        // Sort by priority first and then by Stream-ID.
+        long[] orders = new long[activeStreams.size()];
+        int n = 0;
+        for (int i = 0; i < activeStreams.capacity(); i ++) {
+            StreamState state = activeStreams.valueAt(i);
+            if (state != null) {
+                orders[n ++] = (long) state.getPriority() << 32 | activeStreams.keyAt(i);
+            }
+        }
+        Arrays.sort(orders);
+
+        int[] streamIDs = new int[n];
+        for (int i = 0; i < n; i ++) {
+            streamIDs[i] = (int) orders[i];
+        }
+        return streamIDs;
     }
 
     void acceptStream(
@@ -53,127 +69,175 @@ final class SpdySession {
             int sendWindowSize, int receiveWindowSize) {
         if (!remoteSideClosed || !localSideClosed) {
             activeStreams.put(
-                    new Integer(streamID),
+                    streamID,
                     new StreamState(priority, remoteSideClosed, localSideClosed, sendWindowSize, receiveWindowSize));
         }
     }
 
     boolean removeStream(int streamID) {
-        Integer StreamID = new Integer(streamID);
-        StreamState state = activeStreams.get(StreamID);
-        activeStreams.remove(StreamID);
+        StreamState state = activeStreams.remove(streamID);
         if (state != null) {
-            return state.clearPendingWrites();
+            return clearPendingWrites(state);
         } else {
             return false;
         }
     }
 
     boolean isRemoteSideClosed(int streamID) {
-        StreamState state = activeStreams.get(new Integer(streamID));
+        StreamState state = activeStreams.get(streamID);
         return state == null || state.isRemoteSideClosed();
     }
 
     void closeRemoteSide(int streamID) {
-        Integer StreamID = new Integer(streamID);
-        StreamState state = activeStreams.get(StreamID);
+        StreamState state = activeStreams.get(streamID);
         if (state != null) {
             state.closeRemoteSide();
             if (state.isLocalSideClosed()) {
-                activeStreams.remove(StreamID);
+                removeStream(streamID);
             }
         }
     }
 
     boolean isLocalSideClosed(int streamID) {
-        StreamState state = activeStreams.get(new Integer(streamID));
+        StreamState state = activeStreams.get(streamID);
         return state == null || state.isLocalSideClosed();
     }
 
     void closeLocalSide(int streamID) {
-        Integer StreamID = new Integer(streamID);
-        StreamState state = activeStreams.get(StreamID);
+        StreamState state = activeStreams.get(streamID);
         if (state != null) {
             state.closeLocalSide();
             if (state.isRemoteSideClosed()) {
-                activeStreams.remove(StreamID);
+                removeStream(streamID);
             }
         }
     }
 
-    /*
-     * hasReceivedReply and receivedReply are only called from messageReceived
-     * no need to synchronize access to the StreamState
-     */
     boolean hasReceivedReply(int streamID) {
-        StreamState state = activeStreams.get(new Integer(streamID));
+        StreamState state = activeStreams.get(streamID);
         return state != null && state.hasReceivedReply();
     }
 
     void receivedReply(int streamID) {
-        StreamState state = activeStreams.get(new Integer(streamID));
+        StreamState state = activeStreams.get(streamID);
         if (state != null) {
             state.receivedReply();
         }
     }
 
     int getSendWindowSize(int streamID) {
-        StreamState state = activeStreams.get(new Integer(streamID));
+        StreamState state = activeStreams.get(streamID);
         return state != null ? state.getSendWindowSize() : -1;
     }
 
     int updateSendWindowSize(int streamID, int deltaWindowSize) {
-        StreamState state = activeStreams.get(new Integer(streamID));
+        StreamState state = activeStreams.get(streamID);
         return state != null ? state.updateSendWindowSize(deltaWindowSize) : -1;
     }
 
     int updateReceiveWindowSize(int streamID, int deltaWindowSize) {
-        StreamState state = activeStreams.get(new Integer(streamID));
+        StreamState state = activeStreams.get(streamID);
+        if (state == null) {
+            return -1;
+        }
         if (deltaWindowSize > 0) {
             state.setReceiveWindowSizeLowerBound(0);
         }
-        return state != null ? state.updateReceiveWindowSize(deltaWindowSize) : -1;
+        return state.updateReceiveWindowSize(deltaWindowSize);
     }
 
     int getReceiveWindowSizeLowerBound(int streamID) {
-        StreamState state = activeStreams.get(new Integer(streamID));
+        StreamState state = activeStreams.get(streamID);
         return state != null ? state.getReceiveWindowSizeLowerBound() : 0;
     }
 
     void updateAllReceiveWindowSizes(int deltaWindowSize) {
-        for (StreamState state: activeStreams.values()) {
-            state.updateReceiveWindowSize(deltaWindowSize);
-            if (deltaWindowSize < 0) {
-                state.setReceiveWindowSizeLowerBound(deltaWindowSize);
+        for (int i = 0; i < activeStreams.capacity(); i ++) {
+            StreamState state = activeStreams.valueAt(i);
+            if (state != null) {
+                state.updateReceiveWindowSize(deltaWindowSize);
+                if (deltaWindowSize < 0) {
+                    state.setReceiveWindowSizeLowerBound(deltaWindowSize);
+                }
             }
         }
     }
 
     boolean putPendingWrite(int streamID, Object msg) {
-        StreamState state = activeStreams.get(Integer.valueOf(streamID));
-        return state != null && state.putPendingWrite(msg);
+        StreamState state = activeStreams.get(streamID);
+        if (state == null) {
+            return false;
+        }
+        if (msg instanceof SpdyDataFrame) {
+            pendingWriteBytes += ((SpdyDataFrame) msg).getData().readableBytes();
+        }
+        return state.putPendingWrite(msg);
     }
 
     Object getPendingWrite(int streamID) {
-        StreamState state = activeStreams.get(Integer.valueOf(streamID));
+        StreamState state = activeStreams.get(streamID);
         return state != null ? state.getPendingWrite() : null;
     }
 
     Object removePendingWrite(int streamID) {
-        StreamState state = activeStreams.get(Integer.valueOf(streamID));
-        return state != null ? state.removePendingWrite() : null;
+        StreamState state = activeStreams.get(streamID);
+        if (state == null) {
+            return null;
+        }
+        Object msg = state.removePendingWrite();
+        if (msg instanceof SpdyDataFrame) {
+            pendingWriteBytes -= ((SpdyDataFrame) msg).getData().readableBytes();
+        }
+        return msg;
+    }
+
+    // Reads the specified number of bytes from the pending data frame at the head of the queue
+    ByteBuf readPendingWriteData(int streamID, int length) {
+        SpdyDataFrame spdyDataFrame = (SpdyDataFrame) getPendingWrite(streamID);
+        pendingWriteBytes -= length;
+        return spdyDataFrame.getData().readSlice(length);
+    }
+
+    boolean hasPendingWrites(int streamID) {
+        StreamState state = activeStreams.get(streamID);
+        return state != null && state.getPendingWrite() != null;
+    }
+
+    boolean clearPendingWrites(int streamID) {
+        StreamState state = activeStreams.get(streamID);
+        return state != null && clearPendingWrites(state);
+    }
+
+    private boolean clearPendingWrites(StreamState state) {
+        boolean cleared = false;
+        for (;;) {
+            Object msg = state.removePendingWrite();
+            if (msg == null) {
+                break;
+            }
+            if (msg instanceof SpdyDataFrame) {
+                pendingWriteBytes -= ((SpdyDataFrame) msg).getData().readableBytes();
+            }
+            cleared = true;
+        }
+        return cleared;
+    }
+
+    // Returns the number of data bytes which wait for the send window of their stream
+    long getPendingWriteBytes() {
+        return pendingWriteBytes;
     }
 
     private static final class StreamState {
 
         private final byte priority;
-        private volatile boolean remoteSideClosed;
-        private volatile boolean localSideClosed;
+        private boolean remoteSideClosed;
+        private boolean localSideClosed;
         private boolean receivedReply;
-        private final AtomicInteger sendWindowSize;
-        private final AtomicInteger receiveWindowSize;
-        private volatile int receiveWindowSizeLowerBound;
-        private final Queue<Object> pendingWriteQueue = new ConcurrentLinkedQueue<Object>();
+        private int sendWindowSize;
+        private int receiveWindowSize;
+        private int receiveWindowSizeLowerBound;
+        private Queue<Object> pendingWriteQueue;
 
         StreamState(
                 byte priority, boolean remoteSideClosed, boolean localSideClosed,
@@ -181,8 +245,8 @@ final class SpdySession {
             this.priority = priority;
             this.remoteSideClosed = remoteSideClosed;
             this.localSideClosed = localSideClosed;
-            this.sendWindowSize = new AtomicInteger(sendWindowSize);
-            this.receiveWindowSize = new AtomicInteger(receiveWindowSize);
+            this.sendWindowSize = sendWindowSize;
+            this.receiveWindowSize = receiveWindowSize;
         }
 
         byte getPriority() {
@@ -214,15 +278,17 @@ final class SpdySession {
         }
 
         int getSendWindowSize() {
-            return sendWindowSize.get();
+            return sendWindowSize;
         }
 
         int updateSendWindowSize(int deltaWindowSize) {
-            return sendWindowSize.addAndGet(deltaWindowSize);
+            sendWindowSize += deltaWindowSize;
+            return sendWindowSize;
         }
 
         int updateReceiveWindowSize(int deltaWindowSize) {
-            return receiveWindowSize.addAndGet(deltaWindowSize);
+            receiveWindowSize += deltaWindowSize;
+            return receiveWindowSize;
         }
 
         int getReceiveWindowSizeLowerBound() {
@@ -234,32 +300,19 @@ final class SpdySession {
         }
 
         boolean putPendingWrite(Object msg) {
+            if (pendingWriteQueue == null) {
+                // Created on demand, as many streams never write a data frame.
+                pendingWriteQueue = new ArrayDeque<Object>(4);
+            }
             return pendingWriteQueue.offer(msg);
         }
 
         Object getPendingWrite() {
-            return pendingWriteQueue.peek();
+            return pendingWriteQueue != null ? pendingWriteQueue.peek() : null;
         }
 
         Object removePendingWrite() {
-            return pendingWriteQueue.poll();
-        }
-
-        boolean clearPendingWrites() {
-            if (pendingWriteQueue.isEmpty()) {
-                return false;
-            }
-            pendingWriteQueue.clear();
-            return true;
-        }
-    }
-
-    private final class PriorityComparator implements Comparator<Integer> {
-        @Override
-        public int compare(Integer id1, Integer id2) {
-            StreamState state1 = activeStreams.get(id1);
-            StreamState state2 = activeStreams.get(id2);
-            return state1.getPriority() - state2.getPriority();
+            return pendingWriteQueue != null ? pendingWriteQueue.poll() : null;
         }
     }
 }
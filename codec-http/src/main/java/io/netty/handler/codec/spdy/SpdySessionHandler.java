@@ -54,8 +54,6 @@ public class SpdySessionHandler
     private volatile int initialSendWindowSize = DEFAULT_WINDOW_SIZE;
     private volatile int initialReceiveWindowSize = DEFAULT_WINDOW_SIZE;
 
-    private final Object flowControlLock = new Object();
-
     private final AtomicInteger pings = new AtomicInteger();
 
     private volatile boolean sentGoAwayFrame;
@@ -84,6 +82,23 @@ public class SpdySessionHandler
         flowControl = version >= 3;
     }
 
+    /**
+     * Returns the number of bytes of the data frames which have been written to this session
+     * but are waiting for the transfer window of their stream to open.  The session is not
+     * synchronized, so the returned value may be stale unless this method is called by the
+     * event loop of the channel.
+     */
+    public long getPendingWriteBytes() {
+        return spdySession.getPendingWriteBytes();
+    }
+
+    /**
+     * Returns the number of streams which are currently open in this session.
+     */
+    public int getActiveStreamCount() {
+        return spdySession.numActiveStreams();
+    }
+
     @Override
     public MessageBuf<Object> newInboundBuffer(ChannelHandlerContext ctx) throws Exception {
         return Unpooled.messageBuffer();
@@ -318,7 +333,7 @@ public class SpdySessionHandler
                 int newInitialWindowSize =
                     spdySettingsFrame.getValue(SpdySettingsFrame.SETTINGS_INITIAL_WINDOW_SIZE);
                 if (newInitialWindowSize >= 0) {
-                    updateInitialSendWindowSize(newInitialWindowSize);
+                    updateInitialSendWindowSize(ctx, newInitialWindowSize);
                 }
             }
 
@@ -444,6 +459,7 @@ public class SpdySessionHandler
                 ctx.nextOutboundMessageBuffer().add(msg);
             }
         }
+        writePendingWrites(ctx);
         ctx.flush(future);
     }
 
@@ -461,87 +477,11 @@ public class SpdySessionHandler
                 return;
             }
 
-            /*
-             * SPDY Data frame flow control processing requirements:
-             *
-             * Sender must not send a data frame with data length greater
-             * than the transfer window size.
-             *
-             * After sending each data frame, the sender decrements its
-             * transfer window size by the amount of data transmitted.
-             *
-             * When the window size becomes less than or equal to 0, the
-             * sender must pause transmitting data frames.
-             */
-
-            if (flowControl) {
-                synchronized (flowControlLock) {
-                    int dataLength = spdyDataFrame.getData().readableBytes();
-                    int sendWindowSize = spdySession.getSendWindowSize(streamID);
-
-                    if (sendWindowSize >= dataLength) {
-                        // Window size is large enough to send entire data frame
-                        spdySession.updateSendWindowSize(streamID, -1 * dataLength);
-
-                        // The transfer window size is pre-decremented when sending a data frame downstream.
-                        // Close the stream on write failures that leaves the transfer window in a corrupt state.
-                        //
-                        // This is never sent because on write failure the connection will be closed
-                        // immediately.  Commenting out just in case I misunderstood it - T
-                        //
-                        //final ChannelHandlerContext context = ctx;
-                        //e.getFuture().addListener(new ChannelFutureListener() {
-                        //    @Override
-                        //    public void operationComplete(ChannelFuture future) throws Exception {
-                        //        if (!future.isSuccess()) {
-                        //            issueStreamError(context, streamID, SpdyStreamStatus.INTERNAL_ERROR);
-                        //        }
-                        //    }
-                        //});
-
-                    } else if (sendWindowSize > 0) {
-                        // Stream is not stalled but we cannot send the entire frame
-                        spdySession.updateSendWindowSize(streamID, -1 * sendWindowSize);
-
-                        // Create a partial data frame whose length is the current window size
-                        SpdyDataFrame partialDataFrame = new DefaultSpdyDataFrame(streamID);
-                        partialDataFrame.setData(spdyDataFrame.getData().readSlice(sendWindowSize));
-
-                        // Enqueue the remaining data (will be the first frame queued)
-                        spdySession.putPendingWrite(streamID, spdyDataFrame);
-
-                        // The transfer window size is pre-decremented when sending a data frame downstream.
-                        // Close the stream on write failures that leaves the transfer window in a corrupt state.
-                        //
-                        // This is never sent because on write failure the connection will be closed
-                        // immediately.  Commenting out just in case I misunderstood it - T
-                        //
-                        //final SocketAddress remoteAddress = e.getRemoteAddress();
-                        //final ChannelHandlerContext context = ctx;
-                        //e.getFuture().addListener(new ChannelFutureListener() {
-                        //    @Override
-                        //    public void operationComplete(ChannelFuture future) throws Exception {
-                        //        if (!future.isSuccess()) {
-                        //            issueStreamError(context, streamID, SpdyStreamStatus.INTERNAL_ERROR);
-                        //        }
-                        //    }
-                        //});
-
-                        ctx.nextOutboundMessageBuffer().add(partialDataFrame);
-                        return;
-
-                    } else {
-                        // Stream is stalled -- enqueue Data frame and return
-                        spdySession.putPendingWrite(streamID, spdyDataFrame);
-                        return;
-                    }
-                }
-            }
-
-            // Close the local side of the stream if this is the last frame
-            if (spdyDataFrame.isLast()) {
-                halfCloseStream(streamID, false);
-            }
+            // Data frames are queued and written in the order of stream priority
+            // once all frames of this flush have been handled.
+            // See writePendingWrites(ChannelHandlerContext).
+            spdySession.putPendingWrite(streamID, spdyDataFrame);
+            return;
 
         } else if (msg instanceof SpdySynStreamFrame) {
 
@@ -579,7 +519,9 @@ public class SpdySessionHandler
 
         } else if (msg instanceof SpdyRstStreamFrame) {
 
+            // Write the frames which were queued before the RST_STREAM frame as far as the window allows
             SpdyRstStreamFrame spdyRstStreamFrame = (SpdyRstStreamFrame) msg;
+            writePendingWrites(ctx, spdyRstStreamFrame.getStreamId());
             removeStream(ctx, spdyRstStreamFrame.getStreamId());
 
         } else if (msg instanceof SpdySettingsFrame) {
@@ -636,6 +578,12 @@ public class SpdySessionHandler
                 return;
             }
 
+            // Trailing headers must not overtake the data frames queued before them
+            if (spdySession.hasPendingWrites(streamID)) {
+                spdySession.putPendingWrite(streamID, spdyHeadersFrame);
+                return;
+            }
+
             // Close the local side of the stream if this is the last frame
             if (spdyHeadersFrame.isLast()) {
                 halfCloseStream(streamID, false);
@@ -725,24 +673,26 @@ public class SpdySessionHandler
         }
     }
 
-    // need to synchronize to prevent new streams from being created while updating active streams
-    private synchronized void updateInitialSendWindowSize(int newInitialWindowSize) {
+    private void updateInitialSendWindowSize(ChannelHandlerContext ctx, int newInitialWindowSize) {
         int deltaWindowSize = newInitialWindowSize - initialSendWindowSize;
         initialSendWindowSize = newInitialWindowSize;
-        for (Integer streamId: spdySession.getActiveStreams()) {
-            spdySession.updateSendWindowSize(streamId.intValue(), deltaWindowSize);
+        for (int streamID: spdySession.getActiveStreams()) {
+            spdySession.updateSendWindowSize(streamID, deltaWindowSize);
+        }
+
+        // A larger window may have unblocked stalled streams
+        if (deltaWindowSize > 0 && writePendingWrites(ctx)) {
+            ctx.flush();
         }
     }
 
-    // need to synchronize to prevent new streams from being created while updating active streams
-    private synchronized void updateInitialReceiveWindowSize(int newInitialWindowSize) {
+    private void updateInitialReceiveWindowSize(int newInitialWindowSize) {
         int deltaWindowSize = newInitialWindowSize - initialReceiveWindowSize;
         initialReceiveWindowSize = newInitialWindowSize;
         spdySession.updateAllReceiveWindowSizes(deltaWindowSize);
     }
 
-    // need to synchronize accesses to sentGoAwayFrame, lastGoodStreamId, and initial window sizes
-    private synchronized boolean acceptStream(
+    private boolean acceptStream(
             int streamID, byte priority, boolean remoteSideClosed, boolean localSideClosed) {
         // Cannot initiate any new streams after receiving or sending GOAWAY
         if (receivedGoAwayFrame || sentGoAwayFrame) {
@@ -784,78 +734,98 @@ public class SpdySessionHandler
         }
     }
 
-    private void updateSendWindowSize(ChannelHandlerContext ctx, final int streamID, int deltaWindowSize) {
-        synchronized (flowControlLock) {
-            int newWindowSize = spdySession.updateSendWindowSize(streamID, deltaWindowSize);
-
-            while (newWindowSize > 0) {
-                // Check if we have unblocked a stalled stream
-                SpdyDataFrame spdyDataFrame = (SpdyDataFrame) spdySession.getPendingWrite(streamID);
-                if (spdyDataFrame == null) {
-                    break;
-                }
+    private void updateSendWindowSize(ChannelHandlerContext ctx, int streamID, int deltaWindowSize) {
+        spdySession.updateSendWindowSize(streamID, deltaWindowSize);
 
-                int dataFrameSize = spdyDataFrame.getData().readableBytes();
+        // Check if we have unblocked a stalled stream
+        if (writePendingWrites(ctx, streamID)) {
+            ctx.flush();
+        }
+    }
 
-                if (newWindowSize >= dataFrameSize) {
-                    // Window size is large enough to send entire data frame
-                    spdySession.removePendingWrite(streamID);
-                    newWindowSize = spdySession.updateSendWindowSize(streamID, -1 * dataFrameSize);
+    /*
+     * SPDY Data frame flow control processing requirements:
+     *
+     * Sender must not send a data frame with data length greater
+     * than the transfer window size.
+     *
+     * After sending each data frame, the sender decrements its
+     * transfer window size by the amount of data transmitted.
+     *
+     * When the window size becomes less than or equal to 0, the
+     * sender must pause transmitting data frames.
+     *
+     * Pending frames are written stream by stream in the order of stream priority,
+     * so that a stream with a lower priority cannot delay a stream with a higher one.
+     */
+    private boolean writePendingWrites(ChannelHandlerContext ctx) {
+        boolean written = false;
+        for (int streamID: spdySession.getActiveStreams()) {
+            if (writePendingWrites(ctx, streamID)) {
+                written = true;
+            }
+        }
+        return written;
+    }
 
-                    // The transfer window size is pre-decremented when sending a data frame downstream.
-                    // Close the stream on write failures that leaves the transfer window in a corrupt state.
-                    //
-                    // This is never sent because on write failure the connection will be closed
-                    // immediately.  Commenting out just in case I misunderstood it - T
-                    //
-                    //final ChannelHandlerContext context = ctx;
-                    //e.getFuture().addListener(new ChannelFutureListener() {
-                    //    @Override
-                    //    public void operationComplete(ChannelFuture future) throws Exception {
-                    //        if (!future.isSuccess()) {
-                    //            issueStreamError(context, streamID, SpdyStreamStatus.INTERNAL_ERROR);
-                    //        }
-                    //    }
-                    //});
-
-                    // Close the local side of the stream if this is the last frame
-                    if (spdyDataFrame.isLast()) {
-                        halfCloseStream(streamID, false);
-                    }
+    private boolean writePendingWrites(ChannelHandlerContext ctx, int streamID) {
+        boolean written = false;
+        for (;;) {
+            Object msg = spdySession.getPendingWrite(streamID);
+            if (msg == null) {
+                break;
+            }
 
-                    ctx.nextOutboundMessageBuffer().add(spdyDataFrame);
+            boolean last;
+            if (msg instanceof SpdyDataFrame) {
+                SpdyDataFrame spdyDataFrame = (SpdyDataFrame) msg;
+                last = spdyDataFrame.isLast();
 
-                } else {
-                    // We can send a partial frame
-                    spdySession.updateSendWindowSize(streamID, -1 * newWindowSize);
+                if (flowControl) {
+                    int dataLength = spdyDataFrame.getData().readableBytes();
+                    int sendWindowSize = spdySession.getSendWindowSize(streamID);
 
-                    // Create a partial data frame whose length is the current window size
-                    SpdyDataFrame partialDataFrame = new DefaultSpdyDataFrame(streamID);
-                    partialDataFrame.setData(spdyDataFrame.getData().readSlice(newWindowSize));
+                    if (sendWindowSize < dataLength) {
+                        if (sendWindowSize > 0) {
+                            // Stream is not stalled but we cannot send the entire frame.
+                            // Send a partial data frame whose length is the current window size
+                            // and leave the remaining data at the head of the queue.
+                            spdySession.updateSendWindowSize(streamID, -1 * sendWindowSize);
+
+                            SpdyDataFrame partialDataFrame = new DefaultSpdyDataFrame(streamID);
+                            partialDataFrame.setData(spdySession.readPendingWriteData(streamID, sendWindowSize));
+                            ctx.nextOutboundMessageBuffer().add(partialDataFrame);
+                            written = true;
+                        }
+
+                        // Stream is stalled until the next WINDOW_UPDATE frame
+                        break;
+                    }
 
                     // The transfer window size is pre-decremented when sending a data frame downstream.
-                    // Close the stream on write failures that leaves the transfer window in a corrupt state.
-                    //
-                    // This is never sent because on write failure the connection will be closed
-                    // immediately.  Commenting out just in case I misunderstood it - T
-                    //
-                    //final SocketAddress remoteAddress = e.getRemoteAddress();
-                    //final ChannelHandlerContext context = ctx;
-                    //e.getFuture().addListener(new ChannelFutureListener() {
-                    //    @Override
-                    //    public void operationComplete(ChannelFuture future) throws Exception {
-                    //        if (!future.isSuccess()) {
-                    //            issueStreamError(context, streamID, SpdyStreamStatus.INTERNAL_ERROR);
-                    //        }
-                    //    }
-                    //});
-
-                    ctx.nextOutboundMessageBuffer().add(partialDataFrame);
-
-                    newWindowSize = 0;
+                    // On write failure the connection will be closed immediately, so the corrupt
+                    // transfer window does not need to be restored.
+                    spdySession.updateSendWindowSize(streamID, -1 * dataLength);
                 }
+            } else {
+                last = ((SpdyHeadersFrame) msg).isLast();
+            }
+
+            spdySession.removePendingWrite(streamID);
+            ctx.nextOutboundMessageBuffer().add(msg);
+            written = true;
+
+            // Close the local side of the stream if this is the last frame
+            if (last) {
+                // Frames must not be sent on half-closed streams
+                if (spdySession.clearPendingWrites(streamID)) {
+                    ctx.fireExceptionCaught(PROTOCOL_EXCEPTION);
+                }
+                halfCloseStream(streamID, false);
+                break;
             }
         }
+        return written;
     }
 
     private void sendGoAwayFrame(ChannelHandlerContext ctx) {
@@ -15,6 +15,9 @@
  */
 package io.netty.handler.codec.http;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -43,4 +46,43 @@ public class DefaultHttpMessageTest {
         // Check if sequential access returns nothing.
         Assert.assertTrue(m.getHeaders().isEmpty());
     }
+
+    @Test
+    public void testWellKnownHeaders() {
+        HttpMessage m = new DefaultHttpRequest(
+                HttpVersion.HTTP_1_1, HttpMethod.GET, "/");
+
+        m.setHeader(HttpHeaders.Names.CONNECTION, HttpHeaders.Values.KEEP_ALIVE);
+        m.addHeader("content-type", "text/plain");
+        m.addHeader("Content-Type", HttpHeaders.newEntity("application/json"));
+
+        Assert.assertEquals("keep-alive", m.getHeader("connection"));
+        Assert.assertEquals("keep-alive", m.getHeader(HttpHeaders.Names.CONNECTION));
+        Assert.assertEquals(2, m.getHeaders(HttpHeaders.Names.CONTENT_TYPE).size());
+        Assert.assertEquals("application/json", m.getHeaders("CONTENT-TYPE").get(1));
+        Assert.assertTrue(m.getHeaderNames().contains("content-type"));
+
+        m.removeHeader("CONNECTION");
+        Assert.assertFalse(m.containsHeader(HttpHeaders.Names.CONNECTION));
+    }
+
+    @Test
+    public void testEncodeHeaders() {
+        DefaultHttpMessage m = new DefaultHttpRequest(
+                HttpVersion.HTTP_1_1, HttpMethod.GET, "/");
+        m.addHeader(HttpHeaders.Names.HOST, "localhost");
+        m.addHeader("X-Custom", HttpHeaders.newEntity("value"));
+        m.addHeader(HttpHeaders.Names.ACCEPT_ENCODING, HttpHeaders.Values.GZIP);
+
+        ByteBuf buf = Unpooled.buffer();
+        m.encodeHeaders(buf);
+        Assert.assertEquals(
+                "Host: localhost\r\nX-Custom: value\r\nAccept-Encoding: gzip\r\n",
+                buf.toString(CharsetUtil.US_ASCII));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidEntity() {
+        HttpHeaders.newEntity("bad\rvalue");
+    }
 }
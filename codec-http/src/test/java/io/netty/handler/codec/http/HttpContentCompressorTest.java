@@ -15,7 +15,21 @@
  */
 package io.netty.handler.codec.http;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.DefaultEventExecutorGroup;
+import io.netty.channel.EventExecutorGroup;
+import io.netty.channel.embedded.EmbeddedMessageChannel;
 import io.netty.handler.codec.compression.ZlibWrapper;
+import io.netty.util.CharsetUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -57,4 +71,179 @@ public class HttpContentCompressorTest {
             Assert.assertEquals(contentEncoding, targetEncoding);
         }
     }
+
+    @Test
+    public void testCompressionPolicy() throws Exception {
+        EmbeddedMessageChannel ch = new EmbeddedMessageChannel(
+                new HttpContentCompressor(6, 100, "text/*", "application/json"));
+
+        String text = "Netty is an asynchronous event-driven network application framework. ";
+        Assert.assertNull(compress(ch, "text/plain", "small").getHeader(HttpHeaders.Names.CONTENT_ENCODING));
+        Assert.assertNull(compress(ch, "image/png", text + text).getHeader(HttpHeaders.Names.CONTENT_ENCODING));
+        Assert.assertNull(compress(ch, null, text + text).getHeader(HttpHeaders.Names.CONTENT_ENCODING));
+
+        HttpResponse res = compress(ch, "text/html; charset=UTF-8", text + text);
+        Assert.assertEquals("gzip", res.getHeader(HttpHeaders.Names.CONTENT_ENCODING));
+        res = compress(ch, "Application/JSON", text + text);
+        Assert.assertEquals("gzip", res.getHeader(HttpHeaders.Names.CONTENT_ENCODING));
+    }
+
+    @Test
+    public void testCompressionStateReusedAcrossResponses() throws Exception {
+        for (String encoding: new String[] { "gzip", "deflate" }) {
+            EmbeddedMessageChannel ch = new EmbeddedMessageChannel(new HttpContentCompressor());
+            for (int i = 0; i < 3; i ++) {
+                String content = "response " + i + ": " + "Hello, World! Hello, World! Hello, World!";
+                HttpRequest req = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/");
+                req.setHeader(HttpHeaders.Names.ACCEPT_ENCODING, encoding);
+                ch.writeInbound(req);
+                ch.readInbound();
+
+                HttpResponse res = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+                res.setContent(Unpooled.copiedBuffer(content, CharsetUtil.US_ASCII));
+                HttpHeaders.setContentLength(res, res.getContent().readableBytes());
+                ch.writeOutbound(res);
+                Assert.assertSame(res, ch.readOutbound());
+                Assert.assertEquals(encoding, res.getHeader(HttpHeaders.Names.CONTENT_ENCODING));
+                Assert.assertEquals(
+                        res.getContent().readableBytes(), HttpHeaders.getContentLength(res));
+
+                InputStream in = new ByteBufInputStream(res.getContent());
+                in = "gzip".equals(encoding)? new GZIPInputStream(in) : new InflaterInputStream(in);
+                Assert.assertEquals(content, new String(inflate(in), CharsetUtil.US_ASCII));
+            }
+        }
+    }
+
+    @Test
+    public void testWindowBitsHonored() throws Exception {
+        EmbeddedMessageChannel ch = new EmbeddedMessageChannel(new HttpContentCompressor(6, 9, 1));
+        String content = "Hello, World! Hello, World! Hello, World!";
+        HttpRequest req = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/");
+        req.setHeader(HttpHeaders.Names.ACCEPT_ENCODING, "deflate");
+        ch.writeInbound(req);
+        ch.readInbound();
+
+        HttpResponse res = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        res.setContent(Unpooled.copiedBuffer(content, CharsetUtil.US_ASCII));
+        ch.writeOutbound(res);
+        Assert.assertSame(res, ch.readOutbound());
+        Assert.assertEquals("deflate", res.getHeader(HttpHeaders.Names.CONTENT_ENCODING));
+
+        // The zlib header carries the window size: CINFO = windowBits - 8, CM = 8 (deflate).
+        Assert.assertEquals((9 - 8) << 4 | 8, res.getContent().getUnsignedByte(0));
+        InputStream in = new InflaterInputStream(new ByteBufInputStream(res.getContent()));
+        Assert.assertEquals(content, new String(inflate(in), CharsetUtil.US_ASCII));
+    }
+
+    private static HttpResponse compress(EmbeddedMessageChannel ch, String contentType, String content) {
+        HttpRequest req = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/");
+        req.setHeader(HttpHeaders.Names.ACCEPT_ENCODING, "gzip");
+        ch.writeInbound(req);
+        ch.readInbound();
+
+        HttpResponse res = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        if (contentType != null) {
+            res.setHeader(HttpHeaders.Names.CONTENT_TYPE, contentType);
+        }
+        res.setContent(Unpooled.copiedBuffer(content, CharsetUtil.US_ASCII));
+        ch.writeOutbound(res);
+        Assert.assertSame(res, ch.readOutbound());
+        return res;
+    }
+
+    @Test
+    public void testParallelCompression() throws Exception {
+        // A single worker thread notifies the embedded event loop in order.
+        EventExecutorGroup workers = new DefaultEventExecutorGroup(1);
+        try {
+            EmbeddedMessageChannel ch = new EmbeddedMessageChannel(
+                    new HttpContentCompressor(6, 15, 8, workers, 65536));
+
+            for (int i = 0; i < 2; i ++) {
+                HttpRequest req = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/");
+                req.setHeader(HttpHeaders.Names.ACCEPT_ENCODING, "gzip");
+                ch.writeInbound(req);
+                Assert.assertSame(req, ch.readInbound());
+            }
+
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; text.length() < 1048576; i ++) {
+                text.append("{\"id\":").append(i).append(",\"name\":\"item-").append(i * 31 % 977).append("\"},");
+            }
+            byte[] content = text.toString().getBytes(CharsetUtil.US_ASCII);
+
+            HttpResponse large = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+            large.setContent(Unpooled.wrappedBuffer(content));
+            HttpHeaders.setContentLength(large, content.length);
+            HttpResponse small = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+            small.setContent(Unpooled.copiedBuffer("small", CharsetUtil.US_ASCII));
+
+            // The embedded event loop runs the tasks of the worker in the worker thread, so
+            // hold the worker until all blocks have been submitted.
+            final CountDownLatch submitted = new CountDownLatch(1);
+            workers.next().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        submitted.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+
+            ch.outboundMessageBuffer().add(large);
+            ch.outboundMessageBuffer().add(small);
+            ChannelFuture future = ch.flush();
+            submitted.countDown();
+
+            // Wait until all blocks are compressed and emitted.
+            workers.next().submit(new Runnable() {
+                @Override
+                public void run() {
+                    // Nothing to do
+                }
+            }).get();
+            Assert.assertTrue(future.isSuccess());
+
+            Assert.assertSame(large, ch.readOutbound());
+            Assert.assertTrue(large.getTransferEncoding().isMultiple());
+            Assert.assertEquals("gzip", large.getHeader(HttpHeaders.Names.CONTENT_ENCODING));
+            Assert.assertFalse(large.containsHeader(HttpHeaders.Names.CONTENT_LENGTH));
+
+            ByteBuf compressed = Unpooled.buffer();
+            int chunks = 0;
+            for (;;) {
+                HttpChunk chunk = (HttpChunk) ch.readOutbound();
+                if (chunk.isLast()) {
+                    break;
+                }
+                compressed.writeBytes(chunk.getContent());
+                chunks ++;
+            }
+            Assert.assertTrue(chunks > 1);
+            Assert.assertArrayEquals(content, inflate(new GZIPInputStream(new ByteBufInputStream(compressed))));
+
+            // The message written after the large one must not overtake it.
+            Assert.assertSame(small, ch.readOutbound());
+            Assert.assertEquals("gzip", small.getHeader(HttpHeaders.Names.CONTENT_ENCODING));
+            Assert.assertNull(ch.readOutbound());
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+    private static byte[] inflate(InputStream in) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        for (;;) {
+            int n = in.read(buf);
+            if (n < 0) {
+                break;
+            }
+            out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
 }
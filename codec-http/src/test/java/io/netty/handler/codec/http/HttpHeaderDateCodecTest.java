@@ -0,0 +1,81 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import static org.junit.Assert.*;
+
+import java.text.ParseException;
+import java.util.Date;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class HttpHeaderDateCodecTest {
+    /**
+     * This date is set at "06 Nov 1994 08:49:37 GMT" (same used in example in
+     * RFC documentation)
+     * <p>
+     * http://www.w3.org/Protocols/rfc2616/rfc2616-sec3.html
+     */
+    private static final Date DATE = new Date(784111777000L);
+
+    @Test
+    public void testParse() throws ParseException {
+        assertEquals(DATE, HttpHeaderDateCodec.parse("Sun, 06 Nov 1994 08:49:37 GMT"));
+        assertEquals(DATE, HttpHeaderDateCodec.parse("Sun, 6 Nov 1994 08:49:37 GMT"));
+        assertEquals(DATE, HttpHeaderDateCodec.parse("Sunday, 06-Nov-94 08:49:37 GMT"));
+        assertEquals(DATE, HttpHeaderDateCodec.parse("Sunday, 6-Nov-94 08:49:37 GMT"));
+        assertEquals(DATE, HttpHeaderDateCodec.parse("Sun Nov  6 08:49:37 1994"));
+        assertEquals(DATE, HttpHeaderDateCodec.parse("Sun Nov 6 08:49:37 1994"));
+    }
+
+    @Test(expected = ParseException.class)
+    public void testParseInvalid() throws ParseException {
+        HttpHeaderDateCodec.parse("not a date");
+    }
+
+    @Test
+    public void testFormat() {
+        assertEquals("Sun, 06 Nov 1994 08:49:37 GMT", HttpHeaderDateCodec.format(DATE.getTime()));
+        assertEquals("Thu, 01 Jan 1970 00:00:00 GMT", HttpHeaderDateCodec.format(0));
+        assertEquals("Wed, 31 Dec 1969 23:59:59 GMT", HttpHeaderDateCodec.format(-1));
+        assertEquals("Tue, 29 Feb 2000 12:00:00 GMT", HttpHeaderDateCodec.format(951825600000L));
+    }
+
+    @Test
+    public void testSameAsHttpHeaderDateFormat() throws ParseException {
+        HttpHeaderDateFormat format = new HttpHeaderDateFormat();
+        Random random = new Random(0);
+        for (int i = 0; i < 10000; i ++) {
+            // Between 1900 and 2100, truncated to seconds.
+            long time = (random.nextLong() % 3155760000L) * 1000L;
+            String expected = format.format(new Date(time));
+            assertEquals(expected, HttpHeaderDateCodec.format(time));
+            assertEquals(time, HttpHeaderDateCodec.parse(expected).getTime());
+        }
+    }
+
+    @Test
+    public void testCurrentDate() throws ParseException {
+        long before = System.currentTimeMillis() / 1000 * 1000;
+        CharSequence date = HttpHeaderDateCodec.currentDate();
+        long after = System.currentTimeMillis();
+
+        long parsed = HttpHeaderDateCodec.parse(date.toString()).getTime();
+        assertTrue(parsed >= before);
+        assertTrue(parsed <= after);
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import static org.junit.Assert.*;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedMessageChannel;
+import io.netty.handler.codec.EncoderException;
+
+import org.junit.Test;
+
+public class HttpPipeliningHandlerTest {
+
+    @Test
+    public void testRequestSequence() {
+        EmbeddedMessageChannel ch = new EmbeddedMessageChannel(new HttpPipeliningHandler());
+        HttpRequest req = newRequest("/0");
+        HttpChunk chunk = new DefaultHttpChunk(Unpooled.wrappedBuffer(new byte[] { 42 }));
+
+        assertTrue(ch.writeInbound(req));
+        assertTrue(ch.writeInbound(chunk));
+        assertTrue(ch.writeInbound(newRequest("/1")));
+
+        HttpPipelinedRequest pipelined = (HttpPipelinedRequest) ch.readInbound();
+        assertEquals(0, pipelined.getSequence());
+        assertSame(req, pipelined.getRequest());
+        assertSame(chunk, ch.readInbound());
+        assertEquals(1, ((HttpPipelinedRequest) ch.readInbound()).getSequence());
+        assertNull(ch.readInbound());
+    }
+
+    @Test
+    public void testOutOfOrderResponses() {
+        EmbeddedMessageChannel ch = new EmbeddedMessageChannel(new HttpPipeliningHandler());
+        HttpPipelinedRequest[] reqs = readRequests(ch, 3);
+
+        HttpResponse res0 = newResponse();
+        HttpResponse res1 = newResponse();
+        HttpResponse res2 = newResponse();
+
+        assertFalse(ch.writeOutbound(reqs[2].newResponse(res2)));
+        assertFalse(ch.writeOutbound(reqs[1].newResponse(res1)));
+        assertTrue(ch.writeOutbound(reqs[0].newResponse(res0)));
+
+        assertSame(res0, ch.readOutbound());
+        assertSame(res1, ch.readOutbound());
+        assertSame(res2, ch.readOutbound());
+        assertNull(ch.readOutbound());
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    public void testChunkedResponses() {
+        EmbeddedMessageChannel ch = new EmbeddedMessageChannel(new HttpPipeliningHandler());
+        HttpPipelinedRequest[] reqs = readRequests(ch, 2);
+
+        HttpResponse res0 = newChunkedResponse();
+        HttpChunk chunk0 = new DefaultHttpChunk(Unpooled.wrappedBuffer(new byte[] { 42 }));
+        HttpResponse res1 = newChunkedResponse();
+        HttpChunk chunk1 = new DefaultHttpChunk(Unpooled.wrappedBuffer(new byte[] { 42 }));
+        HttpChunk last1 = new DefaultHttpChunkTrailer();
+
+        // The response to the first request is still in progress.
+        assertTrue(ch.writeOutbound(reqs[0].newResponse(res0)));
+        assertSame(res0, ch.readOutbound());
+        assertFalse(ch.writeOutbound(reqs[1].newResponse(res1)));
+        assertTrue(ch.writeOutbound(reqs[0].newResponse(chunk0)));
+        assertSame(chunk0, ch.readOutbound());
+        assertFalse(ch.writeOutbound(reqs[1].newResponse(chunk1)));
+
+        // Completing the first response flushes the buffered part of the second one.
+        assertTrue(ch.writeOutbound(reqs[0].newResponse(HttpChunk.LAST_CHUNK)));
+        assertSame(HttpChunk.LAST_CHUNK, ch.readOutbound());
+        assertSame(res1, ch.readOutbound());
+        assertSame(chunk1, ch.readOutbound());
+        assertNull(ch.readOutbound());
+
+        assertTrue(ch.writeOutbound(reqs[1].newResponse(last1)));
+        assertSame(last1, ch.readOutbound());
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    public void test100ContinueDoesNotCompleteResponse() {
+        EmbeddedMessageChannel ch = new EmbeddedMessageChannel(new HttpPipeliningHandler());
+        HttpPipelinedRequest[] reqs = readRequests(ch, 2);
+
+        HttpResponse cont = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.CONTINUE);
+        HttpResponse res0 = newResponse();
+        HttpResponse res1 = newResponse();
+
+        assertTrue(ch.writeOutbound(reqs[0].newResponse(cont)));
+        assertSame(cont, ch.readOutbound());
+        assertFalse(ch.writeOutbound(reqs[1].newResponse(res1)));
+        assertTrue(ch.writeOutbound(reqs[0].newResponse(res0)));
+
+        assertSame(res0, ch.readOutbound());
+        assertSame(res1, ch.readOutbound());
+        assertNull(ch.readOutbound());
+    }
+
+    @Test
+    public void testUnexpectedSequence() {
+        EmbeddedMessageChannel ch = new EmbeddedMessageChannel(new HttpPipeliningHandler());
+        readRequests(ch, 1);
+
+        try {
+            ch.writeOutbound(new HttpPipelinedResponse(1, newResponse()));
+            fail();
+        } catch (EncoderException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testTooManyPendingResponses() {
+        EmbeddedMessageChannel ch = new EmbeddedMessageChannel(new HttpPipeliningHandler(2));
+        HttpPipelinedRequest[] reqs = readRequests(ch, 4);
+
+        assertFalse(ch.writeOutbound(reqs[1].newResponse(newResponse())));
+        assertFalse(ch.writeOutbound(reqs[2].newResponse(newResponse())));
+        assertTrue(ch.isOpen());
+
+        try {
+            ch.writeOutbound(reqs[3].newResponse(newResponse()));
+            fail();
+        } catch (EncoderException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertFalse(ch.isOpen());
+    }
+
+    private static HttpPipelinedRequest[] readRequests(EmbeddedMessageChannel ch, int count) {
+        HttpPipelinedRequest[] reqs = new HttpPipelinedRequest[count];
+        for (int i = 0; i < count; i ++) {
+            ch.writeInbound(newRequest("/" + i));
+            reqs[i] = (HttpPipelinedRequest) ch.readInbound();
+            assertEquals(i, reqs[i].getSequence());
+        }
+        return reqs;
+    }
+
+    private static HttpRequest newRequest(String uri) {
+        return new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri);
+    }
+
+    private static HttpResponse newResponse() {
+        return new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+    }
+
+    private static HttpResponse newChunkedResponse() {
+        HttpResponse res = newResponse();
+        res.setTransferEncoding(HttpTransferEncoding.CHUNKED);
+        return res;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import static org.junit.Assert.*;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+
+import org.junit.Test;
+
+public class HttpResponseEncoderTest {
+
+    @Test
+    public void testWellKnownStatus() throws Exception {
+        assertEquals("HTTP/1.1 200 OK\r\n",
+                encodeInitialLine(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
+        assertEquals("HTTP/1.0 404 Not Found\r\n",
+                encodeInitialLine(HttpVersion.HTTP_1_0, HttpResponseStatus.NOT_FOUND));
+        assertEquals("HTTP/1.1 200 OK\r\n",
+                encodeInitialLine(HttpVersion.HTTP_1_1, HttpResponseStatus.valueOf(200)));
+    }
+
+    @Test
+    public void testCustomStatus() throws Exception {
+        assertEquals("HTTP/1.1 200 Fine\r\n",
+                encodeInitialLine(HttpVersion.HTTP_1_1, new HttpResponseStatus(200, "Fine")));
+        assertEquals("HTTP/1.1 299 Unknown\r\n",
+                encodeInitialLine(HttpVersion.HTTP_1_1, new HttpResponseStatus(299, "Unknown")));
+    }
+
+    @Test
+    public void testCustomVersion() throws Exception {
+        assertEquals("FOO/1.1 200 OK\r\n",
+                encodeInitialLine(new HttpVersion("FOO/1.1", true), HttpResponseStatus.OK));
+    }
+
+    private static String encodeInitialLine(HttpVersion version, HttpResponseStatus status) throws Exception {
+        HttpResponseEncoder encoder = new HttpResponseEncoder();
+        ByteBuf buffer = Unpooled.buffer(64);
+        encoder.encodeInitialLine(buffer, new DefaultHttpResponse(version, status));
+        return buffer.toString(CharsetUtil.US_ASCII);
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import static org.junit.Assert.*;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedByteChannel;
+import io.netty.util.CharsetUtil;
+
+import org.junit.Test;
+
+public class IncrementalHttpMessageDecoderTest {
+
+    private static final String CHUNKED_REQUEST =
+            "\r\nPOST /upload HTTP/1.1\r\n" +
+            "Host: localhost\r\n" +
+            "X-Folded: first\r\n" +
+            "  second\r\n" +
+            "Transfer-Encoding: chunked\r\n" +
+            "\r\n" +
+            "5\r\nabcde\r\n" +
+            "3;ext=1\r\nfgh\r\n" +
+            "0\r\n" +
+            "X-Trailer: done\r\n" +
+            "\r\n";
+
+    @Test
+    public void testFixedLengthRequestByteByByte() {
+        String request = "GET /some/path?query=1 HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "Content-Length: 5\r\n" +
+                "\r\n" +
+                "hello" +
+                "GET /second HTTP/1.1\r\n\r\n";
+
+        EmbeddedByteChannel ch = new EmbeddedByteChannel(new IncrementalHttpRequestDecoder());
+        writeByteByByte(ch, request);
+
+        HttpRequest req = (HttpRequest) ch.readInbound();
+        assertTrue(req.getDecoderResult().isSuccess());
+        assertEquals(HttpMethod.GET, req.getMethod());
+        assertEquals("/some/path?query=1", req.getUri());
+        assertEquals("localhost", req.getHeader(HttpHeaders.Names.HOST));
+        assertEquals("hello", req.getContent().toString(CharsetUtil.US_ASCII));
+
+        req = (HttpRequest) ch.readInbound();
+        assertEquals("/second", req.getUri());
+        assertFalse(req.getContent().readable());
+        assertNull(ch.readInbound());
+    }
+
+    @Test
+    public void testChunkedRequestByteByByte() {
+        EmbeddedByteChannel ch = new EmbeddedByteChannel(new IncrementalHttpRequestDecoder());
+        writeByteByByte(ch, CHUNKED_REQUEST);
+        assertChunkedRequest(ch);
+    }
+
+    @Test
+    public void testSameOutputAsReplayingDecoder() {
+        EmbeddedByteChannel ch = new EmbeddedByteChannel(new HttpRequestDecoder());
+        ch.writeInbound(Unpooled.copiedBuffer(CHUNKED_REQUEST, CharsetUtil.US_ASCII));
+        assertChunkedRequest(ch);
+    }
+
+    @Test
+    public void testLargeContentIsSplitIntoChunks() {
+        EmbeddedByteChannel ch = new EmbeddedByteChannel(new IncrementalHttpRequestDecoder(4096, 8192, 4));
+        ch.writeInbound(Unpooled.copiedBuffer(
+                "PUT / HTTP/1.1\r\nContent-Length: 10\r\n\r\n0123456789", CharsetUtil.US_ASCII));
+
+        HttpRequest req = (HttpRequest) ch.readInbound();
+        assertEquals(HttpTransferEncoding.STREAMED, req.getTransferEncoding());
+        assertEquals("0123", ((HttpChunk) ch.readInbound()).getContent().toString(CharsetUtil.US_ASCII));
+        assertEquals("4567", ((HttpChunk) ch.readInbound()).getContent().toString(CharsetUtil.US_ASCII));
+        assertEquals("89", ((HttpChunk) ch.readInbound()).getContent().toString(CharsetUtil.US_ASCII));
+        assertTrue(((HttpChunk) ch.readInbound()).isLast());
+        assertNull(ch.readInbound());
+    }
+
+    @Test
+    public void testResponseWithoutContentLength() {
+        EmbeddedByteChannel ch = new EmbeddedByteChannel(new IncrementalHttpResponseDecoder());
+        writeByteByByte(ch, "HTTP/1.0 200 OK\r\nServer: test\r\n\r\nab");
+
+        HttpResponse res = (HttpResponse) ch.readInbound();
+        assertEquals(HttpResponseStatus.OK, res.getStatus());
+        assertEquals(HttpTransferEncoding.STREAMED, res.getTransferEncoding());
+        assertEquals("a", ((HttpChunk) ch.readInbound()).getContent().toString(CharsetUtil.US_ASCII));
+        assertEquals("b", ((HttpChunk) ch.readInbound()).getContent().toString(CharsetUtil.US_ASCII));
+        assertNull(ch.readInbound());
+
+        assertTrue(ch.finish());
+        assertTrue(((HttpChunk) ch.readInbound()).isLast());
+        assertNull(ch.readInbound());
+    }
+
+    @Test
+    public void testTooLongHeaders() {
+        EmbeddedByteChannel ch = new EmbeddedByteChannel(new IncrementalHttpRequestDecoder(4096, 32, 8192));
+        writeByteByByte(ch, "GET / HTTP/1.1\r\nX-Long-Header: 0123456789abcdefghijklmnopqrstuvwxyz\r\n\r\n");
+
+        HttpRequest req = (HttpRequest) ch.readInbound();
+        assertTrue(req.getDecoderResult().isPartialFailure());
+        assertNull(ch.readInbound());
+    }
+
+    @Test
+    public void testHeaderLineSplitAcrossReads() {
+        // 67 bytes including CRLF, which would count twice against maxHeaderSize if
+        // the part read before the split were counted again with the rest of the line.
+        String header = "X-Header: 0123456789012345678901234567890123456789012345678901234\r\n";
+        assertEquals(67, header.length());
+
+        EmbeddedByteChannel ch = new EmbeddedByteChannel(new IncrementalHttpRequestDecoder(4096, 100, 8192));
+        ch.writeInbound(Unpooled.copiedBuffer("GET / HTTP/1.1\r\n" + header.substring(0, 40), CharsetUtil.US_ASCII));
+        assertNull(ch.readInbound());
+        ch.writeInbound(Unpooled.copiedBuffer(header.substring(40) + "\r\n", CharsetUtil.US_ASCII));
+
+        HttpRequest req = (HttpRequest) ch.readInbound();
+        assertTrue(req.getDecoderResult().isSuccess());
+        assertEquals(header.substring(10, 65), req.getHeader("X-Header"));
+        assertNull(ch.readInbound());
+    }
+
+    @Test
+    public void testBadInitialLine() {
+        EmbeddedByteChannel ch = new EmbeddedByteChannel(new IncrementalHttpResponseDecoder());
+        ch.writeInbound(Unpooled.copiedBuffer("HTTP/1.0 BAD_CODE Bad Server\r\n", CharsetUtil.UTF_8));
+
+        HttpResponse res = (HttpResponse) ch.readInbound();
+        assertFalse(res.getDecoderResult().isSuccess());
+        assertFalse(res.getDecoderResult().isPartialFailure());
+
+        ch.writeInbound(Unpooled.copiedBuffer("HTTP/1.0 200 OK\r\n\r\n", CharsetUtil.UTF_8));
+        assertNull(ch.readInbound());
+    }
+
+    private static void assertChunkedRequest(EmbeddedByteChannel ch) {
+        HttpRequest req = (HttpRequest) ch.readInbound();
+        assertTrue(req.getDecoderResult().isSuccess());
+        assertEquals(HttpMethod.POST, req.getMethod());
+        assertEquals(HttpTransferEncoding.CHUNKED, req.getTransferEncoding());
+        assertEquals("first second", req.getHeader("X-Folded"));
+
+        HttpChunk chunk = (HttpChunk) ch.readInbound();
+        assertEquals("abcde", chunk.getContent().toString(CharsetUtil.US_ASCII));
+        chunk = (HttpChunk) ch.readInbound();
+        assertEquals("fgh", chunk.getContent().toString(CharsetUtil.US_ASCII));
+
+        HttpChunkTrailer trailer = (HttpChunkTrailer) ch.readInbound();
+        assertTrue(trailer.isLast());
+        assertEquals("done", trailer.getHeader("X-Trailer"));
+        assertNull(ch.readInbound());
+    }
+
+    private static void writeByteByByte(EmbeddedByteChannel ch, String content) {
+        ByteBuf buf = Unpooled.copiedBuffer(content, CharsetUtil.US_ASCII);
+        while (buf.readable()) {
+            ch.writeInbound(buf.readBytes(1));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http.multipart;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultHttpChunk;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.HttpChunk;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpTransferEncoding;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.CharsetUtil;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HttpPostRequestDecoderTest {
+
+    private static final String BOUNDARY = "dLV9Wyq26L_-JQxk6ferf-RT153LhOO";
+
+    @Test
+    public void testMultipartInSmallChunks() throws Exception {
+        // The content of the file contains line breaks and bytes which look
+        // like the beginning of the delimiter.
+        StringBuilder file = new StringBuilder();
+        for (int i = 0; i < 200; i ++) {
+            file.append("line ").append(i).append("\r\n--").append(BOUNDARY, 0, i % BOUNDARY.length());
+            file.append(i % 3 == 0? "\r" : "\n");
+        }
+        byte[] fileContent = file.toString().getBytes(CharsetUtil.ISO_8859_1);
+
+        String body =
+                "--" + BOUNDARY + "\r\n" +
+                "Content-Disposition: form-data; name=\"field\"\r\n" +
+                "\r\n" +
+                "value\r\n--value\r\n" +
+                "--" + BOUNDARY + "\r\n" +
+                "Content-Disposition: form-data; name=\"file\"; filename=\"file.txt\"\r\n" +
+                "Content-Type: text/plain\r\n" +
+                "\r\n" +
+                file +
+                "\r\n--" + BOUNDARY + "--\r\n";
+        byte[] bodyContent = body.getBytes(CharsetUtil.ISO_8859_1);
+
+        for (int chunkSize: new int[] { 1, 2, 7, 64, 1000, bodyContent.length }) {
+            testMultipart(new DefaultHttpDataFactory(false), bodyContent, chunkSize, fileContent);
+            testMultipart(new DefaultHttpDataFactory(true), bodyContent, chunkSize, fileContent);
+            testMultipart(new DefaultHttpDataFactory(1024), bodyContent, chunkSize, fileContent);
+        }
+    }
+
+    @Test
+    public void testDelimiterInsideLineAcrossChunks() throws Exception {
+        // A delimiter which is not at the beginning of a line is a part of the content,
+        // wherever the content is split.
+        String value = "xxxx--" + BOUNDARY + "yy";
+        String body =
+                "--" + BOUNDARY + "\r\n" +
+                "Content-Disposition: form-data; name=\"empty\"\r\n" +
+                "\r\n" +
+                "\r\n--" + BOUNDARY + "\r\n" +
+                "Content-Disposition: form-data; name=\"field\"\r\n" +
+                "\r\n" +
+                value +
+                "\r\n--" + BOUNDARY + "--\r\n";
+        byte[] bodyContent = body.getBytes(CharsetUtil.ISO_8859_1);
+
+        for (int split = 1; split < bodyContent.length; split ++) {
+            HttpRequest req = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload");
+            req.setHeader(HttpHeaders.Names.CONTENT_TYPE, "multipart/form-data; boundary=" + BOUNDARY);
+            req.setTransferEncoding(HttpTransferEncoding.CHUNKED);
+
+            HttpPostRequestDecoder decoder = new HttpPostRequestDecoder(new DefaultHttpDataFactory(false), req);
+            decoder.offer(new DefaultHttpChunk(Unpooled.wrappedBuffer(bodyContent, 0, split)));
+            decoder.offer(new DefaultHttpChunk(
+                    Unpooled.wrappedBuffer(bodyContent, split, bodyContent.length - split)));
+            decoder.offer(HttpChunk.LAST_CHUNK);
+
+            assertEquals("split: " + split, "", ((Attribute) decoder.getBodyHttpData("empty")).getValue());
+            assertEquals("split: " + split, value, ((Attribute) decoder.getBodyHttpData("field")).getValue());
+            decoder.cleanFiles();
+        }
+    }
+
+    private static void testMultipart(
+            HttpDataFactory factory, byte[] bodyContent, int chunkSize, byte[] fileContent) throws Exception {
+        HttpRequest req = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload");
+        req.setHeader(HttpHeaders.Names.CONTENT_TYPE, "multipart/form-data; boundary=" + BOUNDARY);
+        req.setTransferEncoding(HttpTransferEncoding.CHUNKED);
+
+        HttpPostRequestDecoder decoder = new HttpPostRequestDecoder(factory, req);
+        for (int i = 0; i < bodyContent.length; i += chunkSize) {
+            ByteBuf content = Unpooled.wrappedBuffer(
+                    bodyContent, i, Math.min(chunkSize, bodyContent.length - i));
+            decoder.offer(new DefaultHttpChunk(content));
+        }
+        decoder.offer(HttpChunk.LAST_CHUNK);
+
+        Attribute field = (Attribute) decoder.getBodyHttpData("field");
+        assertEquals("chunkSize: " + chunkSize, "value\r\n--value", field.getValue());
+
+        FileUpload upload = (FileUpload) decoder.getBodyHttpData("file");
+        assertEquals("file.txt", upload.getFilename());
+        assertTrue(upload.isCompleted());
+        assertTrue("chunkSize: " + chunkSize, Arrays.equals(fileContent, upload.get()));
+
+        File dest = File.createTempFile("upload", ".txt");
+        try {
+            assertTrue(upload.renameTo(dest));
+            assertEquals(fileContent.length, dest.length());
+            assertTrue(Arrays.equals(fileContent, upload.get()));
+        } finally {
+            dest.delete();
+            decoder.cleanFiles();
+        }
+    }
+}
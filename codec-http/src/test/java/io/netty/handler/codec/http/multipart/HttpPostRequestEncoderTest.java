@@ -0,0 +1,139 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http.multipart;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.MessageBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.HttpChunk;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpTransferEncoding;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.CharsetUtil;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URLEncoder;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HttpPostRequestEncoderTest {
+
+    @Test
+    public void testMultipartFromWritableFile() throws Exception {
+        testMultipart(false);
+    }
+
+    @Test
+    public void testMultipartFromReadOnlyFile() throws Exception {
+        testMultipart(true);
+    }
+
+    private static void testMultipart(boolean readOnly) throws Exception {
+        byte[] fileContent = new byte[100000];
+        new Random().nextBytes(fileContent);
+        File file = File.createTempFile("upload", ".bin");
+        try {
+            FileOutputStream out = new FileOutputStream(file);
+            try {
+                out.write(fileContent);
+            } finally {
+                out.close();
+            }
+            if (readOnly) {
+                assertTrue(file.setReadOnly());
+            }
+
+            HttpRequest req = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload");
+            HttpPostRequestEncoder encoder = new HttpPostRequestEncoder(new DefaultHttpDataFactory(true), req, true);
+            encoder.addBodyAttribute("field", "value");
+            encoder.addBodyFileUpload("file", file, "application/octet-stream", false);
+            req = encoder.finalizeRequest();
+
+            // The length of the body is known in advance, so it is not chunk-encoded.
+            assertTrue(encoder.isChunked());
+            assertEquals(HttpTransferEncoding.STREAMED, req.getTransferEncoding());
+            long contentLength = HttpHeaders.getContentLength(req);
+            assertTrue(contentLength > fileContent.length);
+
+            MessageBuf<HttpChunk> chunks = Unpooled.messageBuffer();
+            while (encoder.readChunk(chunks)) {
+                continue;
+            }
+            assertTrue(encoder.isEndOfInput());
+
+            HttpPostRequestDecoder decoder = new HttpPostRequestDecoder(new DefaultHttpDataFactory(false), req);
+            long length = 0;
+            for (HttpChunk chunk: chunks) {
+                ByteBuf content = chunk.getContent();
+                assertTrue(content.readableBytes() <= HttpPostBodyUtil.chunkSize);
+                length += content.readableBytes();
+                decoder.offer(chunk);
+            }
+            assertEquals(contentLength, length);
+
+            assertEquals("value", ((Attribute) decoder.getBodyHttpData("field")).getValue());
+            FileUpload upload = (FileUpload) decoder.getBodyHttpData("file");
+            assertEquals(file.getName(), upload.getFilename());
+            assertTrue(Arrays.equals(fileContent, upload.get()));
+
+            decoder.cleanFiles();
+            encoder.cleanFiles();
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testUrlEncodedAboveChunkSize() throws Exception {
+        HttpRequest req = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/form");
+        HttpPostRequestEncoder encoder = new HttpPostRequestEncoder(new DefaultHttpDataFactory(false), req, false);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 1000; i ++) {
+            encoder.addBodyAttribute("key" + i, "value \u00e9 " + i);
+            if (i > 0) {
+                expected.append('&');
+            }
+            expected.append("key").append(i).append('=').append(URLEncoder.encode("value \u00e9 " + i, "UTF-8"));
+        }
+        req = encoder.finalizeRequest();
+        assertTrue(expected.length() > HttpPostBodyUtil.chunkSize);
+
+        // The length of a url-encoded body is not known in advance, so it is chunk-encoded.
+        assertTrue(encoder.isChunked());
+        assertEquals(HttpTransferEncoding.CHUNKED, req.getTransferEncoding());
+        assertFalse(req.containsHeader(HttpHeaders.Names.CONTENT_LENGTH));
+
+        MessageBuf<HttpChunk> chunks = Unpooled.messageBuffer();
+        while (encoder.readChunk(chunks)) {
+            continue;
+        }
+        assertTrue(encoder.isEndOfInput());
+
+        StringBuilder body = new StringBuilder();
+        for (HttpChunk chunk: chunks) {
+            body.append(chunk.getContent().toString(CharsetUtil.US_ASCII));
+        }
+        assertEquals(expected.toString(), body.toString());
+    }
+}
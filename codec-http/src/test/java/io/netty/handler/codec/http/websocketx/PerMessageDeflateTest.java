@@ -0,0 +1,188 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http.websocketx;
+
+import static org.junit.Assert.*;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedMessageChannel;
+import io.netty.util.CharsetUtil;
+
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Inflater;
+
+import org.junit.Test;
+
+public class PerMessageDeflateTest {
+
+    private static final String JSON =
+            "{\"symbol\":\"NTTY\",\"bid\":12.34,\"ask\":12.35,\"volume\":100000,\"exchange\":\"NASDAQ\"}";
+
+    @Test
+    public void testExtensionData() {
+        List<WebSocketExtensionData> extensions = WebSocketExtensionData.decode(
+                "permessage-deflate; client_max_window_bits; server_max_window_bits=\"10\", x-foo");
+        assertEquals(2, extensions.size());
+        assertEquals("permessage-deflate", extensions.get(0).getName());
+        Map<String, String> parameters = extensions.get(0).getParameters();
+        assertTrue(parameters.containsKey("client_max_window_bits"));
+        assertNull(parameters.get("client_max_window_bits"));
+        assertEquals("10", parameters.get("server_max_window_bits"));
+        assertEquals("x-foo", extensions.get(1).getName());
+        assertTrue(extensions.get(1).getParameters().isEmpty());
+
+        assertEquals("permessage-deflate; client_max_window_bits; server_max_window_bits=10, x-foo",
+                WebSocketExtensionData.encode(extensions));
+    }
+
+    @Test
+    public void testHandshakeExtension() {
+        PerMessageDeflateServerExtensionHandshaker handshaker = new PerMessageDeflateServerExtensionHandshaker();
+
+        assertNull(handshaker.handshakeExtension(data("x-foo")));
+        assertNull(handshaker.handshakeExtension(data("permessage-deflate; x-unknown")));
+        assertNull(handshaker.handshakeExtension(data("permessage-deflate; server_max_window_bits=8")));
+        assertNull(handshaker.handshakeExtension(data("permessage-deflate; server_max_window_bits=16")));
+
+        WebSocketServerExtension e = handshaker.handshakeExtension(data("permessage-deflate; client_max_window_bits"));
+        assertEquals(WebSocketServerExtension.RSV1, e.getRsv());
+        assertEquals("permessage-deflate", e.getResponseData().toString());
+
+        e = handshaker.handshakeExtension(data(
+                "permessage-deflate; server_no_context_takeover; client_no_context_takeover; server_max_window_bits=10"));
+        assertEquals(
+                "permessage-deflate; server_no_context_takeover; client_no_context_takeover; server_max_window_bits=10",
+                e.getResponseData().toString());
+
+        // The configured window is smaller than the requested one.
+        e = new PerMessageDeflateServerExtensionHandshaker(6, 9, true).handshakeExtension(
+                data("permessage-deflate; server_max_window_bits=12"));
+        assertEquals("permessage-deflate; server_no_context_takeover; server_max_window_bits=9",
+                e.getResponseData().toString());
+    }
+
+    @Test
+    public void testRoundTrip() {
+        testRoundTrip(false);
+    }
+
+    @Test
+    public void testRoundTripWithoutContextTakeover() {
+        testRoundTrip(true);
+    }
+
+    private static void testRoundTrip(boolean noContextTakeover) {
+        EmbeddedMessageChannel encoder = new EmbeddedMessageChannel(
+                new PerMessageDeflateEncoder(6, 10, noContextTakeover));
+        EmbeddedMessageChannel decoder = new EmbeddedMessageChannel(
+                new PerMessageDeflateDecoder(noContextTakeover));
+
+        for (int i = 0; i < 10; i ++) {
+            encoder.writeOutbound(new TextWebSocketFrame(JSON));
+            TextWebSocketFrame compressed = (TextWebSocketFrame) encoder.readOutbound();
+            assertEquals(WebSocketServerExtension.RSV1, compressed.getRsv());
+            assertTrue(compressed.getBinaryData().readableBytes() < JSON.length());
+
+            decoder.writeInbound(compressed);
+            TextWebSocketFrame decompressed = (TextWebSocketFrame) decoder.readInbound();
+            assertEquals(0, decompressed.getRsv());
+            assertEquals(JSON, decompressed.getText());
+        }
+    }
+
+    @Test
+    public void testContextTakeoverImprovesCompression() {
+        EmbeddedMessageChannel encoder = new EmbeddedMessageChannel(new PerMessageDeflateEncoder(6, 15, false));
+        encoder.writeOutbound(new TextWebSocketFrame(JSON));
+        int first = ((WebSocketFrame) encoder.readOutbound()).getBinaryData().readableBytes();
+        encoder.writeOutbound(new TextWebSocketFrame(JSON));
+        int second = ((WebSocketFrame) encoder.readOutbound()).getBinaryData().readableBytes();
+        assertTrue(second < first);
+    }
+
+    @Test
+    public void testFragmentedMessage() {
+        EmbeddedMessageChannel encoder = new EmbeddedMessageChannel(new PerMessageDeflateEncoder(6, 15, false));
+        EmbeddedMessageChannel decoder = new EmbeddedMessageChannel(new PerMessageDeflateDecoder(false));
+
+        byte[] data = JSON.getBytes(CharsetUtil.UTF_8);
+        encoder.writeOutbound(new BinaryWebSocketFrame(false, 0, Unpooled.wrappedBuffer(data, 0, 10)));
+        encoder.writeOutbound(new PingWebSocketFrame(Unpooled.wrappedBuffer(new byte[] { 1, 2, 3 })));
+        encoder.writeOutbound(new ContinuationWebSocketFrame(
+                true, 0, Unpooled.wrappedBuffer(data, 10, data.length - 10)));
+
+        for (;;) {
+            Object frame = encoder.readOutbound();
+            if (frame == null) {
+                break;
+            }
+            decoder.writeInbound(frame);
+        }
+
+        BinaryWebSocketFrame first = (BinaryWebSocketFrame) decoder.readInbound();
+        PingWebSocketFrame ping = (PingWebSocketFrame) decoder.readInbound();
+        ContinuationWebSocketFrame last = (ContinuationWebSocketFrame) decoder.readInbound();
+        assertEquals(Unpooled.wrappedBuffer(data, 0, 10), first.getBinaryData());
+        assertEquals(Unpooled.wrappedBuffer(new byte[] { 1, 2, 3 }), ping.getBinaryData());
+        assertEquals(Unpooled.wrappedBuffer(data, 10, data.length - 10), last.getBinaryData());
+    }
+
+    @Test
+    public void testEmptyMessage() {
+        EmbeddedMessageChannel encoder = new EmbeddedMessageChannel(new PerMessageDeflateEncoder(6, 15, false));
+        EmbeddedMessageChannel decoder = new EmbeddedMessageChannel(new PerMessageDeflateDecoder(false));
+
+        encoder.writeOutbound(new BinaryWebSocketFrame(Unpooled.EMPTY_BUFFER));
+        WebSocketFrame compressed = (WebSocketFrame) encoder.readOutbound();
+        assertEquals(Unpooled.wrappedBuffer(new byte[1]), compressed.getBinaryData());
+
+        decoder.writeInbound(compressed);
+        assertFalse(((WebSocketFrame) decoder.readInbound()).getBinaryData().readable());
+    }
+
+    @Test
+    public void testUncompressedMessagePassesThrough() {
+        EmbeddedMessageChannel decoder = new EmbeddedMessageChannel(new PerMessageDeflateDecoder(false));
+        TextWebSocketFrame frame = new TextWebSocketFrame(JSON);
+        decoder.writeInbound(frame);
+        assertSame(frame, decoder.readInbound());
+        assertEquals(JSON, frame.getText());
+    }
+
+    @Test
+    public void testCompatibleWithJdkInflater() throws Exception {
+        EmbeddedMessageChannel encoder = new EmbeddedMessageChannel(new PerMessageDeflateEncoder(6, 15, false));
+        Inflater inflater = new Inflater(true);
+        for (int i = 0; i < 3; i ++) {
+            encoder.writeOutbound(new TextWebSocketFrame(JSON));
+            ByteBuf compressed = ((WebSocketFrame) encoder.readOutbound()).getBinaryData();
+            byte[] input = new byte[compressed.readableBytes() + PerMessageDeflateDecoder.TAIL.length];
+            compressed.readBytes(input, 0, compressed.readableBytes());
+            System.arraycopy(PerMessageDeflateDecoder.TAIL, 0, input, input.length - 4, 4);
+            inflater.setInput(input);
+
+            byte[] output = new byte[JSON.length() * 2];
+            int length = inflater.inflate(output);
+            assertEquals(JSON, new String(output, 0, length, CharsetUtil.UTF_8));
+        }
+        inflater.end();
+    }
+
+    private static WebSocketExtensionData data(String header) {
+        return WebSocketExtensionData.decode(header).get(0);
+    }
+}
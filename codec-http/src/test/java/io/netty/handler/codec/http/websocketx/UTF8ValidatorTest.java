@@ -0,0 +1,115 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http.websocketx;
+
+import static org.junit.Assert.*;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedByteChannel;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.util.CharsetUtil;
+
+import org.junit.Test;
+
+public class UTF8ValidatorTest {
+
+    private static final String TEXT = "Hello, éè 世界 😀 - plain US-ASCII text";
+
+    @Test
+    public void testValid() {
+        byte[] bytes = TEXT.getBytes(CharsetUtil.UTF_8);
+        assertTrue(UTF8Validator.isValid(Unpooled.wrappedBuffer(bytes), 0, bytes.length));
+        assertTrue(UTF8Validator.isValid(directBuffer(bytes), 0, bytes.length));
+    }
+
+    @Test
+    public void testInvalid() {
+        byte[][] invalid = {
+                { (byte) 0xC0, (byte) 0xAF },                           // overlong
+                { (byte) 0xED, (byte) 0xA0, (byte) 0x80 },              // surrogate
+                { (byte) 0xF4, (byte) 0x90, (byte) 0x80, (byte) 0x80 }, // > U+10FFFF
+                { 'a', 'b', (byte) 0xFF, 'c' },
+                { 'a', (byte) 0xE4, (byte) 0xB8 },                      // incomplete
+        };
+        for (byte[] bytes: invalid) {
+            assertFalse(UTF8Validator.isValid(Unpooled.wrappedBuffer(bytes), 0, bytes.length));
+            assertFalse(UTF8Validator.isValid(directBuffer(bytes), 0, bytes.length));
+        }
+    }
+
+    @Test
+    public void testIncremental() {
+        byte[] bytes = TEXT.getBytes(CharsetUtil.UTF_8);
+        ByteBuf buf = directBuffer(bytes);
+        for (int split = 0; split <= bytes.length; split ++) {
+            UTF8Validator validator = new UTF8Validator();
+            validator.check(buf, 0, split);
+            validator.check(buf, split, bytes.length - split);
+            validator.finish();
+        }
+    }
+
+    @Test
+    public void testFragmentedTextMessage() {
+        byte[] bytes = TEXT.getBytes(CharsetUtil.UTF_8);
+        // Split the message in the middle of a 4-byte character.
+        int split = TEXT.substring(0, TEXT.indexOf('\ud83d')).getBytes(CharsetUtil.UTF_8).length + 2;
+
+        EmbeddedByteChannel ch = new EmbeddedByteChannel(new WebSocket13FrameDecoder(false, false, 65536));
+        ch.writeInbound(encode(new TextWebSocketFrame(
+                false, 0, Unpooled.wrappedBuffer(bytes, 0, split))));
+        ch.writeInbound(encode(new ContinuationWebSocketFrame(
+                true, 0, Unpooled.wrappedBuffer(bytes, split, bytes.length - split))));
+
+        assertTrue(ch.readInbound() instanceof TextWebSocketFrame);
+        ContinuationWebSocketFrame last = (ContinuationWebSocketFrame) ch.readInbound();
+        assertEquals(TEXT, last.getAggregatedText());
+    }
+
+    @Test(expected = CorruptedFrameException.class)
+    public void testInvalidTextFrame() {
+        EmbeddedByteChannel ch = new EmbeddedByteChannel(new WebSocket13FrameDecoder(false, false, 65536));
+        ch.writeInbound(encode(new TextWebSocketFrame(Unpooled.wrappedBuffer(new byte[] { 'a', (byte) 0xFF }))));
+    }
+
+    @Test(expected = CorruptedFrameException.class)
+    public void testIncompleteFragmentedTextMessage() {
+        byte[] bytes = "世".getBytes(CharsetUtil.UTF_8);
+        EmbeddedByteChannel ch = new EmbeddedByteChannel(new WebSocket13FrameDecoder(false, false, 65536));
+        ch.writeInbound(encode(new TextWebSocketFrame(false, 0, Unpooled.wrappedBuffer(bytes, 0, 1))));
+        ch.writeInbound(encode(new ContinuationWebSocketFrame(true, 0, Unpooled.wrappedBuffer(bytes, 1, 1))));
+    }
+
+    @Test
+    public void testValidationDisabled() {
+        EmbeddedByteChannel ch = new EmbeddedByteChannel(
+                new WebSocket13FrameDecoder(false, false, 65536, false));
+        ch.writeInbound(encode(new TextWebSocketFrame(Unpooled.wrappedBuffer(new byte[] { 'a', (byte) 0xFF }))));
+        assertTrue(ch.readInbound() instanceof TextWebSocketFrame);
+    }
+
+    private static ByteBuf encode(WebSocketFrame frame) {
+        EmbeddedByteChannel ch = new EmbeddedByteChannel(new WebSocket13FrameEncoder(false));
+        ch.writeOutbound(frame);
+        return ch.readOutbound();
+    }
+
+    private static ByteBuf directBuffer(byte[] bytes) {
+        ByteBuf buf = Unpooled.directBuffer(bytes.length);
+        buf.writeBytes(bytes);
+        return buf;
+    }
+}
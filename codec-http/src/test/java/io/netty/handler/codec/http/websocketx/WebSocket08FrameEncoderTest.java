@@ -0,0 +1,76 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http.websocketx;
+
+import static org.junit.Assert.*;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedByteChannel;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.util.CharsetUtil;
+
+import java.nio.ReadOnlyBufferException;
+
+import org.junit.Test;
+
+public class WebSocket08FrameEncoderTest {
+
+    @Test
+    public void testEncodeFrame() {
+        for (int length: new int[] { 0, 125, 126, 65535, 65536 }) {
+            BinaryWebSocketFrame frame = new BinaryWebSocketFrame(Unpooled.wrappedBuffer(new byte[length]));
+
+            EmbeddedByteChannel ch = new EmbeddedByteChannel(new WebSocket08FrameEncoder(false));
+            ch.writeOutbound(frame);
+            ByteBuf expected = ch.readOutbound();
+
+            ByteBuf encoded = WebSocket08FrameEncoder.encodeFrame(frame);
+            assertEquals(expected, encoded);
+            assertEquals(length, frame.getBinaryData().readableBytes());
+        }
+    }
+
+    @Test(expected = ReadOnlyBufferException.class)
+    public void testEncodedFrameIsReadOnly() {
+        WebSocket08FrameEncoder.encodeFrame(new TextWebSocketFrame("foo")).setByte(0, 0);
+    }
+
+    @Test
+    public void testBroadcastEncodedFrame() {
+        ChannelGroup group = new DefaultChannelGroup();
+        EmbeddedByteChannel[] channels = new EmbeddedByteChannel[3];
+        for (int i = 0; i < channels.length; i ++) {
+            channels[i] = new EmbeddedByteChannel(
+                    new WebSocket13FrameEncoder(false), new PerMessageDeflateEncoder(6, 15, false));
+            group.add(channels[i]);
+        }
+
+        ByteBuf encoded = WebSocket08FrameEncoder.encodeFrame(new TextWebSocketFrame("Hello, subscribers!"));
+        int length = encoded.readableBytes();
+        group.write(encoded);
+        assertEquals(length, encoded.readableBytes());
+
+        for (EmbeddedByteChannel ch: channels) {
+            EmbeddedByteChannel decoder = new EmbeddedByteChannel(
+                    new WebSocket13FrameDecoder(false, false, Integer.MAX_VALUE));
+            decoder.writeInbound(ch.readOutbound());
+            TextWebSocketFrame frame = (TextWebSocketFrame) decoder.readInbound();
+            assertEquals(0, frame.getRsv());
+            assertEquals("Hello, subscribers!", frame.getBinaryData().toString(CharsetUtil.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http.websocketx;
+
+import static org.junit.Assert.*;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedByteChannel;
+
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class WebSocket08FrameMaskingTest {
+
+    private static final int[] LENGTHS = { 0, 1, 3, 4, 7, 8, 9, 125, 126, 1000, 65535, 65536, 70001 };
+
+    @Test
+    public void testMask() {
+        Random random = new Random(0);
+        byte[] data = new byte[37];
+        random.nextBytes(data);
+        int mask = random.nextInt();
+
+        for (int offset = 0; offset < 4; offset ++) {
+            for (ByteOrder order: new ByteOrder[] { ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN }) {
+                ByteBuf dst = Unpooled.buffer().order(order);
+                WebSocketUtil.mask(Unpooled.wrappedBuffer(data), offset, data.length - offset, mask, dst);
+                assertEquals(data.length - offset, dst.readableBytes());
+                for (int i = offset; i < data.length; i ++) {
+                    byte key = (byte) (mask >>> (3 - (i - offset) % 4) * 8);
+                    assertEquals((byte) (data[i] ^ key), dst.getByte(i - offset));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMaskedRoundTrip() {
+        for (int length: LENGTHS) {
+            testRoundTrip(length, false);
+        }
+    }
+
+    @Test
+    public void testMaskedRoundTripFragmented() {
+        for (int length: LENGTHS) {
+            testRoundTrip(length, true);
+        }
+    }
+
+    private static void testRoundTrip(int length, boolean fragmented) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+
+        EmbeddedByteChannel encoder = new EmbeddedByteChannel(new WebSocket08FrameEncoder(true));
+        EmbeddedByteChannel decoder = new EmbeddedByteChannel(
+                new WebSocket08FrameDecoder(true, false, Integer.MAX_VALUE));
+
+        encoder.writeOutbound(new BinaryWebSocketFrame(Unpooled.wrappedBuffer(data)));
+        ByteBuf encoded = encoder.readOutbound();
+        assertTrue(encoded.readableBytes() > length);
+
+        if (fragmented) {
+            // Deliver the frame in odd-sized pieces so that the masking key has to be rotated.
+            while (encoded.readable()) {
+                decoder.writeInbound(encoded.readBytes(Math.min(encoded.readableBytes(), 4099)));
+            }
+        } else {
+            decoder.writeInbound(encoded);
+        }
+
+        BinaryWebSocketFrame frame = (BinaryWebSocketFrame) decoder.readInbound();
+        assertNotNull("length: " + length, frame);
+        assertEquals(Unpooled.wrappedBuffer(data), frame.getBinaryData());
+        assertNull(decoder.readInbound());
+    }
+}
@@ -61,4 +61,35 @@ public class WebSocketServerHandshaker13Test {
                 "s3pPLMBiTxaQ9kYGzzhZRbK+xOo=", res.getHeader(Names.SEC_WEBSOCKET_ACCEPT));
         Assert.assertEquals("chat", res.getHeader(Names.SEC_WEBSOCKET_PROTOCOL));
     }
+
+    @Test
+    public void testPerformOpeningHandshakeWithExtension() {
+        EmbeddedByteChannel ch = new EmbeddedByteChannel(
+                new HttpChunkAggregator(42), new HttpRequestDecoder(), new HttpResponseEncoder());
+
+        HttpRequest req = new DefaultHttpRequest(HTTP_1_1, HttpMethod.GET, "/chat");
+        req.setHeader(Names.HOST, "server.example.com");
+        req.setHeader(Names.UPGRADE, WEBSOCKET.toLowerCase());
+        req.setHeader(Names.CONNECTION, "Upgrade");
+        req.setHeader(Names.SEC_WEBSOCKET_KEY, "dGhlIHNhbXBsZSBub25jZQ==");
+        req.setHeader(Names.SEC_WEBSOCKET_VERSION, "13");
+        req.setHeader(Names.SEC_WEBSOCKET_EXTENSIONS,
+                "x-unknown, permessage-deflate; server_max_window_bits=10, permessage-deflate");
+
+        new WebSocketServerHandshaker13(
+                "ws://example.com/chat", null, false, Integer.MAX_VALUE,
+                new PerMessageDeflateServerExtensionHandshaker()).handshake(ch, req);
+
+        ByteBuf resBuf = ch.readOutbound();
+
+        EmbeddedByteChannel ch2 = new EmbeddedByteChannel(new HttpResponseDecoder());
+        ch2.writeInbound(resBuf);
+        HttpResponse res = (HttpResponse) ch2.readInbound();
+
+        Assert.assertEquals(
+                "permessage-deflate; server_max_window_bits=10", res.getHeader(Names.SEC_WEBSOCKET_EXTENSIONS));
+        Assert.assertTrue(ch.pipeline().get("wsextdecoder0") instanceof PerMessageDeflateDecoder);
+        Assert.assertTrue(ch.pipeline().get("wsextencoder0") instanceof PerMessageDeflateEncoder);
+        Assert.assertNull(ch.pipeline().get("wsextdecoder1"));
+    }
 }
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.spdy;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class IntObjectHashMapTest {
+
+    @Test
+    public void testPutGetRemove() {
+        IntObjectHashMap<String> map = new IntObjectHashMap<String>();
+        assertTrue(map.isEmpty());
+        assertNull(map.put(1, "a"));
+        assertNull(map.put(3, "b"));
+        assertEquals("a", map.put(1, "c"));
+        assertEquals(2, map.size());
+        assertEquals("c", map.get(1));
+        assertEquals("b", map.get(3));
+        assertNull(map.get(5));
+        assertTrue(map.containsKey(3));
+        assertEquals("b", map.remove(3));
+        assertNull(map.remove(3));
+        assertFalse(map.containsKey(3));
+        assertEquals(1, map.size());
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(1));
+    }
+
+    @Test
+    public void testRandomOperations() {
+        Random random = new Random(42);
+        IntObjectHashMap<Integer> map = new IntObjectHashMap<Integer>();
+        Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+
+        for (int i = 0; i < 100000; i ++) {
+            // A small key range produces many collisions and removals in the same probe sequences.
+            int key = random.nextInt(512) * 2 + 1;
+            if (random.nextBoolean()) {
+                assertEquals(expected.put(key, i), map.put(key, i));
+            } else {
+                assertEquals(expected.remove(key), map.remove(key));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+
+        for (Map.Entry<Integer, Integer> e: expected.entrySet()) {
+            assertEquals(e.getValue(), map.get(e.getKey()));
+        }
+
+        int count = 0;
+        for (int i = 0; i < map.capacity(); i ++) {
+            Integer value = map.valueAt(i);
+            if (value != null) {
+                assertEquals(expected.get(map.keyAt(i)), value);
+                count ++;
+            }
+        }
+        assertEquals(expected.size(), count);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.spdy;
+
+import static org.junit.Assert.*;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedByteChannel;
+import io.netty.channel.embedded.EmbeddedMessageChannel;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.CharsetUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SpdyFrameDecoderTest {
+
+    @Test
+    public void testDataFramesStayValidAfterDiscard() {
+        Random random = new Random(0);
+        List<byte[]> payloads = new ArrayList<byte[]>();
+        EmbeddedByteChannel encoder = new EmbeddedByteChannel(new SpdyFrameEncoder(3));
+        for (int i = 0; i < 50; i ++) {
+            byte[] payload = new byte[random.nextInt(3000)];
+            random.nextBytes(payload);
+            payloads.add(payload);
+
+            SpdyDataFrame frame = new DefaultSpdyDataFrame(1);
+            frame.setData(Unpooled.wrappedBuffer(payload));
+            encoder.writeOutbound(frame);
+        }
+        ByteBuf encoded = encoder.readOutbound();
+
+        // Deliver the frames in pieces which do not match the frame boundaries
+        // so that the data of a frame spans the components of the cumulation.
+        EmbeddedByteChannel decoder = new EmbeddedByteChannel(new SpdyFrameDecoder(3, 8192, 16384));
+        List<SpdyDataFrame> frames = new ArrayList<SpdyDataFrame>();
+        while (encoded.readable()) {
+            decoder.writeInbound(encoded.readBytes(Math.min(encoded.readableBytes(), random.nextInt(1500) + 1)));
+            for (;;) {
+                SpdyDataFrame frame = (SpdyDataFrame) decoder.readInbound();
+                if (frame == null) {
+                    break;
+                }
+                frames.add(frame);
+            }
+        }
+
+        assertEquals(payloads.size(), frames.size());
+        for (int i = 0; i < payloads.size(); i ++) {
+            assertEquals(Unpooled.wrappedBuffer(payloads.get(i)), frames.get(i).getData());
+        }
+    }
+
+    @Test
+    public void testHttpContentIsComposedOfDataFrames() {
+        EmbeddedMessageChannel decoder = new EmbeddedMessageChannel(new SpdyHttpDecoder(3, 1048576));
+
+        SpdySynStreamFrame synStream = new DefaultSpdySynStreamFrame(1, 0, (byte) 0);
+        SpdyHeaders.setMethod(3, synStream, HttpMethod.POST);
+        SpdyHeaders.setUrl(3, synStream, "/upload");
+        SpdyHeaders.setVersion(3, synStream, HttpVersion.HTTP_1_1);
+        SpdyHeaders.setHost(synStream, "example.com");
+        decoder.writeInbound(synStream);
+
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 5; i ++) {
+            String chunk = "chunk" + i + ';';
+            expected.append(chunk);
+            SpdyDataFrame frame = new DefaultSpdyDataFrame(1);
+            frame.setData(Unpooled.copiedBuffer(chunk, CharsetUtil.US_ASCII));
+            frame.setLast(i == 4);
+            decoder.writeInbound(frame);
+        }
+
+        HttpRequest request = (HttpRequest) decoder.readInbound();
+        assertNotNull(request);
+        assertEquals(expected.toString(), request.getContent().toString(CharsetUtil.US_ASCII));
+        assertEquals(expected.length(), HttpHeaders.getContentLength(request));
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.spdy;
+
+import static org.junit.Assert.*;
+import io.netty.channel.embedded.EmbeddedByteChannel;
+
+import org.junit.Test;
+
+public class SpdyHeaderBlockCompressionTest {
+
+    @Test
+    public void testDefaultCompressor() {
+        for (int version = SpdyConstants.SPDY_MIN_VERSION; version <= SpdyConstants.SPDY_MAX_VERSION; version ++) {
+            testReleaseCompressor(new SpdyFrameEncoder(version), version);
+        }
+    }
+
+    @Test
+    public void testSmallWindowCompressor() {
+        for (int version = SpdyConstants.SPDY_MIN_VERSION; version <= SpdyConstants.SPDY_MAX_VERSION; version ++) {
+            testReleaseCompressor(new SpdyFrameEncoder(version, 9, 10, 2), version);
+        }
+    }
+
+    private static void testReleaseCompressor(SpdyFrameEncoder encoder, int version) {
+        EmbeddedByteChannel encoderChannel = new EmbeddedByteChannel(encoder);
+        EmbeddedByteChannel decoderChannel = new EmbeddedByteChannel(new SpdyFrameDecoder(version));
+
+        for (int i = 0; i < 8; i ++) {
+            int streamId = i * 2 + 1;
+            SpdySynStreamFrame frame = new DefaultSpdySynStreamFrame(streamId, 0, (byte) 0);
+            frame.setHeader(":path", "/index" + i + ".html");
+            frame.setHeader("user-agent", "Mozilla/5.0 (X11; Linux x86_64)");
+            frame.setHeader("accept-encoding", "gzip,deflate");
+
+            encoderChannel.writeOutbound(frame);
+            decoderChannel.writeInbound(encoderChannel.readOutbound());
+            SpdySynStreamFrame decoded = (SpdySynStreamFrame) decoderChannel.readInbound();
+            assertNotNull(decoded);
+            assertEquals(streamId, decoded.getStreamId());
+            assertEquals("/index" + i + ".html", decoded.getHeader(":path"));
+            assertEquals("Mozilla/5.0 (X11; Linux x86_64)", decoded.getHeader("user-agent"));
+            assertEquals("gzip,deflate", decoded.getHeader("accept-encoding"));
+
+            // Release the compressor after every other header block
+            if (i % 2 == 1) {
+                encoder.releaseHeaderBlockCompressor();
+            }
+        }
+
+        assertFalse(encoderChannel.finish());
+    }
+}
@@ -15,6 +15,8 @@
  */
 package io.netty.handler.codec.spdy;
 
+import io.netty.buffer.MessageBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundMessageHandlerAdapter;
 import io.netty.channel.embedded.EmbeddedMessageChannel;
@@ -271,6 +273,60 @@ public class SpdySessionHandlerTest {
         }
     }
 
+    @Test
+    public void testFlowControlWritesInPriorityOrder() {
+        SpdySessionHandler handler = new SpdySessionHandler(3, true);
+        EmbeddedMessageChannel sessionHandler = new EmbeddedMessageChannel(handler);
+
+        SpdySettingsFrame spdySettingsFrame = new DefaultSpdySettingsFrame();
+        spdySettingsFrame.setValue(SpdySettingsFrame.SETTINGS_INITIAL_WINDOW_SIZE, 10);
+        sessionHandler.writeInbound(spdySettingsFrame);
+        sessionHandler.writeInbound(new DefaultSpdySynStreamFrame(1, 0, (byte) 7));
+        sessionHandler.writeInbound(new DefaultSpdySynStreamFrame(3, 0, (byte) 0));
+        while (sessionHandler.readInbound() != null) {
+            continue;
+        }
+
+        // A low priority download is written before a high priority response
+        SpdyDataFrame download = new DefaultSpdyDataFrame(1);
+        download.setData(Unpooled.wrappedBuffer(new byte[20]));
+        SpdyDataFrame response = new DefaultSpdyDataFrame(3);
+        response.setData(Unpooled.wrappedBuffer(new byte[20]));
+        response.setLast(true);
+        MessageBuf<Object> out = sessionHandler.outboundMessageBuffer();
+        out.add(new DefaultSpdySynReplyFrame(1));
+        out.add(new DefaultSpdySynReplyFrame(3));
+        out.add(download);
+        out.add(response);
+        sessionHandler.flush();
+
+        Assert.assertTrue(sessionHandler.readOutbound() instanceof SpdySynReplyFrame);
+        Assert.assertTrue(sessionHandler.readOutbound() instanceof SpdySynReplyFrame);
+        assertDataFrame(sessionHandler.readOutbound(), 3, 10, false);
+        assertDataFrame(sessionHandler.readOutbound(), 1, 10, false);
+        Assert.assertNull(sessionHandler.readOutbound());
+        Assert.assertEquals(20, handler.getPendingWriteBytes());
+
+        // WINDOW_UPDATE unblocks the stalled stream only
+        sessionHandler.writeInbound(new DefaultSpdyWindowUpdateFrame(3, 10));
+        assertDataFrame(sessionHandler.readOutbound(), 3, 10, true);
+        Assert.assertNull(sessionHandler.readOutbound());
+        Assert.assertEquals(10, handler.getPendingWriteBytes());
+
+        // A larger initial window unblocks all streams
+        spdySettingsFrame = new DefaultSpdySettingsFrame();
+        spdySettingsFrame.setValue(SpdySettingsFrame.SETTINGS_INITIAL_WINDOW_SIZE, 100);
+        sessionHandler.writeInbound(spdySettingsFrame);
+        assertDataFrame(sessionHandler.readOutbound(), 1, 10, false);
+        Assert.assertNull(sessionHandler.readOutbound());
+        Assert.assertEquals(0, handler.getPendingWriteBytes());
+    }
+
+    private static void assertDataFrame(Object msg, int streamID, int length, boolean last) {
+        assertDataFrame(msg, streamID, last);
+        Assert.assertEquals(length, ((SpdyDataFrame) msg).getData().readableBytes());
+    }
+
     // Echo Handler opens 4 half-closed streams on session connection
     // and then sets the number of concurrent streams to 3
     private static class EchoHandler extends ChannelInboundMessageHandlerAdapter<Object> {
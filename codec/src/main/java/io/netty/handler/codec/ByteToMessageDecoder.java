@@ -16,6 +16,7 @@
 package io.netty.handler.codec;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundByteHandler;
@@ -23,10 +24,112 @@ import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.ChannelHandlerUtil;
 
+/**
+ * Decodes the bytes cumulated in the inbound buffer into messages.
+ * <p>
+ * How the inbound buffer is allocated and how its read bytes are discarded is
+ * determined by the {@link Cumulator} of the decoder, which can be changed with
+ * {@link #setCumulator(Cumulator)} before the decoder is added to a {@link ChannelPipeline}.
+ * By default, {@link #MERGE_CUMULATOR} is used.
+ */
 public abstract class ByteToMessageDecoder<O>
     extends ChannelInboundHandlerAdapter implements ChannelInboundByteHandler {
 
+    /**
+     * Cumulates the received bytes into a single buffer and compacts it by moving the
+     * unread bytes to the front of the buffer when the buffer thinks it is worth doing so.
+     * This is the default behavior.
+     */
+    public static final Cumulator MERGE_CUMULATOR = new Cumulator() {
+        @Override
+        public ByteBuf newCumulationBuffer(ChannelHandlerContext ctx) {
+            return Unpooled.buffer();
+        }
+
+        @Override
+        public void discardSomeReadBytes(ByteBuf cumulation) {
+            cumulation.unsafe().discardSomeReadBytes();
+        }
+    };
+
+    /**
+     * Cumulates the received bytes into a {@link CompositeByteBuf} which grows by appending
+     * new components and discards fully read components instead of moving the unread bytes.
+     * The received bytes are never copied, which is useful when large frames arrive in many
+     * small reads.
+     */
+    public static final Cumulator COMPOSITE_CUMULATOR = new Cumulator() {
+        @Override
+        public ByteBuf newCumulationBuffer(ChannelHandlerContext ctx) {
+            return Unpooled.compositeBuffer(Integer.MAX_VALUE);
+        }
+
+        @Override
+        public void discardSomeReadBytes(ByteBuf cumulation) {
+            // CompositeByteBuf discards the fully read components only.
+            cumulation.unsafe().discardSomeReadBytes();
+        }
+    };
+
+    /**
+     * Returns a new {@link Cumulator} which cumulates the received bytes into a single buffer
+     * like {@link #MERGE_CUMULATOR} does, but compacts it only when there is nothing left to
+     * read or the read bytes occupy at least the specified fraction of its capacity.
+     *
+     * @param discardRatio the fraction of the capacity, in the range of {@code (0, 1]}
+     */
+    public static Cumulator thresholdCumulator(final float discardRatio) {
+        if (!(discardRatio > 0 && discardRatio <= 1)) {
+            throw new IllegalArgumentException(
+                    "discardRatio: " + discardRatio + " (expected: 0 < discardRatio <= 1)");
+        }
+
+        return new Cumulator() {
+            @Override
+            public ByteBuf newCumulationBuffer(ChannelHandlerContext ctx) {
+                return Unpooled.buffer();
+            }
+
+            @Override
+            public void discardSomeReadBytes(ByteBuf cumulation) {
+                final int readerIndex = cumulation.readerIndex();
+                if (readerIndex == 0) {
+                    return;
+                }
+
+                if (readerIndex == cumulation.writerIndex() ||
+                    readerIndex >= cumulation.capacity() * discardRatio) {
+                    cumulation.discardReadBytes();
+                }
+            }
+        };
+    }
+
     private ChannelHandlerContext ctx;
+    private Cumulator cumulator = MERGE_CUMULATOR;
+    private boolean cumulationCreated;
+
+    /**
+     * Returns the {@link Cumulator} of this decoder.
+     */
+    public Cumulator getCumulator() {
+        return cumulator;
+    }
+
+    /**
+     * Sets the {@link Cumulator} of this decoder.  It can only be changed before the
+     * decoder is added to a {@link ChannelPipeline}.
+     */
+    public void setCumulator(Cumulator cumulator) {
+        if (cumulator == null) {
+            throw new NullPointerException("cumulator");
+        }
+        if (cumulationCreated) {
+            throw new IllegalStateException(
+                    "cumulator cannot be changed after the decoder has been added to a pipeline");
+        }
+        this.cumulator = cumulator;
+    }
 
     @Override
     public void beforeAdd(ChannelHandlerContext ctx) throws Exception {
@@ -36,7 +139,23 @@ public abstract class ByteToMessageDecoder<O>
 
     @Override
     public ByteBuf newInboundBuffer(ChannelHandlerContext ctx) throws Exception {
-        return Unpooled.buffer();
+        return newCumulationBuffer(ctx);
+    }
+
+    /**
+     * Creates a new cumulation buffer using the current {@link Cumulator}.
+     */
+    protected final ByteBuf newCumulationBuffer(ChannelHandlerContext ctx) {
+        cumulationCreated = true;
+        return cumulator.newCumulationBuffer(ctx);
+    }
+
+    /**
+     * Discards some, all, or none of the read bytes of the specified cumulation buffer
+     * using the current {@link Cumulator}.
+     */
+    protected final void discardSomeReadBytes(ByteBuf cumulation) {
+        cumulator.discardSomeReadBytes(cumulation);
     }
 
     @Override
@@ -93,7 +212,7 @@ public abstract class ByteToMessageDecoder<O>
                     break;
                 }
             } catch (Throwable t) {
-                in.unsafe().discardSomeReadBytes();
+                discardSomeReadBytes(in);
 
                 if (decoded) {
                     decoded = false;
@@ -108,7 +227,7 @@ public abstract class ByteToMessageDecoder<O>
             }
         }
 
-        in.unsafe().discardSomeReadBytes();
+        discardSomeReadBytes(in);
 
         if (decoded) {
             ctx.fireInboundBufferUpdated();
@@ -145,4 +264,22 @@ public abstract class ByteToMessageDecoder<O>
     public O decodeLast(ChannelHandlerContext ctx, ByteBuf in) throws Exception {
         return decode(ctx, in);
     }
+
+    /**
+     * Allocates the cumulation buffer of a {@link ByteToMessageDecoder} and decides when the
+     * read bytes of the cumulation buffer are discarded.
+     */
+    public interface Cumulator {
+        /**
+         * Creates a new cumulation buffer.  Called once when the decoder is added to a
+         * {@link ChannelPipeline}.
+         */
+        ByteBuf newCumulationBuffer(ChannelHandlerContext ctx);
+
+        /**
+         * Discards some, all, or none of the read bytes of the specified cumulation buffer.
+         * Called whenever the decoder finished decoding the currently available bytes.
+         */
+        void discardSomeReadBytes(ByteBuf cumulation);
+    }
 }
@@ -16,9 +16,13 @@
 package io.netty.handler.codec;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.serialization.ObjectDecoder;
 
+import java.util.List;
+
 /**
  * A decoder that splits the received {@link ByteBuf}s dynamically by the
  * value of the length field in the message.  It is particularly useful when you
@@ -187,6 +191,7 @@ public class LengthFieldBasedFrameDecoder extends ByteToMessageDecoder<Object> {
     private final int lengthAdjustment;
     private final int initialBytesToStrip;
     private final boolean failFast;
+    private final boolean batchDecoding;
     private boolean discardingTooLongFrame;
     private long tooLongFrameLength;
     private long bytesToDiscard;
@@ -262,6 +267,46 @@ public class LengthFieldBasedFrameDecoder extends ByteToMessageDecoder<Object> {
             int maxFrameLength,
             int lengthFieldOffset, int lengthFieldLength,
             int lengthAdjustment, int initialBytesToStrip, boolean failFast) {
+        this(
+                maxFrameLength,
+                lengthFieldOffset, lengthFieldLength, lengthAdjustment,
+                initialBytesToStrip, failFast, false);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxFrameLength
+     *        the maximum length of the frame.  If the length of the frame is
+     *        greater than this value, {@link TooLongFrameException} will be
+     *        thrown.
+     * @param lengthFieldOffset
+     *        the offset of the length field
+     * @param lengthFieldLength
+     *        the length of the length field
+     * @param lengthAdjustment
+     *        the compensation value to add to the value of the length field
+     * @param initialBytesToStrip
+     *        the number of first bytes to strip out from the decoded frame
+     * @param failFast
+     *        If <tt>true</tt>, a {@link TooLongFrameException} is thrown as
+     *        soon as the decoder notices the length of the frame will exceed
+     *        <tt>maxFrameLength</tt> regardless of whether the entire frame
+     *        has been read.  If <tt>false</tt>, a {@link TooLongFrameException}
+     *        is thrown after the entire frame that exceeds <tt>maxFrameLength</tt>
+     *        has been read.
+     * @param batchDecoding
+     *        If <tt>true</tt>, the received bytes are cumulated with
+     *        {@link #COMPOSITE_CUMULATOR} and every frame is made of slices of
+     *        the received buffers rather than a copy of them.  The frames stay
+     *        valid after the cumulation buffer discards its read bytes, so the
+     *        next handler may keep them as long as it needs.
+     */
+    public LengthFieldBasedFrameDecoder(
+            int maxFrameLength,
+            int lengthFieldOffset, int lengthFieldLength,
+            int lengthAdjustment, int initialBytesToStrip, boolean failFast,
+            boolean batchDecoding) {
         if (maxFrameLength <= 0) {
             throw new IllegalArgumentException(
                     "maxFrameLength must be a positive integer: " +
@@ -303,6 +348,10 @@ public class LengthFieldBasedFrameDecoder extends ByteToMessageDecoder<Object> {
         lengthFieldEndOffset = lengthFieldOffset + lengthFieldLength;
         this.initialBytesToStrip = initialBytesToStrip;
         this.failFast = failFast;
+        this.batchDecoding = batchDecoding;
+        if (batchDecoding) {
+            setCumulator(COMPOSITE_CUMULATOR);
+        }
     }
 
     @Override
@@ -385,11 +434,32 @@ public class LengthFieldBasedFrameDecoder extends ByteToMessageDecoder<Object> {
         // extract frame
         int readerIndex = in.readerIndex();
         int actualFrameLength = frameLengthInt - initialBytesToStrip;
-        ByteBuf frame = extractFrame(in, readerIndex, actualFrameLength);
+        ByteBuf frame;
+        if (batchDecoding && in instanceof CompositeByteBuf) {
+            frame = decomposeFrame((CompositeByteBuf) in, readerIndex, actualFrameLength);
+        } else {
+            frame = extractFrame(in, readerIndex, actualFrameLength);
+        }
         in.readerIndex(readerIndex + actualFrameLength);
         return frame;
     }
 
+    /**
+     * Returns the sub-region of the specified buffer as slices of its components, which
+     * remain valid after the buffer discards them.
+     */
+    private static ByteBuf decomposeFrame(CompositeByteBuf buffer, int index, int length) {
+        if (length == 0) {
+            return Unpooled.EMPTY_BUFFER;
+        }
+
+        List<ByteBuf> slices = buffer.decompose(index, length);
+        if (slices.size() == 1) {
+            return slices.get(0);
+        }
+        return Unpooled.wrappedBuffer(slices.size(), slices.toArray(new ByteBuf[slices.size()]));
+    }
+
     private void failIfNecessary(ChannelHandlerContext ctx, boolean firstDetectionOfTooLongFrame) {
         if (bytesToDiscard == 0) {
             // Reset to the initial state and tell the handlers that
@@ -22,6 +22,14 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelOutboundMessageHandlerAdapter;
 import io.netty.channel.ChannelHandlerUtil;
 
+/**
+ * Encodes the messages of the outbound message buffer into the next outbound byte buffer.
+ * <p>
+ * The messages which are not {@linkplain #isEncodable(Object) encodable} are passed to the next
+ * outbound buffer as they are.  If the message is a {@link ByteBuf} and there is no next outbound
+ * message buffer, its readable bytes are copied into the next outbound byte buffer instead, so that
+ * they are written in order with the encoded messages.
+ */
 public abstract class MessageToByteEncoder<I> extends ChannelOutboundMessageHandlerAdapter<I> {
 
     private final Class<?>[] acceptedMsgTypes;
@@ -42,7 +50,13 @@ public abstract class MessageToByteEncoder<I> extends ChannelOutboundMessageHand
             }
 
             if (!isEncodable(msg)) {
-                ChannelHandlerUtil.addToNextOutboundBuffer(ctx, msg);
+                if (msg instanceof ByteBuf && !ctx.hasNextOutboundMessageBuffer()) {
+                    // Already encoded - pass it on in order with the encoded messages.
+                    ByteBuf buf = (ByteBuf) msg;
+                    out.writeBytes(buf, buf.readerIndex(), buf.readableBytes());
+                } else {
+                    ChannelHandlerUtil.addToNextOutboundBuffer(ctx, msg);
+                }
                 continue;
             }
 
@@ -21,6 +21,8 @@ package io.netty.handler.codec.base64;
 
 import io.netty.buffer.ByteBuf;
 
+import java.nio.ByteOrder;
+
 /**
  * Utility class for {@link ByteBuf} that encodes and decodes to and from
  * <a href="http://en.wikipedia.org/wiki/Base64">Base64</a> notation.
@@ -114,17 +116,71 @@ public final class Base64 {
             throw new NullPointerException("dialect");
         }
 
-        int len43 = len * 4 / 3;
-        ByteBuf dest = src.unsafe().newBuffer(
-                len43 +
-                (len % 3 > 0? 4 : 0) + // Account for padding
-                (breakLines? len43 / MAX_LINE_LENGTH : 0)).order(src.order()); // New lines
-        int d = 0;
-        int e = 0;
-        int len2 = len - 2;
-        int lineLength = 0;
-        for (; d < len2; d += 3, e += 4) {
-            encode3to4(src, d + off, 3, dest, e, dialect);
+        ByteBuf dest = src.unsafe().newBuffer(encodedLength(len, breakLines, 0)).order(src.order());
+        encode(src, off, len, dest, breakLines, 0, dialect);
+        return dest.slice();
+    }
+
+    /**
+     * Encodes the readable bytes of {@code src} into {@code dest}, starting at its
+     * {@code writerIndex}, and advances the {@code readerIndex} of {@code src} and the
+     * {@code writerIndex} of {@code dest} accordingly.
+     */
+    public static void encode(ByteBuf src, ByteBuf dest, boolean breakLines, Base64Dialect dialect) {
+        if (src == null) {
+            throw new NullPointerException("src");
+        }
+        if (dest == null) {
+            throw new NullPointerException("dest");
+        }
+        if (dialect == null) {
+            throw new NullPointerException("dialect");
+        }
+
+        int len = src.readableBytes();
+        encode(src, src.readerIndex(), len, dest, breakLines, 0, dialect);
+        src.skipBytes(len);
+    }
+
+    /**
+     * Returns the maximum number of bytes {@code len} bytes are encoded into, when the
+     * current line already contains {@code lineLength} characters.
+     */
+    static int encodedLength(int len, boolean breakLines, int lineLength) {
+        int encodedLength = (len + 2) / 3 * 4;
+        if (breakLines) {
+            encodedLength += (lineLength + encodedLength) / MAX_LINE_LENGTH;
+        }
+        return encodedLength;
+    }
+
+    /**
+     * Encodes {@code len} bytes of {@code src}, starting at {@code off}, into {@code dest},
+     * starting at its {@code writerIndex}.  Whole three byte groups are encoded with two table
+     * lookups and a single write of all four characters, and only the trailing bytes are padded.
+     *
+     * @return the number of characters in the last line, which continues with the next call
+     */
+    static int encode(
+            ByteBuf src, int off, int len, ByteBuf dest,
+            boolean breakLines, int lineLength, Base64Dialect dialect) {
+
+        dest.ensureWritableBytes(encodedLength(len, breakLines, lineLength));
+
+        final short[] ENCODE_TABLE = dialect.encodeTable;
+        final boolean swapSrc = src.order() == ByteOrder.LITTLE_ENDIAN;
+        final boolean swapDest = dest.order() == ByteOrder.LITTLE_ENDIAN;
+        final int end = off + len;
+        int d = off;
+        int e = dest.writerIndex();
+        for (; end - d >= 3; d += 3, e += 4) {
+            int inBuff = src.getUnsignedMedium(d);
+            if (swapSrc) {
+                inBuff = Integer.reverseBytes(inBuff) >>> 8;
+            }
+
+            int outBuff = ENCODE_TABLE[inBuff >>> 12] << 16 | ENCODE_TABLE[inBuff & 0xfff];
+            dest.setInt(e, swapDest? Integer.reverseBytes(outBuff) : outBuff);
 
             lineLength += 4;
             if (breakLines && lineLength == MAX_LINE_LENGTH) {
@@ -134,12 +190,14 @@ public final class Base64 {
             } // end if: end of line
         } // end for: each piece of array
 
-        if (d < len) {
-            encode3to4(src, d + off, len - d, dest, e, dialect);
+        if (d < end) {
+            encode3to4(src, d, end - d, dest, e, dialect);
             e += 4;
+            lineLength += 4;
         } // end if: some padding needed
 
-        return dest.slice(0, e);
+        dest.writerIndex(e);
+        return lineLength;
     }
 
     private static void encode3to4(
@@ -216,22 +274,94 @@ public final class Base64 {
             throw new NullPointerException("dialect");
         }
 
-        byte[] DECODABET = decodabet(dialect);
+        ByteBuf dest = src.unsafe().newBuffer(len * 3 / 4).order(src.order()); // Upper limit on size of output
+        decode(src, off, len, dest, dialect);
+        return dest.slice();
+    }
 
-        int len34 = len * 3 / 4;
-        ByteBuf dest = src.unsafe().newBuffer(len34).order(src.order()); // Upper limit on size of output
-        int outBuffPosn = 0;
+    /**
+     * Decodes the readable bytes of {@code src} into {@code dest}, starting at its
+     * {@code writerIndex}.  Decoding stops after a quantum padded with an equals sign.
+     * An incomplete quantum at the end of {@code src} is left unread, so that it can be
+     * decoded once the rest of it has been received.
+     *
+     * @return the number of bytes read from {@code src}
+     */
+    public static int decode(ByteBuf src, ByteBuf dest, Base64Dialect dialect) {
+        if (src == null) {
+            throw new NullPointerException("src");
+        }
+        if (dest == null) {
+            throw new NullPointerException("dest");
+        }
+        if (dialect == null) {
+            throw new NullPointerException("dialect");
+        }
+
+        int read = decode(src, src.readerIndex(), src.readableBytes(), dest, dialect);
+        src.skipBytes(read);
+        return read;
+    }
+
+    /**
+     * Decodes {@code len} bytes of {@code src}, starting at {@code off}, into {@code dest},
+     * starting at its {@code writerIndex}.  Quanta of four alphabet characters are decoded
+     * with one table lookup per character and a single write of all three bytes.  Anything
+     * else, such as white space and padding, is decoded character by character.
+     *
+     * @return the number of bytes up to the end of the last decoded quantum
+     */
+    static int decode(ByteBuf src, int off, int len, ByteBuf dest, Base64Dialect dialect) {
+        dest.ensureWritableBytes(len / 4 * 3);
+
+        final byte[] DECODABET = decodabet(dialect);
+        final int[] DECODE_TABLE_0 = dialect.decodeTable0;
+        final int[] DECODE_TABLE_1 = dialect.decodeTable1;
+        final int[] DECODE_TABLE_2 = dialect.decodeTable2;
+        final int[] DECODE_TABLE_3 = dialect.decodeTable3;
+        final boolean swapSrc = src.order() == ByteOrder.LITTLE_ENDIAN;
+        final boolean swapDest = dest.order() == ByteOrder.LITTLE_ENDIAN;
+        final int end = off + len;
+        int outBuffPosn = dest.writerIndex();
+        int decoded = off;
 
         byte[] b4 = new byte[4];
         int b4Posn = 0;
-        int i;
+        int i = off;
         byte sbiCrop;
         byte sbiDecode;
-        for (i = off; i < off + len; i ++) {
+        while (i < end) {
+            if (b4Posn == 0) {
+                for (; end - i >= 4; i += 4, outBuffPosn += 3) {
+                    int inBuff = src.getInt(i);
+                    if (swapSrc) {
+                        inBuff = Integer.reverseBytes(inBuff);
+                    }
+
+                    int outBuff =
+                            DECODE_TABLE_0[inBuff >>> 24       ] |
+                            DECODE_TABLE_1[inBuff >>> 16 & 0xff] |
+                            DECODE_TABLE_2[inBuff >>>  8 & 0xff] |
+                            DECODE_TABLE_3[inBuff        & 0xff];
+                    if (outBuff < 0) {
+                        // Not four alphabet characters
+                        break;
+                    }
+
+                    dest.setMedium(outBuffPosn, swapDest? Integer.reverseBytes(outBuff) >>> 8 : outBuff);
+                }
+
+                decoded = i;
+                if (i == end) {
+                    break;
+                }
+            }
+
             sbiCrop = (byte) (src.getByte(i) & 0x7f); // Only the low seven bits
             sbiDecode = DECODABET[sbiCrop];
 
             if (sbiDecode >= WHITE_SPACE_ENC) { // White space, Equals sign or better
+                i ++;
                 if (sbiDecode >= EQUALS_SIGN_ENC) { // Equals sign or better
                     b4[b4Posn ++] = sbiCrop;
                     if (b4Posn > 3) { // Quartet built
@@ -239,7 +369,7 @@ public final class Base64 {
                                 b4, 0, dest, outBuffPosn, dialect);
                         b4Posn = 0;
 
-                        // If that was the equals sign, break out of 'for' loop
+                        // If that was the equals sign, break out of the loop
                         if (sbiCrop == EQUALS_SIGN) {
                             break;
                         }
@@ -252,7 +382,12 @@ public final class Base64 {
             }
         }
 
-        return dest.slice(0, outBuffPosn);
+        if (b4Posn == 0) {
+            decoded = i;
+        }
+
+        dest.writerIndex(outBuffPosn);
+        return decoded - off;
     }
 
     private static int decode4to3(
@@ -19,6 +19,8 @@
  */
 package io.netty.handler.codec.base64;
 
+import java.util.Arrays;
+
 /**
  * Enumeration of supported Base64 dialects.
  * <p>
@@ -199,9 +201,41 @@ public enum Base64Dialect {
     final byte[] decodabet;
     final boolean breakLinesByDefault;
 
+    /**
+     * Two characters of the alphabet, indexed by twelve bits of the input.
+     */
+    final short[] encodeTable = new short[4096];
+
+    /**
+     * The six bits each alphabet character decodes to, shifted into place for the first,
+     * second, third and fourth character of a quantum respectively.  Any other byte maps
+     * to {@code -1}, so that a quantum decoded with a negative result has to be examined
+     * character by character.
+     */
+    final int[] decodeTable0 = new int[256];
+    final int[] decodeTable1 = new int[256];
+    final int[] decodeTable2 = new int[256];
+    final int[] decodeTable3 = new int[256];
+
     Base64Dialect(byte[] alphabet, byte[] decodabet, boolean breakLinesByDefault) {
         this.alphabet = alphabet;
         this.decodabet = decodabet;
         this.breakLinesByDefault = breakLinesByDefault;
+
+        for (int i = 0; i < encodeTable.length; i ++) {
+            encodeTable[i] = (short) (alphabet[i >>> 6] << 8 | alphabet[i & 0x3f]);
+        }
+
+        Arrays.fill(decodeTable0, -1);
+        Arrays.fill(decodeTable1, -1);
+        Arrays.fill(decodeTable2, -1);
+        Arrays.fill(decodeTable3, -1);
+        for (int i = 0; i < alphabet.length; i ++) {
+            int c = alphabet[i] & 0xff;
+            decodeTable0[c] = i << 18;
+            decodeTable1[c] = i << 12;
+            decodeTable2[c] = i << 6;
+            decodeTable3[c] = i;
+        }
     }
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.base64;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.ByteToByteDecoder;
+
+/**
+ * Decodes a Base64-encoded byte stream as it is received.  Unlike {@link Base64Decoder},
+ * it does not need a frame decoder in front of it and never holds more than an incomplete
+ * quantum of the encoded data, so it can be used for payloads of any size:
+ * <pre>
+ * {@link ChannelPipeline} pipeline = ...;
+ *
+ * // Decoder
+ * pipeline.addLast("base64Decoder", new {@link Base64StreamDecoder}());
+ *
+ * // Encoder
+ * pipeline.addLast("base64Encoder", new {@link Base64StreamEncoder}());
+ * </pre>
+ * Encoded data which follows a padded quantum is decoded as well, so a stream of
+ * concatenated Base64 payloads is decoded into the concatenation of their contents.
+ *
+ * @apiviz.uses io.netty.handler.codec.base64.Base64
+ */
+public class Base64StreamDecoder extends ByteToByteDecoder {
+
+    private final Base64Dialect dialect;
+
+    public Base64StreamDecoder() {
+        this(Base64Dialect.STANDARD);
+    }
+
+    public Base64StreamDecoder(Base64Dialect dialect) {
+        if (dialect == null) {
+            throw new NullPointerException("dialect");
+        }
+        this.dialect = dialect;
+    }
+
+    @Override
+    public void decode(ChannelHandlerContext ctx, ByteBuf in, ByteBuf out) throws Exception {
+        Base64.decode(in, out, dialect);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.base64;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToByteEncoder;
+
+/**
+ * Encodes a byte stream into Base64 as it is written.  Unlike {@link Base64Encoder}, it
+ * encodes the written bytes as one continuous stream rather than message by message: the
+ * bytes which do not complete a group of three are kept until more bytes are written, and
+ * the last of them are encoded with padding when the channel is closed.
+ *
+ * @apiviz.uses io.netty.handler.codec.base64.Base64
+ */
+public class Base64StreamEncoder extends ByteToByteEncoder {
+
+    private final boolean breakLines;
+    private final Base64Dialect dialect;
+    private int lineLength;
+
+    public Base64StreamEncoder() {
+        this(true);
+    }
+
+    public Base64StreamEncoder(boolean breakLines) {
+        this(breakLines, Base64Dialect.STANDARD);
+    }
+
+    public Base64StreamEncoder(boolean breakLines, Base64Dialect dialect) {
+        if (dialect == null) {
+            throw new NullPointerException("dialect");
+        }
+
+        this.breakLines = breakLines;
+        this.dialect = dialect;
+    }
+
+    @Override
+    public void encode(ChannelHandlerContext ctx, ByteBuf in, ByteBuf out) throws Exception {
+        int len = in.readableBytes() / 3 * 3;
+        if (len == 0) {
+            return;
+        }
+
+        lineLength = Base64.encode(in, in.readerIndex(), len, out, breakLines, lineLength, dialect);
+        in.skipBytes(len);
+    }
+
+    @Override
+    public void close(final ChannelHandlerContext ctx, final ChannelFuture future) throws Exception {
+        ByteBuf in = ctx.outboundByteBuffer();
+        if (!in.readable()) {
+            ctx.close(future);
+            return;
+        }
+
+        int len = in.readableBytes();
+        lineLength = Base64.encode(
+                in, in.readerIndex(), len, ctx.nextOutboundByteBuffer(), breakLines, lineLength, dialect);
+        in.skipBytes(len);
+
+        ctx.flush(ctx.newFuture()).addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture f) throws Exception {
+                ctx.close(future);
+            }
+        });
+    }
+}
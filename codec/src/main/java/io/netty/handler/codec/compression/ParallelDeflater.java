@@ -0,0 +1,462 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.EventExecutor;
+import io.netty.channel.EventExecutorGroup;
+import io.netty.channel.SingleThreadEventExecutor;
+import io.netty.util.internal.DetectionUtil;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses a byte stream in blocks which are deflated in parallel by an
+ * {@link EventExecutorGroup}, in the same manner as <a href="http://zlib.net/pigz/">pigz</a>.
+ * <p>
+ * Every block is deflated independently, primed with the last 32 KiB of the preceding
+ * input as a preset dictionary and terminated with a sync flush, so that the
+ * concatenation of the compressed blocks is a single valid deflate stream.  The
+ * checksum of each block is computed by the worker which compresses it and the
+ * checksums are combined as the blocks are emitted, so the thread which drives the
+ * {@link ParallelDeflater} only copies the input and writes the header and the trailer.
+ * <p>
+ * All methods must be called from the {@link EventExecutor} specified in the constructor.
+ * The {@link Listener} is notified from the same {@link EventExecutor}, in the order in
+ * which the input was given, as soon as the next block of the compressed stream is ready.
+ * <p>
+ * Requires Java 7 or above, whose {@link Deflater} supports sync flush.
+ */
+public final class ParallelDeflater {
+
+    /**
+     * The default number of the uncompressed bytes in a block, which is also what pigz uses.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 131072;
+
+    private static final int DICTIONARY_SIZE = 32768;
+
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+    /**
+     * The {@link Deflater}s of a worker thread, one per compression level.  They are reset
+     * rather than ended after each block so that their native state is allocated only once,
+     * and ended by a shutdown hook of the worker.
+     */
+    private static final ThreadLocal<Deflater[]> DEFLATERS = new ThreadLocal<Deflater[]>();
+
+    /**
+     * Receives the compressed stream from a {@link ParallelDeflater}.
+     */
+    public interface Listener {
+        /**
+         * Invoked when the next block of the compressed stream is ready.
+         *
+         * @param last {@code true} if and only if {@code out} ends the compressed stream
+         */
+        void deflated(ByteBuf out, boolean last);
+
+        /**
+         * Invoked when a block could not be compressed.  No more blocks are emitted after this.
+         */
+        void deflateFailed(Throwable cause);
+    }
+
+    private final ZlibWrapper wrapper;
+    private final int compressionLevel;
+    private final int blockSize;
+    private final EventExecutorGroup workers;
+    private final EventExecutor executor;
+    private final Listener listener;
+    private final Queue<Block> blocks = new ArrayDeque<Block>();
+    private final Runnable emitTask = new Runnable() {
+        @Override
+        public void run() {
+            emit();
+        }
+    };
+
+    private byte[] dictionary;
+    private long submittedBlocks;
+    private long emittedBlocks;
+    private boolean finished;
+    private boolean closed;
+    private long checksum;
+    private long totalIn;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param wrapper           the wrapper of the compressed stream
+     * @param compressionLevel  {@code 1} yields the fastest compression and {@code 9} yields the
+     *                          best compression.  {@code 0} means no compression.
+     * @param blockSize         the number of the uncompressed bytes in a block
+     * @param workers           the {@link EventExecutorGroup} which compresses the blocks
+     * @param executor          the {@link EventExecutor} which drives this deflater
+     * @param listener          the {@link Listener} which receives the compressed stream
+     */
+    public ParallelDeflater(
+            ZlibWrapper wrapper, int compressionLevel, int blockSize,
+            EventExecutorGroup workers, EventExecutor executor, Listener listener) {
+        if (wrapper == null) {
+            throw new NullPointerException("wrapper");
+        }
+        if (wrapper == ZlibWrapper.ZLIB_OR_NONE) {
+            throw new IllegalArgumentException(
+                    "wrapper '" + ZlibWrapper.ZLIB_OR_NONE + "' is not " +
+                    "allowed for compression.");
+        }
+        if (compressionLevel < 0 || compressionLevel > 9) {
+            throw new IllegalArgumentException(
+                    "compressionLevel: " + compressionLevel + " (expected: 0-9)");
+        }
+        if (blockSize < DICTIONARY_SIZE) {
+            throw new IllegalArgumentException(
+                    "blockSize: " + blockSize + " (expected: >= " + DICTIONARY_SIZE + ')');
+        }
+        if (workers == null) {
+            throw new NullPointerException("workers");
+        }
+        if (executor == null) {
+            throw new NullPointerException("executor");
+        }
+        if (listener == null) {
+            throw new NullPointerException("listener");
+        }
+        if (DetectionUtil.javaVersion() < 7) {
+            // Deflater does not support sync flush.
+            throw new UnsupportedOperationException(
+                    ParallelDeflater.class.getSimpleName() + " requires Java 7 or above.");
+        }
+
+        this.wrapper = wrapper;
+        this.compressionLevel = compressionLevel;
+        this.blockSize = blockSize;
+        this.workers = workers;
+        this.executor = executor;
+        this.listener = listener;
+    }
+
+    /**
+     * Splits all readable bytes of the specified buffer into blocks and hands them to
+     * the workers.  The last block is sync-flushed as well, so the compressed stream
+     * contains all input given so far once the returned block has been emitted.
+     *
+     * @param last  {@code true} to end the compressed stream after the specified input
+     *
+     * @return the number of the blocks submitted so far, including the ones submitted
+     *         by this call, which can be compared with the number of the blocks emitted
+     *         so far to tell when the specified input has been emitted
+     */
+    public long deflate(ByteBuf in, boolean last) {
+        if (finished) {
+            throw new IllegalStateException("finished already");
+        }
+
+        do {
+            int length = Math.min(in.readableBytes(), blockSize);
+            byte[] data = new byte[length];
+            in.readBytes(data);
+
+            boolean lastBlock = last && !in.readable();
+            EventExecutor worker = workers.next();
+            Block block = new Block(worker, data, dictionary, submittedBlocks == 0, lastBlock);
+            dictionary = nextDictionary(dictionary, data);
+            blocks.add(block);
+            submittedBlocks ++;
+            worker.execute(block);
+        } while (in.readable());
+
+        finished = last;
+        return submittedBlocks;
+    }
+
+    /**
+     * Returns the number of the blocks submitted to the workers so far.
+     */
+    public long submittedBlocks() {
+        return submittedBlocks;
+    }
+
+    /**
+     * Returns the number of the blocks emitted to the {@link Listener} so far.
+     */
+    public long emittedBlocks() {
+        return emittedBlocks;
+    }
+
+    /**
+     * Returns {@code true} if and only if there are blocks which were submitted but
+     * not emitted yet.
+     */
+    public boolean isBusy() {
+        return !closed && !blocks.isEmpty();
+    }
+
+    /**
+     * Discards all blocks which were not emitted yet.  The {@link Listener} is not
+     * notified anymore.
+     */
+    public void abort() {
+        closed = true;
+        finished = true;
+        blocks.clear();
+        dictionary = null;
+    }
+
+    private static byte[] nextDictionary(byte[] dictionary, byte[] data) {
+        if (data.length >= DICTIONARY_SIZE) {
+            return Arrays.copyOfRange(data, data.length - DICTIONARY_SIZE, data.length);
+        }
+        if (dictionary == null) {
+            return data.length == 0? null : data.clone();
+        }
+
+        // A small block - keep the tail of the previous dictionary.
+        int keep = Math.min(dictionary.length, DICTIONARY_SIZE - data.length);
+        byte[] next = new byte[keep + data.length];
+        System.arraycopy(dictionary, dictionary.length - keep, next, 0, keep);
+        System.arraycopy(data, 0, next, keep, data.length);
+        return next;
+    }
+
+    private void emit() {
+        for (;;) {
+            if (closed) {
+                return;
+            }
+            Block block = blocks.peek();
+            if (block == null || !block.done) {
+                return;
+            }
+            blocks.remove();
+
+            if (block.cause != null) {
+                abort();
+                listener.deflateFailed(block.cause);
+                return;
+            }
+
+            if (block.first) {
+                checksum = block.checksum;
+            } else if (wrapper == ZlibWrapper.GZIP) {
+                checksum = ZlibUtil.crc32Combine(checksum, block.checksum, block.in.length);
+            } else if (wrapper == ZlibWrapper.ZLIB) {
+                checksum = ZlibUtil.adler32Combine(checksum, block.checksum, block.in.length);
+            }
+            totalIn += block.in.length;
+
+            int length = block.outLength;
+            if (block.last) {
+                length = writeTrailer(block.out, length);
+                closed = true;
+            }
+            emittedBlocks ++;
+            listener.deflated(Unpooled.wrappedBuffer(block.out, 0, length), block.last);
+        }
+    }
+
+    private int headerLength() {
+        switch (wrapper) {
+        case GZIP:
+            return GZIP_HEADER.length;
+        case ZLIB:
+            return 2;
+        default:
+            return 0;
+        }
+    }
+
+    private int trailerLength() {
+        switch (wrapper) {
+        case GZIP:
+            return 8;
+        case ZLIB:
+            return 4;
+        default:
+            return 0;
+        }
+    }
+
+    private void writeHeader(byte[] out) {
+        switch (wrapper) {
+        case GZIP:
+            System.arraycopy(GZIP_HEADER, 0, out, 0, GZIP_HEADER.length);
+            break;
+        case ZLIB:
+            int levelFlags = compressionLevel < 2? 0 : compressionLevel < 6? 1 : compressionLevel == 6? 2 : 3;
+            int header = 0x7800 | levelFlags << 6;
+            header += 31 - header % 31;
+            out[0] = (byte) (header >>> 8);
+            out[1] = (byte) header;
+            break;
+        default:
+            break;
+        }
+    }
+
+    private int writeTrailer(byte[] out, int index) {
+        switch (wrapper) {
+        case GZIP:
+            int crc = (int) checksum;
+            int isize = (int) totalIn;
+            out[index ++] = (byte) crc;
+            out[index ++] = (byte) (crc >>> 8);
+            out[index ++] = (byte) (crc >>> 16);
+            out[index ++] = (byte) (crc >>> 24);
+            out[index ++] = (byte) isize;
+            out[index ++] = (byte) (isize >>> 8);
+            out[index ++] = (byte) (isize >>> 16);
+            out[index ++] = (byte) (isize >>> 24);
+            break;
+        case ZLIB:
+            int adler = (int) checksum;
+            out[index ++] = (byte) (adler >>> 24);
+            out[index ++] = (byte) (adler >>> 16);
+            out[index ++] = (byte) (adler >>> 8);
+            out[index ++] = (byte) adler;
+            break;
+        default:
+            break;
+        }
+        return index;
+    }
+
+    /**
+     * Returns the cached {@link Deflater}s of the specified worker, or {@code null} if they
+     * can not be ended when the worker shuts down and thus must not be cached.
+     */
+    private static Deflater[] deflaters(EventExecutor worker) {
+        if (!(worker instanceof SingleThreadEventExecutor) || !worker.inEventLoop()) {
+            return null;
+        }
+
+        Deflater[] deflaters = DEFLATERS.get();
+        if (deflaters == null) {
+            final Deflater[] newDeflaters = new Deflater[10];
+            DEFLATERS.set(newDeflaters);
+            ((SingleThreadEventExecutor) worker).addShutdownHook(new Runnable() {
+                @Override
+                public void run() {
+                    DEFLATERS.remove();
+                    for (Deflater deflater: newDeflaters) {
+                        if (deflater != null) {
+                            deflater.end();
+                        }
+                    }
+                }
+            });
+            deflaters = newDeflaters;
+        }
+        return deflaters;
+    }
+
+    private final class Block implements Runnable {
+        final EventExecutor worker;
+        final byte[] in;
+        final byte[] dictionary;
+        final boolean first;
+        final boolean last;
+
+        // Written by a worker, and read by the executor after reading 'done'.
+        byte[] out;
+        int outLength;
+        long checksum;
+        Throwable cause;
+        volatile boolean done;
+
+        Block(EventExecutor worker, byte[] in, byte[] dictionary, boolean first, boolean last) {
+            this.worker = worker;
+            this.in = in;
+            this.dictionary = dictionary;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        public void run() {
+            try {
+                deflate();
+            } catch (Throwable t) {
+                cause = t;
+            }
+            done = true;
+            executor.execute(emitTask);
+        }
+
+        private void deflate() {
+            int headerLength = first? headerLength() : 0;
+            int trailerLength = last? trailerLength() : 0;
+
+            // deflateBound() of zlib plus the 5 bytes of a sync flush
+            int bound = in.length + (in.length >>> 12) + (in.length >>> 14) + (in.length >>> 25) + 18;
+            out = new byte[headerLength + bound + trailerLength];
+            writeHeader(out);
+            outLength = headerLength;
+
+            if (wrapper != ZlibWrapper.NONE) {
+                Checksum c = wrapper == ZlibWrapper.GZIP? new CRC32() : new Adler32();
+                c.update(in, 0, in.length);
+                checksum = c.getValue();
+            }
+
+            Deflater[] deflaters = deflaters(worker);
+            Deflater deflater = deflaters == null? null : deflaters[compressionLevel];
+            if (deflater == null) {
+                deflater = new Deflater(compressionLevel, true);
+                if (deflaters != null) {
+                    deflaters[compressionLevel] = deflater;
+                }
+            }
+
+            try {
+                if (dictionary != null) {
+                    deflater.setDictionary(dictionary);
+                }
+                deflater.setInput(in);
+                if (last) {
+                    deflater.finish();
+                }
+
+                int flush = last? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH;
+                for (;;) {
+                    int space = out.length - trailerLength - outLength;
+                    int numBytes = deflater.deflate(out, outLength, space, flush);
+                    outLength += numBytes;
+                    if (last? deflater.finished() : numBytes < space) {
+                        break;
+                    }
+                    if (numBytes == space) {
+                        out = Arrays.copyOf(out, out.length << 1);
+                    }
+                }
+            } finally {
+                if (deflaters != null) {
+                    deflater.reset();
+                } else {
+                    deflater.end();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.EventExecutorGroup;
+import io.netty.util.internal.DetectionUtil;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compresses a {@link ByteBuf} using the deflate algorithm, splitting the stream into
+ * blocks which are compressed in parallel by a {@link ParallelDeflater}.  The event loop
+ * of the channel only copies the outbound data, so a large transfer never stalls the
+ * other channels of the same event loop.  The compressed blocks are written in order as
+ * soon as they are ready, and the future of a flush is notified once all data written
+ * before the flush has been compressed and flushed.
+ * <p>
+ * Every flush ends a block, so this encoder is meant for bulk transfers which are
+ * written in large pieces.  It requires Java 7 or above, whose {@link java.util.zip.Deflater}
+ * supports sync flush.
+ * @apiviz.landmark
+ * @apiviz.has io.netty.handler.codec.compression.ParallelDeflater
+ */
+public class ParallelZlibEncoder extends ZlibEncoder {
+
+    private final ZlibWrapper wrapper;
+    private final int compressionLevel;
+    private final int blockSize;
+    private final EventExecutorGroup workers;
+    private final Queue<PendingFlush> pendingFlushes = new ArrayDeque<PendingFlush>();
+    private ParallelDeflater deflater;
+    private boolean finished;
+    private volatile ChannelHandlerContext ctx;
+
+    /**
+     * Creates a new zlib encoder with the specified {@code compressionLevel}, the specified
+     * wrapper and the default block size ({@code 128 KiB}).
+     *
+     * @param compressionLevel
+     *        {@code 1} yields the fastest compression and {@code 9} yields the
+     *        best compression.  {@code 0} means no compression.  The default
+     *        compression level is {@code 6}.
+     * @param workers
+     *        the {@link EventExecutorGroup} which compresses the blocks
+     */
+    public ParallelZlibEncoder(ZlibWrapper wrapper, int compressionLevel, EventExecutorGroup workers) {
+        this(wrapper, compressionLevel, ParallelDeflater.DEFAULT_BLOCK_SIZE, workers);
+    }
+
+    /**
+     * Creates a new zlib encoder with the specified {@code compressionLevel}, the specified
+     * wrapper and the specified block size.
+     *
+     * @param compressionLevel
+     *        {@code 1} yields the fastest compression and {@code 9} yields the
+     *        best compression.  {@code 0} means no compression.  The default
+     *        compression level is {@code 6}.
+     * @param blockSize
+     *        the number of the uncompressed bytes compressed by a worker at once.
+     *        Must be {@code 32768} or greater.
+     * @param workers
+     *        the {@link EventExecutorGroup} which compresses the blocks
+     */
+    public ParallelZlibEncoder(
+            ZlibWrapper wrapper, int compressionLevel, int blockSize, EventExecutorGroup workers) {
+        if (wrapper == null) {
+            throw new NullPointerException("wrapper");
+        }
+        if (wrapper == ZlibWrapper.ZLIB_OR_NONE) {
+            throw new IllegalArgumentException(
+                    "wrapper '" + ZlibWrapper.ZLIB_OR_NONE + "' is not " +
+                    "allowed for compression.");
+        }
+        if (compressionLevel < 0 || compressionLevel > 9) {
+            throw new IllegalArgumentException(
+                    "compressionLevel: " + compressionLevel + " (expected: 0-9)");
+        }
+        if (blockSize < 32768) {
+            throw new IllegalArgumentException(
+                    "blockSize: " + blockSize + " (expected: >= 32768)");
+        }
+        if (workers == null) {
+            throw new NullPointerException("workers");
+        }
+        if (DetectionUtil.javaVersion() < 7) {
+            // Deflater does not support sync flush.
+            throw new UnsupportedOperationException(
+                    ParallelZlibEncoder.class.getSimpleName() + " requires Java 7 or above.");
+        }
+
+        this.wrapper = wrapper;
+        this.compressionLevel = compressionLevel;
+        this.blockSize = blockSize;
+        this.workers = workers;
+    }
+
+    @Override
+    public ChannelFuture close() {
+        return close(ctx().newFuture());
+    }
+
+    @Override
+    public ChannelFuture close(final ChannelFuture future) {
+        final ChannelHandlerContext ctx = ctx();
+        if (ctx.executor().inEventLoop()) {
+            finishEncode(ctx, future);
+        } else {
+            ctx.executor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    finishEncode(ctx, future);
+                }
+            });
+        }
+        return future;
+    }
+
+    private ChannelHandlerContext ctx() {
+        ChannelHandlerContext ctx = this.ctx;
+        if (ctx == null) {
+            throw new IllegalStateException("not added to a pipeline");
+        }
+        return ctx;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return finished;
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx, ChannelFuture future) throws Exception {
+        ByteBuf in = ctx.outboundByteBuffer();
+        if (in.readable()) {
+            try {
+                encode(ctx, in, ctx.nextOutboundByteBuffer());
+            } catch (Throwable t) {
+                if (t instanceof CompressionException) {
+                    ctx.fireExceptionCaught(t);
+                } else {
+                    ctx.fireExceptionCaught(new CompressionException(t));
+                }
+            }
+            in.unsafe().discardSomeReadBytes();
+        }
+
+        if (deflater != null && deflater.isBusy()) {
+            pendingFlushes.add(new PendingFlush(deflater.submittedBlocks(), future));
+        } else {
+            ctx.flush(future);
+        }
+    }
+
+    @Override
+    public void encode(ChannelHandlerContext ctx, ByteBuf in, ByteBuf out) throws Exception {
+        if (finished) {
+            out.writeBytes(in);
+            return;
+        }
+
+        deflater(ctx).deflate(in, false);
+    }
+
+    @Override
+    public void close(final ChannelHandlerContext ctx, final ChannelFuture future) throws Exception {
+        ChannelFuture f = finishEncode(ctx, ctx.newFuture());
+        f.addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture f) throws Exception {
+                ctx.close(future);
+            }
+        });
+
+        if (!f.isDone()) {
+            // Ensure the channel is closed even if the write operation completes in time.
+            ctx.executor().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    ctx.close(future);
+                }
+            }, 10, TimeUnit.SECONDS); // FIXME: Magic number
+        }
+    }
+
+    private ChannelFuture finishEncode(ChannelHandlerContext ctx, ChannelFuture future) {
+        if (finished) {
+            future.setSuccess();
+            return future;
+        }
+
+        finished = true;
+        pendingFlushes.add(new PendingFlush(deflater(ctx).deflate(Unpooled.EMPTY_BUFFER, true), future));
+        return future;
+    }
+
+    private ParallelDeflater deflater(final ChannelHandlerContext ctx) {
+        if (deflater == null) {
+            deflater = new ParallelDeflater(
+                    wrapper, compressionLevel, blockSize, workers, ctx.executor(),
+                    new ParallelDeflater.Listener() {
+                @Override
+                public void deflated(ByteBuf out, boolean last) {
+                    ctx.nextOutboundByteBuffer().writeBytes(out);
+
+                    PendingFlush pending = pendingFlushes.peek();
+                    if (pending == null || pending.blocks > deflater.emittedBlocks()) {
+                        ctx.flush();
+                        return;
+                    }
+
+                    do {
+                        pendingFlushes.remove();
+                        ctx.flush(pending.future);
+                        pending = pendingFlushes.peek();
+                    } while (pending != null && pending.blocks <= deflater.emittedBlocks());
+                }
+
+                @Override
+                public void deflateFailed(Throwable cause) {
+                    // The compressed stream can not be continued after the missing block.
+                    CompressionException e = new CompressionException("failed to compress a block", cause);
+                    failPendingFlushes(e);
+                    ctx.fireExceptionCaught(e);
+                    ctx.close();
+                }
+            });
+        }
+        return deflater;
+    }
+
+    private void failPendingFlushes(Throwable cause) {
+        for (;;) {
+            PendingFlush pending = pendingFlushes.poll();
+            if (pending == null) {
+                break;
+            }
+            pending.future.setFailure(cause);
+        }
+    }
+
+    private void destroy() {
+        if (deflater != null) {
+            deflater.abort();
+        }
+        finished = true;
+        failPendingFlushes(new ClosedChannelException());
+    }
+
+    @Override
+    public void beforeAdd(ChannelHandlerContext ctx) throws Exception {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void afterRemove(ChannelHandlerContext ctx) throws Exception {
+        destroy();
+        super.afterRemove(ctx);
+    }
+
+    private static final class PendingFlush {
+        final long blocks;
+        final ChannelFuture future;
+
+        PendingFlush(long blocks, ChannelFuture future) {
+            this.blocks = blocks;
+            this.future = future;
+        }
+    }
+}
@@ -19,7 +19,7 @@ import io.netty.util.internal.jzlib.JZlib;
 import io.netty.util.internal.jzlib.ZStream;
 
 /**
- * Utility methods used by {@link JZlibEncoder} and {@link JZlibDecoder}.
+ * Utility methods used by {@link JZlibEncoder}, {@link JZlibDecoder} and {@link ParallelDeflater}.
  */
 final class ZlibUtil {
 
@@ -53,6 +53,94 @@ final class ZlibUtil {
         return convertedWrapperType;
     }
 
+    /**
+     * Returns the CRC-32 of two concatenated byte sequences from the CRC-32 of each sequence
+     * and the length of the second sequence, as {@code crc32_combine()} of zlib does.
+     */
+    static long crc32Combine(long crc1, long crc2, long len2) {
+        if (len2 <= 0) {
+            return crc1;
+        }
+
+        long[] even = new long[32];
+        long[] odd = new long[32];
+
+        // Put the operator for one zero bit in odd.
+        odd[0] = 0xedb88320L;
+        long row = 1;
+        for (int n = 1; n < 32; n ++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+
+        // Put the operator for two zero bits in even and four zero bits in odd.
+        gf2MatrixSquare(even, odd);
+        gf2MatrixSquare(odd, even);
+
+        // Apply len2 zeros to crc1.  The first square puts the operator for one zero byte,
+        // eight zero bits, in even.
+        do {
+            gf2MatrixSquare(even, odd);
+            if ((len2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(even, crc1);
+            }
+            len2 >>>= 1;
+            if (len2 == 0) {
+                break;
+            }
+
+            gf2MatrixSquare(odd, even);
+            if ((len2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(odd, crc1);
+            }
+            len2 >>>= 1;
+        } while (len2 != 0);
+
+        return crc1 ^ crc2;
+    }
+
+    private static long gf2MatrixTimes(long[] mat, long vec) {
+        long sum = 0;
+        for (int i = 0; vec != 0; i ++, vec >>>= 1) {
+            if ((vec & 1) != 0) {
+                sum ^= mat[i];
+            }
+        }
+        return sum;
+    }
+
+    private static void gf2MatrixSquare(long[] square, long[] mat) {
+        for (int n = 0; n < 32; n ++) {
+            square[n] = gf2MatrixTimes(mat, mat[n]);
+        }
+    }
+
+    /**
+     * Returns the Adler-32 of two concatenated byte sequences from the Adler-32 of each sequence
+     * and the length of the second sequence, as {@code adler32_combine()} of zlib does.
+     */
+    static long adler32Combine(long adler1, long adler2, long len2) {
+        final long base = 65521;
+        long rem = len2 % base;
+        long sum1 = adler1 & 0xffff;
+        long sum2 = rem * sum1 % base;
+        sum1 += (adler2 & 0xffff) + base - 1;
+        sum2 += (adler1 >>> 16 & 0xffff) + (adler2 >>> 16 & 0xffff) + base - rem;
+        if (sum1 >= base) {
+            sum1 -= base;
+        }
+        if (sum1 >= base) {
+            sum1 -= base;
+        }
+        if (sum2 >= base << 1) {
+            sum2 -= base << 1;
+        }
+        if (sum2 >= base) {
+            sum2 -= base;
+        }
+        return sum1 | sum2 << 16;
+    }
+
     private ZlibUtil() {
     }
 }
@@ -71,6 +71,9 @@ public class CompatibleMarshallingDecoder extends ReplayingDecoder<Object, Void>
             // Call close in a finally block as the ReplayingDecoder will throw an Error if not enough bytes are
             // readable. This helps to be sure that we do not leak resource
             unmarshaller.close();
+            if (provider instanceof PooledUnmarshallerProvider) {
+                ((PooledUnmarshallerProvider) provider).release(ctx, unmarshaller);
+            }
         }
     }
 
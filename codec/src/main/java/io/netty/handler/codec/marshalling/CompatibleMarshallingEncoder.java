@@ -56,6 +56,9 @@ public class CompatibleMarshallingEncoder extends MessageToByteEncoder<Object> {
         marshaller.writeObject(msg);
         marshaller.finish();
         marshaller.close();
+        if (provider instanceof PooledMarshallerProvider) {
+            ((PooledMarshallerProvider) provider).release(ctx, marshaller);
+        }
     }
 
 }
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.marshalling;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.EventExecutor;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool which keeps at most {@code maxPoolSize} idle instances per {@link EventExecutor}.
+ * An executor only ever touches its own pool, so the pools themselves need no synchronization.
+ * An instance which is acquired or released outside of the executor of the
+ * {@link ChannelHandlerContext} is not pooled.
+ */
+abstract class ExecutorBoundPool<T> {
+
+    private final ConcurrentMap<EventExecutor, Deque<T>> pools =
+            new ConcurrentHashMap<EventExecutor, Deque<T>>();
+    private final int maxPoolSize;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    ExecutorBoundPool(int maxPoolSize) {
+        if (maxPoolSize <= 0) {
+            throw new IllegalArgumentException(
+                    "maxPoolSize: " + maxPoolSize + " (expected: > 0)");
+        }
+        this.maxPoolSize = maxPoolSize;
+    }
+
+    /**
+     * Creates a new instance when the pool of the current executor is empty.
+     */
+    protected abstract T newInstance() throws Exception;
+
+    /**
+     * Resets the state of the specified instance before it is put back into the pool.
+     */
+    protected abstract void reset(T instance) throws Exception;
+
+    T acquire(ChannelHandlerContext ctx) throws Exception {
+        EventExecutor executor = ctx.executor();
+        if (executor.inEventLoop()) {
+            Deque<T> pool = pools.get(executor);
+            if (pool != null) {
+                T instance = pool.pollFirst();
+                if (instance != null) {
+                    hits.incrementAndGet();
+                    return instance;
+                }
+            }
+        }
+        misses.incrementAndGet();
+        return newInstance();
+    }
+
+    void release(ChannelHandlerContext ctx, T instance) throws Exception {
+        EventExecutor executor = ctx.executor();
+        if (!executor.inEventLoop()) {
+            return;
+        }
+        Deque<T> pool = pools.get(executor);
+        if (pool == null) {
+            pool = new ArrayDeque<T>(maxPoolSize);
+            pools.put(executor, pool);
+        }
+        if (pool.size() < maxPoolSize) {
+            reset(instance);
+            pool.addFirst(instance);
+        }
+    }
+
+    long hits() {
+        return hits.get();
+    }
+
+    long misses() {
+        return misses.get();
+    }
+}
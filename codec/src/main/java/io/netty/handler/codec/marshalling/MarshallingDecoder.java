@@ -79,6 +79,9 @@ public class MarshallingDecoder extends LengthFieldBasedFrameDecoder {
             // Call close in a finally block as the ReplayingDecoder will throw an Error if not enough bytes are
             // readable. This helps to be sure that we do not leak resource
             unmarshaller.close();
+            if (provider instanceof PooledUnmarshallerProvider) {
+                ((PooledUnmarshallerProvider) provider).release(ctx, unmarshaller);
+            }
         }
     }
 
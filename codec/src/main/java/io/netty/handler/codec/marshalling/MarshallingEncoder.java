@@ -59,6 +59,9 @@ public class MarshallingEncoder extends MessageToByteEncoder<Object> {
         marshaller.writeObject(msg);
         marshaller.finish();
         marshaller.close();
+        if (provider instanceof PooledMarshallerProvider) {
+            ((PooledMarshallerProvider) provider).release(ctx, marshaller);
+        }
 
         out.setInt(lengthPos, out.writerIndex() - lengthPos - 4);
     }
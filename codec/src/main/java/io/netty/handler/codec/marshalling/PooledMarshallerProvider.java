@@ -0,0 +1,97 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.marshalling;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.EventExecutor;
+
+import org.jboss.marshalling.Marshaller;
+import org.jboss.marshalling.MarshallerFactory;
+import org.jboss.marshalling.MarshallingConfiguration;
+
+/**
+ * {@link MarshallerProvider} implementation which keeps a small pool of {@link Marshaller}s per
+ * {@link EventExecutor}.  Unlike {@link ThreadLocalMarshallerProvider}, the number of idle
+ * {@link Marshaller}s is bounded, the instance cache of a {@link Marshaller} is cleared before
+ * it is reused, and it also works for handlers which run on an {@link EventExecutor} other than
+ * the event loop of the {@link io.netty.channel.Channel}.
+ * <p>
+ * A {@link Marshaller} is returned to the pool by {@link #release(ChannelHandlerContext, Marshaller)},
+ * which {@link MarshallingEncoder} and {@link CompatibleMarshallingEncoder} call once they are done.
+ */
+public class PooledMarshallerProvider implements MarshallerProvider {
+
+    private final ExecutorBoundPool<Marshaller> pool;
+
+    /**
+     * Create a new instance which keeps up to {@code 2} idle {@link Marshaller}s per {@link EventExecutor}.
+     *
+     * @param factory   the {@link MarshallerFactory} to use to create {@link Marshaller}'s if needed
+     * @param config    the {@link MarshallingConfiguration} to use
+     */
+    public PooledMarshallerProvider(MarshallerFactory factory, MarshallingConfiguration config) {
+        this(factory, config, 2);
+    }
+
+    /**
+     * Create a new instance
+     *
+     * @param factory       the {@link MarshallerFactory} to use to create {@link Marshaller}'s if needed
+     * @param config        the {@link MarshallingConfiguration} to use
+     * @param maxPoolSize   the maximum number of idle {@link Marshaller}s per {@link EventExecutor}
+     */
+    public PooledMarshallerProvider(
+            final MarshallerFactory factory, final MarshallingConfiguration config, int maxPoolSize) {
+        pool = new ExecutorBoundPool<Marshaller>(maxPoolSize) {
+            @Override
+            protected Marshaller newInstance() throws Exception {
+                return factory.createMarshaller(config);
+            }
+
+            @Override
+            protected void reset(Marshaller marshaller) throws Exception {
+                marshaller.clearInstanceCache();
+            }
+        };
+    }
+
+    @Override
+    public Marshaller getMarshaller(ChannelHandlerContext ctx) throws Exception {
+        return pool.acquire(ctx);
+    }
+
+    /**
+     * Return the given {@link Marshaller}, which was obtained by {@link #getMarshaller(ChannelHandlerContext)}
+     * and has been closed, to the pool.
+     */
+    public void release(ChannelHandlerContext ctx, Marshaller marshaller) throws Exception {
+        pool.release(ctx, marshaller);
+    }
+
+    /**
+     * Return the number of {@link Marshaller}s which were taken from the pool.
+     */
+    public long hits() {
+        return pool.hits();
+    }
+
+    /**
+     * Return the number of {@link Marshaller}s which had to be created because the pool was empty.
+     */
+    public long misses() {
+        return pool.misses();
+    }
+}
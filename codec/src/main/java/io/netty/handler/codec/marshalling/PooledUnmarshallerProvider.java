@@ -0,0 +1,97 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.marshalling;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.EventExecutor;
+
+import org.jboss.marshalling.MarshallerFactory;
+import org.jboss.marshalling.MarshallingConfiguration;
+import org.jboss.marshalling.Unmarshaller;
+
+/**
+ * {@link UnmarshallerProvider} implementation which keeps a small pool of {@link Unmarshaller}s per
+ * {@link EventExecutor}.  Unlike {@link ThreadLocalUnmarshallerProvider}, the number of idle
+ * {@link Unmarshaller}s is bounded, the instance cache of an {@link Unmarshaller} is cleared before
+ * it is reused, and it also works for handlers which run on an {@link EventExecutor} other than
+ * the event loop of the {@link io.netty.channel.Channel}.
+ * <p>
+ * An {@link Unmarshaller} is returned to the pool by {@link #release(ChannelHandlerContext, Unmarshaller)},
+ * which {@link MarshallingDecoder} and {@link CompatibleMarshallingDecoder} call once they are done.
+ */
+public class PooledUnmarshallerProvider implements UnmarshallerProvider {
+
+    private final ExecutorBoundPool<Unmarshaller> pool;
+
+    /**
+     * Create a new instance which keeps up to {@code 2} idle {@link Unmarshaller}s per {@link EventExecutor}.
+     *
+     * @param factory   the {@link MarshallerFactory} to use to create {@link Unmarshaller}'s if needed
+     * @param config    the {@link MarshallingConfiguration} to use
+     */
+    public PooledUnmarshallerProvider(MarshallerFactory factory, MarshallingConfiguration config) {
+        this(factory, config, 2);
+    }
+
+    /**
+     * Create a new instance
+     *
+     * @param factory       the {@link MarshallerFactory} to use to create {@link Unmarshaller}'s if needed
+     * @param config        the {@link MarshallingConfiguration} to use
+     * @param maxPoolSize   the maximum number of idle {@link Unmarshaller}s per {@link EventExecutor}
+     */
+    public PooledUnmarshallerProvider(
+            final MarshallerFactory factory, final MarshallingConfiguration config, int maxPoolSize) {
+        pool = new ExecutorBoundPool<Unmarshaller>(maxPoolSize) {
+            @Override
+            protected Unmarshaller newInstance() throws Exception {
+                return factory.createUnmarshaller(config);
+            }
+
+            @Override
+            protected void reset(Unmarshaller unmarshaller) throws Exception {
+                unmarshaller.clearInstanceCache();
+            }
+        };
+    }
+
+    @Override
+    public Unmarshaller getUnmarshaller(ChannelHandlerContext ctx) throws Exception {
+        return pool.acquire(ctx);
+    }
+
+    /**
+     * Return the given {@link Unmarshaller}, which was obtained by {@link #getUnmarshaller(ChannelHandlerContext)}
+     * and has been closed, to the pool.
+     */
+    public void release(ChannelHandlerContext ctx, Unmarshaller unmarshaller) throws Exception {
+        pool.release(ctx, unmarshaller);
+    }
+
+    /**
+     * Return the number of {@link Unmarshaller}s which were taken from the pool.
+     */
+    public long hits() {
+        return pool.hits();
+    }
+
+    /**
+     * Return the number of {@link Unmarshaller}s which had to be created because the pool was empty.
+     */
+    public long misses() {
+        return pool.misses();
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.marshalling;
+
+import io.netty.buffer.ByteBuf;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import org.jboss.marshalling.ByteInput;
+
+/**
+ * {@link ByteInput} implementation which reads a frame of a known length from the {@link ByteBuf}s
+ * fed by another thread, and blocks until the next {@link ByteBuf} is fed when it runs out of bytes.
+ * A {@link SocketTimeoutException} is raised if no {@link ByteBuf} is fed for the read timeout.
+ * <p>
+ * The feeding thread is told when more bytes than the specified maximum are queued, and the
+ * specified task is run by the reading thread once it has read enough of them.
+ */
+final class StreamingByteInput implements ByteInput {
+
+    private final Queue<ByteBuf> buffers = new ArrayDeque<ByteBuf>();
+    private final long readTimeoutMillis;
+    private final int maxQueuedBytes;
+    private final Runnable resumeTask;
+    private int queuedBytes;
+    private boolean suspended;
+    private boolean aborted;
+
+    // Only accessed by the reading thread
+    private ByteBuf buffer;
+    private int remaining;
+
+    /**
+     * @param length             the length of the frame, after which {@code -1} is returned
+     * @param readTimeoutMillis  the time to wait for the next part of the frame, or {@code 0} to wait forever
+     * @param maxQueuedBytes     the number of fed bytes which are not read yet above which the
+     *                           feeding should be suspended
+     * @param resumeTask         the task which is run once the suspended feeding can be resumed
+     */
+    StreamingByteInput(int length, long readTimeoutMillis, int maxQueuedBytes, Runnable resumeTask) {
+        remaining = length;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.maxQueuedBytes = maxQueuedBytes;
+        this.resumeTask = resumeTask;
+    }
+
+    /**
+     * Feeds the next part of the frame.
+     *
+     * @return {@code true} if the feeding should be suspended until the resume task is run
+     */
+    synchronized boolean feed(ByteBuf buffer) {
+        buffers.add(buffer);
+        queuedBytes += buffer.readableBytes();
+        notifyAll();
+        if (!suspended && queuedBytes > maxQueuedBytes) {
+            suspended = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Makes the reading thread fail instead of waiting for the parts which will never be fed.
+     */
+    synchronized void abort() {
+        aborted = true;
+        buffers.clear();
+        queuedBytes = 0;
+        notifyAll();
+    }
+
+    synchronized boolean isAborted() {
+        return aborted;
+    }
+
+    private ByteBuf buffer() throws IOException {
+        if (buffer != null && buffer.readable()) {
+            return buffer;
+        }
+
+        boolean resume = false;
+        synchronized (this) {
+            long deadline = System.currentTimeMillis() + readTimeoutMillis;
+            while (buffers.isEmpty()) {
+                if (aborted) {
+                    throw new EOFException("the frame was not received completely");
+                }
+                long waitMillis = 0;
+                if (readTimeoutMillis > 0) {
+                    waitMillis = deadline - System.currentTimeMillis();
+                    if (waitMillis <= 0) {
+                        throw new SocketTimeoutException(
+                                "no bytes of the frame received for " + readTimeoutMillis + " ms");
+                    }
+                }
+                try {
+                    wait(waitMillis);
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+            }
+            buffer = buffers.poll();
+            queuedBytes -= buffer.readableBytes();
+            if (suspended && queuedBytes <= maxQueuedBytes) {
+                suspended = false;
+                resume = true;
+            }
+        }
+        if (resume) {
+            resumeTask.run();
+        }
+        return buffer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // nothing to do
+    }
+
+    @Override
+    public int available() throws IOException {
+        return buffer == null? 0 : buffer.readableBytes();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (remaining == 0) {
+            return -1;
+        }
+        int b = buffer().readByte() & 0xff;
+        remaining --;
+        return b;
+    }
+
+    @Override
+    public int read(byte[] array) throws IOException {
+        return read(array, 0, array.length);
+    }
+
+    @Override
+    public int read(byte[] dst, int dstIndex, int length) throws IOException {
+        if (remaining == 0) {
+            return -1;
+        }
+        if (length == 0) {
+            return 0;
+        }
+
+        ByteBuf buffer = buffer();
+        length = Math.min(buffer.readableBytes(), length);
+        buffer.readBytes(dst, dstIndex, length);
+        remaining -= length;
+        return length;
+    }
+
+    @Override
+    public long skip(long bytes) throws IOException {
+        if (remaining == 0 || bytes <= 0) {
+            return 0;
+        }
+
+        ByteBuf buffer = buffer();
+        int length = (int) Math.min(buffer.readableBytes(), bytes);
+        buffer.skipBytes(length);
+        remaining -= length;
+        return length;
+    }
+}
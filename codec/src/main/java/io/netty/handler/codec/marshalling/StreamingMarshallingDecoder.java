@@ -0,0 +1,373 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.marshalling;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelHandlerUtil;
+import io.netty.channel.EventExecutor;
+import io.netty.channel.EventExecutorGroup;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.CodecException;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.DecoderException;
+import io.netty.handler.codec.TooLongFrameException;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.marshalling.ByteInput;
+import org.jboss.marshalling.Unmarshaller;
+
+/**
+ * Decoder which MUST be used with {@link MarshallingEncoder}.
+ * <p>
+ * Unlike {@link MarshallingDecoder}, this decoder does not wait until a large object is received
+ * completely.  Once the first bytes of an object whose length is at least the streaming threshold
+ * are received, the {@link Unmarshaller} is started on the given {@link EventExecutorGroup} and the
+ * received bytes are fed to it as they arrive, without being copied, so the unmarshalling is never
+ * restarted.  The objects which follow a large object are decoded after it, so the order of the
+ * objects is preserved.
+ * <p>
+ * The {@link Unmarshaller} blocks a thread of the {@link EventExecutorGroup} while it waits for
+ * more bytes, and a thread of a {@link EventExecutorGroup} runs its tasks one after another.
+ * Therefore:
+ * <ul>
+ * <li>The {@link EventExecutorGroup} must be dedicated to this decoder.  It must never be the
+ *     group of the event loop or of other handlers.</li>
+ * <li>An object is streamed only if a thread of the {@link EventExecutorGroup} is not busy with
+ *     another object, so that it never waits behind an object of a slow peer.  Otherwise it is
+ *     received completely and unmarshalled in the event loop like a small object.  The number of
+ *     threads of the {@link EventExecutorGroup} is thus the number of objects which are streamed
+ *     at the same time.</li>
+ * <li>While more than {@code 65536} received bytes have not been read by the {@link Unmarshaller}
+ *     yet, reading from the channel is suspended, so that a slow {@link Unmarshaller} does not make
+ *     the decoder buffer the whole object.</li>
+ * <li>If no bytes of the object are received for the read timeout, the unmarshalling fails with a
+ *     {@link DecoderException} and the thread is released.</li>
+ * </ul>
+ * <p>
+ * Smaller objects are unmarshalled in the event loop as soon as they are received completely,
+ * just like {@link MarshallingDecoder} does.
+ */
+public class StreamingMarshallingDecoder extends ByteToMessageDecoder<Object> {
+
+    // The number of bytes fed to the Unmarshaller but not read yet, above which reading is suspended.
+    private static final int MAX_QUEUED_BYTES = 65536;
+
+    // The threads which are unmarshalling an object, shared by all decoders.
+    private static final Set<EventExecutor> BUSY_WORKERS =
+            Collections.newSetFromMap(new ConcurrentHashMap<EventExecutor, Boolean>());
+
+    private final UnmarshallerProvider provider;
+    private final int maxObjectSize;
+    private final int streamingThreshold;
+    private final EventExecutorGroup executor;
+    private final long readTimeoutMillis;
+
+    // The input of the object which is being unmarshalled by the executor.
+    private StreamingByteInput streamingInput;
+    // The bytes of the current object which were not fed or discarded yet.
+    private int frameBytesLeft;
+
+    /**
+     * Creates a new decoder whose streaming threshold is {@code 65536} bytes.
+     *
+     * @param provider       the {@link UnmarshallerProvider} to use
+     * @param maxObjectSize  the maximum byte length of the serialized object.
+     *                       if the length of the received object is greater
+     *                       than this value, {@link TooLongFrameException}
+     *                       will be raised.
+     * @param executor       the {@link EventExecutorGroup} which unmarshals the large objects
+     */
+    public StreamingMarshallingDecoder(UnmarshallerProvider provider, int maxObjectSize, EventExecutorGroup executor) {
+        this(provider, maxObjectSize, 65536, executor);
+    }
+
+    /**
+     * Creates a new decoder whose read timeout is {@code 30} seconds.
+     *
+     * @param provider            the {@link UnmarshallerProvider} to use
+     * @param maxObjectSize       the maximum byte length of the serialized object.
+     *                            if the length of the received object is greater
+     *                            than this value, {@link TooLongFrameException}
+     *                            will be raised.
+     * @param streamingThreshold  the minimum byte length of an object which is unmarshalled while
+     *                            it is being received
+     * @param executor            the {@link EventExecutorGroup} which unmarshals the large objects
+     */
+    public StreamingMarshallingDecoder(
+            UnmarshallerProvider provider, int maxObjectSize, int streamingThreshold, EventExecutorGroup executor) {
+        this(provider, maxObjectSize, streamingThreshold, executor, 30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Creates a new decoder.
+     *
+     * @param provider            the {@link UnmarshallerProvider} to use
+     * @param maxObjectSize       the maximum byte length of the serialized object.
+     *                            if the length of the received object is greater
+     *                            than this value, {@link TooLongFrameException}
+     *                            will be raised.
+     * @param streamingThreshold  the minimum byte length of an object which is unmarshalled while
+     *                            it is being received
+     * @param executor            the {@link EventExecutorGroup} which unmarshals the large objects
+     * @param readTimeout         the time the unmarshalling of a large object waits for its next
+     *                            bytes before it fails, or {@code 0} to wait forever
+     * @param unit                the {@link TimeUnit} of {@code readTimeout}
+     */
+    public StreamingMarshallingDecoder(
+            UnmarshallerProvider provider, int maxObjectSize, int streamingThreshold, EventExecutorGroup executor,
+            long readTimeout, TimeUnit unit) {
+        if (provider == null) {
+            throw new NullPointerException("provider");
+        }
+        if (executor == null) {
+            throw new NullPointerException("executor");
+        }
+        if (unit == null) {
+            throw new NullPointerException("unit");
+        }
+        if (maxObjectSize <= 0) {
+            throw new IllegalArgumentException(
+                    "maxObjectSize: " + maxObjectSize + " (expected: > 0)");
+        }
+        if (streamingThreshold < 0) {
+            throw new IllegalArgumentException(
+                    "streamingThreshold: " + streamingThreshold + " (expected: >= 0)");
+        }
+        if (readTimeout < 0) {
+            throw new IllegalArgumentException(
+                    "readTimeout: " + readTimeout + " (expected: >= 0)");
+        }
+        this.provider = provider;
+        this.maxObjectSize = maxObjectSize;
+        this.streamingThreshold = streamingThreshold;
+        this.executor = executor;
+        // The received bytes are fed to the Unmarshaller as slices rather than copies.
+        setCumulator(COMPOSITE_CUMULATOR);
+        if (readTimeout == 0) {
+            readTimeoutMillis = 0;
+        } else {
+            readTimeoutMillis = Math.max(unit.toMillis(readTimeout), 1);
+        }
+    }
+
+    @Override
+    public Object decode(final ChannelHandlerContext ctx, ByteBuf in) throws Exception {
+        if (frameBytesLeft > 0) {
+            int length = Math.min(frameBytesLeft, in.readableBytes());
+            if (streamingInput != null) {
+                if (feed(in, length)) {
+                    // Wait until the Unmarshaller catches up.
+                    ctx.readable(false);
+                }
+            } else {
+                // The object is too big or has been unmarshalled without its trailing bytes.
+                in.skipBytes(length);
+            }
+            frameBytesLeft -= length;
+            return null;
+        }
+        if (streamingInput != null) {
+            // Keep the next objects until the current one is unmarshalled.
+            return null;
+        }
+
+        if (in.readableBytes() < 4) {
+            return null;
+        }
+        int length = in.getInt(in.readerIndex());
+        if (length < 0) {
+            in.skipBytes(in.readableBytes());
+            throw new CorruptedFrameException("negative object length: " + length);
+        }
+        if (length > maxObjectSize) {
+            in.skipBytes(4);
+            frameBytesLeft = length;
+            throw new TooLongFrameException("Object to big to unmarshal: " + length + " bytes");
+        }
+
+        if (in.readableBytes() - 4 >= length) {
+            in.skipBytes(4);
+            return unmarshal(ctx, new ChannelBufferByteInput(in.readSlice(length)));
+        }
+        if (length < streamingThreshold) {
+            return null;
+        }
+        EventExecutor worker = claimWorker();
+        if (worker == null) {
+            // Wait until the object is received completely.
+            return null;
+        }
+
+        in.skipBytes(4);
+        frameBytesLeft = length;
+        streamingInput = new StreamingByteInput(length, readTimeoutMillis, MAX_QUEUED_BYTES, new Runnable() {
+            @Override
+            public void run() {
+                resumeReading(ctx);
+            }
+        });
+        unmarshalLater(ctx, worker, streamingInput);
+        return null;
+    }
+
+    /**
+     * Feeds the specified number of bytes to the current {@link StreamingByteInput}.
+     *
+     * @return {@code true} if reading should be suspended
+     */
+    private boolean feed(ByteBuf in, int length) {
+        boolean suspend = false;
+        if (in instanceof CompositeByteBuf) {
+            for (ByteBuf slice: ((CompositeByteBuf) in).decompose(in.readerIndex(), length)) {
+                suspend |= streamingInput.feed(slice);
+            }
+            in.skipBytes(length);
+        } else {
+            suspend = streamingInput.feed(in.readBytes(length));
+        }
+        return suspend;
+    }
+
+    private static void resumeReading(final ChannelHandlerContext ctx) {
+        ctx.executor().execute(new Runnable() {
+            @Override
+            public void run() {
+                ctx.readable(true);
+            }
+        });
+    }
+
+    /**
+     * Returns a thread of the {@link EventExecutorGroup} which is not unmarshalling another object
+     * and marks it as busy, or {@code null} if all of them are busy.
+     */
+    private EventExecutor claimWorker() {
+        Set<EventExecutor> tried = null;
+        for (;;) {
+            EventExecutor worker = executor.next();
+            if (BUSY_WORKERS.add(worker)) {
+                return worker;
+            }
+            if (tried == null) {
+                tried = new HashSet<EventExecutor>();
+            }
+            if (!tried.add(worker)) {
+                // All threads have been tried.
+                return null;
+            }
+        }
+    }
+
+    private Object unmarshal(ChannelHandlerContext ctx, ByteInput input) throws Exception {
+        Unmarshaller unmarshaller = provider.getUnmarshaller(ctx);
+        try {
+            unmarshaller.start(input);
+            Object obj = unmarshaller.readObject();
+            unmarshaller.finish();
+            return obj;
+        } finally {
+            unmarshaller.close();
+            if (provider instanceof PooledUnmarshallerProvider) {
+                ((PooledUnmarshallerProvider) provider).release(ctx, unmarshaller);
+            }
+        }
+    }
+
+    private void unmarshalLater(
+            final ChannelHandlerContext ctx, final EventExecutor worker, final StreamingByteInput input) {
+        try {
+            worker.execute(new Runnable() {
+                @Override
+                public void run() {
+                    Object obj = null;
+                    Throwable cause = null;
+                    try {
+                        obj = unmarshal(ctx, input);
+                    } catch (Throwable t) {
+                        cause = t;
+                    } finally {
+                        BUSY_WORKERS.remove(worker);
+                    }
+
+                    final Object result = obj;
+                    final Throwable failure = cause;
+                    ctx.executor().execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            unmarshalled(ctx, input, result, failure);
+                        }
+                    });
+                }
+            });
+        } catch (RuntimeException e) {
+            // Rejected by the worker which is shutting down
+            BUSY_WORKERS.remove(worker);
+            throw e;
+        }
+    }
+
+    private void unmarshalled(ChannelHandlerContext ctx, StreamingByteInput input, Object obj, Throwable cause) {
+        if (input.isAborted()) {
+            // The channel has been closed or this decoder has been removed.
+            return;
+        }
+        streamingInput = null;
+        ctx.readable(true);
+
+        try {
+            if (cause != null) {
+                if (cause instanceof CodecException) {
+                    ctx.fireExceptionCaught(cause);
+                } else {
+                    ctx.fireExceptionCaught(new DecoderException(cause));
+                }
+            } else if (ChannelHandlerUtil.unfoldAndAdd(ctx, obj, true)) {
+                ctx.fireInboundBufferUpdated();
+            }
+        } catch (Throwable t) {
+            ctx.fireExceptionCaught(new DecoderException(t));
+        }
+
+        // Decode the objects which have been received in the meantime.
+        callDecode(ctx);
+    }
+
+    private void abortStreaming() {
+        if (streamingInput != null) {
+            streamingInput.abort();
+            streamingInput = null;
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        abortStreaming();
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void afterRemove(ChannelHandlerContext ctx) throws Exception {
+        abortStreaming();
+        super.afterRemove(ctx);
+    }
+}
@@ -54,6 +54,8 @@ import com.google.protobuf.MessageLite;
  *     ch.write(res);
  * }
  * </pre>
+ * If the messages are framed with a {@link ProtobufVarint32LengthFieldPrepender}, leave this encoder
+ * out of the pipeline; the prepender then serializes each message directly into the outbound buffer.
  * @apiviz.landmark
  */
 @Sharable
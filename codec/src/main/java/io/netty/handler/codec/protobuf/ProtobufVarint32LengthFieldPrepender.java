@@ -22,6 +22,7 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
 
 import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.MessageLite;
 
 /**
  * An encoder that prepends the the Google Protocol Buffers
@@ -34,31 +35,83 @@ import com.google.protobuf.CodedOutputStream;
  * |  (300 bytes)  |               | 0xAC02 |  (300 bytes)  |
  * +---------------+               +--------+---------------+
  * </pre> *
+ * <p>
+ * This encoder also accepts a {@link MessageLite} or a {@link MessageLite.Builder}, in which case
+ * the message is serialized right after its length field into the outbound buffer, without
+ * the intermediate {@code byte[]} a {@link ProtobufEncoder} would create.  To benefit from it,
+ * use this encoder without a {@link ProtobufEncoder}:
+ * <pre>
+ * pipeline.addLast("frameEncoder", new {@link ProtobufVarint32LengthFieldPrepender}());
+ * </pre>
  *
  * @see CodedOutputStream
  */
 @Sharable
-public class ProtobufVarint32LengthFieldPrepender extends MessageToByteEncoder<ByteBuf> {
+public class ProtobufVarint32LengthFieldPrepender extends MessageToByteEncoder<Object> {
+
+    /**
+     * The maximum size of the buffer a {@link CodedOutputStream} uses to write a message into a buffer
+     * without a backing array.
+     */
+    private static final int MAX_STREAM_BUFFER_SIZE = 4096;
 
     /**
      * Creates a new instance.
      */
     public ProtobufVarint32LengthFieldPrepender() {
-        super(ByteBuf.class);
+        super(ByteBuf.class, MessageLite.class, MessageLite.Builder.class);
     }
 
     @Override
     public void encode(
-            ChannelHandlerContext ctx, ByteBuf msg, ByteBuf out) throws Exception {
-        int bodyLen = msg.readableBytes();
-        int headerLen = CodedOutputStream.computeRawVarint32Size(bodyLen);
-        out.ensureWritableBytes(headerLen + bodyLen);
+            ChannelHandlerContext ctx, Object msg, ByteBuf out) throws Exception {
+        if (msg instanceof ByteBuf) {
+            ByteBuf body = (ByteBuf) msg;
+            int bodyLen = body.readableBytes();
+            out.ensureWritableBytes(CodedOutputStream.computeRawVarint32Size(bodyLen) + bodyLen);
+            writeRawVarint32(out, bodyLen);
+            out.writeBytes(body, body.readerIndex(), bodyLen);
+            return;
+        }
 
-        CodedOutputStream headerOut =
-                CodedOutputStream.newInstance(new ByteBufOutputStream(out));
-        headerOut.writeRawVarint32(bodyLen);
-        headerOut.flush();
+        MessageLite message;
+        if (msg instanceof MessageLite) {
+            message = (MessageLite) msg;
+        } else {
+            message = ((MessageLite.Builder) msg).build();
+        }
 
-        out.writeBytes(msg, msg.readerIndex(), bodyLen);
+        // Reserve the space for the whole frame and serialize the message right into it.
+        int bodyLen = message.getSerializedSize();
+        out.ensureWritableBytes(CodedOutputStream.computeRawVarint32Size(bodyLen) + bodyLen);
+        writeRawVarint32(out, bodyLen);
+        if (bodyLen == 0) {
+            return;
+        }
+        if (out.hasArray()) {
+            int writerIndex = out.writerIndex();
+            CodedOutputStream bodyOut =
+                    CodedOutputStream.newInstance(out.array(), out.arrayOffset() + writerIndex, bodyLen);
+            message.writeTo(bodyOut);
+            bodyOut.checkNoSpaceLeft();
+            out.writerIndex(writerIndex + bodyLen);
+        } else {
+            CodedOutputStream bodyOut = CodedOutputStream.newInstance(
+                    new ByteBufOutputStream(out), Math.min(bodyLen, MAX_STREAM_BUFFER_SIZE));
+            message.writeTo(bodyOut);
+            bodyOut.flush();
+        }
+    }
+
+    /**
+     * Writes the specified value as a Base 128 Varint, as
+     * {@link CodedOutputStream#writeRawVarint32(int)} does, without creating a {@link CodedOutputStream}.
+     */
+    private static void writeRawVarint32(ByteBuf out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte(value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
     }
 }
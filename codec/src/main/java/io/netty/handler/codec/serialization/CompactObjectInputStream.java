@@ -21,14 +21,32 @@ import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectStreamClass;
 import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.List;
 
 class CompactObjectInputStream extends ObjectInputStream {
 
     private final ClassResolver classResolver;
 
+    /**
+     * The thin descriptors read so far, indexed by their ids, or {@code null}
+     * if the descriptors are not cached.
+     */
+    private final List<ObjectStreamClass> classDescriptors;
+
     CompactObjectInputStream(InputStream in, ClassResolver classResolver) throws IOException {
+        this(in, classResolver, false);
+    }
+
+    /**
+     * @param cacheClassDescriptors  {@code true} to read the stream written by a
+     *                               {@link CompactObjectOutputStream} which caches class descriptors
+     */
+    CompactObjectInputStream(
+            InputStream in, ClassResolver classResolver, boolean cacheClassDescriptors) throws IOException {
         super(in);
         this.classResolver = classResolver;
+        classDescriptors = cacheClassDescriptors? new ArrayList<ObjectStreamClass>() : null;
     }
 
     @Override
@@ -53,16 +71,50 @@ class CompactObjectInputStream extends ObjectInputStream {
         case CompactObjectOutputStream.TYPE_THIN_DESCRIPTOR:
             String className = readUTF();
             Class<?> clazz = classResolver.resolve(className);
-            return ObjectStreamClass.lookupAny(clazz);
-        default:
-            throw new StreamCorruptedException(
-                    "Unexpected class descriptor type: " + type);
+            ObjectStreamClass desc = ObjectStreamClass.lookupAny(clazz);
+            if (classDescriptors != null) {
+                classDescriptors.add(desc);
+            }
+            return desc;
+        case CompactObjectOutputStream.TYPE_CACHED_DESCRIPTOR:
+            if (classDescriptors == null) {
+                // Only sent in the session-scoped mode.
+                break;
+            }
+            int id = readVarint();
+            if (id >= classDescriptors.size()) {
+                throw new StreamCorruptedException(
+                        "Unknown class descriptor id: " + id);
+            }
+            return classDescriptors.get(id);
         }
+        throw new StreamCorruptedException(
+                "Unexpected class descriptor type: " + type);
+    }
+
+    private int readVarint() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new StreamCorruptedException("Malformed class descriptor id");
     }
 
     @Override
     protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
-        Class<?> clazz;
+        // A thin descriptor has been looked up from the class the resolver returned already.
+        Class<?> clazz = desc.forClass();
+        if (clazz != null) {
+            return clazz;
+        }
+
         try {
             clazz = classResolver.resolve(desc.getName());
         } catch (ClassNotFoundException ex) {
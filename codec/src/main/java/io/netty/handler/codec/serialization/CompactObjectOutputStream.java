@@ -19,14 +19,33 @@ import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.io.ObjectStreamClass;
 import java.io.OutputStream;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 class CompactObjectOutputStream extends ObjectOutputStream {
 
     static final int TYPE_FAT_DESCRIPTOR = 0;
     static final int TYPE_THIN_DESCRIPTOR = 1;
+    static final int TYPE_CACHED_DESCRIPTOR = 2;
+
+    /**
+     * The ids of the classes whose thin descriptors were written so far,
+     * or {@code null} if the descriptors are not cached.
+     */
+    private final Map<Class<?>, Integer> classIds;
 
     CompactObjectOutputStream(OutputStream out) throws IOException {
+        this(out, false);
+    }
+
+    /**
+     * @param cacheClassDescriptors  {@code true} to write a thin descriptor only the first time
+     *                               a class is written and its id afterwards, even after
+     *                               {@link #reset()}
+     */
+    CompactObjectOutputStream(OutputStream out, boolean cacheClassDescriptors) throws IOException {
         super(out);
+        classIds = cacheClassDescriptors? new IdentityHashMap<Class<?>, Integer>() : null;
     }
 
     @Override
@@ -41,9 +60,27 @@ class CompactObjectOutputStream extends ObjectOutputStream {
             desc.getSerialVersionUID() == 0) {
             write(TYPE_FAT_DESCRIPTOR);
             super.writeClassDescriptor(desc);
-        } else {
+        } else if (classIds == null) {
             write(TYPE_THIN_DESCRIPTOR);
             writeUTF(desc.getName());
+        } else {
+            Integer id = classIds.get(clazz);
+            if (id == null) {
+                classIds.put(clazz, classIds.size());
+                write(TYPE_THIN_DESCRIPTOR);
+                writeUTF(desc.getName());
+            } else {
+                write(TYPE_CACHED_DESCRIPTOR);
+                writeVarint(id);
+            }
+        }
+    }
+
+    private void writeVarint(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            write(value & 0x7F | 0x80);
+            value >>>= 7;
         }
+        write(value);
     }
 }
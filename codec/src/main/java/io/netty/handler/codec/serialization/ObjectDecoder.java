@@ -20,6 +20,7 @@ import io.netty.buffer.ByteBufInputStream;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 
+import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.StreamCorruptedException;
 
@@ -37,6 +38,9 @@ import java.io.StreamCorruptedException;
 public class ObjectDecoder extends LengthFieldBasedFrameDecoder {
 
     private final ClassResolver classResolver;
+    private final boolean sessionScoped;
+    private final SwitchableInputStream sessionIn;
+    private ObjectInputStream sessionOin;
 
     /**
      * Creates a new decoder whose maximum object size is {@code 1048576}
@@ -61,8 +65,27 @@ public class ObjectDecoder extends LengthFieldBasedFrameDecoder {
      *                       of the serialized object
      */
     public ObjectDecoder(int maxObjectSize, ClassResolver classResolver) {
+        this(maxObjectSize, classResolver, false);
+    }
+
+    /**
+     * Creates a new decoder with the specified maximum object size.
+     *
+     * @param maxObjectSize  the maximum byte length of the serialized object.
+     *                       if the length of the received object is greater
+     *                       than this value, {@link StreamCorruptedException}
+     *                       will be raised.
+     * @param classResolver    the {@link ClassResolver} which will load the class
+     *                       of the serialized object
+     * @param sessionScoped  {@code true} to decode the objects sent by an {@link ObjectEncoder}
+     *                       in the session-scoped mode, which sends each class descriptor
+     *                       only once per channel
+     */
+    public ObjectDecoder(int maxObjectSize, ClassResolver classResolver, boolean sessionScoped) {
         super(maxObjectSize, 0, 4, 0, 4);
         this.classResolver = classResolver;
+        this.sessionScoped = sessionScoped;
+        sessionIn = sessionScoped? new SwitchableInputStream() : null;
     }
 
     @Override
@@ -72,8 +95,17 @@ public class ObjectDecoder extends LengthFieldBasedFrameDecoder {
             return null;
         }
 
-        return new CompactObjectInputStream(
-                new ByteBufInputStream(frame), classResolver).readObject();
+        if (!sessionScoped) {
+            return new CompactObjectInputStream(
+                    new ByteBufInputStream(frame), classResolver).readObject();
+        }
+
+        // Every frame continues the stream of the previous one.
+        sessionIn.switchStream(new ByteBufInputStream(frame));
+        if (sessionOin == null) {
+            sessionOin = new CompactObjectInputStream(sessionIn, classResolver, true);
+        }
+        return sessionOin.readObject();
     }
 
     @Override
@@ -20,6 +20,8 @@ import io.netty.buffer.ByteBufOutputStream;
 import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
 
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
@@ -32,6 +34,12 @@ import java.io.Serializable;
  * compatible with the standard {@link ObjectInputStream}.  Please use
  * {@link ObjectDecoder} or {@link ObjectDecoderInputStream} to ensure the
  * interoperability with this encoder.
+ * <p>
+ * In the session-scoped mode, the encoder keeps one object stream for the life of the
+ * channel.  The descriptor of a class is then sent only with the first object of that
+ * class and referred to by a small id afterwards, so the decoder must be in the same
+ * mode (see {@link ObjectDecoder#ObjectDecoder(int, ClassResolver, boolean)}).  The
+ * references between objects are still reset with every message.
  * @apiviz.landmark
  * @apiviz.has io.netty.handler.codec.serialization.ObjectEncoderOutputStream - - - compatible with
  */
@@ -39,12 +47,34 @@ import java.io.Serializable;
 public class ObjectEncoder extends MessageToByteEncoder<Object> {
     private static final byte[] LENGTH_PLACEHOLDER = new byte[4];
 
+    private static final AttributeKey<SwitchableOutputStream> OUT =
+            new AttributeKey<SwitchableOutputStream>(ObjectEncoder.class.getName() + ".out");
+    private static final AttributeKey<ObjectOutputStream> OOS =
+            new AttributeKey<ObjectOutputStream>(ObjectEncoder.class.getName() + ".oos");
+
+    private final boolean sessionScoped;
+
     public ObjectEncoder() {
+        this(false);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param sessionScoped  {@code true} to send each class descriptor only once per channel
+     */
+    public ObjectEncoder(boolean sessionScoped) {
         super(Serializable.class);
+        this.sessionScoped = sessionScoped;
     }
 
     @Override
     public void encode(ChannelHandlerContext ctx, Object msg, ByteBuf out) throws Exception {
+        if (sessionScoped) {
+            encodeInSession(ctx, msg, out);
+            return;
+        }
+
         int startIdx = out.writerIndex();
 
         ByteBufOutputStream bout = new ByteBufOutputStream(out);
@@ -58,4 +88,42 @@ public class ObjectEncoder extends MessageToByteEncoder<Object> {
 
         out.setInt(startIdx, endIdx - startIdx - 4);
     }
+
+    private static void encodeInSession(ChannelHandlerContext ctx, Object msg, ByteBuf out) throws Exception {
+        int startIdx = out.writerIndex();
+        out.writeBytes(LENGTH_PLACEHOLDER);
+
+        // Every message continues the stream of the previous one, but is written into the current buffer.
+        Attribute<SwitchableOutputStream> outAttr = ctx.attr(OUT);
+        SwitchableOutputStream sessionOut = outAttr.get();
+        if (sessionOut == null) {
+            sessionOut = new SwitchableOutputStream();
+            outAttr.set(sessionOut);
+        }
+        sessionOut.switchStream(new ByteBufOutputStream(out));
+
+        Attribute<ObjectOutputStream> oosAttr = ctx.attr(OOS);
+        ObjectOutputStream oout = oosAttr.get();
+        if (oout == null) {
+            oout = new CompactObjectOutputStream(sessionOut, true);
+            oosAttr.set(oout);
+        } else {
+            // Forget the objects written so far; the class descriptor ids are kept.
+            oout.reset();
+        }
+        try {
+            oout.writeObject(msg);
+            oout.flush();
+        } catch (Exception e) {
+            // The stream can not be continued once it is broken, and the peer
+            // can not decode the next objects without it.
+            out.writerIndex(startIdx);
+            ctx.close();
+            throw e;
+        }
+
+        int endIdx = out.writerIndex();
+
+        out.setInt(startIdx, endIdx - startIdx - 4);
+    }
 }
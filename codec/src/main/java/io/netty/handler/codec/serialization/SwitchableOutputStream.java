@@ -0,0 +1,47 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.serialization;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * {@link FilterOutputStream} which allows a user to change the underlying
+ * stream at any time.
+ */
+final class SwitchableOutputStream extends FilterOutputStream {
+
+    /**
+     * Creates a new instance without initializing the reference to the
+     * underlying stream.
+     */
+    SwitchableOutputStream() {
+        super(null);
+    }
+
+    /**
+     * Changes the reference to the underlying stream.
+     */
+    void switchStream(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec;
+
+import static org.junit.Assert.*;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.MessageBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedByteChannel;
+
+import org.junit.Test;
+
+public class MessageToByteEncoderTest {
+
+    @Test
+    public void testByteBufPassedThroughInOrder() {
+        EmbeddedByteChannel ch = new EmbeddedByteChannel(new IntegerEncoder());
+
+        // Queue all messages first so that they are encoded by a single flush.
+        MessageBuf<Object> out = ch.outboundMessageBuffer();
+        out.add(1);
+        out.add(Unpooled.wrappedBuffer(new byte[] { 'A', 'B' }));
+        out.add(2);
+        ch.flush();
+
+        ByteBuf expected = Unpooled.buffer();
+        expected.writeInt(1);
+        expected.writeByte('A');
+        expected.writeByte('B');
+        expected.writeInt(2);
+        assertEquals(expected, ch.readOutbound());
+
+        // A flush per message
+        ch.writeOutbound(3);
+        ch.writeOutbound(Unpooled.wrappedBuffer(new byte[] { 'C' }));
+        ch.writeOutbound(4);
+
+        expected.clear();
+        expected.writeInt(3);
+        expected.writeByte('C');
+        expected.writeInt(4);
+        assertEquals(expected, ch.readOutbound());
+
+        assertFalse(ch.finish());
+    }
+
+    private static final class IntegerEncoder extends MessageToByteEncoder<Integer> {
+
+        IntegerEncoder() {
+            super(Integer.class);
+        }
+
+        @Override
+        public void encode(ChannelHandlerContext ctx, Integer msg, ByteBuf out) {
+            out.writeInt(msg);
+        }
+    }
+}
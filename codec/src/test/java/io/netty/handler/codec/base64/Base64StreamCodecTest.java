@@ -0,0 +1,74 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.base64;
+
+import static io.netty.buffer.Unpooled.*;
+import static org.junit.Assert.*;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedByteChannel;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class Base64StreamCodecTest {
+
+    @Test
+    public void testEncode() {
+        byte[] data = new byte[1000];
+        new Random().nextBytes(data);
+
+        EmbeddedByteChannel ch = new EmbeddedByteChannel(new Base64StreamEncoder());
+        ByteBuf encoded = buffer();
+        for (int i = 0; i < data.length; i += 7) {
+            ch.writeOutbound(wrappedBuffer(data, i, Math.min(7, data.length - i)));
+            ByteBuf out = ch.readOutbound();
+            if (out != null) {
+                encoded.writeBytes(out);
+            }
+        }
+        assertTrue(ch.finish());
+        encoded.writeBytes(ch.readOutbound());
+
+        assertEquals(Base64.encode(wrappedBuffer(data)), encoded);
+    }
+
+    @Test
+    public void testDecode() {
+        byte[] data = new byte[1000];
+        new Random().nextBytes(data);
+        ByteBuf encoded = Base64.encode(wrappedBuffer(data));
+
+        EmbeddedByteChannel ch = new EmbeddedByteChannel(new Base64StreamDecoder());
+        ByteBuf decoded = buffer();
+        while (encoded.readable()) {
+            ch.writeInbound(encoded.readBytes(Math.min(5, encoded.readableBytes())));
+            ByteBuf in = ch.lastInboundByteBuffer();
+            decoded.writeBytes(in);
+            in.clear();
+        }
+        assertFalse(ch.finish());
+
+        assertEquals(wrappedBuffer(data), decoded);
+    }
+
+    @Test
+    public void testDecodeConcatenated() {
+        EmbeddedByteChannel ch = new EmbeddedByteChannel(new Base64StreamDecoder());
+        ch.writeInbound(copiedBuffer("Zm8=Zm9vYg==YmFy".getBytes()));
+        assertEquals(copiedBuffer("fofoobbar".getBytes()), ch.lastInboundByteBuffer());
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.base64;
+
+import static io.netty.buffer.Unpooled.*;
+import static org.junit.Assert.*;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.CharsetUtil;
+
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class Base64Test {
+
+    private static final String[][] VECTORS = {
+        { "", "" },
+        { "f", "Zg==" },
+        { "fo", "Zm8=" },
+        { "foo", "Zm9v" },
+        { "foob", "Zm9vYg==" },
+        { "fooba", "Zm9vYmE=" },
+        { "foobar", "Zm9vYmFy" },
+    };
+
+    @Test
+    public void testVectors() {
+        for (String[] v: VECTORS) {
+            for (ByteOrder order: new ByteOrder[] { ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN }) {
+                ByteBuf decoded = copiedBuffer(v[0], CharsetUtil.US_ASCII).order(order);
+                assertEquals(v[1], Base64.encode(decoded, false).toString(CharsetUtil.US_ASCII));
+
+                ByteBuf encoded = copiedBuffer(v[1], CharsetUtil.US_ASCII).order(order);
+                assertEquals(v[0], Base64.decode(encoded).toString(CharsetUtil.US_ASCII));
+            }
+        }
+    }
+
+    @Test
+    public void testBreakLines() {
+        byte[] data = new byte[57 * 2 + 1];
+        new Random().nextBytes(data);
+
+        String encoded = Base64.encode(wrappedBuffer(data), true).toString(CharsetUtil.US_ASCII);
+        String[] lines = encoded.split("\n", -1);
+        assertEquals(3, lines.length);
+        assertEquals(76, lines[0].length());
+        assertEquals(76, lines[1].length());
+        assertEquals("==", lines[2].substring(2));
+
+        assertEquals(wrappedBuffer(data), Base64.decode(copiedBuffer(encoded, CharsetUtil.US_ASCII)));
+    }
+
+    @Test
+    public void testRoundTrip() {
+        Random random = new Random();
+        for (int len = 0; len < 256; len ++) {
+            byte[] data = new byte[len];
+            random.nextBytes(data);
+            for (Base64Dialect dialect: Base64Dialect.values()) {
+                ByteBuf encoded = Base64.encode(wrappedBuffer(data), dialect);
+                assertEquals(wrappedBuffer(data), Base64.decode(encoded, dialect));
+            }
+        }
+    }
+
+    @Test
+    public void testDecodeIntoBufferAcrossChunks() {
+        byte[] data = new byte[300];
+        new Random().nextBytes(data);
+        ByteBuf encoded = Base64.encode(wrappedBuffer(data), true);
+
+        for (int split = 0; split <= encoded.readableBytes(); split ++) {
+            ByteBuf in = buffer();
+            ByteBuf out = directBuffer(1);
+            in.writeBytes(encoded, 0, split);
+            Base64.decode(in, out, Base64Dialect.STANDARD);
+            assertTrue(in.readableBytes() < 4);
+            in.writeBytes(encoded, split, encoded.readableBytes() - split);
+            Base64.decode(in, out, Base64Dialect.STANDARD);
+            assertFalse(in.readable());
+            assertEquals(wrappedBuffer(data), out);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeBadCharacter() {
+        Base64.decode(copiedBuffer("Zm9v*mFy", CharsetUtil.US_ASCII));
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundByteHandlerAdapter;
+import io.netty.channel.DefaultEventExecutorGroup;
+import io.netty.channel.EventExecutorGroup;
+import io.netty.channel.embedded.EmbeddedByteChannel;
+import io.netty.util.internal.DetectionUtil;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.Assert.*;
+
+public class ParallelZlibEncoderTest {
+
+    private static final int BLOCK_SIZE = 32768;
+
+    private static final EventExecutorGroup WORKERS = new DefaultEventExecutorGroup(4);
+
+    // The encoder is run by its own thread rather than by the event loop of the EmbeddedByteChannel,
+    // which would run the tasks submitted by the workers in the worker threads.
+    private static final EventExecutorGroup LOOP = new DefaultEventExecutorGroup(1);
+
+    @AfterClass
+    public static void destroy() {
+        WORKERS.shutdown();
+        LOOP.shutdown();
+    }
+
+    @Before
+    public void checkJavaVersion() {
+        Assume.assumeTrue(DetectionUtil.javaVersion() >= 7);
+    }
+
+    @Test
+    public void testGzip() throws Exception {
+        testRoundTrip(ZlibWrapper.GZIP);
+    }
+
+    @Test
+    public void testZlib() throws Exception {
+        testRoundTrip(ZlibWrapper.ZLIB);
+    }
+
+    @Test
+    public void testNone() throws Exception {
+        testRoundTrip(ZlibWrapper.NONE);
+    }
+
+    private static void testRoundTrip(ZlibWrapper wrapper) throws Exception {
+        byte[] data = new byte[BLOCK_SIZE * 5 + 123];
+        Random random = new Random(42);
+        for (int i = 0; i < data.length; i ++) {
+            // Compressible, but not trivially.
+            data[i] = (byte) ('a' + random.nextInt(8));
+        }
+
+        ParallelZlibEncoder encoder = new ParallelZlibEncoder(wrapper, 6, BLOCK_SIZE, WORKERS);
+        EmbeddedByteChannel ch = new EmbeddedByteChannel(new ChannelInboundByteHandlerAdapter() {
+            @Override
+            public void inboundBufferUpdated(ChannelHandlerContext ctx, ByteBuf in) throws Exception {
+                // Nothing is received.
+            }
+        });
+        ch.pipeline().addFirst(LOOP, "encoder", encoder);
+
+        // Write several blocks at once, then a partial block, then the rest.
+        final List<Integer> flushed = Collections.synchronizedList(new ArrayList<Integer>());
+        int[] splits = { 0, BLOCK_SIZE * 3 + 1000, BLOCK_SIZE * 3 + 2000, data.length };
+        List<ChannelFuture> futures = new ArrayList<ChannelFuture>();
+        for (int i = 1; i < splits.length; i ++) {
+            final int index = i;
+            ChannelFuture future = ch.write(Unpooled.wrappedBuffer(data, splits[i - 1], splits[i] - splits[i - 1]));
+            future.addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture future) throws Exception {
+                    flushed.add(index);
+                }
+            });
+            futures.add(future);
+        }
+        ChannelFuture closeFuture = encoder.close();
+
+        // ChannelFuture.await() can not be used because the event loop of the channel is always 'current'.
+        final CountDownLatch closed = new CountDownLatch(1);
+        closeFuture.addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) throws Exception {
+                closed.countDown();
+            }
+        });
+        assertTrue(closed.await(10, TimeUnit.SECONDS));
+        assertTrue(closeFuture.isSuccess());
+        for (ChannelFuture future: futures) {
+            assertTrue(future.isSuccess());
+        }
+        assertEquals(futures.size(), flushed.size());
+        for (int i = 0; i < flushed.size(); i ++) {
+            assertEquals(i + 1, flushed.get(i).intValue());
+        }
+
+        ByteBuf out = ch.readOutbound();
+        byte[] compressed = new byte[out.readableBytes()];
+        out.readBytes(compressed);
+        assertArrayEquals(data, inflate(wrapper, compressed));
+    }
+
+    private static byte[] inflate(ZlibWrapper wrapper, byte[] compressed) throws IOException {
+        InputStream in;
+        switch (wrapper) {
+        case GZIP:
+            in = new GZIPInputStream(new ByteArrayInputStream(compressed));
+            break;
+        case ZLIB:
+            in = new InflaterInputStream(new ByteArrayInputStream(compressed));
+            break;
+        case NONE:
+            in = new InflaterInputStream(new ByteArrayInputStream(compressed), new Inflater(true));
+            break;
+        default:
+            throw new Error();
+        }
+
+        ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        for (;;) {
+            int n = in.read(buf);
+            if (n < 0) {
+                break;
+            }
+            decompressed.write(buf, 0, n);
+        }
+        in.close();
+        return decompressed.toByteArray();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.frame;
+
+import static org.junit.Assert.*;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedByteChannel;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.ByteToMessageDecoder.Cumulator;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+
+import org.junit.Test;
+
+public class CumulatorTest {
+
+    @Test
+    public void testMergeCumulator() {
+        testCumulator(ByteToMessageDecoder.MERGE_CUMULATOR);
+    }
+
+    @Test
+    public void testCompositeCumulator() {
+        testCumulator(ByteToMessageDecoder.COMPOSITE_CUMULATOR);
+    }
+
+    @Test
+    public void testThresholdCumulator() {
+        testCumulator(ByteToMessageDecoder.thresholdCumulator(0.75f));
+        testCumulator(ByteToMessageDecoder.thresholdCumulator(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidThreshold() {
+        ByteToMessageDecoder.thresholdCumulator(0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCumulatorCannotBeChangedAfterAdded() {
+        LengthFieldBasedFrameDecoder decoder = new LengthFieldBasedFrameDecoder(Integer.MAX_VALUE, 0, 4, 0, 4);
+        new EmbeddedByteChannel(decoder);
+        decoder.setCumulator(ByteToMessageDecoder.COMPOSITE_CUMULATOR);
+    }
+
+    private static void testCumulator(Cumulator cumulator) {
+        LengthFieldBasedFrameDecoder decoder = new LengthFieldBasedFrameDecoder(Integer.MAX_VALUE, 0, 4, 0, 4);
+        decoder.setCumulator(cumulator);
+        assertSame(cumulator, decoder.getCumulator());
+        EmbeddedByteChannel ch = new EmbeddedByteChannel(decoder);
+
+        // Three frames of different sizes, fed in small pieces which straddle frame boundaries.
+        ByteBuf input = Unpooled.buffer();
+        for (int length: new int[] { 70000, 3, 1024 }) {
+            input.writeInt(length);
+            for (int i = 0; i < length; i ++) {
+                input.writeByte((byte) (i + length));
+            }
+        }
+
+        while (input.readable()) {
+            ch.writeInbound(input.readBytes(Math.min(1000, input.readableBytes())));
+        }
+
+        for (int length: new int[] { 70000, 3, 1024 }) {
+            ByteBuf frame = (ByteBuf) ch.readInbound();
+            assertEquals(length, frame.readableBytes());
+            for (int i = 0; i < length; i ++) {
+                assertEquals((byte) (i + length), frame.getByte(i));
+            }
+        }
+        assertNull(ch.readInbound());
+        assertFalse(ch.finish());
+    }
+}
@@ -18,12 +18,17 @@ package io.netty.handler.codec.frame;
 import static org.junit.Assert.*;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundMessageHandlerAdapter;
 import io.netty.channel.embedded.EmbeddedByteChannel;
 import io.netty.handler.codec.DecoderException;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import io.netty.handler.codec.TooLongFrameException;
 import io.netty.util.CharsetUtil;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Test;
 
 public class LengthFieldBasedFrameDecoderTest {
@@ -65,4 +70,45 @@ public class LengthFieldBasedFrameDecoderTest {
             assertEquals("A", buf.toString(CharsetUtil.ISO_8859_1));
         }
     }
+
+    @Test
+    public void testBatchDecoding() throws Exception {
+        final List<ByteBuf> frames = new ArrayList<ByteBuf>();
+        EmbeddedByteChannel ch = new EmbeddedByteChannel(
+                new LengthFieldBasedFrameDecoder(16, 0, 1, 0, 1, true, true),
+                new ChannelInboundMessageHandlerAdapter<ByteBuf>() {
+                    @Override
+                    public void messageReceived(ChannelHandlerContext ctx, ByteBuf msg) throws Exception {
+                        // Keep the frames after they have been removed from the inbound buffer.
+                        frames.add(msg);
+                    }
+                });
+
+        ByteBuf batch = Unpooled.buffer();
+        for (int i = 0; i < 100; i ++) {
+            batch.writeByte(1);
+            batch.writeByte(i);
+        }
+        batch.writeByte(2);
+        batch.writeByte(100);
+        ch.writeInbound(batch);
+        assertEquals(100, frames.size());
+
+        // The read bytes of the cumulation buffer are discarded while the frames are kept.
+        ch.writeInbound(Unpooled.wrappedBuffer(new byte[] { 101, 1, 102 }));
+        ch.writeInbound(Unpooled.wrappedBuffer(new byte[] { 3, 103 }));
+        ch.writeInbound(Unpooled.wrappedBuffer(new byte[] { 104, 105, 1, 106 }));
+        assertEquals(104, frames.size());
+        assertFalse(ch.finish());
+
+        for (int i = 0; i < 100; i ++) {
+            ByteBuf frame = frames.get(i);
+            assertEquals(1, frame.readableBytes());
+            assertEquals(i, frame.readByte());
+        }
+        assertEquals(Unpooled.wrappedBuffer(new byte[] { 100, 101 }), frames.get(100));
+        assertEquals(Unpooled.wrappedBuffer(new byte[] { 102 }), frames.get(101));
+        assertEquals(Unpooled.wrappedBuffer(new byte[] { 103, 104, 105 }), frames.get(102));
+        assertEquals(Unpooled.wrappedBuffer(new byte[] { 106 }), frames.get(103));
+    }
 }
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.marshalling;
+
+import static org.junit.Assert.*;
+import io.netty.channel.embedded.EmbeddedByteChannel;
+
+import org.junit.Test;
+
+public class RiverPooledMarshallingEncoderTest extends RiverMarshallingEncoderTest {
+
+    @Override
+    protected MarshallerProvider createProvider() {
+        return new PooledMarshallerProvider(createMarshallerFactory(), createMarshallingConfig());
+    }
+
+    @Test
+    public void testMarshallerReused() {
+        PooledMarshallerProvider provider = (PooledMarshallerProvider) createProvider();
+        EmbeddedByteChannel ch = new EmbeddedByteChannel(new MarshallingEncoder(provider));
+
+        ch.writeOutbound("first");
+        ch.writeOutbound("second");
+        assertEquals(1, provider.misses());
+        assertEquals(1, provider.hits());
+        assertTrue(ch.finish());
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.marshalling;
+
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.DefaultEventExecutorGroup;
+import io.netty.channel.EventExecutorGroup;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+public class RiverStreamingMarshallingDecoderTest extends RiverMarshallingDecoderTest {
+
+    private static final EventExecutorGroup EXECUTOR = new DefaultEventExecutorGroup(1);
+
+    @AfterClass
+    public static void destroy() {
+        EXECUTOR.shutdown();
+    }
+
+    @Override
+    protected ChannelHandler createDecoder(int maxObjectSize) {
+        return new StreamingMarshallingDecoder(
+                createProvider(createMarshallerFactory(), createMarshallingConfig()), maxObjectSize, EXECUTOR);
+    }
+
+    @Test
+    public void testStreamedUnmarshalling() throws Exception {
+        newTester().testStreamedUnmarshalling();
+    }
+
+    @Test
+    public void testReadTimeout() throws Exception {
+        newTester().testReadTimeout();
+    }
+
+    @Test
+    public void testAbortOnChannelInactive() throws Exception {
+        newTester().testAbortOnChannelInactive();
+    }
+
+    private StreamingMarshallingDecoderTester newTester() {
+        return new StreamingMarshallingDecoderTester(
+                createMarshallerFactory(), createMarshallingConfig(),
+                createProvider(createMarshallerFactory(), createMarshallingConfig()), EXECUTOR);
+    }
+}
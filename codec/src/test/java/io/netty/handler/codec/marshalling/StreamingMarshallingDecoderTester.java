@@ -0,0 +1,171 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.marshalling;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundMessageHandlerAdapter;
+import io.netty.channel.DefaultEventExecutorGroup;
+import io.netty.channel.EventExecutorGroup;
+import io.netty.channel.embedded.EmbeddedByteChannel;
+import io.netty.handler.codec.DecoderException;
+import org.jboss.marshalling.Marshaller;
+import org.jboss.marshalling.MarshallerFactory;
+import org.jboss.marshalling.Marshalling;
+import org.jboss.marshalling.MarshallingConfiguration;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Streams objects through a {@link StreamingMarshallingDecoder} with a low streaming threshold.
+ * The decoder runs on its own {@link EventExecutorGroup} rather than on the event loop of the
+ * {@link EmbeddedByteChannel}, which runs the tasks submitted by the unmarshalling thread inline.
+ */
+final class StreamingMarshallingDecoderTester {
+
+    private static final int STREAMING_THRESHOLD = 1024;
+    private static final int CHUNK_SIZE = 1000;
+
+    private final MarshallerFactory marshallerFactory;
+    private final MarshallingConfiguration configuration;
+    private final UnmarshallerProvider provider;
+    private final EventExecutorGroup executor;
+
+    StreamingMarshallingDecoderTester(
+            MarshallerFactory marshallerFactory, MarshallingConfiguration configuration,
+            UnmarshallerProvider provider, EventExecutorGroup executor) {
+        this.marshallerFactory = marshallerFactory;
+        this.configuration = configuration;
+        this.provider = provider;
+        this.executor = executor;
+    }
+
+    void testStreamedUnmarshalling() throws Exception {
+        byte[] largeObject = largeObject();
+        ByteBuf input = Unpooled.wrappedBuffer(frame(largeObject), frame("test"));
+
+        EventExecutorGroup loop = new DefaultEventExecutorGroup(1);
+        try {
+            BlockingQueue<Object> received = new LinkedBlockingQueue<Object>();
+            EmbeddedByteChannel ch = newChannel(loop, received, 10, TimeUnit.SECONDS);
+            while (input.readable()) {
+                ch.writeInbound(input.readSlice(Math.min(CHUNK_SIZE, input.readableBytes())));
+            }
+
+            assertArrayEquals(largeObject, (byte[]) received.poll(10, TimeUnit.SECONDS));
+            assertEquals("test", received.poll(10, TimeUnit.SECONDS));
+            assertNull(received.poll(100, TimeUnit.MILLISECONDS));
+        } finally {
+            loop.shutdown();
+        }
+    }
+
+    void testReadTimeout() throws Exception {
+        ByteBuf input = frame(largeObject());
+
+        EventExecutorGroup loop = new DefaultEventExecutorGroup(1);
+        try {
+            BlockingQueue<Object> received = new LinkedBlockingQueue<Object>();
+            EmbeddedByteChannel ch = newChannel(loop, received, 100, TimeUnit.MILLISECONDS);
+            ch.writeInbound(input.readSlice(CHUNK_SIZE));
+
+            Object failure = received.poll(10, TimeUnit.SECONDS);
+            assertEquals(DecoderException.class, failure.getClass());
+            assertEquals(SocketTimeoutException.class, ((Throwable) failure).getCause().getClass());
+            assertNull(received.poll(100, TimeUnit.MILLISECONDS));
+        } finally {
+            loop.shutdown();
+        }
+    }
+
+    void testAbortOnChannelInactive() throws Exception {
+        ByteBuf input = frame(largeObject());
+
+        EventExecutorGroup loop = new DefaultEventExecutorGroup(1);
+        try {
+            BlockingQueue<Object> received = new LinkedBlockingQueue<Object>();
+            EmbeddedByteChannel ch = newChannel(loop, received, 30, TimeUnit.SECONDS);
+            ch.writeInbound(input.readSlice(CHUNK_SIZE));
+            // Wait until the decoder starts the unmarshalling.
+            runPendingTasks(loop);
+            ch.close().sync();
+
+            // The unmarshalling thread must be released long before the read timeout.
+            runPendingTasks(executor);
+            assertNull(received.poll(100, TimeUnit.MILLISECONDS));
+        } finally {
+            loop.shutdown();
+        }
+    }
+
+    private EmbeddedByteChannel newChannel(
+            EventExecutorGroup loop, final BlockingQueue<Object> received, long readTimeout, TimeUnit unit) {
+        EmbeddedByteChannel ch = new EmbeddedByteChannel(new ChannelInboundMessageHandlerAdapter<Object>() {
+            @Override
+            public void messageReceived(ChannelHandlerContext ctx, Object msg) throws Exception {
+                received.add(msg);
+            }
+
+            @Override
+            public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+                received.add(cause);
+            }
+        });
+        ch.pipeline().addFirst(loop, "decoder", new StreamingMarshallingDecoder(
+                provider, Integer.MAX_VALUE, STREAMING_THRESHOLD, executor, readTimeout, unit));
+        return ch;
+    }
+
+    private static void runPendingTasks(EventExecutorGroup group) throws Exception {
+        group.next().submit(new Runnable() {
+            @Override
+            public void run() {
+                // Nothing to do
+            }
+        }).get(10, TimeUnit.SECONDS);
+    }
+
+    private static byte[] largeObject() {
+        byte[] largeObject = new byte[100 * CHUNK_SIZE];
+        for (int i = 0; i < largeObject.length; i ++) {
+            largeObject[i] = (byte) i;
+        }
+        return largeObject;
+    }
+
+    private ByteBuf frame(Object obj) throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        Marshaller marshaller = marshallerFactory.createMarshaller(configuration);
+        marshaller.start(Marshalling.createByteOutput(bout));
+        marshaller.writeObject(obj);
+        marshaller.finish();
+        marshaller.close();
+
+        byte[] bytes = bout.toByteArray();
+        ByteBuf frame = Unpooled.buffer(4 + bytes.length);
+        frame.writeInt(bytes.length);
+        frame.writeBytes(bytes);
+        return frame;
+    }
+}
@@ -18,11 +18,15 @@ package io.netty.handler.codec.protobuf;
 import static io.netty.buffer.Unpooled.*;
 import static org.hamcrest.core.Is.*;
 import static org.junit.Assert.*;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.embedded.EmbeddedByteChannel;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+
 public class ProtobufVarint32LengthFieldPrependerTest {
 
     private EmbeddedByteChannel ch;
@@ -50,4 +54,26 @@ public class ProtobufVarint32LengthFieldPrependerTest {
         ch.writeOutbound(wrappedBuffer(b, 2, b.length - 2));
         assertThat(ch.readOutbound(), is(wrappedBuffer(b)));
     }
+
+    @Test
+    public void testMessageEncode() {
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 100; i ++) {
+            name.append("message").append(i);
+        }
+        FileDescriptorProto message = FileDescriptorProto.newBuilder().setName(name.toString()).build();
+        byte[] body = message.toByteArray();
+
+        ch.writeOutbound(message);
+        ByteBuf frame = (ByteBuf) ch.readOutbound();
+        assertThat(frame.readableBytes(), is(CodedOutputStream.computeRawVarint32Size(body.length) + body.length));
+        assertThat(frame.readByte() & 0xFF, is(body.length & 0x7F | 0x80));
+        assertThat((int) frame.readByte(), is(body.length >>> 7));
+        assertThat(frame, is(wrappedBuffer(body)));
+
+        ch.writeOutbound(message.toBuilder());
+        frame = (ByteBuf) ch.readOutbound();
+        frame.skipBytes(2);
+        assertThat(frame, is(wrappedBuffer(body)));
+    }
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.serialization;
+
+import static org.junit.Assert.*;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedByteChannel;
+
+import java.io.Serializable;
+
+import org.junit.Test;
+
+public class ObjectEncoderTest {
+
+    @Test
+    public void testSessionScopedEncoding() {
+        EmbeddedByteChannel encoder = new EmbeddedByteChannel(new ObjectEncoder(true));
+        EmbeddedByteChannel decoder = new EmbeddedByteChannel(
+                new ObjectDecoder(1048576, ClassResolvers.cacheDisabled(null), true));
+
+        Message message = new Message();
+        int firstLength = 0;
+        for (int i = 0; i < 3; i ++) {
+            // The same object is changed and sent again; the peer must see the changes.
+            message.value = i;
+            message.text = "message " + i;
+            encoder.writeOutbound(message);
+            ByteBuf frame = encoder.readOutbound();
+            if (i == 0) {
+                firstLength = frame.readableBytes();
+            } else {
+                // The class descriptor is referred to by its id.
+                assertTrue(frame.readableBytes() < firstLength - Message.class.getName().length());
+            }
+
+            decoder.writeInbound(frame);
+            Message decoded = (Message) decoder.readInbound();
+            assertNotSame(message, decoded);
+            assertEquals(i, decoded.value);
+            assertEquals("message " + i, decoded.text);
+        }
+    }
+
+    @Test
+    public void testSessionScopedEncodingIntoNewBuffers() throws Exception {
+        ObjectEncoder objectEncoder = new ObjectEncoder(true);
+        EmbeddedByteChannel encoder = new EmbeddedByteChannel(objectEncoder);
+        ChannelHandlerContext ctx = encoder.pipeline().context(objectEncoder);
+        EmbeddedByteChannel decoder = new EmbeddedByteChannel(
+                new ObjectDecoder(1048576, ClassResolvers.cacheDisabled(null), true));
+
+        for (int i = 0; i < 3; i ++) {
+            // Every message goes to a buffer of its own, which must not be confused with the first one.
+            Message message = new Message();
+            message.value = i;
+            message.text = "message " + i;
+            ByteBuf frame = Unpooled.buffer();
+            objectEncoder.encode(ctx, message, frame);
+            assertTrue(frame.readable());
+
+            decoder.writeInbound(frame);
+            Message decoded = (Message) decoder.readInbound();
+            assertEquals(i, decoded.value);
+            assertEquals("message " + i, decoded.text);
+        }
+    }
+
+    static final class Message implements Serializable {
+        private static final long serialVersionUID = 3470405244434452312L;
+
+        int value;
+        String text;
+    }
+}